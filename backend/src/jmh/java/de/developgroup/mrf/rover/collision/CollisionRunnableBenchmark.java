@@ -0,0 +1,49 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import de.developgroup.mrf.rover.gpio.GpioControllerMock;
+import de.developgroup.mrf.rover.pcf8591.IRSensorMock;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.recorder.FlightRecorder;
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One polling cycle of the collision thread against mock sensors, i.e. the software overhead on top of the I2C
+ * transfers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionRunnableBenchmark {
+
+    CollisionRunnable collisionRunnable;
+
+    @Setup
+    public void setUp() {
+        collisionRunnable = new CollisionRunnable((channel, ledPin) -> new IRSensorMock(),
+                new GpioControllerMock(), null, new EventBus(new MetricsRegistry(), Runnable::run),
+                new MetricsRegistry(), new TelemetryStore(),
+                new FlightRecorder(new MetricsRegistry()));
+    }
+
+    @Benchmark
+    public RoverCollisionInformation readAllSensors() throws IOException {
+        return collisionRunnable.readAllSensors();
+    }
+
+    @Benchmark
+    public int readAllSensorsPacked() throws IOException {
+        return collisionRunnable.readSensors(AdaptivePollRate.ALL_SENSORS);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server;
+
+import de.developgroup.mrf.rover.collision.RoverCollisionInformation;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.handler.ClientInformationHandlerImpl;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.rpc.JsonRpc2Request;
+import org.eclipse.jetty.websocket.api.Session;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broadcasting a collision update, the most frequent server push, to N connected clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientManagerBenchmark {
+
+    @Param({"1", "10", "50"})
+    int clients;
+
+    ClientManagerImpl clientManager;
+
+    List<Session> sessions = new ArrayList<>();
+
+    JsonRpc2Request collisionUpdate;
+
+    final AtomicLong sentBytes = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        clientManager = new ClientManagerImpl(new ClientInformationHandlerImpl(null), null,
+                new EventBus(new MetricsRegistry(), Runnable::run));
+        for (int i = 0; i < clients; i++) {
+            Session session = SessionStubs.open("10.0.0." + (i % 250 + 1), sentBytes);
+            sessions.add(session);
+            clientManager.addClient(session);
+        }
+        List<Object> params = new ArrayList<>();
+        params.add(new RoverCollisionInformation());
+        collisionUpdate = new JsonRpc2Request("updateCollisionInformation", params);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (Session session : sessions) {
+            session.close();
+        }
+        clientManager.removeClosedSessions();
+    }
+
+    @Benchmark
+    public void notifyAllClients() {
+        clientManager.notifyAllClients(collisionUpdate);
+    }
+}
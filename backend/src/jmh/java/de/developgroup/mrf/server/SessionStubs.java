@@ -0,0 +1,75 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight websocket sessions for benchmarks. Unlike Mockito mocks they do not record invocations, so they neither
+ * allocate nor slow down the code under measurement.
+ */
+public final class SessionStubs {
+
+    private SessionStubs() {
+    }
+
+    /**
+     * Create an open session whose remote endpoint discards all messages.
+     * @param ipAddress remote address reported by the session
+     * @param sentBytes counter that sums up the length of all sent strings
+     * @return the session stub
+     */
+    public static Session open(String ipAddress, AtomicLong sentBytes) {
+        InetSocketAddress remoteAddress = new InetSocketAddress(ipAddress, 40000);
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString")) {
+                        sentBytes.addAndGet(((String) args[0]).length());
+                        if (args.length > 1) {
+                            ((WriteCallback) args[1]).writeSuccess();
+                        }
+                    }
+                    return defaultValue(method.getReturnType());
+                });
+        boolean[] open = {true};
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getRemote":
+                            return remote;
+                        case "getRemoteAddress":
+                            return remoteAddress;
+                        case "isOpen":
+                            return open[0];
+                        case "close":
+                            open[0] = false;
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.controller;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of joystick input into motor settings, done once per joystick frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContinuousDrivingAlgorithmBenchmark {
+
+    static final int INPUTS = 1024;
+
+    @Param({"reference", "lookupTable"})
+    String implementation;
+
+    ContinuousDrivingAlgorithm algorithm;
+
+    final MotorSettings target = new MotorSettings(0, 0);
+
+    final int[] angles = new int[INPUTS];
+
+    final int[] speeds = new int[INPUTS];
+
+    int next;
+
+    @Setup
+    public void setUp() {
+        if (implementation.equals("lookupTable")) {
+            algorithm = new LookupTableDrivingAlgorithm();
+        } else {
+            algorithm = new ContinuousDrivingAlgorithmImpl();
+        }
+        // fixed seed, every run sees the same joystick positions
+        Random random = new Random(42);
+        for (int i = 0; i < INPUTS; i++) {
+            angles[i] = random.nextInt(360);
+            speeds[i] = random.nextInt(101);
+        }
+    }
+
+    @Benchmark
+    public MotorSettings calculateMotorSetting() {
+        int i = next++ & (INPUTS - 1);
+        return algorithm.calculateMotorSetting(angles[i], speeds[i]);
+    }
+
+    @Benchmark
+    public MotorSettings calculateMotorSettingIntoTarget() {
+        int i = next++ & (INPUTS - 1);
+        algorithm.calculateMotorSetting(angles[i], speeds[i], target);
+        return target;
+    }
+}
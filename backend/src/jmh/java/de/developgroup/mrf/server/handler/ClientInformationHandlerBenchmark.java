@@ -0,0 +1,76 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.handler;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in the connected client bookkeeping, done for every command a client sends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientInformationHandlerBenchmark {
+
+    static final int FIRST_CLIENT_ID = 5000;
+
+    @Param({"10", "100"})
+    int clients;
+
+    ClientInformationHandlerImpl handler;
+
+    /**
+     * Ip address of each client, precomputed so the benchmarks do not measure string concatenation.
+     */
+    String[] ipAddresses;
+
+    int next;
+
+    @Setup
+    public void setUp() {
+        handler = new ClientInformationHandlerImpl(null);
+        ipAddresses = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            // two connections per ip address, every fifth address is blocked
+            int address = i / 2;
+            ipAddresses[i] = "10.0." + (address / 250) + "." + (address % 250 + 1);
+            handler.addConnection(ipAddresses[i], FIRST_CLIENT_ID + i);
+        }
+        for (int i = 0; i < clients; i += 10) {
+            handler.blockIp(ipAddresses[i]);
+        }
+    }
+
+    int nextClient() {
+        int client = next++;
+        if (next == clients) {
+            next = 0;
+        }
+        return client;
+    }
+
+    @Benchmark
+    public boolean isBlockedByIp() {
+        return handler.isBlocked(ipAddresses[nextClient()]);
+    }
+
+    @Benchmark
+    public boolean isBlockedByClientId() {
+        return handler.isBlocked(FIRST_CLIENT_ID + nextClient());
+    }
+
+    @Benchmark
+    public int addAndRemoveConnection() {
+        int client = nextClient();
+        handler.removeConnection(FIRST_CLIENT_ID + client);
+        handler.addConnection(ipAddresses[client], FIRST_CLIENT_ID + client);
+        return client;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.rpc;
+
+import de.developgroup.mrf.rover.collision.RoverCollisionInformation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, serialization and dispatch of JSON-RPC messages, i.e. the per-frame cost of the websocket endpoint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonRpc2Benchmark {
+
+    static final String DRIVE_NOTIFICATION = "{\"jsonrpc\":\"2.0\",\"method\":\"driveContinuously\",\"params\":[135,80]}";
+
+    static final String PING_REQUEST = "{\"jsonrpc\":\"2.0\",\"method\":\"ping\",\"params\":[42],\"id\":7}";
+
+    /**
+     * Socket with a driving and a ping method that do no work, so only parsing and reflective dispatch are measured.
+     */
+    public static class BenchmarkSocket extends JsonRpc2Socket {
+
+        int lastAngle;
+
+        public void driveContinuously(Number angle, Number speed) {
+            lastAngle = angle.intValue();
+        }
+
+        public String ping(Number sqn) {
+            return "pong " + (sqn.intValue() + 1);
+        }
+
+        String dispatch(String message) {
+            return processMessage(message);
+        }
+    }
+
+    BenchmarkSocket socket;
+
+    JsonRpc2Request collisionUpdate;
+
+    JsonRpc2ResponseResult pingResponse;
+
+    @Setup
+    public void setUp() {
+        socket = new BenchmarkSocket();
+        List<Object> params = new ArrayList<>();
+        params.add(new RoverCollisionInformation());
+        collisionUpdate = new JsonRpc2Request("updateCollisionInformation", params);
+        pingResponse = new JsonRpc2ResponseResult("pong 43", 7);
+    }
+
+    @Benchmark
+    public JsonRpc2Request parseNotification() {
+        return JsonRpc2Request.parse(DRIVE_NOTIFICATION);
+    }
+
+    @Benchmark
+    public JsonRpc2Request parseRequest() {
+        return JsonRpc2Request.parse(PING_REQUEST);
+    }
+
+    @Benchmark
+    public String serializeNotification() {
+        return collisionUpdate.toJsonString();
+    }
+
+    @Benchmark
+    public String serializeResponse() {
+        return pingResponse.toJsonString();
+    }
+
+    @Benchmark
+    public String dispatchNotification() {
+        return socket.dispatch(DRIVE_NOTIFICATION);
+    }
+
+    @Benchmark
+    public String dispatchRequest() {
+        return socket.dispatch(PING_REQUEST);
+    }
+}
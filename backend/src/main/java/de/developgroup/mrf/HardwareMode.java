@@ -0,0 +1,31 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf;
+
+/**
+ * What the backend controls, selected on the command line.
+ */
+public enum HardwareMode {
+    /**
+     * The rover hardware.
+     */
+    REAL,
+    /**
+     * Mocks that need no hardware and do essentially nothing.
+     */
+    MOCK,
+    /**
+     * The drivers of the rover hardware, on emulated I2C devices.
+     */
+    EMULATED,
+    /**
+     * Like EMULATED, with the devices driven by a simulated world the rover moves in.
+     */
+    SIMULATED,
+    /**
+     * Mocks, except for the IR sensors, which are read from a recording through the real code.
+     */
+    REPLAY
+}
@@ -17,12 +17,22 @@ import javax.servlet.DispatcherType;
 
 import de.developgroup.mrf.server.handler.*;
 import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.rover.i2c.EmulatedI2CBus;
+import de.developgroup.mrf.rover.simulation.RoverSimulation;
+import de.developgroup.mrf.rover.sensor.SensorRegistry;
+import de.developgroup.mrf.rover.sensor.SensorSampler;
+import de.developgroup.mrf.server.capture.TrafficCapture;
+import de.developgroup.mrf.server.content.StaticContentHandler;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.recorder.FlightRecorder;
+import de.developgroup.mrf.server.replay.SessionReplayer;
+import de.developgroup.mrf.server.startup.StartupOrchestrator;
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
 import org.cfg4j.provider.ConfigurationProvider;
 import org.cfg4j.provider.ConfigurationProviderBuilder;
 import org.cfg4j.source.ConfigurationSource;
 import org.cfg4j.source.files.FilesConfigurationSource;
 import org.cfg4j.source.reload.strategy.PeriodicalReloadStrategy;
-import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.DefaultHandler;
 import org.eclipse.jetty.server.handler.HandlerList;
@@ -42,8 +52,11 @@ public class Main {
 	public static final int SERVER_PORT = 80;
 	public static final int SERVER_PORT_DEV = 8000;
 
-	private static boolean useMocks = false;
+	private static HardwareMode hardwareMode = HardwareMode.REAL;
 	private static boolean developerMode = false;
+	private static Path replayDirectory;
+	private static double replaySpeed = 1;
+	private static Path captureFile;
 
 	@Inject
 	public static ClientInformationHandler clientInformationHandler;
@@ -60,6 +73,30 @@ public class Main {
 	@Inject
 	public static CollisionRunnable collisionRunnable;
 
+	@Inject
+	public static HeartbeatWatchdog heartbeatWatchdog;
+
+	@Inject
+	public static SensorRegistry sensorRegistry;
+
+	@Inject
+	public static SensorSampler sensorSampler;
+
+	@Inject
+	public static TelemetryStore telemetryStore;
+
+	@Inject
+	public static FlightRecorder flightRecorder;
+
+	@Inject
+	public static TrafficCapture trafficCapture;
+
+	@Inject
+	public static StartupOrchestrator startupOrchestrator;
+
+	@Inject
+	public static MetricsRegistry metricsRegistry;
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(Main.class);
 
 	public static void main(String[] args) {
@@ -68,16 +105,30 @@ public class Main {
 			return;
 		}
 
-		NonServletModule nonServletModule = new NonServletModule(useMocks);
+		NonServletModule nonServletModule = new NonServletModule(hardwareMode);
 		RoverServletsModule roverServletsModule = new RoverServletsModule();
 
 		Injector injector = Guice.createInjector(nonServletModule,
 				roverServletsModule);
 
-		// initialize rover handler
+		ConfigurationProvider roverProperties;
 		try {
-			ConfigurationProvider roverProperties = getPropertiesProvider();
-			roverHandler.initRover(roverProperties);
+			roverProperties = getPropertiesProvider();
+			// before anything is recorded
+			telemetryStore.initialize(roverProperties);
+			if (hardwareMode == HardwareMode.EMULATED
+					|| hardwareMode == HardwareMode.SIMULATED) {
+				// before the drivers open their devices
+				injector.getInstance(EmulatedI2CBus.class).initialize(roverProperties);
+			}
+			if (hardwareMode == HardwareMode.SIMULATED) {
+				RoverSimulation simulation = injector.getInstance(RoverSimulation.class);
+				simulation.initialize(roverProperties);
+				simulation.start();
+			}
+			if (captureFile != null) {
+				startCapture();
+			}
 		} catch (IllegalStateException ex) {
 			LOGGER.error("", ex);
 			LOGGER.error("RoverHandler could not be initialized, because of missing rover.properties file or missing a property in this file.");
@@ -88,7 +139,67 @@ public class Main {
 			return;
 		}
 
-		// set up jetty default server
+		Server server = createServer();
+
+		// the server accepts clients while the hardware is opened, their
+		// commands for it are dropped until the collision detection runs
+		startupOrchestrator.addStage(StartupOrchestrator.SERVER, server::start);
+		if (hardwareMode != HardwareMode.REPLAY) {
+			// a replay must not record over its recording
+			startupOrchestrator.addStage(StartupOrchestrator.RECORDER,
+					() -> flightRecorder.start(roverProperties));
+		}
+		// drive and head open the same PWM generator one after the other
+		startupOrchestrator.addStage(StartupOrchestrator.HARDWARE, () -> {
+			roverHandler.initRover(roverProperties);
+			heartbeatWatchdog.start(roverProperties);
+		});
+		// a collision stops the motors
+		startupOrchestrator.addStage(StartupOrchestrator.COLLISION, () -> {
+			collisionRunnable.initialize(roverProperties);
+			if (hardwareMode != HardwareMode.REPLAY) {
+				// the replay polls the collision sensors itself
+				Thread collisionThread = new Thread(collisionRunnable, "collision");
+				collisionThread.start();
+			}
+		}, StartupOrchestrator.HARDWARE);
+		startupOrchestrator.addStage(StartupOrchestrator.SENSORS, () -> {
+			sensorRegistry.initialize(roverProperties);
+			sensorSampler.start();
+		});
+
+		if (!startupOrchestrator.run()) {
+			LOGGER.error("RoverHandler could not be initialized, see the failed startup stages above.");
+			try {
+				server.stop();
+			} catch (Exception e) {
+				LOGGER.error("error occurred by stopping jetty server");
+			}
+			// watchdog and configuration reload threads would keep the JVM running
+			System.exit(1);
+		}
+
+		if (hardwareMode == HardwareMode.REPLAY) {
+			SessionReplayer replayer = injector.getInstance(SessionReplayer.class);
+			Thread replayThread = new Thread(() -> replay(replayer, server), "replay");
+			replayThread.start();
+		}
+
+		try {
+			server.join();
+		} catch (InterruptedException e) {
+			LOGGER.error("interrupted while running jetty server");
+		}
+		if (hardwareMode == HardwareMode.REPLAY) {
+			// watchdog and configuration reload threads would keep the JVM running
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * Set up the jetty server, serving the client files and the servlets.
+	 */
+	private static Server createServer() {
 		int port;
 		if (developerMode) {
 			port = SERVER_PORT_DEV;
@@ -104,27 +215,47 @@ public class Main {
 
 		servletContextHandler.addServlet(DefaultServlet.class, "/");
 
-		// serve client files
+		// serve client files, precompressed and cached where possible,
+		// directory listings and redirects by the resource handler
 		ResourceHandler resourceHandler = new ResourceHandler();
 		resourceHandler.setDirectoriesListed(true);
 		resourceHandler.setWelcomeFiles(new String[] { "index.html" });
+		HandlerList handlers = new HandlerList();
 		URL clientDir = Main.class.getClassLoader().getResource("client");
 		if (clientDir != null) {
 			resourceHandler.setResourceBase(clientDir.toExternalForm());
+			handlers.addHandler(new StaticContentHandler(resourceHandler.getBaseResource(), metricsRegistry));
 		}
-		HandlerList handlers = new HandlerList();
-		handlers.setHandlers(new Handler[] { resourceHandler,
-				servletContextHandler, new DefaultHandler() });
+		handlers.addHandler(resourceHandler);
+		handlers.addHandler(servletContextHandler);
+		handlers.addHandler(new DefaultHandler());
 		server.setHandler(handlers);
+		return server;
+	}
 
-		Thread collisionThread = new Thread(collisionRunnable, "collision");
-		collisionThread.start();
+	private static void startCapture() {
+		try {
+			trafficCapture.start(captureFile);
+			// write the buffered frames when stopped with Ctrl-C
+			Runtime.getRuntime().addShutdownHook(new Thread(trafficCapture::stop, "capture-shutdown"));
+		} catch (IOException e) {
+			LOGGER.error("Cannot capture websocket traffic to " + captureFile + ": " + e);
+		}
+	}
 
+	/**
+	 * Replay the recording and stop the server when done.
+	 */
+	private static void replay(SessionReplayer replayer, Server server) {
 		try {
-			server.start();
-			server.join();
+			replayer.replay(replayDirectory, replaySpeed);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.error("Replay failed", e);
+		}
+		try {
+			server.stop();
 		} catch (Exception e) {
-			LOGGER.error("error occurred by starting jetty server");
+			LOGGER.error("error occurred by stopping jetty server");
 		}
 	}
 
@@ -168,7 +299,38 @@ public class Main {
 
 			if (arg.equals("-m") || arg.equals("--use-mocks")) {
 				LOGGER.info("use mocks activated");
-				useMocks = true;
+				hardwareMode = HardwareMode.MOCK;
+			}
+
+			if (arg.equals("-e") || arg.equals("--emulate")) {
+				LOGGER.info("emulated i2c devices activated");
+				hardwareMode = HardwareMode.EMULATED;
+			}
+
+			if (arg.equals("-s") || arg.equals("--simulate")) {
+				LOGGER.info("simulated world activated");
+				hardwareMode = HardwareMode.SIMULATED;
+			}
+
+			if ((arg.equals("-r") || arg.equals("--replay")) && i < args.length) {
+				replayDirectory = Paths.get(args[i++]);
+				LOGGER.info("replay of " + replayDirectory + " activated");
+				hardwareMode = HardwareMode.REPLAY;
+			}
+
+			if (arg.equals("--replay-speed") && i < args.length) {
+				String speed = args[i++];
+				try {
+					replaySpeed = speed.equals("max") ? Double.POSITIVE_INFINITY : Double.parseDouble(speed);
+				} catch (NumberFormatException e) {
+					System.out.println("Invalid replay speed " + speed);
+					return true;
+				}
+			}
+
+			if (arg.equals("--capture") && i < args.length) {
+				captureFile = Paths.get(args[i++]);
+				LOGGER.info("capture of websocket traffic to " + captureFile + " activated");
 			}
 
 			if (arg.equals("-d") || arg.equals("--dev")) {
@@ -180,7 +342,12 @@ public class Main {
 			if (arg.equals("-h") || arg.equals("--help")) {
 				System.out.println("Valid Arguments:\n");
 				System.out.println("-m --use-mocks\t-> mockup gpio ports");
+				System.out.println("-e --emulate\t-> run the hardware drivers on emulated i2c devices");
+				System.out.println("-s --simulate\t-> like --emulate, in a simulated world the rover drives in");
 				System.out.println("-d --dev\t-> start in developer mode");
+				System.out.println("-r --replay <dir>\t-> replay the flight recordings in dir instead of using hardware");
+				System.out.println("--replay-speed <factor|max>\t-> replay speed, 1 by default");
+				System.out.println("--capture <file>\t-> capture all websocket traffic into file, for the TrafficReplayer");
 				System.out.println("-h --help\t-> this help output");
 
 				return true;
@@ -5,6 +5,7 @@
 package de.developgroup.mrf;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.pi4j.io.gpio.GpioController;
 
@@ -12,31 +13,49 @@ import com.pi4j.io.i2c.I2CBus;
 import com.pi4j.io.i2c.I2CDevice;
 import com.pi4j.io.i2c.I2CFactory;
 import de.developgroup.mrf.rover.collision.*;
+import de.developgroup.mrf.rover.gpio.EmulatedGpioController;
 import de.developgroup.mrf.rover.gpio.GpioControllerMockProvider;
 import de.developgroup.mrf.rover.gpio.GpioControllerProvider;
+import de.developgroup.mrf.rover.i2c.EmulatedI2CBus;
+import de.developgroup.mrf.rover.i2c.EmulatedPCF8591DeviceProvider;
 import de.developgroup.mrf.rover.pcf8591.*;
+import de.developgroup.mrf.rover.sensor.SensorDeviceFactory;
+import de.developgroup.mrf.rover.sensor.SensorDeviceFactoryImpl;
+import de.developgroup.mrf.rover.sensor.SensorDeviceFactoryMock;
 import de.developgroup.mrf.server.ClientManager;
 import de.developgroup.mrf.server.ClientManagerImpl;
 import de.developgroup.mrf.server.controller.*;
 import de.developgroup.mrf.server.handler.*;
+import de.developgroup.mrf.server.metrics.CommandTrace;
+import de.developgroup.mrf.server.replay.ReplayADConverter;
+import de.developgroup.mrf.server.replay.ReplayGpioController;
+import de.developgroup.mrf.server.rpc.CompositeRpcMessageObserver;
+import de.developgroup.mrf.server.rpc.JsonRpc2Socket;
+import de.developgroup.mrf.server.rpc.RpcMessageObserver;
+import de.developgroup.mrf.server.scheduling.SharedSchedulerProvider;
 import de.developgroup.mrf.server.socket.RoverSocket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
 
 
 public class NonServletModule extends AbstractModule {
 
 	private static Logger LOGGER = LoggerFactory.getLogger(NonServletModule.class);
 
-	private boolean useMocks = false;
+	private HardwareMode hardwareMode = HardwareMode.REAL;
 
 	public NonServletModule() {
 	}
 
 	public NonServletModule(boolean useMocks) {
-		this.useMocks = useMocks;
+		this(useMocks ? HardwareMode.MOCK : HardwareMode.REAL);
+	}
+
+	public NonServletModule(HardwareMode hardwareMode) {
+		this.hardwareMode = hardwareMode;
 	}
 
 	@Override
@@ -46,22 +65,54 @@ public class NonServletModule extends AbstractModule {
 
 		bind(RoverHandler.class).to(RoverHandlerImpl.class);
 
-		if (useMocks) {
+		if (hardwareMode == HardwareMode.EMULATED
+				|| hardwareMode == HardwareMode.SIMULATED) {
+			// use actual classes with emulated i2c devices
+			bind(CollisionController.class).to(CollisionControllerMock.class);
+			bind(DriveController.class).to(DriveControllerImpl.class);
+			bind(HeadController.class).to(HeadControllerImpl.class);
+			bind(GpioController.class).to(EmulatedGpioController.class);
+			bind(CameraSnapshotController.class).to(
+					CameraSnapshotControllerImpl.class);
+
+			bind(I2CBus.class).to(EmulatedI2CBus.class);
+			bind(I2CDevice.class)
+					.annotatedWith(PCF8591Device.class)
+					.toProvider(EmulatedPCF8591DeviceProvider.class);
+			bind(PCF8591ADConverter.class).to(PCF8591ADConverterImpl.class);
+
+			install(new FactoryModuleBuilder()
+					.implement(IRSensor.class, IRSensorImpl.class)
+					.build(IRSensorFactory.class));
+			bind(SensorDeviceFactory.class).to(SensorDeviceFactoryImpl.class);
+
+		} else if (hardwareMode != HardwareMode.REAL) {
 			// use mocking classes that need no rover hardware
 			bind(CollisionController.class).to(CollisionControllerMock.class);
 			bind(DriveController.class).to(DriveControllerMock.class);
 			bind(HeadController.class).to(HeadControllerMock.class);
-			bind(GpioController.class).toProvider(
-					GpioControllerMockProvider.class);
 //			 bind(CameraSnapshotController.class).to(
 //					 CameraSnapshotControllerMock.class);
 			bind(CameraSnapshotController.class).to(
 					CameraSnapshotControllerImpl.class);
-
-			// use mocked IRSensors that do essentially nothing
-			install(new FactoryModuleBuilder()
-					.implement(IRSensor.class, IRSensorMock.class)
-					.build(IRSensorFactory.class));
+			bind(SensorDeviceFactory.class).to(SensorDeviceFactoryMock.class);
+
+			if (hardwareMode == HardwareMode.REPLAY) {
+				// read the IR sensors through the actual classes, from the recording
+				bind(GpioController.class).to(ReplayGpioController.class);
+				bind(PCF8591ADConverter.class).to(ReplayADConverter.class);
+				install(new FactoryModuleBuilder()
+						.implement(IRSensor.class, IRSensorImpl.class)
+						.build(IRSensorFactory.class));
+			} else {
+				bind(GpioController.class).toProvider(
+						GpioControllerMockProvider.class);
+
+				// use mocked IRSensors that do essentially nothing
+				install(new FactoryModuleBuilder()
+						.implement(IRSensor.class, IRSensorMock.class)
+						.build(IRSensorFactory.class));
+			}
 
 		} else {
 			// use actual classes with hardware control
@@ -75,12 +126,11 @@ public class NonServletModule extends AbstractModule {
 			// acquire the i2c device for the PCF8591 a/d converter
 			// this looks ugly but is the only way to get it into Guice
 			try {
+				I2CBus bus = I2CFactory.getInstance(I2CBus.BUS_1);
+				bind(I2CBus.class).toInstance(bus);
 				bind(I2CDevice.class)
 						.annotatedWith(PCF8591Device.class)
-						.toInstance(I2CFactory
-								.getInstance(I2CBus.BUS_1)
-								.getDevice(0x48)
-						);
+						.toInstance(bus.getDevice(0x48));
 			} catch (IOException e) {
 				LOGGER.error("Fatal error while setting up Guice:");
 				LOGGER.error("Failed to get i2c dev 0x48 as PCF8591 a/d converter");
@@ -91,6 +141,7 @@ public class NonServletModule extends AbstractModule {
 			install(new FactoryModuleBuilder()
 					.implement(IRSensor.class, IRSensorImpl.class)
 					.build(IRSensorFactory.class));
+			bind(SensorDeviceFactory.class).to(SensorDeviceFactoryImpl.class);
 		}
 
 		bind(LoggingCommunicationController.class).to(
@@ -100,7 +151,13 @@ public class NonServletModule extends AbstractModule {
 		bind(ContinuousDrivingAlgorithm.class).to(ContinuousDrivingAlgorithmImpl.class);
 		bind(ClientInformationHandler.class).to(ClientInformationHandlerImpl.class);
 		bind(ClientManager.class).to(ClientManagerImpl.class);
+		bind(HeartbeatWatchdog.class).to(HeartbeatWatchdogImpl.class);
+		bind(ScheduledExecutorService.class).toProvider(
+				SharedSchedulerProvider.class).in(Singleton.class);
+		bind(RpcMessageObserver.class).to(CompositeRpcMessageObserver.class);
 
+		requestStaticInjection(JsonRpc2Socket.class);
+		requestStaticInjection(CommandTrace.class);
 		requestStaticInjection(RoverSocket.class);
 		requestStaticInjection(Main.class);
 	}
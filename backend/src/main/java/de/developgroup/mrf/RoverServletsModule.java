@@ -6,6 +6,7 @@ package de.developgroup.mrf;
 
 import com.google.inject.servlet.ServletModule;
 
+import de.developgroup.mrf.server.servlet.MetricsServlet;
 import de.developgroup.mrf.server.servlet.RoverServlet;
 
 public class RoverServletsModule extends ServletModule {
@@ -13,5 +14,6 @@ public class RoverServletsModule extends ServletModule {
 	protected void configureServlets() {
 		// bind all Servlets here
 		serve("/rover").with(RoverServlet.class);
+		serve("/metrics").with(MetricsServlet.class);
 	}
 }
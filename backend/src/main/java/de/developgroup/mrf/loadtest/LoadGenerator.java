@@ -0,0 +1,293 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.loadtest;
+
+import de.developgroup.mrf.server.metrics.LatencyHistogram;
+import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Headless load test of the websocket at /rover, to find out how many observers the backend serves before the
+ * latency of the driver suffers.
+ *
+ * One driver streams driveContinuously commands at {@value #DRIVE_RATE} Hz while the number of observers is ramped up
+ * in steps. All clients follow the protocol of the webapp, see {@link SimulatedClient}; one of them sends a broadcast
+ * probe every second. After every step a line is printed with the connect times of the new observers, the ping round
+ * trips of observers and driver, the delivery lag of the broadcasts and the notifications the backend dropped
+ * according to its /metrics. Durations are in milliseconds.
+ *
+ * Run it on another machine than the backend, with the jar with dependencies on the classpath:
+ * <pre>
+ * java -cp backend-1.0-SNAPSHOT-jar-with-dependencies.jar de.developgroup.mrf.loadtest.LoadGenerator \
+ *      -u ws://rover:8000/rover -c 1,10,50,100
+ * </pre>
+ * The driver sends speed 0 unless told otherwise, so a real rover does not move.
+ */
+public class LoadGenerator {
+
+    static final double DRIVE_RATE = 30;
+
+    static final String DROPPED_METRIC = "clients.notifications.dropped";
+
+    private static final long CONNECT_TIMEOUT = 10; //[s]
+
+    /**
+     * Pings without response after this time are counted as lost.
+     */
+    private static final long PING_TIMEOUT = 5; //[s]
+
+    private static final long PROBE_INTERVAL = 1000; //[ms]
+
+    private static final String HEADER = String.format("%9s %21s %21s %21s %21s %6s %6s %8s",
+            "observers", "connect p50/p99", "observer ping p50/p99", "driver ping p50/p99",
+            "broadcast p50/p99", "lost", "errors", "dropped");
+
+    private final URI uri;
+
+    private final URL metricsUrl;
+
+    private final int[] steps;
+
+    private final long stepDuration;
+
+    private final long pingInterval;
+
+    private final int driveSpeed;
+
+    private final LoadStatistics statistics = new LoadStatistics();
+
+    private final List<SimulatedClient> clients = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param uri websocket of the backend
+     * @param metricsUrl metrics of the backend
+     * @param steps numbers of observers to ramp up to, ascending
+     * @param stepDuration duration of a step in seconds
+     * @param pingInterval time between two pings of a client in ms
+     * @param driveSpeed speed of the drive commands between 0 and 100
+     */
+    public LoadGenerator(URI uri, URL metricsUrl, int[] steps, long stepDuration, long pingInterval,
+                         int driveSpeed) {
+        this.uri = uri;
+        this.metricsUrl = metricsUrl;
+        this.steps = steps;
+        this.stepDuration = stepDuration;
+        this.pingInterval = pingInterval;
+        this.driveSpeed = driveSpeed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI uri = new URI("ws://localhost:8000/rover");
+        URL metricsUrl = null;
+        int[] steps = {1, 5, 10, 25, 50};
+        long stepDuration = 30;
+        long pingInterval = 1000;
+        int driveSpeed = 0;
+
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i++];
+            try {
+                if ((arg.equals("-u") || arg.equals("--url")) && i < args.length) {
+                    uri = new URI(args[i++]);
+                } else if ((arg.equals("-m") || arg.equals("--metrics")) && i < args.length) {
+                    metricsUrl = new URL(args[i++]);
+                } else if ((arg.equals("-c") || arg.equals("--clients")) && i < args.length) {
+                    steps = parseSteps(args[i++]);
+                } else if ((arg.equals("-t") || arg.equals("--step-duration")) && i < args.length) {
+                    stepDuration = Long.parseLong(args[i++]);
+                } else if (arg.equals("--ping-interval") && i < args.length) {
+                    pingInterval = Long.parseLong(args[i++]);
+                } else if (arg.equals("--drive-speed") && i < args.length) {
+                    driveSpeed = Integer.parseInt(args[i++]);
+                } else {
+                    printHelp();
+                    return;
+                }
+            } catch (IllegalArgumentException | URISyntaxException e) {
+                System.out.println("Invalid value for " + arg + ": " + e.getMessage());
+                return;
+            }
+        }
+        if (metricsUrl == null) {
+            metricsUrl = metricsUrlOf(uri);
+        }
+
+        new LoadGenerator(uri, metricsUrl, steps, stepDuration, pingInterval, driveSpeed).run();
+    }
+
+    private static void printHelp() {
+        System.out.println("Valid Arguments:\n");
+        System.out.println("-u --url <ws url>\t-> websocket of the backend, ws://localhost:8000/rover by default");
+        System.out.println("-m --metrics <url>\t-> metrics of the backend, /metrics on the same host by default");
+        System.out.println("-c --clients <n,n,...>\t-> numbers of observers to ramp up to, 1,5,10,25,50 by default");
+        System.out.println("-t --step-duration <s>\t-> duration of each step, 30 s by default");
+        System.out.println("--ping-interval <ms>\t-> time between two pings of a client, 1000 ms by default");
+        System.out.println("--drive-speed <0-100>\t-> speed the driver sends, 0 by default");
+        System.out.println("-h --help\t-> this help output");
+    }
+
+    /**
+     * Connect the driver, then ramp up the observers and print a line per step. Stops early if an observer cannot
+     * connect.
+     */
+    public void run() throws Exception {
+        WebSocketClient webSocketClient = new WebSocketClient();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        webSocketClient.start();
+        try {
+            SimulatedClient driver = connect(webSocketClient, true);
+            driver.start(scheduler, pingInterval, DRIVE_RATE, driveSpeed);
+            scheduler.scheduleAtFixedRate(this::sendProbe, PROBE_INTERVAL, PROBE_INTERVAL, TimeUnit.MILLISECONDS);
+
+            System.out.println("Load test of " + uri + ", driver is client " + driver.getClientId());
+            System.out.println(HEADER);
+            for (int observers : steps) {
+                statistics.reset();
+                long droppedBefore = readCounter(metricsUrl, DROPPED_METRIC);
+                try {
+                    while (clients.size() - 1 < observers) {
+                        SimulatedClient observer = connect(webSocketClient, false);
+                        observer.start(scheduler, pingInterval, DRIVE_RATE, driveSpeed);
+                    }
+                } catch (IOException | ExecutionException | TimeoutException e) {
+                    System.out.println("Connecting observer " + clients.size() + " failed: " + e);
+                    break;
+                }
+                TimeUnit.SECONDS.sleep(stepDuration);
+                long expiry = System.nanoTime() - TimeUnit.SECONDS.toNanos(PING_TIMEOUT);
+                for (SimulatedClient client : clients) {
+                    client.expirePings(expiry);
+                }
+                long droppedAfter = readCounter(metricsUrl, DROPPED_METRIC);
+                long dropped = droppedBefore < 0 || droppedAfter < 0 ? -1 : droppedAfter - droppedBefore;
+                System.out.println(formatStep(observers, statistics, dropped));
+            }
+        } finally {
+            scheduler.shutdownNow();
+            for (SimulatedClient client : clients) {
+                client.stop();
+            }
+            webSocketClient.stop();
+        }
+    }
+
+    private SimulatedClient connect(WebSocketClient webSocketClient, boolean driver)
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        SimulatedClient client = new SimulatedClient(statistics, driver);
+        client.connecting();
+        webSocketClient.connect(client, uri, new ClientUpgradeRequest()).get(CONNECT_TIMEOUT, TimeUnit.SECONDS);
+        if (!client.awaitRegistration(CONNECT_TIMEOUT, TimeUnit.SECONDS)) {
+            client.stop();
+            throw new IOException("No client id received");
+        }
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * The first observer sends the probes, the driver as long as there is none.
+     */
+    private void sendProbe() {
+        SimulatedClient sender = clients.size() > 1 ? clients.get(1) : clients.get(0);
+        sender.sendProbe();
+    }
+
+    static String formatStep(int observers, LoadStatistics statistics, long dropped) {
+        return String.format("%9d %21s %21s %21s %21s %6d %6d %8s", observers,
+                formatPercentiles(statistics.connect), formatPercentiles(statistics.observerPing),
+                formatPercentiles(statistics.driverPing), formatPercentiles(statistics.broadcastLag),
+                statistics.lostPings.get(), statistics.errors.get(), dropped < 0 ? "n/a" : Long.toString(dropped));
+    }
+
+    private static String formatPercentiles(LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return "-";
+        }
+        return String.format("%.1f / %.1f", histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6);
+    }
+
+    /**
+     * @param steps comma separated, ascending numbers of observers
+     */
+    static int[] parseSteps(String steps) {
+        String[] parts = steps.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+            if (result[i] < 0 || (i > 0 && result[i] < result[i - 1])) {
+                throw new IllegalArgumentException("Numbers of observers must ascend");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return /metrics on the host of the websocket
+     */
+    static URL metricsUrlOf(URI uri) throws IOException {
+        String scheme = "wss".equals(uri.getScheme()) ? "https" : "http";
+        return new URL(scheme, uri.getHost(), uri.getPort(), "/metrics");
+    }
+
+    /**
+     * Read a counter from the metrics of the backend.
+     * @return value of the counter, -1 if it cannot be read
+     */
+    static long readCounter(URL metricsUrl, String name) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) metricsUrl.openConnection();
+            connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(CONNECT_TIMEOUT));
+            connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(CONNECT_TIMEOUT));
+            StringBuilder text = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    text.append(line).append('\n');
+                }
+            }
+            return parseCounter(text.toString(), name);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param metrics metrics in the text format of the backend, one "name value" per line
+     * @return value of the counter, -1 if there is none
+     */
+    static long parseCounter(String metrics, String name) {
+        String prefix = name + " ";
+        for (String line : metrics.split("\n")) {
+            if (line.startsWith(prefix)) {
+                try {
+                    return Long.parseLong(line.substring(prefix.length()).trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+}
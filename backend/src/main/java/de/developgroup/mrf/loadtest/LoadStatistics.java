@@ -0,0 +1,69 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.loadtest;
+
+import de.developgroup.mrf.server.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measurements of the simulated clients during one step of a load test, shared by all clients.
+ */
+public class LoadStatistics {
+
+    /**
+     * From opening the connection until the client got its id.
+     */
+    final LatencyHistogram connect = new LatencyHistogram();
+
+    /**
+     * Round trip of pings sent by the observers.
+     */
+    final LatencyHistogram observerPing = new LatencyHistogram();
+
+    /**
+     * Round trip of pings sent by the driver, between its drive commands.
+     */
+    final LatencyHistogram driverPing = new LatencyHistogram();
+
+    /**
+     * From sending a broadcast probe until an observer received it.
+     */
+    final LatencyHistogram broadcastLag = new LatencyHistogram();
+
+    /**
+     * Messages sent by the clients.
+     */
+    final AtomicLong sent = new AtomicLong();
+
+    /**
+     * Messages received by the clients.
+     */
+    final AtomicLong received = new AtomicLong();
+
+    /**
+     * Error responses, failed sends and connections closed by the server.
+     */
+    final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Pings without response.
+     */
+    final AtomicLong lostPings = new AtomicLong();
+
+    /**
+     * Reset all measurements at the start of a step. Not atomic with respect to concurrent recordings.
+     */
+    void reset() {
+        connect.reset();
+        observerPing.reset();
+        driverPing.reset();
+        broadcastLag.reset();
+        sent.set(0);
+        received.set(0);
+        errors.set(0);
+        lostPings.set(0);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.loadtest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import de.developgroup.mrf.server.rpc.JsonRpc2Request;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A connection of the {@link TrafficReplayer}, which sends the captured messages of one client and only counts what
+ * it receives. Unlike a {@link SimulatedClient} it sends nothing by itself.
+ */
+public class ReplayClient extends WebSocketAdapter {
+
+    private final CountDownLatch registered = new CountDownLatch(1);
+
+    private final AtomicLong received = new AtomicLong();
+
+    private volatile int clientId = -1;
+
+    /**
+     * Wait until the backend sent the id of this client.
+     * @return true if registered within the timeout
+     */
+    boolean awaitRegistration(long timeout, TimeUnit unit) throws InterruptedException {
+        return registered.await(timeout, unit);
+    }
+
+    public int getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @return number of messages received
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Send a message without waiting for it to be written.
+     * @return false if the connection is closed
+     */
+    boolean send(String message) {
+        Session session = getSession();
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        session.getRemote().sendStringByFuture(message);
+        return true;
+    }
+
+    void close() {
+        Session session = getSession();
+        if (session != null && session.isOpen()) {
+            session.close();
+        }
+    }
+
+    @Override
+    public void onWebSocketText(String message) {
+        received.incrementAndGet();
+        if (clientId >= 0) {
+            return;
+        }
+        try {
+            JsonElement element = new JsonParser().parse(message);
+            if (!element.isJsonObject()) {
+                return;
+            }
+            JsonObject json = element.getAsJsonObject();
+            JsonElement method = json.get(JsonRpc2Request.METHOD);
+            JsonElement params = json.get(JsonRpc2Request.PARAMS);
+            if (method != null && "setClientId".equals(method.getAsString()) && params != null
+                    && params.isJsonArray() && params.getAsJsonArray().size() > 0) {
+                clientId = params.getAsJsonArray().get(0).getAsInt();
+                registered.countDown();
+            }
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            // not the id
+        }
+    }
+}
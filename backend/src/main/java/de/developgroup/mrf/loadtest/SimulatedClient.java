@@ -0,0 +1,277 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.loadtest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import de.developgroup.mrf.server.metrics.LatencyHistogram;
+import de.developgroup.mrf.server.rpc.JsonRpc2Request;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A browser client of the load test, speaking the protocol of the webapp's rover service.
+ *
+ * When the backend sent its id, the client sends its browser information and then a heartbeat every
+ * {@value #HEARTBEAT_INTERVAL} ms and a ping in the configured interval. The driver enters driver mode and additionally
+ * sends heartbeats every {@value #DRIVER_HEARTBEAT_INTERVAL} ms, as the webapp does while driving, and streams
+ * driveContinuously commands. Round trips of the pings and the lag of broadcast probes are recorded in the
+ * {@link LoadStatistics}.
+ */
+public class SimulatedClient extends WebSocketAdapter {
+
+    static final long HEARTBEAT_INTERVAL = 15000;
+
+    static final long DRIVER_HEARTBEAT_INTERVAL = 100;
+
+    /**
+     * Text of the alert notifications used as broadcast probes, followed by the {@link System#nanoTime()} they were
+     * sent at. All clients run in one JVM, so the receivers can compare it to their own clock.
+     */
+    static final String PROBE_PREFIX = "load test probe ";
+
+    private static final long SWEEP_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(4);
+
+    private final LoadStatistics statistics;
+
+    private final boolean driver;
+
+    private final CountDownLatch registered = new CountDownLatch(1);
+
+    private final AtomicLong nextRequestId = new AtomicLong(1);
+
+    /**
+     * Send times of the pings without response by their request ids.
+     */
+    private final ConcurrentMap<Long, Long> pendingPings = new ConcurrentHashMap<>();
+
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+
+    private volatile long connectStartNanos;
+
+    private volatile int clientId = -1;
+
+    /**
+     * @param statistics measurements shared by all clients
+     * @param driver true for the driver, false for an observer
+     */
+    public SimulatedClient(LoadStatistics statistics, boolean driver) {
+        this.statistics = statistics;
+        this.driver = driver;
+    }
+
+    /**
+     * Must be called right before the connection is opened, to measure the connect time.
+     */
+    void connecting() {
+        connectStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Wait until the backend sent the id of this client.
+     * @return true if registered within the timeout
+     */
+    boolean awaitRegistration(long timeout, TimeUnit unit) throws InterruptedException {
+        return registered.await(timeout, unit);
+    }
+
+    public int getClientId() {
+        return clientId;
+    }
+
+    public boolean isDriver() {
+        return driver;
+    }
+
+    /**
+     * Start sending heartbeats, pings and, for the driver, drive commands.
+     * @param scheduler runs the periodic sends
+     * @param pingInterval time between two pings in ms
+     * @param driveRate drive commands per second
+     * @param driveSpeed speed of the drive commands between 0 and 100
+     */
+    synchronized void start(ScheduledExecutorService scheduler, long pingInterval, double driveRate, int driveSpeed) {
+        // random offsets, so the clients do not send in lockstep
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        tasks.add(scheduler.scheduleAtFixedRate(() -> sendNotification("heartbeat", clientId),
+                random.nextLong(HEARTBEAT_INTERVAL), HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS));
+        tasks.add(scheduler.scheduleAtFixedRate(this::ping, random.nextLong(pingInterval), pingInterval,
+                TimeUnit.MILLISECONDS));
+        if (driver) {
+            sendRequest("enterDriverMode", clientId);
+            tasks.add(scheduler.scheduleAtFixedRate(() -> sendNotification("heartbeat", clientId),
+                    DRIVER_HEARTBEAT_INTERVAL, DRIVER_HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS));
+            long drivePeriod = (long) (TimeUnit.SECONDS.toNanos(1) / driveRate);
+            long startNanos = System.nanoTime();
+            tasks.add(scheduler.scheduleAtFixedRate(() -> drive(System.nanoTime() - startNanos, driveSpeed),
+                    0, drivePeriod, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * Stop sending and close the connection.
+     */
+    synchronized void stop() {
+        for (ScheduledFuture<?> task : tasks) {
+            task.cancel(false);
+        }
+        tasks.clear();
+        Session session = getSession();
+        if (session != null && session.isOpen()) {
+            session.close();
+        }
+    }
+
+    void ping() {
+        long id = nextRequestId.getAndIncrement();
+        pendingPings.put(id, System.nanoTime());
+        send(new JsonRpc2Request("ping", Arrays.<Object>asList(id), id));
+    }
+
+    /**
+     * Let the backend broadcast an alert to all clients, see {@link #PROBE_PREFIX}.
+     */
+    void sendProbe() {
+        sendRequest("distributeAlertNotification", PROBE_PREFIX + System.nanoTime());
+    }
+
+    /**
+     * Sweep the steering angle around straight ahead, like a thumb on the joystick.
+     */
+    private void drive(long elapsedNanos, int speed) {
+        double phase = 2 * Math.PI * (elapsedNanos % SWEEP_PERIOD_NANOS) / SWEEP_PERIOD_NANOS;
+        sendNotification("driveContinuously", (int) Math.round(90 + 45 * Math.sin(phase)), speed);
+    }
+
+    /**
+     * Count the pings sent before the given time that were not answered as lost.
+     * @param beforeNanos {@link System#nanoTime()} value
+     */
+    void expirePings(long beforeNanos) {
+        Iterator<Map.Entry<Long, Long>> iterator = pendingPings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() - beforeNanos < 0) {
+                iterator.remove();
+                statistics.lostPings.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void onWebSocketText(String message) {
+        long nowNanos = System.nanoTime();
+        statistics.received.incrementAndGet();
+        JsonObject json;
+        try {
+            JsonElement element = new JsonParser().parse(message);
+            if (!element.isJsonObject()) {
+                statistics.errors.incrementAndGet();
+                return;
+            }
+            json = element.getAsJsonObject();
+        } catch (JsonParseException e) {
+            statistics.errors.incrementAndGet();
+            return;
+        }
+
+        JsonElement method = json.get(JsonRpc2Request.METHOD);
+        if (method == null) {
+            onResponse(json, nowNanos);
+            return;
+        }
+        JsonElement params = json.get(JsonRpc2Request.PARAMS);
+        JsonElement firstParam = params != null && params.isJsonArray() && params.getAsJsonArray().size() > 0
+                ? params.getAsJsonArray().get(0) : null;
+        switch (method.getAsString()) {
+            case "setClientId":
+                if (firstParam != null && clientId < 0) {
+                    onClientId(firstParam.getAsInt(), nowNanos);
+                }
+                break;
+            case "showAlertNotification":
+                if (firstParam != null && firstParam.isJsonPrimitive()
+                        && firstParam.getAsString().startsWith(PROBE_PREFIX)) {
+                    long sentNanos = Long.parseLong(firstParam.getAsString().substring(PROBE_PREFIX.length()));
+                    statistics.broadcastLag.record(nowNanos - sentNanos);
+                }
+                break;
+            default:
+                // other broadcasts only count as received
+        }
+    }
+
+    private void onClientId(int id, long nowNanos) {
+        clientId = id;
+        statistics.connect.record(nowNanos - connectStartNanos);
+        sendRequest("setClientInformation", id, "LoadGenerator", System.getProperty("os.name"));
+        registered.countDown();
+    }
+
+    private void onResponse(JsonObject json, long nowNanos) {
+        if (json.has(JsonRpc2Request.ERROR)) {
+            statistics.errors.incrementAndGet();
+        }
+        JsonElement id = json.get(JsonRpc2Request.ID);
+        if (id == null || !id.isJsonPrimitive()) {
+            return;
+        }
+        Long sentNanos = pendingPings.remove(id.getAsLong());
+        if (sentNanos != null) {
+            LatencyHistogram histogram = driver ? statistics.driverPing : statistics.observerPing;
+            histogram.record(nowNanos - sentNanos);
+        }
+    }
+
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) {
+        super.onWebSocketClose(statusCode, reason);
+        synchronized (this) {
+            if (!tasks.isEmpty()) {
+                // closed by the backend while running
+                statistics.errors.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void onWebSocketError(Throwable cause) {
+        statistics.errors.incrementAndGet();
+    }
+
+    private void sendRequest(String method, Object... params) {
+        send(new JsonRpc2Request(method, Arrays.asList(params), nextRequestId.getAndIncrement()));
+    }
+
+    private void sendNotification(String method, Object... params) {
+        send(new JsonRpc2Request(method, Arrays.asList(params)));
+    }
+
+    private void send(JsonRpc2Request message) {
+        Session session = getSession();
+        if (session == null || !session.isOpen()) {
+            statistics.errors.incrementAndGet();
+            return;
+        }
+        // without waiting, a slow backend must not hold up the other clients
+        session.getRemote().sendStringByFuture(message.toString());
+        statistics.sent.incrementAndGet();
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.loadtest;
+
+import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Measures the time from launching the backend jar to the first accepted websocket, i.e. until the backend sent the
+ * id of a new client, with and without a class data sharing archive.
+ *
+ * In training mode the backend is started once, in mock mode by default, while the JVM writes the classes it loads
+ * to a class list. From this list the archive is dumped, which the JVM maps at startup instead of loading and
+ * verifying the classes from the jar. Java 8 only archives the classes of the JDK, Java 11 and later also the classes
+ * of the jar. An archive only fits the JVM that dumped it and the jar it was dumped for.
+ *
+ * <pre>
+ * java -cp backend-1.0-SNAPSHOT-jar-with-dependencies.jar de.developgroup.mrf.loadtest.StartupBenchmark \
+ *      --train --class-list mrf.classlist --archive mrf.jsa
+ * java -cp backend-1.0-SNAPSHOT-jar-with-dependencies.jar de.developgroup.mrf.loadtest.StartupBenchmark \
+ *      --archive mrf.jsa -n 10
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    private static final long START_TIMEOUT = 60; //[s]
+
+    private static final long STOP_TIMEOUT = 10; //[s]
+
+    private static final long CONNECT_TIMEOUT = 1; //[s]
+
+    private static final long RETRY_INTERVAL = 10; //[ms]
+
+    private final String java;
+
+    private final Path jar;
+
+    private final URI uri;
+
+    private final List<String> serverArgs;
+
+    /**
+     * @param java the java executable to launch the backend with
+     * @param jar the backend jar
+     * @param uri websocket of the launched backend
+     * @param serverArgs arguments for the backend
+     */
+    public StartupBenchmark(String java, Path jar, URI uri, List<String> serverArgs) {
+        this.java = java;
+        this.jar = jar;
+        this.uri = uri;
+        this.serverArgs = serverArgs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Path jar = null;
+        URI uri = new URI("ws://localhost:8000/rover");
+        List<String> serverArgs = Arrays.asList("-m", "-d");
+        Path classList = null;
+        Path archive = null;
+        boolean train = false;
+        int runs = 5;
+        int warmups = 1;
+        boolean valid = true;
+
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i++];
+            try {
+                if ((arg.equals("-j") || arg.equals("--jar")) && i < args.length) {
+                    jar = Paths.get(args[i++]);
+                } else if ((arg.equals("-u") || arg.equals("--url")) && i < args.length) {
+                    uri = new URI(args[i++]);
+                } else if (arg.equals("--java") && i < args.length) {
+                    java = args[i++];
+                } else if (arg.equals("--server-args") && i < args.length) {
+                    serverArgs = Arrays.asList(args[i++].trim().split("\\s+"));
+                } else if (arg.equals("--class-list") && i < args.length) {
+                    classList = Paths.get(args[i++]);
+                } else if (arg.equals("--archive") && i < args.length) {
+                    archive = Paths.get(args[i++]);
+                } else if (arg.equals("--train")) {
+                    train = true;
+                } else if ((arg.equals("-n") || arg.equals("--runs")) && i < args.length) {
+                    runs = Integer.parseInt(args[i++]);
+                } else if ((arg.equals("-w") || arg.equals("--warmups")) && i < args.length) {
+                    warmups = Integer.parseInt(args[i++]);
+                } else {
+                    valid = false;
+                    break;
+                }
+            } catch (IllegalArgumentException | URISyntaxException e) {
+                System.out.println("Invalid value for " + arg + ": " + e.getMessage());
+                return;
+            }
+        }
+        if (jar == null) {
+            // the jar this benchmark is run from
+            jar = Paths.get(StartupBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        }
+        if (!valid || runs < 1 || warmups < 0 || (train && (classList == null || archive == null))) {
+            System.out.println("Valid Arguments:\n");
+            System.out.println("-j --jar <file>\t-> the backend jar, the jar of this benchmark by default");
+            System.out.println("-u --url <ws url>\t-> websocket of the backend, ws://localhost:8000/rover by default");
+            System.out.println("--java <file>\t-> java executable to launch the backend with, this one by default");
+            System.out.println("--server-args <args>\t-> arguments for the backend, \"-m -d\" by default");
+            System.out.println("--train\t-> start the backend once to write the class list, then dump the archive");
+            System.out.println("--class-list <file>\t-> class list to write when training");
+            System.out.println("--archive <file>\t-> archive to dump when training, to compare against otherwise");
+            System.out.println("-n --runs <n>\t-> measured starts per variant, 5 by default");
+            System.out.println("-w --warmups <n>\t-> starts before measuring, 1 by default");
+            System.out.println("-h --help\t-> this help output");
+            return;
+        }
+
+        StartupBenchmark benchmark = new StartupBenchmark(java, jar.toAbsolutePath(), uri, serverArgs);
+        if (train) {
+            benchmark.train(classList.toAbsolutePath(), archive.toAbsolutePath());
+        } else {
+            benchmark.compare(archive == null ? null : archive.toAbsolutePath(), runs, warmups);
+        }
+    }
+
+    /**
+     * Start the backend once to write the classes it loads until the first accepted websocket, then dump the archive
+     * of these classes.
+     * @throws IOException if the backend does not start or the archive cannot be dumped
+     */
+    public void train(Path classList, Path archive) throws Exception {
+        Files.deleteIfExists(classList);
+        long nanos = measure(Collections.singletonList("-XX:DumpLoadedClassList=" + classList));
+        System.out.println("Training start took " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms, "
+                + Files.readAllLines(classList).size() + " classes listed in " + classList);
+
+        Files.deleteIfExists(archive);
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-XX:+UnlockDiagnosticVMOptions", "-Xshare:dump",
+                "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + archive));
+        command.addAll(Arrays.asList("-cp", jar.toString()));
+        // the JVM warns about every listed class it cannot archive
+        File output = new File(archive + ".log");
+        int exitCode = run(command, output, TimeUnit.SECONDS.toNanos(START_TIMEOUT));
+        if (exitCode != 0 || !Files.exists(archive)) {
+            throw new IOException("Dumping " + archive + " failed with exit code " + exitCode + ", see " + output);
+        }
+        System.out.println("Dumped " + archive + ", " + Files.size(archive) / 1024 + " kB, see " + output);
+    }
+
+    /**
+     * Measure starts without and, if given, with the archive, alternating between them, and print a summary.
+     * @param archive the archive, null to only measure starts without it
+     */
+    public void compare(Path archive, int runs, int warmups) throws Exception {
+        // -Xshare:on fails the start if the archive does not fit, instead of silently running without it
+        List<String> withArchive = archive == null ? null : Arrays.asList("-XX:+UnlockDiagnosticVMOptions",
+                "-XX:SharedArchiveFile=" + archive, "-Xshare:on");
+        for (int i = 0; i < warmups; i++) {
+            measure(Collections.emptyList());
+        }
+        long[] without = new long[runs];
+        long[] with = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            without[i] = measure(Collections.emptyList());
+            if (withArchive != null) {
+                with[i] = measure(withArchive);
+            }
+        }
+
+        System.out.println("Time to first accepted websocket of " + jar + " in ms, " + runs + " starts each");
+        System.out.println(String.format("%-16s%8s%8s%8s", "", "min", "p50", "max"));
+        print("without archive", without);
+        if (withArchive != null) {
+            print("with archive", with);
+        }
+    }
+
+    private static void print(String variant, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.println(String.format("%-16s%8.0f%8.0f%8.0f", variant, sorted[0] / 1e6,
+                sorted[sorted.length / 2] / 1e6, sorted[sorted.length - 1] / 1e6));
+    }
+
+    /**
+     * Launch the backend, wait for the first accepted websocket and stop the backend again.
+     * @param jvmOptions additional options for the JVM of the backend
+     * @return time from the launch to the first accepted websocket, in ns
+     * @throws IOException if the backend exits or does not accept a websocket in time
+     */
+    long measure(List<String> jvmOptions) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmOptions);
+        command.addAll(Arrays.asList("-jar", jar.toString()));
+        command.addAll(serverArgs);
+
+        File output = File.createTempFile("startup", ".log");
+        WebSocketClient webSocketClient = new WebSocketClient();
+        webSocketClient.start();
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(output).start();
+        try {
+            long timeoutNanos = TimeUnit.SECONDS.toNanos(START_TIMEOUT);
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IOException("Backend exited with " + process.exitValue() + ", see " + output);
+                }
+                if (System.nanoTime() - startNanos > timeoutNanos) {
+                    throw new IOException("Backend did not accept a websocket within " + START_TIMEOUT
+                            + " s, see " + output);
+                }
+                ReplayClient client = new ReplayClient();
+                try {
+                    webSocketClient.connect(client, uri, new ClientUpgradeRequest())
+                            .get(CONNECT_TIMEOUT, TimeUnit.SECONDS);
+                    if (client.awaitRegistration(CONNECT_TIMEOUT, TimeUnit.SECONDS)) {
+                        long nanos = System.nanoTime() - startNanos;
+                        client.close();
+                        output.delete();
+                        return nanos;
+                    }
+                    client.close();
+                } catch (IOException | ExecutionException | TimeoutException e) {
+                    // not listening yet
+                    TimeUnit.MILLISECONDS.sleep(RETRY_INTERVAL);
+                }
+            }
+        } finally {
+            webSocketClient.stop();
+            stop(process);
+        }
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(STOP_TIMEOUT, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static int run(List<String> command, File output, long timeoutNanos)
+            throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output).start();
+        if (!process.waitFor(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            process.destroyForcibly().waitFor();
+            throw new IOException("Timed out: " + String.join(" ", command));
+        }
+        return process.exitValue();
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.loadtest;
+
+import de.developgroup.mrf.server.capture.TrafficCapture;
+import de.developgroup.mrf.server.capture.TrafficCaptureReader;
+import de.developgroup.mrf.server.metrics.LatencyHistogram;
+import de.developgroup.mrf.server.replay.SessionReplayer;
+import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link TrafficCapture} against a running backend over real websocket sessions, to reproduce production
+ * traffic when benchmarking dispatch and broadcast changes.
+ *
+ * Every captured client gets its own connection, opened at its first frame, which is usually the id the backend sent
+ * when it connected, and closed where the capture recorded the close. The captured inbound messages are re-sent in the
+ * pace they were captured in, sped up by a factor, or as fast as possible; client ids in the messages are replaced by
+ * the ids of the new connections. Outbound frames are not sent, they are only counted to compare them to what the
+ * connections receive. At the end the lag behind the captured schedule is printed, in milliseconds.
+ *
+ * <pre>
+ * java -cp backend-1.0-SNAPSHOT-jar-with-dependencies.jar de.developgroup.mrf.loadtest.TrafficReplayer \
+ *      -f traffic.cap -u ws://localhost:8000/rover --speed 2
+ * </pre>
+ */
+public class TrafficReplayer {
+
+    private static final long CONNECT_TIMEOUT = 10; //[s]
+
+    /**
+     * Time to receive the last responses before the connections are closed.
+     */
+    private static final long DRAIN_TIME = 1; //[s]
+
+    private final URI uri;
+
+    private final double speed;
+
+    /**
+     * Open connections by the captured client ids.
+     */
+    private final Map<Integer, ReplayClient> clients = new HashMap<>();
+
+    private final List<ReplayClient> allClients = new ArrayList<>();
+
+    /**
+     * Captured client ids whose connection could not be opened.
+     */
+    private final Set<Integer> failedClients = new HashSet<>();
+
+    private final LatencyHistogram scheduleLag = new LatencyHistogram();
+
+    private long inbound;
+
+    private long sent;
+
+    private long outbound;
+
+    /**
+     * @param uri websocket of the backend
+     * @param speed factor to speed up the replay by, {@link Double#POSITIVE_INFINITY} to replay as fast as possible
+     */
+    public TrafficReplayer(URI uri, double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Replay speed must be greater than zero");
+        }
+        this.uri = uri;
+        this.speed = speed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI uri = new URI("ws://localhost:8000/rover");
+        Path file = null;
+        double speed = 1;
+
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i++];
+            try {
+                if ((arg.equals("-u") || arg.equals("--url")) && i < args.length) {
+                    uri = new URI(args[i++]);
+                } else if ((arg.equals("-f") || arg.equals("--file")) && i < args.length) {
+                    file = Paths.get(args[i++]);
+                } else if (arg.equals("--speed") && i < args.length) {
+                    String value = args[i++];
+                    speed = value.equals("max") ? Double.POSITIVE_INFINITY : Double.parseDouble(value);
+                } else {
+                    file = null;
+                    break;
+                }
+            } catch (IllegalArgumentException | URISyntaxException e) {
+                System.out.println("Invalid value for " + arg + ": " + e.getMessage());
+                return;
+            }
+        }
+        if (file == null) {
+            System.out.println("Valid Arguments:\n");
+            System.out.println("-f --file <file>\t-> the capture to replay, written by the backend with --capture");
+            System.out.println("-u --url <ws url>\t-> websocket of the backend, ws://localhost:8000/rover by default");
+            System.out.println("--speed <factor|max>\t-> replay speed, 1 by default");
+            System.out.println("-h --help\t-> this help output");
+            return;
+        }
+
+        new TrafficReplayer(uri, speed).replay(file);
+    }
+
+    /**
+     * Replay a capture and print a summary.
+     * @param file the capture file
+     * @throws IOException if the capture cannot be read
+     */
+    public void replay(Path file) throws Exception {
+        WebSocketClient webSocketClient = new WebSocketClient();
+        webSocketClient.start();
+        long startNanos = System.nanoTime();
+        long capturedNanos = 0;
+        try (TrafficCaptureReader reader = new TrafficCaptureReader(file)) {
+            while (reader.next()) {
+                capturedNanos = reader.getNanos();
+                if (!Double.isInfinite(speed)) {
+                    long dueNanos = startNanos + (long) (capturedNanos / speed);
+                    waitUntil(dueNanos);
+                    scheduleLag.record(System.nanoTime() - dueNanos);
+                }
+                replayFrame(webSocketClient, reader);
+            }
+            TimeUnit.SECONDS.sleep(DRAIN_TIME);
+        } finally {
+            for (ReplayClient client : allClients) {
+                client.close();
+            }
+            webSocketClient.stop();
+        }
+
+        long received = 0;
+        for (ReplayClient client : allClients) {
+            received += client.getReceived();
+        }
+        System.out.println("Replayed " + file + " against " + uri + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms, captured duration "
+                + TimeUnit.NANOSECONDS.toMillis(capturedNanos) + " ms");
+        System.out.println("connections " + allClients.size() + ", failed " + failedClients.size());
+        System.out.println("inbound captured " + inbound + ", sent " + sent);
+        System.out.println("outbound captured " + outbound + ", received " + received);
+        if (scheduleLag.getCount() > 0) {
+            System.out.println(String.format("behind schedule p50 %.1f, p99 %.1f, max %.1f",
+                    scheduleLag.getValueAtPercentile(50) / 1e6, scheduleLag.getValueAtPercentile(99) / 1e6,
+                    scheduleLag.getMax() / 1e6));
+        }
+    }
+
+    private void replayFrame(WebSocketClient webSocketClient, TrafficCaptureReader reader)
+            throws InterruptedException {
+        int capturedClientId = reader.getClientId();
+        if (capturedClientId < 0) {
+            // not assigned to a client, e.g. a message before the id
+            return;
+        }
+        switch (reader.getType()) {
+            case TrafficCapture.INBOUND:
+                inbound++;
+                ReplayClient client = clientFor(webSocketClient, capturedClientId);
+                if (client != null && client.send(SessionReplayer.remapClientId(reader.getMessage(),
+                        capturedClientId, client.getClientId()))) {
+                    sent++;
+                }
+                break;
+            case TrafficCapture.OUTBOUND:
+                outbound++;
+                clientFor(webSocketClient, capturedClientId);
+                break;
+            case TrafficCapture.CLOSE:
+                ReplayClient closed = clients.remove(capturedClientId);
+                if (closed != null) {
+                    closed.close();
+                }
+                break;
+            default:
+                // frames of later versions
+        }
+    }
+
+    /**
+     * Get the connection of a captured client, opening it on the first frame.
+     * @return the connection, null if it could not be opened
+     */
+    private ReplayClient clientFor(WebSocketClient webSocketClient, int capturedClientId)
+            throws InterruptedException {
+        ReplayClient client = clients.get(capturedClientId);
+        if (client != null || failedClients.contains(capturedClientId)) {
+            return client;
+        }
+        client = new ReplayClient();
+        try {
+            webSocketClient.connect(client, uri, new ClientUpgradeRequest()).get(CONNECT_TIMEOUT, TimeUnit.SECONDS);
+            if (!client.awaitRegistration(CONNECT_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new IOException("No client id received");
+            }
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            System.out.println("Connecting client " + capturedClientId + " failed: " + e);
+            client.close();
+            failedClients.add(capturedClientId);
+            return null;
+        }
+        clients.put(capturedClientId, client);
+        allClients.add(client);
+        return client;
+    }
+
+    private static void waitUntil(long dueNanos) {
+        long waitNanos;
+        while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+}
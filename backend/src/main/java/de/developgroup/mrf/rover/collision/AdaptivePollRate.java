@@ -0,0 +1,117 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how often the collision thread polls which sensors, depending on how the rover moves.
+ *
+ * A parked rover is polled at the idle rate. A moving rover polls the sensors facing the direction of travel at a
+ * rate that grows with the speed, from the driving rate up to the maximum rate at full speed. The other sensors are
+ * polled at the driving rate. Turning on the spot faces both directions.
+ *
+ * The motion is set by the drive controller and read by the collision thread. Both values are kept in separate
+ * volatile fields; reading a new interval together with an old set of sensors for one tick is harmless.
+ */
+final class AdaptivePollRate {
+
+    static final int FRONT_SENSORS = 0b0011;
+
+    static final int BACK_SENSORS = 0b1100;
+
+    static final int ALL_SENSORS = FRONT_SENSORS | BACK_SENSORS;
+
+    /**
+     * Motor percentages below count as standing still.
+     */
+    private static final double IDLE_THRESHOLD = 0.01;
+
+    private final double idleRate;
+
+    private final double drivingRate;
+
+    private final double maxRate;
+
+    private volatile long intervalNanos;
+
+    private volatile int fastSensors = ALL_SENSORS;
+
+    /**
+     * @param idleRate polls per second while standing still
+     * @param drivingRate polls per second while moving slowly, and of the sensors facing away
+     * @param maxRate polls per second of the sensors facing the direction of travel at full speed
+     */
+    AdaptivePollRate(double idleRate, double drivingRate, double maxRate) {
+        if (idleRate <= 0 || drivingRate < idleRate || maxRate < drivingRate) {
+            throw new IllegalArgumentException("Poll rates must be positive and idle <= driving <= max");
+        }
+        this.idleRate = idleRate;
+        this.drivingRate = drivingRate;
+        this.maxRate = maxRate;
+        this.intervalNanos = toNanos(idleRate);
+    }
+
+    private static long toNanos(double rate) {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    /**
+     * Adapt the rate to the motor settings.
+     * @param leftMotorPercentage speed of the left motor in [-1; 1]
+     * @param rightMotorPercentage speed of the right motor in [-1; 1]
+     * @return true if the interval got shorter, so a pending wait should be cut short
+     */
+    boolean setMotion(double leftMotorPercentage, double rightMotorPercentage) {
+        double speed = Math.min(1, Math.max(Math.abs(leftMotorPercentage), Math.abs(rightMotorPercentage)));
+        long newInterval;
+        int newFastSensors;
+        if (speed < IDLE_THRESHOLD) {
+            newInterval = toNanos(idleRate);
+            newFastSensors = ALL_SENSORS;
+        } else {
+            newInterval = toNanos(drivingRate + (maxRate - drivingRate) * speed);
+            newFastSensors = 0;
+            if (leftMotorPercentage > 0 || rightMotorPercentage > 0) {
+                newFastSensors |= FRONT_SENSORS;
+            }
+            if (leftMotorPercentage < 0 || rightMotorPercentage < 0) {
+                newFastSensors |= BACK_SENSORS;
+            }
+        }
+        long oldInterval = intervalNanos;
+        fastSensors = newFastSensors;
+        intervalNanos = newInterval;
+        return newInterval < oldInterval;
+    }
+
+    /**
+     * @return time between two polls
+     */
+    long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * @return polls per second
+     */
+    double getRate() {
+        return TimeUnit.SECONDS.toNanos(1) / (double) intervalNanos;
+    }
+
+    /**
+     * @return mask of the sensors to poll with every poll
+     */
+    int getFastSensors() {
+        return fastSensors;
+    }
+
+    /**
+     * @return time after which all sensors should be polled again
+     */
+    long getFullPollIntervalNanos() {
+        return Math.max(intervalNanos, toNanos(drivingRate));
+    }
+}
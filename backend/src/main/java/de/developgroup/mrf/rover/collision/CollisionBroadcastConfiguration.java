@@ -0,0 +1,17 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+/**
+ * How collision information is sent to the clients, bound to the "collisionBroadcast" prefix in rover.properties.
+ */
+public interface CollisionBroadcastConfiguration {
+
+    /**
+     * @return "object" to send {@link RoverCollisionInformation} with "updateCollisionInformation", "packed" to send
+     * a {@link PackedCollisionState} with "updateCollisionState"
+     */
+    String format();
+}
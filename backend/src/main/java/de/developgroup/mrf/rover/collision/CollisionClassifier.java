@@ -0,0 +1,167 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
+import de.developgroup.mrf.server.telemetry.TimeSeries;
+
+/**
+ * Converts the readings of an {@link IRMeasurementCycle} into collision states. The readings of every sensor are
+ * filtered and converted with hysteresis, see {@link IRSignalFilter} and {@link CollisionThresholds}, so sensor noise
+ * does not change the collision information in every cycle.
+ *
+ * The filtered readings and collision states are recorded in the {@link TelemetryStore} as
+ * "collision.&lt;sensor&gt;.reading" and "collision.&lt;sensor&gt;.state". Only used by the collision thread,
+ * classifying does not allocate.
+ */
+final class CollisionClassifier {
+
+    /**
+     * Telemetry names of the sensors, indexed as in {@link PackedCollisionState}.
+     */
+    private static final String[] SENSOR_NAMES = {"frontLeft", "frontRight", "backRight", "backLeft"};
+
+    private final SensorChannel[] channels = new SensorChannel[PackedCollisionState.SENSORS];
+
+    private CollisionThresholds thresholds;
+
+    /**
+     * Set by {@link #classify} if the state of an unfiltered reading changed.
+     */
+    private boolean rawStateChanged;
+
+    /**
+     * @param telemetryStore store the filtered readings and states are recorded in
+     * @param type "median", "ema" or "none"
+     * @param windowSize window of the median filter
+     * @param emaAlpha weight of the newest sample of the ema filter
+     * @param hysteresis hysteresis of the collision thresholds
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    CollisionClassifier(TelemetryStore telemetryStore, String type, int windowSize, double emaAlpha,
+                        double hysteresis) {
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = new SensorChannel(telemetryStore, SENSOR_NAMES[i]);
+        }
+        setFilters(type, windowSize, emaAlpha, hysteresis);
+    }
+
+    /**
+     * Replace the filters of all sensors and forget their states.
+     * @param type "median", "ema" or "none"
+     * @param windowSize window of the median filter
+     * @param emaAlpha weight of the newest sample of the ema filter
+     * @param hysteresis hysteresis of the collision thresholds
+     * @throws IllegalArgumentException if a setting is invalid, the current filters are kept then
+     */
+    void setFilters(String type, int windowSize, double emaAlpha, double hysteresis) {
+        CollisionThresholds newThresholds = new CollisionThresholds(hysteresis);
+        IRSignalFilter[] filters = new IRSignalFilter[channels.length];
+        for (int i = 0; i < channels.length; i++) {
+            filters[i] = createFilter(type, windowSize, emaAlpha);
+        }
+        for (int i = 0; i < channels.length; i++) {
+            channels[i].filter = filters[i];
+            channels[i].state = CollisionState.None;
+            channels[i].rawState = CollisionState.None;
+        }
+        thresholds = newThresholds;
+    }
+
+    private static IRSignalFilter createFilter(String type, int windowSize, double emaAlpha) {
+        switch (type.toLowerCase()) {
+            case "median":
+                return IRSignalFilter.median(windowSize);
+            case "ema":
+                return IRSignalFilter.ema(emaAlpha);
+            case "none":
+                return IRSignalFilter.none();
+            default:
+                throw new IllegalArgumentException("Unknown filter type " + type);
+        }
+    }
+
+    /**
+     * Classify the readings of some sensors of a measurement, the others keep their last state.
+     * @param measurementCycle the measurement, of all sensors in the order of {@link PackedCollisionState}
+     * @param sensors mask of the measured sensors, bits as in {@link AdaptivePollRate}
+     * @param nowMillis time of the measurement, for the telemetry
+     * @return the states of all sensors, packed as {@link PackedCollisionState}
+     */
+    int classify(IRMeasurementCycle measurementCycle, int sensors, long nowMillis) {
+        boolean taintedReadings = false;
+        for (int i = 0; i < channels.length; i++) {
+            taintedReadings |= measurementCycle.isEnvironmentTooBright(i);
+        }
+        rawStateChanged = false;
+        int state = PackedCollisionState.withTainted(PackedCollisionState.NONE, taintedReadings);
+        for (int i = 0; i < channels.length; i++) {
+            state = classifyChannel(measurementCycle, i, sensors, state, nowMillis);
+        }
+        return state;
+    }
+
+    private int classifyChannel(IRMeasurementCycle measurementCycle, int index, int sensors, int state,
+                                long nowMillis) {
+        SensorChannel channel = channels[index];
+        if ((sensors & (1 << index)) == 0) {
+            return PackedCollisionState.withState(state, index, channel.state);
+        }
+        double reading = measurementCycle.getCompensatedPercentage(index);
+
+        CollisionState rawState = CollisionThresholds.classify(reading);
+        if (rawState != channel.rawState) {
+            rawStateChanged = true;
+            channel.rawState = rawState;
+        }
+
+        channel.reading = channel.filter.filter(reading);
+        channel.state = thresholds.classify(channel.reading, channel.state);
+        channel.readingTelemetry.record(nowMillis, channel.reading);
+        channel.stateTelemetry.record(nowMillis, channel.state.getValue());
+        return PackedCollisionState.withState(state, index, channel.state);
+    }
+
+    /**
+     * @return true if the state of an unfiltered reading changed in the latest classification
+     */
+    boolean hasRawStateChanged() {
+        return rawStateChanged;
+    }
+
+    /**
+     * @param sensor index of a sensor as in {@link PackedCollisionState}
+     * @return latest filtered reading of the sensor
+     */
+    double getReading(int sensor) {
+        return channels[sensor].reading;
+    }
+
+    /**
+     * The filter and the last states of the readings of a sensor.
+     */
+    private static final class SensorChannel {
+
+        IRSignalFilter filter;
+
+        CollisionState state = CollisionState.None;
+
+        CollisionState rawState = CollisionState.None;
+
+        /**
+         * Latest filtered reading.
+         */
+        double reading;
+
+        final TimeSeries readingTelemetry;
+
+        final TimeSeries stateTelemetry;
+
+        SensorChannel(TelemetryStore telemetryStore, String name) {
+            readingTelemetry = telemetryStore.series("collision." + name + ".reading");
+            stateTelemetry = telemetryStore.series("collision." + name + ".state");
+        }
+    }
+}
@@ -4,6 +4,9 @@
  */
 package de.developgroup.mrf.rover.collision;
 
+import com.pi4j.io.gpio.event.GpioPinDigitalStateChangeEvent;
+import de.developgroup.mrf.server.events.Topic;
+
 /**
  * The collision controller is responsible for the collision detection of the IR
  * sensors of the rover. The rover has 4 ir sensors, one for each corner,
@@ -23,6 +26,12 @@ public interface CollisionController {
 	String SENDER_BACK_LEFT = "IRSenderBackLeft";
 	String SENDER_BACK_RIGHT = "IRSenderBackRight";
 
+	/**
+	 * State changes of the IR receivers.
+	 */
+	Topic<GpioPinDigitalStateChangeEvent> SENSOR_EVENTS = new Topic<>(
+			"collision.sensor", GpioPinDigitalStateChangeEvent.class);
+
 	/**
 	 * Methods returns sensor value of the front right corner.
 	 * 
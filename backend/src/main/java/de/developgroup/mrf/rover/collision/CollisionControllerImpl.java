@@ -4,8 +4,7 @@
  */
 package de.developgroup.mrf.rover.collision;
 
-import java.util.Observable;
-
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.pi4j.io.gpio.GpioController;
 import com.pi4j.io.gpio.GpioFactory;
@@ -16,15 +15,15 @@ import com.pi4j.io.gpio.PinState;
 import com.pi4j.io.gpio.RaspiPin;
 import com.pi4j.io.gpio.event.GpioPinDigitalStateChangeEvent;
 import com.pi4j.io.gpio.event.GpioPinListenerDigital;
+import de.developgroup.mrf.server.events.EventBus;
 
 /**
- * this implementation uses the observer pattern to notify observers about
- * sensor value changes
+ * this implementation publishes sensor value changes as
+ * {@link CollisionController#SENSOR_EVENTS}
  * 
  */
 @Singleton
-public class CollisionControllerImpl extends Observable implements
-		CollisionController {
+public class CollisionControllerImpl implements CollisionController {
 
 	final GpioController gpio = GpioFactory.getInstance();
 	private GpioPinDigitalOutput irSenderFrontRight;
@@ -37,7 +36,11 @@ public class CollisionControllerImpl extends Observable implements
 	private GpioPinDigitalInput irReceiverBackLeft;
 	private GpioPinDigitalInput irReceiverBackRight;
 
-	public CollisionControllerImpl() {
+	private final EventBus eventBus;
+
+	@Inject
+	public CollisionControllerImpl(EventBus eventBus) {
+		this.eventBus = eventBus;
 		/*
 		initSenderGPIOs();
 		initReceiverGPIOs();
@@ -79,8 +82,7 @@ public class CollisionControllerImpl extends Observable implements
 	private class SensorListener implements GpioPinListenerDigital {
 		public void handleGpioPinDigitalStateChangeEvent(
 				GpioPinDigitalStateChangeEvent event) {
-			setChanged();
-			notifyObservers(event);
+			eventBus.publish(SENSOR_EVENTS, event);
 		}
 	}
 
@@ -4,9 +4,7 @@
  */
 package de.developgroup.mrf.rover.collision;
 
-import java.util.Observable;
-
-public class CollisionControllerMock extends Observable implements CollisionController {
+public class CollisionControllerMock implements CollisionController {
     @Override
     public boolean hasCollisionFrontRight() {
         return false;
@@ -0,0 +1,31 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+/**
+ * Filtering of the IR sensor readings, bound to the "collisionFilter" prefix in rover.properties.
+ */
+public interface CollisionFilterConfiguration {
+
+    /**
+     * @return "median", "ema" or "none"
+     */
+    String type();
+
+    /**
+     * @return number of samples the median filter takes the median of
+     */
+    int windowSize();
+
+    /**
+     * @return weight of the newest sample for the ema filter, in (0; 1]
+     */
+    double emaAlpha();
+
+    /**
+     * @return how far a reading must fall below a threshold to leave its collision state
+     */
+    double hysteresis();
+}
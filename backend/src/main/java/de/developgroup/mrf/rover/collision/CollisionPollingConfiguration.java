@@ -0,0 +1,27 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+/**
+ * Poll rates of the IR sensors, bound to the "collisionPolling" prefix in rover.properties. Rates are given in polls
+ * per second.
+ */
+public interface CollisionPollingConfiguration {
+
+    /**
+     * @return rate while the rover stands still
+     */
+    double idleRate();
+
+    /**
+     * @return rate while the rover moves slowly, and of the sensors facing away from the direction of travel
+     */
+    double drivingRate();
+
+    /**
+     * @return rate of the sensors facing the direction of travel at full speed
+     */
+    double maxRate();
+}
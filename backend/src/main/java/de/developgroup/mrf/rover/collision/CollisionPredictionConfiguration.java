@@ -0,0 +1,31 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+/**
+ * Predictive braking, bound to the "collisionPrediction" prefix in rover.properties.
+ */
+public interface CollisionPredictionConfiguration {
+
+    /**
+     * @return false to only stop at the close collision threshold
+     */
+    boolean enabled();
+
+    /**
+     * @return number of recent readings the approach rate is fitted to
+     */
+    int windowSize();
+
+    /**
+     * @return time to collision in seconds the rover should keep at least
+     */
+    double horizon();
+
+    /**
+     * @return lowest speed the rover is slowed down to, in (0; 1]
+     */
+    double minSpeed();
+}
@@ -7,135 +7,545 @@ package de.developgroup.mrf.rover.collision;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.pi4j.io.gpio.GpioController;
+import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.Pin;
 import com.pi4j.io.gpio.PinState;
 import com.pi4j.io.gpio.RaspiPin;
 import de.developgroup.mrf.rover.pcf8591.IRSensor;
 import de.developgroup.mrf.rover.pcf8591.PCF8591ADConverter;
 import de.developgroup.mrf.server.ClientManager;
-import de.developgroup.mrf.server.handler.RoverHandler;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Topic;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.recorder.FlightRecord;
+import de.developgroup.mrf.server.recorder.FlightRecorder;
 import de.developgroup.mrf.server.rpc.JsonRpc2Request;
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
+import org.cfg4j.provider.ConfigurationProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Observable;
-
-import static java.lang.Thread.sleep;
-
-
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Representation of a thread that continuously polls the IR sensors (in a defined interval) and sends the information
  * to the frontend.
+ *
+ * All sensors are measured together in one {@link IRMeasurementCycle}, and their readings are converted into
+ * collision states by a {@link CollisionClassifier}, so sensor noise does not cause a broadcast to all clients in every
+ * cycle. How often which sensors are polled depends on the motion of the rover, see {@link AdaptivePollRate}. From the
+ * trend of the readings facing the direction of travel, the thread also derives a speed limit that slows the rover
+ * down before it reaches an obstacle, see {@link TimeToCollisionEstimator}.
+ *
+ * The raw readings of every poll are recorded in the {@link FlightRecorder}. Polls that do not broadcast collision
+ * information do not allocate.
  */
 @Singleton
-public class CollisionRunnable extends Observable implements Runnable {
+public class CollisionRunnable implements Runnable {
+
+    /**
+     * Collision information that differs from the previous one, or is repeated after a while.
+     */
+    public static final Topic<RoverCollisionInformation> COLLISION_INFORMATION =
+            new Topic<>("collision.information", RoverCollisionInformation.class);
 
     private static Logger LOGGER = LoggerFactory.getLogger(CollisionRunnable.class);
 
+    static final String DEFAULT_FILTER_TYPE = "median";
+
+    static final int DEFAULT_WINDOW_SIZE = 3;
+
+    static final double DEFAULT_EMA_ALPHA = 0.5;
+
+    static final double DEFAULT_HYSTERESIS = 0.03;
+
+    static final double DEFAULT_IDLE_RATE = 2;
+
+    static final double DEFAULT_DRIVING_RATE = 10;
+
+    static final double DEFAULT_MAX_RATE = 50;
+
+    static final int DEFAULT_PREDICTION_WINDOW_SIZE = 4;
+
+    static final double DEFAULT_PREDICTION_HORIZON = 0.8;
+
+    static final double DEFAULT_PREDICTION_MIN_SPEED = 0.25;
+
+    /**
+     * Time after which unchanged collision information is sent again.
+     */
+    static final long RESEND_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(600);
+
+    /**
+     * A/D converter channels of the sensors, indexed as in {@link PackedCollisionState}.
+     */
+    private static final PCF8591ADConverter.InputChannel[] SENSOR_CHANNELS = {PCF8591ADConverter.InputChannel.ONE,
+            PCF8591ADConverter.InputChannel.ZERO, PCF8591ADConverter.InputChannel.THREE,
+            PCF8591ADConverter.InputChannel.TWO};
+
     /**
-     * collision percentage >= 0.3 -> far collision
+     * GPIO pins of the IR LEDs, by sensor.
      */
-    private final double THR_COLLISION_FAR = 0.35;
+    private static final Pin[] LED_PINS = {RaspiPin.GPIO_05, RaspiPin.GPIO_03, RaspiPin.GPIO_29, RaspiPin.GPIO_24};
+
+    private volatile AdaptivePollRate pollRate = new AdaptivePollRate(DEFAULT_IDLE_RATE, DEFAULT_DRIVING_RATE,
+            DEFAULT_MAX_RATE);
 
     /**
-     * collision percentage >= 0.4 -> medium collision
+     * Predicts the time to collision, null if predictive braking is disabled. Only used by the collision thread.
      */
-    private final double THR_COLLISION_MED = 0.4;
+    private TimeToCollisionEstimator estimator = new TimeToCollisionEstimator(PackedCollisionState.SENSORS,
+            DEFAULT_PREDICTION_WINDOW_SIZE, DEFAULT_PREDICTION_HORIZON, DEFAULT_PREDICTION_MIN_SPEED);
 
     /**
-     * collision percenteage >= 0.5 -> close collision
+     * Mean speed of both motors, positive when driving forwards. Set by the drive controller.
      */
-    private final double THR_COLLISION_CLOSE = 0.5;
+    private volatile double forwardSpeed;
 
     /**
-     * Time between two successive sensor queries.
-     * Should make for approx. 10 checks/second. This is not a real-time system anyways.
+     * Highest motor percentage allowed when driving forwards resp. backwards, in (0; 1].
      */
-    private final int POLL_INTERVAL_MS = 100;
+    private volatile double forwardSpeedLimit = 1;
+
+    private volatile double backwardSpeedLimit = 1;
 
     /**
-     * Counter to perform re-send of old rover information
+     * The collision thread, woken up when the poll interval gets shorter.
+     */
+    private volatile Thread pollThread;
+
+    /*
+     * Poll timing, only used by the collision thread.
      */
-    private CyclicCounter oldNewsDistributionCounter = new CyclicCounter(6);
+    private boolean polled;
+
+    private long lastPollNanos;
+
+    private long lastFullPollNanos;
 
-    private IRSensor sensorFrontLeft;
+    private long lastBroadcastNanos;
 
-    private IRSensor sensorFrontRight;
+    private final IRMeasurementCycle measurementCycle;
 
-    private IRSensor sensorBackRight;
+    private final CollisionClassifier classifier;
 
-    private IRSensor sensorBackLeft;
+    /**
+     * Latest speed limit derived from each sensor, indexed as in {@link PackedCollisionState}. Only used by the
+     * collision thread.
+     */
+    private final double[] sensorSpeedLimits = new double[PackedCollisionState.SENSORS];
 
     private ClientManager clientManager;
 
+    private EventBus eventBus;
+
+    private final FlightRecorder flightRecorder;
+
+    /*
+     * Readings of the current poll as passed to the flight recorder, only used by the collision thread.
+     */
+    private final int[] recordedAmbient = new int[FlightRecord.SENSORS];
+
+    private final int[] recordedLit = new int[FlightRecord.SENSORS];
+
+    private final double[] recordedCompensated = new double[FlightRecord.SENSORS];
+
+    /**
+     * Cycles in which an unfiltered reading changed its state, but the collision information stayed the same.
+     */
+    private final Counter suppressedBroadcasts;
+
+    private final Counter broadcasts;
+
     /**
-     * Contains recently gathered collision information.
+     * Contains recently gathered collision information, packed as {@link PackedCollisionState}.
      * Also used to prevent spamming the clients: only new infos are sent to the client.
-     *
-     * Synchronize access - this information may be accessed by multiple threads.
      */
-    private RoverCollisionInformation currentCollisionInformation;
+    private final AtomicInteger currentCollisionState = new AtomicInteger(PackedCollisionState.NONE);
 
     /**
-     * Lock object for currentCollisionInformation
+     * Send collision information to the clients as a single int instead of an object.
      */
-    private final Object collisionInformationLock = new Object();
+    private volatile boolean sendPacked;
+
+    /**
+     * Whether collision information was sent yet, only used by the collision thread.
+     */
+    private boolean broadcasted;
 
     @Inject
     public CollisionRunnable(IRSensorFactory sensorFactory,
                              GpioController gpio,
                              ClientManager clientManager,
-                             RoverHandler roverHandler) {
+                             EventBus eventBus,
+                             MetricsRegistry metricsRegistry,
+                             TelemetryStore telemetryStore,
+                             FlightRecorder flightRecorder) {
         LOGGER.info("creating new CollisionRunnable via injected constructor");
-        this.sensorFrontRight = sensorFactory.create(PCF8591ADConverter.InputChannel.ZERO,
-                gpio.provisionDigitalOutputPin(RaspiPin.GPIO_03, PinState.LOW));
-        this.sensorFrontLeft = sensorFactory.create(PCF8591ADConverter.InputChannel.ONE,
-                gpio.provisionDigitalOutputPin(RaspiPin.GPIO_05, PinState.LOW));
-        this.sensorBackRight = sensorFactory.create(PCF8591ADConverter.InputChannel.THREE,
-                gpio.provisionDigitalOutputPin(RaspiPin.GPIO_29, PinState.LOW));
-        this.sensorBackLeft = sensorFactory.create(PCF8591ADConverter.InputChannel.TWO,
-                gpio.provisionDigitalOutputPin(RaspiPin.GPIO_24, PinState.LOW));
+        GpioPinDigitalOutput ledFrontRight = gpio.provisionDigitalOutputPin(
+                getLedPin(PackedCollisionState.FRONT_RIGHT), PinState.LOW);
+        GpioPinDigitalOutput ledFrontLeft = gpio.provisionDigitalOutputPin(
+                getLedPin(PackedCollisionState.FRONT_LEFT), PinState.LOW);
+        GpioPinDigitalOutput ledBackRight = gpio.provisionDigitalOutputPin(
+                getLedPin(PackedCollisionState.BACK_RIGHT), PinState.LOW);
+        GpioPinDigitalOutput ledBackLeft = gpio.provisionDigitalOutputPin(
+                getLedPin(PackedCollisionState.BACK_LEFT), PinState.LOW);
+        this.measurementCycle = new IRMeasurementCycle(gpio,
+                new IRSensor[] {
+                        sensorFactory.create(getSensorChannel(PackedCollisionState.FRONT_LEFT), ledFrontLeft),
+                        sensorFactory.create(getSensorChannel(PackedCollisionState.FRONT_RIGHT), ledFrontRight),
+                        sensorFactory.create(getSensorChannel(PackedCollisionState.BACK_RIGHT), ledBackRight),
+                        sensorFactory.create(getSensorChannel(PackedCollisionState.BACK_LEFT), ledBackLeft)},
+                new GpioPinDigitalOutput[] {ledFrontLeft, ledFrontRight, ledBackRight, ledBackLeft});
+        this.classifier = new CollisionClassifier(telemetryStore, DEFAULT_FILTER_TYPE, DEFAULT_WINDOW_SIZE,
+                DEFAULT_EMA_ALPHA, DEFAULT_HYSTERESIS);
+        Arrays.fill(sensorSpeedLimits, 1);
 
         this.clientManager = clientManager;
+        this.eventBus = eventBus;
+        this.flightRecorder = flightRecorder;
+        this.suppressedBroadcasts = metricsRegistry.counter("collision.broadcasts.suppressed");
+        this.broadcasts = metricsRegistry.counter("collision.broadcasts");
+        metricsRegistry.gauge("collision.poll.rate", () -> pollRate.getRate());
+        metricsRegistry.gauge("collision.speedLimit.forward", () -> forwardSpeedLimit);
+        metricsRegistry.gauge("collision.speedLimit.backward", () -> backwardSpeedLimit);
+    }
+
+    /**
+     * Read the filter settings, poll rates, predictive braking and broadcast format from rover.properties. Must be
+     * called before the thread is started, the defaults are used otherwise.
+     * @param configurationProvider provider of rover.properties
+     */
+    public void initialize(ConfigurationProvider configurationProvider) {
+        initializeFilters(configurationProvider);
+        initializePollRate(configurationProvider);
+        initializePrediction(configurationProvider);
+        initializeBroadcastFormat(configurationProvider);
+    }
+
+    private void initializePrediction(ConfigurationProvider configurationProvider) {
+        try {
+            CollisionPredictionConfiguration configuration = configurationProvider.bind("collisionPrediction",
+                    CollisionPredictionConfiguration.class);
+            if (configuration.enabled()) {
+                setPrediction(configuration.windowSize(), configuration.horizon(), configuration.minSpeed());
+            } else {
+                disablePrediction();
+            }
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No collision prediction configuration found, braking within " + DEFAULT_PREDICTION_HORIZON
+                    + " s of a collision");
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid collision prediction configuration, using defaults: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Brake in proportion to the predicted time to collision.
+     * @param windowSize number of recent readings the approach rate is fitted to
+     * @param horizonSeconds time to collision the rover should keep at least
+     * @param minSpeed lowest speed limit
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    void setPrediction(int windowSize, double horizonSeconds, double minSpeed) {
+        estimator = new TimeToCollisionEstimator(PackedCollisionState.SENSORS, windowSize, horizonSeconds, minSpeed);
+        LOGGER.info("Braking within " + horizonSeconds + " s of a collision, down to a speed of " + minSpeed);
+    }
+
+    /**
+     * Only stop at the close collision threshold.
+     */
+    void disablePrediction() {
+        estimator = null;
+        forwardSpeedLimit = backwardSpeedLimit = 1;
+        LOGGER.info("Predictive braking is disabled");
+    }
+
+    private void initializeBroadcastFormat(ConfigurationProvider configurationProvider) {
+        String format = "object";
+        try {
+            format = configurationProvider.bind("collisionBroadcast", CollisionBroadcastConfiguration.class).format();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No collision broadcast configuration found, sending collision information as object");
+        }
+        setSendPacked("packed".equalsIgnoreCase(format));
+    }
+
+    /**
+     * @param sendPacked true to send collision information to clients as {@link PackedCollisionState}, false to send
+     *                   it as {@link RoverCollisionInformation}
+     */
+    public void setSendPacked(boolean sendPacked) {
+        this.sendPacked = sendPacked;
+    }
+
+    private void initializeFilters(ConfigurationProvider configurationProvider) {
+        String type = DEFAULT_FILTER_TYPE;
+        int windowSize = DEFAULT_WINDOW_SIZE;
+        double emaAlpha = DEFAULT_EMA_ALPHA;
+        double hysteresis = DEFAULT_HYSTERESIS;
+        try {
+            CollisionFilterConfiguration configuration = configurationProvider.bind("collisionFilter",
+                    CollisionFilterConfiguration.class);
+            type = configuration.type();
+            windowSize = configuration.windowSize();
+            emaAlpha = configuration.emaAlpha();
+            hysteresis = configuration.hysteresis();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No collision filter configuration found, using a " + type + " filter");
+        }
+        try {
+            setFilters(type, windowSize, emaAlpha, hysteresis);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid collision filter configuration, using defaults: " + e.getMessage());
+            setFilters(DEFAULT_FILTER_TYPE, DEFAULT_WINDOW_SIZE, DEFAULT_EMA_ALPHA, DEFAULT_HYSTERESIS);
+        }
+    }
+
+    private void initializePollRate(ConfigurationProvider configurationProvider) {
+        try {
+            CollisionPollingConfiguration configuration = configurationProvider.bind("collisionPolling",
+                    CollisionPollingConfiguration.class);
+            pollRate = new AdaptivePollRate(configuration.idleRate(), configuration.drivingRate(),
+                    configuration.maxRate());
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No collision polling configuration found, polling at " + DEFAULT_IDLE_RATE + " to "
+                    + DEFAULT_MAX_RATE + " Hz");
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid collision polling configuration, using defaults: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replace the filters of all sensors.
+     * @param type "median", "ema" or "none"
+     * @param windowSize window of the median filter
+     * @param emaAlpha weight of the newest sample of the ema filter
+     * @param hysteresis hysteresis of the collision thresholds
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    void setFilters(String type, int windowSize, double emaAlpha, double hysteresis) {
+        classifier.setFilters(type, windowSize, emaAlpha, hysteresis);
+        LOGGER.info("Filtering IR sensors with a " + type + " filter and a hysteresis of " + hysteresis);
     }
 
     /**
      * Contains the event loop of the collision thread that repeatedly checks for collisions.
      */
     public void run() {
-        while(true) {
+        pollThread = Thread.currentThread();
+        while (!Thread.currentThread().isInterrupted()) {
             try {
-                RoverCollisionInformation info = readAllSensors();
-                if (!info.equals(getCurrentCollisionInformation()) || oldNewsDistributionCounter.incrementAndCheck()) {
-                    // only send to client if anything new occurred || old news should be resent after a break of
-                    // sending nothing.
-                    setChanged();
-                    notifyObservers(info);
-                    sendToClients(info);
-                    setCurrentCollisionInformation(info);
+                long waitNanos = pollIfDue(System.nanoTime());
+                if (waitNanos > 0) {
+                    // woken up early if the rover speeds up
+                    LockSupport.parkNanos(this, waitNanos);
                 }
-
-                sleep(POLL_INTERVAL_MS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
             } catch (IOException e) {
                 LOGGER.error("An IO exception occurred while reading the sensors: " + e);
             }
         }
+        LOGGER.info("Collision thread interrupted, stopping collision detection");
     }
 
-    public RoverCollisionInformation getCurrentCollisionInformation() {
-        synchronized (collisionInformationLock) {
-            return currentCollisionInformation;
+    /**
+     * Adapt the poll rate to a new motion of the rover. A shorter interval takes effect immediately.
+     * @param leftMotorPercentage speed of the left motor in [-1; 1]
+     * @param rightMotorPercentage speed of the right motor in [-1; 1]
+     */
+    public void motionChanged(double leftMotorPercentage, double rightMotorPercentage) {
+        forwardSpeed = Math.max(-1, Math.min(1, (leftMotorPercentage + rightMotorPercentage) / 2));
+        if (pollRate.setMotion(leftMotorPercentage, rightMotorPercentage)) {
+            Thread thread = pollThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
         }
     }
 
-    public void setCurrentCollisionInformation(RoverCollisionInformation newCollisionInfo) {
-        synchronized (collisionInformationLock) {
-            currentCollisionInformation = newCollisionInfo;
+    /**
+     * Poll the sensors if the poll interval has passed since the last poll. The sensors facing the direction of
+     * travel are polled every time, all sensors once the full poll interval has passed.
+     * @param nowNanos the current time
+     * @return time until the next poll is due
+     * @throws IOException if a sensor fails to read a value.
+     */
+    long pollIfDue(long nowNanos) throws IOException {
+        AdaptivePollRate rate = pollRate;
+        long interval = rate.getIntervalNanos();
+        if (polled && nowNanos - lastPollNanos < interval) {
+            return lastPollNanos + interval - nowNanos;
+        }
+        int sensors = rate.getFastSensors();
+        if (!polled || nowNanos - lastFullPollNanos >= rate.getFullPollIntervalNanos()) {
+            sensors = AdaptivePollRate.ALL_SENSORS;
+        }
+        if (sensors == AdaptivePollRate.ALL_SENSORS) {
+            lastFullPollNanos = nowNanos;
+        }
+        polled = true;
+        lastPollNanos = nowNanos;
+        poll(sensors, nowNanos);
+        return interval;
+    }
+
+    /**
+     * Read some sensors once and distribute the collision information if it changed. Used to replay recorded polls,
+     * instead of running the collision thread.
+     * @param sensors mask of the sensors to read, bits as in {@link AdaptivePollRate}
+     * @param nowNanos time of the poll
+     * @return the new collision state, packed as {@link PackedCollisionState}
+     * @throws IOException if a sensor fails to read a value.
+     */
+    public int replayPoll(int sensors, long nowNanos) throws IOException {
+        poll(sensors, nowNanos);
+        return currentCollisionState.get();
+    }
+
+    /**
+     * Read all sensors once and distribute the collision information if it changed.
+     * @throws IOException if a sensor fails to read a value.
+     */
+    void poll() throws IOException {
+        poll(AdaptivePollRate.ALL_SENSORS, System.nanoTime());
+    }
+
+    private void poll(int sensors, long nowNanos) throws IOException {
+        int state = readSensors(sensors);
+        record(sensors, state);
+        updateSpeedLimits(sensors, state, nowNanos);
+        boolean changed = currentCollisionState.getAndSet(state) != state;
+        if (changed || !broadcasted || nowNanos - lastBroadcastNanos >= RESEND_INTERVAL_NANOS) {
+            // only send to client if anything new occurred || old news should be resent after a break of
+            // sending nothing.
+            RoverCollisionInformation info = RoverCollisionInformation.fromPacked(state);
+            eventBus.publish(COLLISION_INFORMATION, info);
+            if (sendPacked) {
+                sendToClients(state);
+            } else {
+                sendToClients(info);
+            }
+            broadcasts.increment();
+            broadcasted = true;
+            lastBroadcastNanos = nowNanos;
         }
+        if (!changed && classifier.hasRawStateChanged()) {
+            suppressedBroadcasts.increment();
+        }
+    }
+
+    private void record(int sensors, int state) {
+        if (!flightRecorder.isRecording()) {
+            return;
+        }
+        for (int i = 0; i < recordedCompensated.length; i++) {
+            recordedAmbient[i] = measurementCycle.getAmbientReading(i);
+            recordedLit[i] = measurementCycle.getLitReading(i);
+            recordedCompensated[i] = measurementCycle.getCompensatedPercentage(i);
+        }
+        flightRecorder.recordCollision(sensors, state, recordedAmbient, recordedLit, recordedCompensated);
+    }
+
+    /**
+     * Feed the new readings into the time to collision estimation and publish the resulting speed limits.
+     */
+    private void updateSpeedLimits(int sensors, int state, long nowNanos) {
+        TimeToCollisionEstimator estimator = this.estimator;
+        if (estimator == null || PackedCollisionState.isTainted(state)) {
+            // like the hard stop, do not brake on readings tainted by sunlight
+            forwardSpeedLimit = backwardSpeedLimit = 1;
+            return;
+        }
+        // the motors drive at most as fast as the previous limit allowed
+        double speed = forwardSpeed;
+        double forwards = Math.min(speed, forwardSpeedLimit);
+        double backwards = Math.min(-speed, backwardSpeedLimit);
+        forwardSpeedLimit = Math.min(
+                estimateSpeedLimit(estimator, PackedCollisionState.FRONT_LEFT, sensors, nowNanos, forwards),
+                estimateSpeedLimit(estimator, PackedCollisionState.FRONT_RIGHT, sensors, nowNanos, forwards));
+        backwardSpeedLimit = Math.min(
+                estimateSpeedLimit(estimator, PackedCollisionState.BACK_RIGHT, sensors, nowNanos, backwards),
+                estimateSpeedLimit(estimator, PackedCollisionState.BACK_LEFT, sensors, nowNanos, backwards));
+    }
+
+    private double estimateSpeedLimit(TimeToCollisionEstimator estimator, int sensor, int sensors, long nowNanos,
+                                      double speed) {
+        if ((sensors & (1 << sensor)) != 0) {
+            double reading = classifier.getReading(sensor);
+            estimator.update(sensor, reading, nowNanos, speed);
+            sensorSpeedLimits[sensor] = estimator.getSpeedLimit(sensor, reading);
+        }
+        return sensorSpeedLimits[sensor];
+    }
+
+    /**
+     * @return highest motor percentage the rover may drive forwards with, predicted from the approach of the front
+     * sensors to an obstacle
+     */
+    public double getForwardSpeedLimit() {
+        return forwardSpeedLimit;
+    }
+
+    /**
+     * @return highest motor percentage the rover may drive backwards with, predicted from the approach of the back
+     * sensors to an obstacle
+     */
+    public double getBackwardSpeedLimit() {
+        return backwardSpeedLimit;
+    }
+
+    /**
+     * @return the recently gathered collision information as a new object
+     */
+    public RoverCollisionInformation getCurrentCollisionInformation() {
+        return RoverCollisionInformation.fromPacked(currentCollisionState.get());
+    }
+
+    /**
+     * @param sensor index of a sensor as in {@link PackedCollisionState}, e.g. {@link PackedCollisionState#FRONT_LEFT}
+     * @return the A/D converter channel the sensor is read from
+     */
+    public static PCF8591ADConverter.InputChannel getSensorChannel(int sensor) {
+        return SENSOR_CHANNELS[sensor];
+    }
+
+    /**
+     * @param sensor index of a sensor as in {@link PackedCollisionState}
+     * @return the GPIO pin of the IR LED of the sensor
+     */
+    public static Pin getLedPin(int sensor) {
+        return LED_PINS[sensor];
+    }
+
+    /**
+     * @return the recently gathered collision information, packed as {@link PackedCollisionState}
+     */
+    public int getCurrentCollisionState() {
+        return currentCollisionState.get();
+    }
+
+    public void setCurrentCollisionInformation(RoverCollisionInformation newCollisionInfo) {
+        currentCollisionState.set(newCollisionInfo.toPacked());
+    }
+
+    /**
+     * Send packed collision information to all connected clients.
+     * @param state the information to send, packed as {@link PackedCollisionState}
+     */
+    public void sendToClients(int state) {
+        ArrayList<Object> params = new ArrayList<>();
+        params.add(state);
+
+        JsonRpc2Request jsonRpc2Request = new JsonRpc2Request("updateCollisionState", params);
+
+        clientManager.notifyAllClients(jsonRpc2Request);
     }
 
     /**
@@ -158,37 +568,26 @@ public class CollisionRunnable extends Observable implements Runnable {
      * @throws IOException if the sensor fails to read a value.
      */
     public RoverCollisionInformation readAllSensors() throws IOException {
-        RoverCollisionInformation info = new RoverCollisionInformation();
-
-        info.taintedReadings = sensorFrontLeft.isEnvironmentTooBright()
-                | sensorFrontRight.isEnvironmentTooBright()
-                | sensorBackRight.isEnvironmentTooBright()
-                | sensorBackLeft.isEnvironmentTooBright();
-
-        info.collisionFrontLeft = convertSensorReadingToCollisionState(sensorFrontLeft.getCompensatedPercentage());
-        info.collisionFrontRight = convertSensorReadingToCollisionState(sensorFrontRight.getCompensatedPercentage());
-        info.collisionBackRight = convertSensorReadingToCollisionState(sensorBackRight.getCompensatedPercentage());
-        info.collisionBackLeft = convertSensorReadingToCollisionState(sensorBackLeft.getCompensatedPercentage());
+        return RoverCollisionInformation.fromPacked(readSensors(AdaptivePollRate.ALL_SENSORS));
+    }
 
-        return info;
+    /**
+     * Gathers information from some sensors, the others keep their last state.
+     * @param sensors mask of the sensors to read, bits as in {@link AdaptivePollRate}
+     * @return the information from all sensors, packed as {@link PackedCollisionState}
+     * @throws IOException if the sensor fails to read a value.
+     */
+    int readSensors(int sensors) throws IOException {
+        measurementCycle.measure(sensors);
+        return classifier.classify(measurementCycle, sensors, System.currentTimeMillis());
     }
 
     /**
-     * Convert a numerical sensor to a discrete estimation of collision danger.
+     * Convert a numerical sensor to a discrete estimation of collision danger, without filtering or hysteresis.
      * @param sensorReading percentage of collision likeliness.
      * @return a discrete CollisionState information
      */
     public CollisionState convertSensorReadingToCollisionState(double sensorReading) {
-        CollisionState retVal = CollisionState.None;
-        if (sensorReading >= THR_COLLISION_FAR) {
-            retVal = CollisionState.Far;
-        }
-        if (sensorReading >= THR_COLLISION_MED) {
-            retVal = CollisionState.Medium;
-        }
-        if (sensorReading >= THR_COLLISION_CLOSE) {
-            retVal = CollisionState.Close;
-        }
-        return retVal;
+        return CollisionThresholds.classify(sensorReading);
     }
 }
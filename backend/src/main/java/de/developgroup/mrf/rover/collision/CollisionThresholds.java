@@ -0,0 +1,80 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+/**
+ * Converts sensor readings to collision states.
+ *
+ * A state is entered as soon as the reading reaches its threshold, but only left again once the reading fell below
+ * the threshold by more than the hysteresis. So a reading that wobbles around a threshold does not flip the state
+ * with every sample.
+ */
+final class CollisionThresholds {
+
+    /**
+     * collision percentage >= 0.35 -> far collision
+     */
+    static final double THR_COLLISION_FAR = 0.35;
+
+    /**
+     * collision percentage >= 0.4 -> medium collision
+     */
+    static final double THR_COLLISION_MED = 0.4;
+
+    /**
+     * collision percentage >= 0.5 -> close collision
+     */
+    static final double THR_COLLISION_CLOSE = 0.5;
+
+    private final double hysteresis;
+
+    /**
+     * @param hysteresis how far a reading must fall below a threshold to leave its state, 0 for none
+     */
+    CollisionThresholds(double hysteresis) {
+        if (hysteresis < 0) {
+            throw new IllegalArgumentException("Hysteresis must not be negative");
+        }
+        this.hysteresis = hysteresis;
+    }
+
+    double getHysteresis() {
+        return hysteresis;
+    }
+
+    /**
+     * Convert a reading without taking the previous state into account.
+     * @param sensorReading percentage of collision likeliness
+     * @return the collision state
+     */
+    static CollisionState classify(double sensorReading) {
+        if (sensorReading >= THR_COLLISION_CLOSE) {
+            return CollisionState.Close;
+        }
+        if (sensorReading >= THR_COLLISION_MED) {
+            return CollisionState.Medium;
+        }
+        if (sensorReading >= THR_COLLISION_FAR) {
+            return CollisionState.Far;
+        }
+        return CollisionState.None;
+    }
+
+    /**
+     * Convert a reading, keeping the previous state while the reading is within the hysteresis below its threshold.
+     * @param sensorReading percentage of collision likeliness
+     * @param previous state of the previous reading of the same sensor
+     * @return the collision state
+     */
+    CollisionState classify(double sensorReading, CollisionState previous) {
+        CollisionState state = classify(sensorReading);
+        if (state.getValue() >= previous.getValue()) {
+            return state;
+        }
+        // falling: leave a state only once the reading is below its threshold minus the hysteresis
+        CollisionState held = classify(sensorReading + hysteresis);
+        return held.getValue() < previous.getValue() ? held : previous;
+    }
+}
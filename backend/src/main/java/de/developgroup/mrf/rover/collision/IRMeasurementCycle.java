@@ -0,0 +1,127 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import com.pi4j.io.gpio.GpioController;
+import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.PinState;
+import de.developgroup.mrf.rover.pcf8591.IRSensor;
+import de.developgroup.mrf.rover.pcf8591.IRSensorImpl;
+
+import java.io.IOException;
+
+/**
+ * Measures all IR sensors together instead of one after another.
+ *
+ * All LEDs are switched with a single GPIO call: off to capture the ambient light of every sensor, on to capture
+ * the reflected light, and off again. The compensated percentage and the too bright flag are both derived from these
+ * two captures, so a cycle takes 3 GPIO writes and 2 A/D conversions per sensor, compared to 5 GPIO writes and
+ * 3 conversions per sensor when each sensor measures itself. A cycle may also measure only some of the sensors, the
+ * others keep their last readings. Not thread safe, only used by the collision thread.
+ */
+final class IRMeasurementCycle {
+
+    private final GpioController gpio;
+
+    private final IRSensor[] sensors;
+
+    /**
+     * The LEDs of every subset of the sensors, indexed by the sensor mask.
+     */
+    private final GpioPinDigitalOutput[][] irLedsByMask;
+
+    private final int[] ambient;
+
+    private final int[] lit;
+
+    /**
+     * @param gpio controller to switch the LEDs with
+     * @param sensors the sensors to read
+     * @param irLeds the IR LEDs of the sensors, in the same order
+     */
+    IRMeasurementCycle(GpioController gpio, IRSensor[] sensors, GpioPinDigitalOutput[] irLeds) {
+        if (sensors.length != irLeds.length) {
+            throw new IllegalArgumentException("Every sensor needs its IR LED");
+        }
+        this.gpio = gpio;
+        this.sensors = sensors.clone();
+        this.irLedsByMask = new GpioPinDigitalOutput[1 << sensors.length][];
+        for (int mask = 0; mask < irLedsByMask.length; mask++) {
+            irLedsByMask[mask] = new GpioPinDigitalOutput[Integer.bitCount(mask)];
+            for (int i = 0, j = 0; i < sensors.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    irLedsByMask[mask][j++] = irLeds[i];
+                }
+            }
+        }
+        this.ambient = new int[sensors.length];
+        this.lit = new int[sensors.length];
+    }
+
+    /**
+     * Capture the ambient and the lit reading of every sensor.
+     * @throws IOException if a sensor fails to read a value
+     */
+    void measure() throws IOException {
+        measure(irLedsByMask.length - 1);
+    }
+
+    /**
+     * Capture the ambient and the lit reading of some sensors.
+     * @param sensorMask bit i set to measure the sensor with index i
+     * @throws IOException if a sensor fails to read a value
+     */
+    void measure(int sensorMask) throws IOException {
+        GpioPinDigitalOutput[] irLeds = irLedsByMask[sensorMask];
+        gpio.setState(PinState.LOW, irLeds);
+        for (int i = 0; i < sensors.length; i++) {
+            if ((sensorMask & (1 << i)) != 0) {
+                ambient[i] = sensors[i].getRawReading();
+            }
+        }
+        gpio.setState(PinState.HIGH, irLeds);
+        try {
+            for (int i = 0; i < sensors.length; i++) {
+                if ((sensorMask & (1 << i)) != 0) {
+                    lit[i] = sensors[i].getRawReading();
+                }
+            }
+        } finally {
+            gpio.setState(PinState.LOW, irLeds);
+        }
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @return raw reading of the last measurement with the IR LED off
+     */
+    int getAmbientReading(int sensor) {
+        return ambient[sensor];
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @return raw reading of the last measurement with the IR LED on
+     */
+    int getLitReading(int sensor) {
+        return lit[sensor];
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @return compensated percentage of the last measurement
+     */
+    double getCompensatedPercentage(int sensor) {
+        return IRSensorImpl.compensatedPercentage(ambient[sensor], lit[sensor]);
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @return true if the ambient light of the last measurement was too bright
+     */
+    boolean isEnvironmentTooBright(int sensor) {
+        return IRSensorImpl.isTooBright(ambient[sensor]);
+    }
+}
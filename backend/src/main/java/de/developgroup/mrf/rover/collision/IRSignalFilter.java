@@ -0,0 +1,122 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+/**
+ * Smooths the readings of a single IR sensor before they are classified.
+ *
+ * A median filter drops single outliers and keeps the edge of a real change, delayed by half the window. An
+ * exponential moving average also smooths regular noise, but lags behind every change. Samples are kept in primitive
+ * arrays that are allocated once, so filtering does not allocate. Not thread safe, use one filter per channel.
+ */
+final class IRSignalFilter {
+
+    enum Type {
+        NONE, MEDIAN, EMA
+    }
+
+    private final Type type;
+
+    private final double[] window;
+
+    private final double[] sorted;
+
+    private final double alpha;
+
+    private int next;
+
+    private int count;
+
+    private double average;
+
+    private IRSignalFilter(Type type, int windowSize, double alpha) {
+        this.type = type;
+        this.window = new double[windowSize];
+        this.sorted = new double[windowSize];
+        this.alpha = alpha;
+    }
+
+    /**
+     * @return a filter passing the samples unchanged
+     */
+    static IRSignalFilter none() {
+        return new IRSignalFilter(Type.NONE, 0, 1);
+    }
+
+    /**
+     * @param windowSize number of recent samples to take the median of
+     * @return a median filter
+     */
+    static IRSignalFilter median(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1");
+        }
+        return new IRSignalFilter(Type.MEDIAN, windowSize, 1);
+    }
+
+    /**
+     * @param alpha weight of the newest sample in (0; 1], 1 means no smoothing
+     * @return an exponential moving average filter
+     */
+    static IRSignalFilter ema(double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Alpha must be in (0; 1]");
+        }
+        return new IRSignalFilter(Type.EMA, 0, alpha);
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    /**
+     * Add a sample.
+     * @param sample the raw reading
+     * @return the filtered reading
+     */
+    double filter(double sample) {
+        switch (type) {
+            case MEDIAN:
+                return median(sample);
+            case EMA:
+                average = count == 0 ? sample : average + alpha * (sample - average);
+                count = 1;
+                return average;
+            default:
+                return sample;
+        }
+    }
+
+    private double median(double sample) {
+        window[next] = sample;
+        next = (next + 1) % window.length;
+        if (count < window.length) {
+            count++;
+        }
+        // insertion sort, the window is small
+        for (int i = 0; i < count; i++) {
+            double value = window[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+        if (count % 2 == 1) {
+            return sorted[count / 2];
+        }
+        return (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+    }
+
+    /**
+     * Forget all samples.
+     */
+    void reset() {
+        next = 0;
+        count = 0;
+        average = 0;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+/**
+ * Collision information packed into a single int, so it can be kept in an atomic, compared with {@code ==} and sent
+ * to clients as a number.
+ *
+ * Bits 0-1 hold the {@link CollisionState} value of the front left sensor, bits 2-3 front right, bits 4-5 back right
+ * and bits 6-7 back left. Bit 8 is set if the readings are tainted. Clients decode a sensor with
+ * {@code (state >> (2 * sensor)) & 3}.
+ */
+public final class PackedCollisionState {
+
+    public static final int FRONT_LEFT = 0;
+
+    public static final int FRONT_RIGHT = 1;
+
+    public static final int BACK_RIGHT = 2;
+
+    public static final int BACK_LEFT = 3;
+
+    /**
+     * Number of sensors in a packed state.
+     */
+    public static final int SENSORS = 4;
+
+    /**
+     * All sensors without collision, readings not tainted.
+     */
+    public static final int NONE = 0;
+
+    static final int TAINTED_BIT = 1 << 8;
+
+    private static final CollisionState[] STATES = CollisionState.values();
+
+    private static final int CLOSE = CollisionState.Close.getValue();
+
+    private static final int CLOSE_FRONT_LEFT = CLOSE << (2 * FRONT_LEFT);
+
+    private static final int CLOSE_FRONT_RIGHT = CLOSE << (2 * FRONT_RIGHT);
+
+    private static final int CLOSE_BACK_RIGHT = CLOSE << (2 * BACK_RIGHT);
+
+    private static final int CLOSE_BACK_LEFT = CLOSE << (2 * BACK_LEFT);
+
+    private PackedCollisionState() {
+    }
+
+    /**
+     * @param packed packed collision information
+     * @param sensor one of the sensor constants
+     * @param state new state of the sensor
+     * @return the packed collision information with the state of the sensor replaced
+     */
+    public static int withState(int packed, int sensor, CollisionState state) {
+        int shift = 2 * sensor;
+        return (packed & ~(3 << shift)) | (state.getValue() << shift);
+    }
+
+    /**
+     * @param packed packed collision information
+     * @param tainted whether the readings are tainted
+     * @return the packed collision information with the tainted flag replaced
+     */
+    public static int withTainted(int packed, boolean tainted) {
+        return tainted ? packed | TAINTED_BIT : packed & ~TAINTED_BIT;
+    }
+
+    /**
+     * @param packed packed collision information
+     * @param sensor one of the sensor constants
+     * @return the state of the sensor
+     */
+    public static CollisionState getState(int packed, int sensor) {
+        return STATES[(packed >> (2 * sensor)) & 3];
+    }
+
+    public static boolean isTainted(int packed) {
+        return (packed & TAINTED_BIT) != 0;
+    }
+
+    public static boolean hasCollisionFront(int packed) {
+        return (packed & CLOSE_FRONT_LEFT) == CLOSE_FRONT_LEFT || (packed & CLOSE_FRONT_RIGHT) == CLOSE_FRONT_RIGHT;
+    }
+
+    public static boolean hasCollisionBack(int packed) {
+        return (packed & CLOSE_BACK_RIGHT) == CLOSE_BACK_RIGHT || (packed & CLOSE_BACK_LEFT) == CLOSE_BACK_LEFT;
+    }
+
+    public static boolean hasDangerousCollision(int packed) {
+        return hasCollisionFront(packed) || hasCollisionBack(packed);
+    }
+}
@@ -5,7 +5,8 @@
 package de.developgroup.mrf.rover.collision;
 
 /**
- * Container for collision states for all four edges of the rover.
+ * Container for collision states for all four edges of the rover. The collision thread keeps the information as
+ * {@link PackedCollisionState}, this object form is kept for listeners and clients that expect it.
  */
 public class RoverCollisionInformation {
     /**
@@ -34,6 +35,32 @@ public class RoverCollisionInformation {
         collisionBackRight = CollisionState.None;
     }
 
+    /**
+     * Create collision information from its packed form.
+     * @param packed collision information packed by {@link #toPacked()}
+     * @return the collision information
+     */
+    public static RoverCollisionInformation fromPacked(int packed) {
+        RoverCollisionInformation info = new RoverCollisionInformation();
+        info.taintedReadings = PackedCollisionState.isTainted(packed);
+        info.collisionFrontLeft = PackedCollisionState.getState(packed, PackedCollisionState.FRONT_LEFT);
+        info.collisionFrontRight = PackedCollisionState.getState(packed, PackedCollisionState.FRONT_RIGHT);
+        info.collisionBackRight = PackedCollisionState.getState(packed, PackedCollisionState.BACK_RIGHT);
+        info.collisionBackLeft = PackedCollisionState.getState(packed, PackedCollisionState.BACK_LEFT);
+        return info;
+    }
+
+    /**
+     * @return this collision information packed into an int, see {@link PackedCollisionState}
+     */
+    public int toPacked() {
+        int packed = PackedCollisionState.withTainted(PackedCollisionState.NONE, taintedReadings);
+        packed = PackedCollisionState.withState(packed, PackedCollisionState.FRONT_LEFT, collisionFrontLeft);
+        packed = PackedCollisionState.withState(packed, PackedCollisionState.FRONT_RIGHT, collisionFrontRight);
+        packed = PackedCollisionState.withState(packed, PackedCollisionState.BACK_RIGHT, collisionBackRight);
+        return PackedCollisionState.withState(packed, PackedCollisionState.BACK_LEFT, collisionBackLeft);
+    }
+
     /**
      * Determine whether this instance of collision information is very close, so that e.g. driving should not be
      * possible right now.
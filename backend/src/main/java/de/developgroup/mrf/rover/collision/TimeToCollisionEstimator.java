@@ -0,0 +1,163 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Predicts how soon the rover reaches the close collision threshold and derives a speed limit from it, so the rover
+ * slows down before the hard stop instead of covering several centimetres between two polls at full speed.
+ *
+ * For every sensor facing the direction of travel, the slope of its recent filtered readings is fitted by least
+ * squares. Divided by the speed the rover drove at, it gives the approach rate per unit of motor speed. That rate
+ * predicts the time to collision at any speed, so the allowed speed is the one at which the remaining margin up to
+ * {@link CollisionThresholds#THR_COLLISION_CLOSE} lasts for the braking horizon. The speed is reduced in proportion
+ * to the margin, but not below a minimum speed, so the rover still reaches the hard stop instead of creeping
+ * towards it.
+ *
+ * Samples are kept in primitive arrays that are allocated once. Not thread safe, only used by the collision thread.
+ */
+final class TimeToCollisionEstimator {
+
+    /**
+     * Motor speeds below do not move the rover enough to estimate an approach rate.
+     */
+    static final double MIN_MEASURING_SPEED = 0.05;
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double horizonSeconds;
+
+    private final double minSpeed;
+
+    private final int windowSize;
+
+    /*
+     * Recent samples per sensor, as ring buffers.
+     */
+    private final double[][] readings;
+
+    private final long[][] times;
+
+    private final int[] next;
+
+    private final int[] count;
+
+    /**
+     * Increase of the reading per second and unit of motor speed, 0 if the sensor does not approach anything.
+     */
+    private final double[] approachRate;
+
+    /**
+     * @param sensors number of sensors
+     * @param windowSize number of recent samples to fit the slope to, at least 2
+     * @param horizonSeconds time to collision the rover should keep at least
+     * @param minSpeed lowest speed limit, in (0; 1]
+     */
+    TimeToCollisionEstimator(int sensors, int windowSize, double horizonSeconds, double minSpeed) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("Window size must be at least 2");
+        }
+        if (horizonSeconds <= 0) {
+            throw new IllegalArgumentException("Horizon must be greater than zero");
+        }
+        if (minSpeed <= 0 || minSpeed > 1) {
+            throw new IllegalArgumentException("Minimum speed must be in (0; 1]");
+        }
+        this.horizonSeconds = horizonSeconds;
+        this.minSpeed = minSpeed;
+        this.windowSize = windowSize;
+        readings = new double[sensors][windowSize];
+        times = new long[sensors][windowSize];
+        next = new int[sensors];
+        count = new int[sensors];
+        approachRate = new double[sensors];
+    }
+
+    /**
+     * Add a filtered reading of a sensor.
+     * @param sensor index of the sensor
+     * @param reading the filtered reading
+     * @param nowNanos time of the reading
+     * @param speed speed the rover drives in the direction the sensor faces, negative if it drives away
+     */
+    void update(int sensor, double reading, long nowNanos, double speed) {
+        if (reading < CollisionThresholds.THR_COLLISION_FAR) {
+            // nothing in sight, an old approach rate would only brake the next approach too early
+            reset(sensor);
+            return;
+        }
+        if (speed < MIN_MEASURING_SPEED) {
+            // keep the approach rate, the rover starts slowly again towards the same obstacle
+            count[sensor] = 0;
+            return;
+        }
+        readings[sensor][next[sensor]] = reading;
+        times[sensor][next[sensor]] = nowNanos;
+        next[sensor] = (next[sensor] + 1) % windowSize;
+        if (count[sensor] < windowSize) {
+            count[sensor]++;
+        }
+        if (count[sensor] >= 2) {
+            approachRate[sensor] = Math.max(0, slope(sensor) / speed);
+        }
+    }
+
+    /**
+     * Forget the samples and the approach rate of a sensor.
+     */
+    void reset(int sensor) {
+        count[sensor] = 0;
+        approachRate[sensor] = 0;
+    }
+
+    /**
+     * @return least squares slope of the samples of a sensor, per second
+     */
+    private double slope(int sensor) {
+        int n = count[sensor];
+        long origin = times[sensor][(next[sensor] - n + windowSize) % windowSize];
+        double sumT = 0;
+        double sumR = 0;
+        double sumTT = 0;
+        double sumTR = 0;
+        for (int i = 0; i < n; i++) {
+            int slot = (next[sensor] - n + i + windowSize) % windowSize;
+            double t = (times[sensor][slot] - origin) / NANOS_PER_SECOND;
+            double r = readings[sensor][slot];
+            sumT += t;
+            sumR += r;
+            sumTT += t * t;
+            sumTR += t * r;
+        }
+        double denominator = n * sumTT - sumT * sumT;
+        if (denominator <= 0) {
+            return 0;
+        }
+        return (n * sumTR - sumT * sumR) / denominator;
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @return increase of the reading per second and unit of motor speed
+     */
+    double getApproachRate(int sensor) {
+        return approachRate[sensor];
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @param reading latest filtered reading of the sensor
+     * @return highest speed in [minSpeed; 1] at which the time to collision is at least the horizon
+     */
+    double getSpeedLimit(int sensor, double reading) {
+        double rate = approachRate[sensor];
+        if (rate <= 0) {
+            return 1;
+        }
+        double margin = CollisionThresholds.THR_COLLISION_CLOSE - reading;
+        return Math.min(1, Math.max(minSpeed, margin / (rate * horizonSeconds)));
+    }
+}
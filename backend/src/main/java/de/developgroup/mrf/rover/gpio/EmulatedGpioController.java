@@ -0,0 +1,136 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.gpio;
+
+import com.google.inject.Singleton;
+import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.Pin;
+import com.pi4j.io.gpio.PinState;
+import com.pi4j.io.gpio.impl.GpioPinImpl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * GPIO controller without hardware whose digital outputs keep their state, so code that provisions and switches pins,
+ * like the IR sensors, runs unchanged. Subclasses can follow the state changes in {@link #onStateChanged}.
+ */
+@Singleton
+public class EmulatedGpioController extends GpioControllerMock {
+
+    /**
+     * The most recently provisioned output of every pin.
+     */
+    private final Map<Pin, EmulatedOutputPin> outputs = new ConcurrentHashMap<>();
+
+    @Override
+    public void setState(PinState pinState, GpioPinDigitalOutput... gpioPinDigitalOutputs) {
+        for (GpioPinDigitalOutput output : gpioPinDigitalOutputs) {
+            output.setState(pinState);
+        }
+        onStateChanged(pinState);
+    }
+
+    @Override
+    public GpioPinDigitalOutput provisionDigitalOutputPin(Pin pin, String name, PinState pinState) {
+        return provision(pin, pinState);
+    }
+
+    @Override
+    public GpioPinDigitalOutput provisionDigitalOutputPin(Pin pin, PinState pinState) {
+        return provision(pin, pinState);
+    }
+
+    @Override
+    public GpioPinDigitalOutput provisionDigitalOutputPin(Pin pin, String name) {
+        return provision(pin, PinState.LOW);
+    }
+
+    @Override
+    public GpioPinDigitalOutput provisionDigitalOutputPin(Pin pin) {
+        return provision(pin, PinState.LOW);
+    }
+
+    private GpioPinDigitalOutput provision(Pin pin, PinState pinState) {
+        EmulatedOutputPin output = new EmulatedOutputPin(pin, pinState);
+        outputs.put(pin, output);
+        return output;
+    }
+
+    /**
+     * @param pin a GPIO pin
+     * @return state of the output provisioned last on the pin, low if none was provisioned
+     */
+    public PinState getOutputState(Pin pin) {
+        EmulatedOutputPin output = outputs.get(pin);
+        return output != null ? output.getState() : PinState.LOW;
+    }
+
+    /**
+     * Called whenever outputs are switched, through the controller or a pin.
+     * @param pinState the new state of the outputs
+     */
+    protected void onStateChanged(PinState pinState) {
+    }
+
+    /**
+     * Output pin without a GPIO provider, which only keeps its state.
+     */
+    private final class EmulatedOutputPin extends GpioPinImpl {
+
+        private volatile PinState state;
+
+        EmulatedOutputPin(Pin pin, PinState state) {
+            super(EmulatedGpioController.this, null, pin);
+            this.state = state;
+        }
+
+        @Override
+        public void setState(PinState state) {
+            this.state = state;
+            onStateChanged(state);
+        }
+
+        @Override
+        public void setState(boolean state) {
+            setState(PinState.getState(state));
+        }
+
+        @Override
+        public void high() {
+            setState(PinState.HIGH);
+        }
+
+        @Override
+        public void low() {
+            setState(PinState.LOW);
+        }
+
+        @Override
+        public void toggle() {
+            setState(state.isHigh() ? PinState.LOW : PinState.HIGH);
+        }
+
+        @Override
+        public PinState getState() {
+            return state;
+        }
+
+        @Override
+        public boolean isHigh() {
+            return state.isHigh();
+        }
+
+        @Override
+        public boolean isLow() {
+            return state.isLow();
+        }
+
+        @Override
+        public void setShutdownOptions(Boolean unexport, PinState state) {
+            // nothing to restore on shutdown
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * I2C bus with emulated devices, so the real device drivers run without a Raspberry Pi. Holds the devices of the
+ * rover: a {@link PCA9685Emulator} at 0x40 and {@link PCF8591Emulator}s at 0x48 to 0x4F.
+ *
+ * Transactions take as long as on a bus with the configured clock frequency, and like on a real bus only one
+ * transaction is in progress at a time.
+ */
+@Singleton
+public class EmulatedI2CBus implements I2CBus {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmulatedI2CBus.class);
+
+    public static final int STANDARD_MODE = 100000;
+
+    public static final int FAST_MODE = 400000;
+
+    static final int PCA9685_ADDRESS = 0x40;
+
+    static final int PCF8591_FIRST_ADDRESS = 0x48;
+
+    static final int PCF8591_LAST_ADDRESS = 0x4F;
+
+    /**
+     * Clock cycles per byte: 8 data bits and the acknowledge bit.
+     */
+    static final int CYCLES_PER_BYTE = 9;
+
+    /**
+     * Clock cycles of the start and the stop condition of a transaction.
+     */
+    static final int CYCLES_PER_TRANSACTION = 2;
+
+    /**
+     * Waits shorter than this are spun, parking the thread would overshoot them.
+     */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final MetricsRegistry metricsRegistry;
+
+    private final Map<Integer, EmulatedI2CDevice> devices = new HashMap<>();
+
+    private volatile int clockFrequency = STANDARD_MODE;
+
+    @Inject
+    public EmulatedI2CBus(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Read the clock frequency from rover.properties.
+     * @param configurationProvider provider of rover.properties
+     */
+    public void initialize(ConfigurationProvider configurationProvider) {
+        try {
+            setClockFrequency(configurationProvider.bind("i2cEmulation", I2CEmulationConfiguration.class)
+                    .clockFrequency());
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No I2C emulation configuration found, emulating " + clockFrequency + " Hz");
+        } catch (IllegalArgumentException e) {
+            LOGGER.error(e.getMessage() + ", emulating " + clockFrequency + " Hz");
+        }
+    }
+
+    /**
+     * @param clockFrequency clock frequency in Hz, 0 for transactions without latency
+     */
+    public void setClockFrequency(int clockFrequency) {
+        if (clockFrequency < 0) {
+            throw new IllegalArgumentException("Invalid I2C clock frequency " + clockFrequency);
+        }
+        this.clockFrequency = clockFrequency;
+    }
+
+    public int getClockFrequency() {
+        return clockFrequency;
+    }
+
+    /**
+     * @param bytes bytes transferred after the address byte
+     * @return duration of a transaction at the current clock frequency
+     */
+    public long transactionNanos(int bytes) {
+        int frequency = clockFrequency;
+        if (frequency == 0) {
+            return 0;
+        }
+        long cycles = CYCLES_PER_TRANSACTION + CYCLES_PER_BYTE * (1L + bytes);
+        return cycles * TimeUnit.SECONDS.toNanos(1) / frequency;
+    }
+
+    @Override
+    public synchronized I2CDevice getDevice(int address) throws IOException {
+        EmulatedI2CDevice device = devices.get(address);
+        if (device == null) {
+            if (address == PCA9685_ADDRESS) {
+                device = new PCA9685Emulator(this, address, metricsRegistry);
+            } else if (address >= PCF8591_FIRST_ADDRESS && address <= PCF8591_LAST_ADDRESS) {
+                device = new PCF8591Emulator(this, address, metricsRegistry);
+            } else {
+                throw new IOException(String.format("No emulated I2C device at address 0x%02x", address));
+            }
+            devices.put(address, device);
+        }
+        return device;
+    }
+
+    /**
+     * Occupy the bus for the duration of a transaction. Called by the devices while they hold the bus.
+     * @param bytes bytes transferred after the address byte
+     */
+    void transfer(int bytes) {
+        long dueNanos = System.nanoTime() + transactionNanos(bytes);
+        long waitNanos;
+        while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+            if (waitNanos > SPIN_NANOS) {
+                LockSupport.parkNanos(waitNanos - SPIN_NANOS);
+            }
+        }
+    }
+
+    @Override
+    public String getFileName() {
+        return "emulated";
+    }
+
+    @Override
+    public int getFileDescriptor() {
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
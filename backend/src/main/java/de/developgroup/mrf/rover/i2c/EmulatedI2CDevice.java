@@ -0,0 +1,179 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+import com.pi4j.io.i2c.I2CDevice;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+
+import java.io.IOException;
+
+/**
+ * A device on the {@link EmulatedI2CBus}. Subclasses only implement what the device does with the bytes it receives
+ * and which bytes it sends, this class holds the bus for each transaction and counts them.
+ *
+ * Every method of the I2CDevice is one transaction. Methods with a local address write the address first and, for
+ * reads, read after a repeated start. Pi4J issues the same messages on the real bus.
+ */
+public abstract class EmulatedI2CDevice implements I2CDevice {
+
+    private final EmulatedI2CBus bus;
+
+    private final int address;
+
+    private final Counter transactions;
+
+    private final Counter bytesWritten;
+
+    private final Counter bytesRead;
+
+    EmulatedI2CDevice(EmulatedI2CBus bus, int address, MetricsRegistry metricsRegistry) {
+        this.bus = bus;
+        this.address = address;
+        String prefix = String.format("i2c.0x%02x.", address);
+        transactions = metricsRegistry.counter(prefix + "transactions");
+        bytesWritten = metricsRegistry.counter(prefix + "bytes.written");
+        bytesRead = metricsRegistry.counter(prefix + "bytes.read");
+    }
+
+    /**
+     * The device received a byte.
+     * @param index position of the byte in the write, starting with 0 after every start condition
+     * @param value the byte
+     */
+    protected abstract void receive(int index, byte value);
+
+    /**
+     * The master reads a byte from the device.
+     * @return the byte
+     */
+    protected abstract byte transmit();
+
+    public int getAddress() {
+        return address;
+    }
+
+    public long getTransactions() {
+        return transactions.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public void write(byte b) throws IOException {
+        synchronized (bus) {
+            receive(0, b);
+            complete(1, 0);
+        }
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int size) throws IOException {
+        synchronized (bus) {
+            receive(buffer, offset, size, 0);
+            complete(size, 0);
+        }
+    }
+
+    @Override
+    public void write(int localAddress, byte b) throws IOException {
+        synchronized (bus) {
+            receive(0, (byte) localAddress);
+            receive(1, b);
+            complete(2, 0);
+        }
+    }
+
+    @Override
+    public void write(int localAddress, byte[] buffer, int offset, int size) throws IOException {
+        synchronized (bus) {
+            receive(0, (byte) localAddress);
+            receive(buffer, offset, size, 1);
+            complete(1 + size, 0);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        synchronized (bus) {
+            int value = transmit() & 0xFF;
+            complete(0, 1);
+            return value;
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int size) throws IOException {
+        synchronized (bus) {
+            transmit(buffer, offset, size);
+            complete(0, size);
+            return size;
+        }
+    }
+
+    @Override
+    public int read(int localAddress) throws IOException {
+        synchronized (bus) {
+            receive(0, (byte) localAddress);
+            int value = transmit() & 0xFF;
+            complete(1, 1);
+            return value;
+        }
+    }
+
+    @Override
+    public int read(int localAddress, byte[] buffer, int offset, int size) throws IOException {
+        synchronized (bus) {
+            receive(0, (byte) localAddress);
+            transmit(buffer, offset, size);
+            complete(1, size);
+            return size;
+        }
+    }
+
+    @Override
+    public int read(byte[] writeBuffer, int writeOffset, int writeSize, byte[] readBuffer, int readOffset,
+                    int readSize) throws IOException {
+        synchronized (bus) {
+            receive(writeBuffer, writeOffset, writeSize, 0);
+            transmit(readBuffer, readOffset, readSize);
+            complete(writeSize, readSize);
+            return readSize;
+        }
+    }
+
+    private void receive(byte[] buffer, int offset, int size, int firstIndex) {
+        for (int i = 0; i < size; i++) {
+            receive(firstIndex + i, buffer[offset + i]);
+        }
+    }
+
+    private void transmit(byte[] buffer, int offset, int size) {
+        for (int i = 0; i < size; i++) {
+            buffer[offset + i] = transmit();
+        }
+    }
+
+    /**
+     * Take the time of the write and the read message of a transaction on the bus, and count them.
+     */
+    private void complete(int written, int read) {
+        if (written > 0) {
+            bus.transfer(written);
+        }
+        if (read > 0) {
+            bus.transfer(read);
+        }
+        transactions.increment();
+        bytesWritten.add(written);
+        bytesRead.add(read);
+    }
+}
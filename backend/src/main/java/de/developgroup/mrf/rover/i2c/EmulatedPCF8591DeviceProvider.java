@@ -0,0 +1,34 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.pi4j.io.i2c.I2CDevice;
+
+import java.io.IOException;
+
+/**
+ * Guice adapter to get the emulated A/D converter of the IR sensors.
+ */
+public class EmulatedPCF8591DeviceProvider implements Provider<I2CDevice> {
+
+    private final EmulatedI2CBus bus;
+
+    @Inject
+    public EmulatedPCF8591DeviceProvider(EmulatedI2CBus bus) {
+        this.bus = bus;
+    }
+
+    @Override
+    public I2CDevice get() {
+        try {
+            return bus.getDevice(EmulatedI2CBus.PCF8591_FIRST_ADDRESS);
+        } catch (IOException e) {
+            // the bus always has this device
+            throw new IllegalStateException(e);
+        }
+    }
+}
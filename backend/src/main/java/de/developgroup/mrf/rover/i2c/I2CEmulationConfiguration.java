@@ -0,0 +1,14 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+public interface I2CEmulationConfiguration {
+
+    /**
+     * Clock frequency of the emulated bus in Hz, 100000 for standard mode, 400000 for fast mode, 0 for transactions
+     * without latency.
+     */
+    int clockFrequency();
+}
@@ -0,0 +1,195 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+
+/**
+ * Register file of the PCA9685 16 channel PWM controller, as described in its datasheet.
+ *
+ * The first byte of a write selects the register, the following bytes are written to it. With the AI bit of MODE1 set,
+ * the register pointer steps to the next register after every byte written or read, and rolls over from the last LED
+ * register to MODE1. Writes to the ALL_LED registers go to the registers of all channels, reads return 0. PRE_SCALE
+ * can only be written while the oscillator sleeps, and the RESTART bit is cleared by writing 1.
+ */
+public class PCA9685Emulator extends EmulatedI2CDevice {
+
+    public static final int CHANNELS = 16;
+
+    static final int REG_MODE1 = 0x00;
+    static final int REG_MODE2 = 0x01;
+    static final int REG_SUBADR1 = 0x02;
+    static final int REG_SUBADR2 = 0x03;
+    static final int REG_SUBADR3 = 0x04;
+    static final int REG_ALLCALLADR = 0x05;
+    static final int REG_LED0_ON_L = 0x06;
+    static final int REG_LED15_OFF_H = 0x45;
+    static final int REG_ALL_LED_ON_L = 0xFA;
+    static final int REG_ALL_LED_OFF_H = 0xFD;
+    static final int REG_PRESCALE = 0xFE;
+    static final int REG_TEST_MODE = 0xFF;
+
+    static final int RESTART = 0x80;
+    static final int AI = 0x20;
+    static final int SLEEP = 0x10;
+
+    /**
+     * Bit of the ON_H and OFF_H registers that switches a channel fully on or off.
+     */
+    static final int FULL = 0x10;
+
+    /**
+     * The hardware does not accept a lower prescale value.
+     */
+    static final int MIN_PRESCALE = 3;
+
+    static final int OSCILLATOR_FREQUENCY = 25000000;
+
+    static final int CYCLE_COUNT = 4096;
+
+    private final byte[] registers = new byte[256];
+
+    private int pointer;
+
+    private long blockedPrescaleWrites;
+
+    PCA9685Emulator(EmulatedI2CBus bus, int address, MetricsRegistry metricsRegistry) {
+        super(bus, address, metricsRegistry);
+        // power on reset values
+        registers[REG_MODE1] = 0x11;
+        registers[REG_MODE2] = 0x04;
+        registers[REG_SUBADR1] = (byte) 0xE2;
+        registers[REG_SUBADR2] = (byte) 0xE4;
+        registers[REG_SUBADR3] = (byte) 0xE8;
+        registers[REG_ALLCALLADR] = (byte) 0xE0;
+        for (int channel = 0; channel < CHANNELS; channel++) {
+            registers[offHigh(channel)] = FULL;
+        }
+        registers[REG_PRESCALE] = 0x1E;
+    }
+
+    @Override
+    protected synchronized void receive(int index, byte value) {
+        if (index == 0) {
+            pointer = value & 0xFF;
+            return;
+        }
+        writeRegister(pointer, value);
+        advance();
+    }
+
+    @Override
+    protected synchronized byte transmit() {
+        byte value = readRegister(pointer);
+        advance();
+        return value;
+    }
+
+    private void advance() {
+        if ((registers[REG_MODE1] & AI) == 0) {
+            return;
+        }
+        pointer = pointer == REG_LED15_OFF_H || pointer == REG_TEST_MODE ? REG_MODE1 : pointer + 1;
+    }
+
+    private void writeRegister(int register, byte value) {
+        if (register == REG_MODE1) {
+            // writing 1 clears RESTART
+            registers[REG_MODE1] = (byte) (value & ~RESTART);
+        } else if (register == REG_PRESCALE) {
+            if ((registers[REG_MODE1] & SLEEP) == 0) {
+                blockedPrescaleWrites++;
+                return;
+            }
+            registers[REG_PRESCALE] = (byte) Math.max(MIN_PRESCALE, value & 0xFF);
+        } else if (register >= REG_ALL_LED_ON_L && register <= REG_ALL_LED_OFF_H) {
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                registers[REG_LED0_ON_L + 4 * channel + register - REG_ALL_LED_ON_L] = value;
+            }
+        } else if (register <= REG_LED15_OFF_H) {
+            registers[register] = value;
+        }
+        // the reserved registers and the test mode register ignore writes
+    }
+
+    private byte readRegister(int register) {
+        if (register >= REG_ALL_LED_ON_L && register <= REG_ALL_LED_OFF_H) {
+            return 0;
+        }
+        return registers[register];
+    }
+
+    /**
+     * @param register address of a register
+     * @return its value, as read over the bus
+     */
+    public synchronized int getRegister(int register) {
+        return readRegister(register) & 0xFF;
+    }
+
+    public synchronized boolean isSleeping() {
+        return (registers[REG_MODE1] & SLEEP) != 0;
+    }
+
+    public synchronized int getPrescale() {
+        return registers[REG_PRESCALE] & 0xFF;
+    }
+
+    /**
+     * @return PWM frequency in Hz set by the prescale value
+     */
+    public synchronized double getFrequency() {
+        return OSCILLATOR_FREQUENCY / (double) (CYCLE_COUNT * (getPrescale() + 1));
+    }
+
+    /**
+     * @return number of writes to PRE_SCALE that were ignored because the oscillator was running
+     */
+    public synchronized long getBlockedPrescaleWrites() {
+        return blockedPrescaleWrites;
+    }
+
+    /**
+     * @return count after which the output of the channel goes high, 0 to 4095
+     */
+    public synchronized int getOn(int channel) {
+        return count(onLow(channel));
+    }
+
+    /**
+     * @return count after which the output of the channel goes low, 0 to 4095
+     */
+    public synchronized int getOff(int channel) {
+        return count(onLow(channel) + 2);
+    }
+
+    /**
+     * @return part of the PWM cycle the output of the channel is high, 0 while the oscillator sleeps
+     */
+    public synchronized double getDutyCycle(int channel) {
+        if (isSleeping() || (registers[offHigh(channel)] & FULL) != 0) {
+            return 0;
+        }
+        if ((registers[onLow(channel) + 1] & FULL) != 0) {
+            return 1;
+        }
+        return Math.floorMod(getOff(channel) - getOn(channel), CYCLE_COUNT) / (double) CYCLE_COUNT;
+    }
+
+    private int count(int lowRegister) {
+        return (registers[lowRegister] & 0xFF) | (registers[lowRegister + 1] & 0x0F) << 8;
+    }
+
+    private static int onLow(int channel) {
+        if (channel < 0 || channel >= CHANNELS) {
+            throw new IllegalArgumentException("The PCA9685 has no channel " + channel);
+        }
+        return REG_LED0_ON_L + 4 * channel;
+    }
+
+    private static int offHigh(int channel) {
+        return onLow(channel) + 3;
+    }
+}
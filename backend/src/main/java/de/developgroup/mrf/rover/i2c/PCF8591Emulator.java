@@ -0,0 +1,154 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+
+/**
+ * The PCF8591 8 bit A/D converter with 4 inputs and one D/A output, as described in its datasheet.
+ *
+ * The first byte of a write is the control byte: bit 6 enables the analog output, bits 5 and 4 select single ended
+ * or differential inputs, bit 2 enables auto-increment and bits 1 and 0 select the channel. The following bytes set
+ * the analog output. Every byte read starts the conversion of the selected channel and returns the result of the
+ * previous conversion, so the first byte of a read is stale. With auto-increment, the channel steps to the next one
+ * after every conversion.
+ */
+public class PCF8591Emulator extends EmulatedI2CDevice {
+
+    public static final int INPUTS = 4;
+
+    static final int ANALOG_OUTPUT_ENABLE = 0x40;
+
+    static final int AUTO_INCREMENT = 0x04;
+
+    /**
+     * Result of the conversion before the first one, after power on.
+     */
+    static final int POWER_ON_RESULT = 0x80;
+
+    /**
+     * Voltages at the analog inputs.
+     */
+    public interface AnalogInputs {
+        /**
+         * @param input the input, 0 to 3
+         * @return its voltage as a fraction of the reference voltage, in 1/256
+         */
+        int read(int input);
+    }
+
+    private final int[] fixedInputs = new int[INPUTS];
+
+    private AnalogInputs inputs = input -> fixedInputs[input];
+
+    private int control;
+
+    private int channel;
+
+    private int analogOutput;
+
+    private int result = POWER_ON_RESULT;
+
+    PCF8591Emulator(EmulatedI2CBus bus, int address, MetricsRegistry metricsRegistry) {
+        super(bus, address, metricsRegistry);
+    }
+
+    @Override
+    protected synchronized void receive(int index, byte value) {
+        if (index == 0) {
+            control = value & 0xFF;
+            channel = control & 0x03;
+        } else {
+            analogOutput = value & 0xFF;
+        }
+    }
+
+    @Override
+    protected synchronized byte transmit() {
+        byte previous = (byte) result;
+        result = convert(channel);
+        if ((control & AUTO_INCREMENT) != 0) {
+            channel = (channel + 1) % channelCount();
+        }
+        return previous;
+    }
+
+    /**
+     * @return the channels of the input programming in the control byte
+     */
+    private int channelCount() {
+        switch (inputProgramming()) {
+            case 0:
+                return 4;
+            case 3:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    private int inputProgramming() {
+        return (control >> 4) & 0x03;
+    }
+
+    private int convert(int channel) {
+        switch (inputProgramming()) {
+            case 0:
+                // four single ended inputs
+                return single(channel);
+            case 1:
+                // three inputs against input 3
+                return differential(channel, 3);
+            case 2:
+                // inputs 0 and 1 single ended, input 2 against input 3
+                return channel < 2 ? single(channel) : differential(2, 3);
+            default:
+                // input 0 against 1, input 2 against 3
+                return differential(2 * channel, 2 * channel + 1);
+        }
+    }
+
+    private int single(int input) {
+        return Math.max(0, Math.min(255, inputs.read(input)));
+    }
+
+    /**
+     * @return the difference in two's complement
+     */
+    private int differential(int positive, int negative) {
+        return Math.max(-128, Math.min(127, inputs.read(positive) - inputs.read(negative))) & 0xFF;
+    }
+
+    /**
+     * Set a fixed voltage at an input, used unless other inputs are set with {@link #setInputs}.
+     * @param input the input, 0 to 3
+     * @param value its voltage as a fraction of the reference voltage, in 1/256
+     */
+    public synchronized void setInput(int input, int value) {
+        fixedInputs[input] = value;
+    }
+
+    public synchronized void setInputs(AnalogInputs inputs) {
+        this.inputs = inputs;
+    }
+
+    public synchronized int getControl() {
+        return control;
+    }
+
+    /**
+     * @return the channel converted next
+     */
+    public synchronized int getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return the value of the D/A converter, 0 if the analog output is disabled
+     */
+    public synchronized int getAnalogOutput() {
+        return (control & ANALOG_OUTPUT_ENABLE) != 0 ? analogOutput : 0;
+    }
+}
@@ -18,6 +18,7 @@ import com.pi4j.io.gpio.PinState;
 import com.pi4j.io.gpio.RaspiPin;
 
 import de.developgroup.mrf.rover.pwmgenerator.PWMOutput;
+import de.developgroup.mrf.server.metrics.CommandTrace;
 
 public class MotorControllerImpl implements MotorController {
 
@@ -30,10 +31,15 @@ public class MotorControllerImpl implements MotorController {
 
 	public MotorControllerImpl(PWMOutput output,
 			MotorControllerConfiguration configuration) {
+		this(output, GpioFactory.getInstance(), configuration);
+	}
+
+	public MotorControllerImpl(PWMOutput output, GpioController gpio,
+			MotorControllerConfiguration configuration) {
 
 		this.output = output;
 		this.configuration = configuration;
-		this.gpio = GpioFactory.getInstance();
+		this.gpio = gpio;
 
 		try {
 			Pin myGPIOMotorPin = (Pin) FieldUtils.readDeclaredStaticField(
@@ -59,6 +65,7 @@ public class MotorControllerImpl implements MotorController {
 
 	@Override
 	public void setSpeed(int speed) throws IOException {
+		CommandTrace.mark(CommandTrace.Stage.MOTOR);
 		motorPin.setState(speed < 0 ^ configuration.reversed() ? PinState.LOW
 				: PinState.HIGH);
 		int pwm = (output.getCycleCount() * Math.abs(speed))
@@ -70,7 +77,9 @@ public class MotorControllerImpl implements MotorController {
 	public void setSpeedPercentage(double percentage) throws IOException {
 		// fix off by one to accumulate for getCycleCount()'s value range from 0 to getCycleCount()-1
 		int speed = (int)(percentage * (double)(SPEED_MAX_FORWARD-1));
-		LOGGER.debug("set speed: {}", speed);
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("set speed: {}", speed);
+		}
 		setSpeed(speed);
 	}
 
@@ -56,8 +56,7 @@ public class IRSensorImpl implements IRSensor {
         int onValue = getRawReading();
         switchIrOff();
 
-        int overBaseline = onValue - offValue;
-        return ((double)overBaseline)/((double)255 - offValue + 1);
+        return compensatedPercentage(offValue, onValue);
     }
 
     @Override
@@ -68,6 +67,25 @@ public class IRSensorImpl implements IRSensor {
         int value = getRawReading();
         irLed.setState(prevState);
 
-        return value > ENV_TOO_BRIGHT_THRESHOLD;
+        return isTooBright(value);
+    }
+
+    /**
+     * Calculate how much the reflected IR light exceeds the ambient light.
+     * @param offValue reading with the IR LED switched off
+     * @param onValue reading with the IR LED switched on
+     * @return the increase, relative to the range left above the ambient light
+     */
+    public static double compensatedPercentage(int offValue, int onValue) {
+        int overBaseline = onValue - offValue;
+        return ((double)overBaseline)/((double)255 - offValue + 1);
+    }
+
+    /**
+     * @param offValue reading with the IR LED switched off
+     * @return true if the ambient light is too bright for reliable readings
+     */
+    public static boolean isTooBright(int offValue) {
+        return offValue > ENV_TOO_BRIGHT_THRESHOLD;
     }
 }
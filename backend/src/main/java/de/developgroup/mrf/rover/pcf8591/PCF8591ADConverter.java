@@ -40,4 +40,11 @@ public interface PCF8591ADConverter {
      * @throws IOException if the device could not be spoken to
      */
     int getChannelValue(InputChannel channel) throws IOException;
+
+    /**
+     * Read all 4 channels of the A/D converter in one transaction.
+     * @param values receives the readings of the channels, in channel order; values between 0 and 255
+     * @throws IOException if the device could not be spoken to
+     */
+    void getChannelValues(int[] values) throws IOException;
 }
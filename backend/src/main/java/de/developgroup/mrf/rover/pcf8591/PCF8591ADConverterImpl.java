@@ -13,11 +13,23 @@ public class PCF8591ADConverterImpl implements PCF8591ADConverter {
 
     private static int DEVICE_ADDR = 0x48;
 
+    /**
+     * Control byte flag that makes the converter step to the next channel after every read.
+     */
+    private static final byte AUTO_INCREMENT = 0x04;
+
+    private static final int CHANNEL_COUNT = InputChannel.values().length;
+
     /**
      * The i2CDevice that represents this A/D converter.
      */
     private I2CDevice i2CDevice;
 
+    /**
+     * Receives the bytes of a read of all channels, guarded by i2CDevice.
+     */
+    private final byte[] buffer = new byte[CHANNEL_COUNT + 1];
+
     @Inject
     public PCF8591ADConverterImpl(@PCF8591Device I2CDevice i2CDevice) {
         this.i2CDevice = i2CDevice;
@@ -28,6 +40,19 @@ public class PCF8591ADConverterImpl implements PCF8591ADConverter {
         return doGetChannelValue((byte)channel.getValue());
     }
 
+    @Override
+    public void getChannelValues(int[] values) throws IOException {
+        // the device may be shared by several converter objects, a transaction must not be interleaved
+        synchronized (i2CDevice) {
+            i2CDevice.write((byte)(0x40 | AUTO_INCREMENT));
+            // the first byte is the result of the previous conversion
+            i2CDevice.read(buffer, 0, buffer.length);
+            for (int i = 0; i < CHANNEL_COUNT; i++) {
+                values[i] = buffer[i + 1] & 0xFF;
+            }
+        }
+    }
+
     /**
      * Private methods for writing/reading raw byte data from the device.
      * @param sensorNumber the sensor number to read; value in [0..3]
@@ -35,9 +60,11 @@ public class PCF8591ADConverterImpl implements PCF8591ADConverter {
      */
     private int doGetChannelValue(byte sensorNumber) throws IOException {
         byte command = (byte)((0x40) | (sensorNumber & 0x3));
-        i2CDevice.write(command);
-        // empty read to ensure getting correct values
-        i2CDevice.read();
-        return i2CDevice.read();
+        synchronized (i2CDevice) {
+            i2CDevice.write(command);
+            // empty read to ensure getting correct values
+            i2CDevice.read();
+            return i2CDevice.read();
+        }
     }
 }
@@ -8,6 +8,8 @@ import java.io.IOException;
 
 import com.pi4j.io.i2c.I2CDevice;
 
+import de.developgroup.mrf.server.metrics.CommandTrace;
+
 public class PCA9685PWMGenerator implements PWMGenerator {
 
 	/*
@@ -165,6 +167,7 @@ public class PCA9685PWMGenerator implements PWMGenerator {
 
 			device.write(REG_LED0_OFF_L + offset, (byte) lowAfter);
 			device.write(REG_LED0_OFF_H + offset, (byte) (lowAfter >> 8));
+			CommandTrace.mark(CommandTrace.Stage.ACTUATED);
 		}
 
 		@Override
@@ -0,0 +1,43 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import de.developgroup.mrf.rover.pcf8591.PCF8591ADConverter;
+
+import java.io.IOException;
+
+/**
+ * Sensors connected to the channels of a PCF8591 A/D converter. A single channel is read on its own, several channels
+ * with one read of all channels.
+ */
+public class PCF8591SensorDevice implements SensorDevice {
+
+    private static final PCF8591ADConverter.InputChannel[] CHANNELS = PCF8591ADConverter.InputChannel.values();
+
+    private final PCF8591ADConverter converter;
+
+    private final int[] allValues = new int[CHANNELS.length];
+
+    public PCF8591SensorDevice(PCF8591ADConverter converter) {
+        this.converter = converter;
+    }
+
+    @Override
+    public synchronized void read(int[] channels, int count, int[] values) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (channels[i] < 0 || channels[i] >= CHANNELS.length) {
+                throw new IllegalArgumentException("The PCF8591 has no channel " + channels[i]);
+            }
+        }
+        if (count == 1) {
+            values[0] = converter.getChannelValue(CHANNELS[channels[0]]);
+            return;
+        }
+        converter.getChannelValues(allValues);
+        for (int i = 0; i < count; i++) {
+            values[i] = allValues[channels[i]];
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+/**
+ * One sensor, bound to the "sensor.&lt;name&gt;" prefix in rover.properties.
+ */
+public interface SensorConfiguration {
+
+    /**
+     * @return device the sensor is connected to, see {@link SensorDeviceFactory}
+     */
+    String bus();
+
+    /**
+     * @return channel of the device
+     */
+    int channel();
+
+    /**
+     * @return samples per second
+     */
+    double rate();
+
+    /**
+     * @return "raw", "percentage" or "voltage", see {@link SensorOutput}
+     */
+    String output();
+}
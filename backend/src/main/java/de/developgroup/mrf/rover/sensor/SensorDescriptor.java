@@ -0,0 +1,72 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+/**
+ * Declares a sensor for the {@link SensorRegistry}: where it is read and how often.
+ */
+public final class SensorDescriptor {
+
+    private final String name;
+
+    private final String bus;
+
+    private final int channel;
+
+    private final double rate;
+
+    private final SensorOutput output;
+
+    /**
+     * @param name unique name of the sensor
+     * @param bus device the sensor is connected to, see {@link SensorDeviceFactory}. Sensors on the same bus are
+     *            read together.
+     * @param channel channel of the device
+     * @param rate samples per second
+     * @param output how to convert the raw values
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    public SensorDescriptor(String name, String bus, int channel, double rate, SensorOutput output) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Sensor name must not be empty");
+        }
+        if (channel < 0) {
+            throw new IllegalArgumentException("Channel of sensor " + name + " must not be negative");
+        }
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate of sensor " + name + " must be greater than zero");
+        }
+        this.name = name;
+        this.bus = bus;
+        this.channel = channel;
+        this.rate = rate;
+        this.output = output;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBus() {
+        return bus;
+    }
+
+    public int getChannel() {
+        return channel;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public SensorOutput getOutput() {
+        return output;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + bus + " channel " + channel + ", " + rate + " Hz, " + output + ")";
+    }
+}
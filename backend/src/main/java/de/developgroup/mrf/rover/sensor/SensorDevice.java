@@ -0,0 +1,24 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import java.io.IOException;
+
+/**
+ * A device that sensors are connected to, e.g. an A/D converter. Reads several channels at once, so a device can
+ * answer them in a single bus transaction.
+ */
+public interface SensorDevice {
+
+    /**
+     * Read some channels of the device.
+     * @param channels the channels to read, only the first count entries are used
+     * @param count number of channels to read
+     * @param values receives the raw values between 0 and 255, in the order of the channels
+     * @throws IOException if the device could not be read
+     * @throws IllegalArgumentException if the device has no such channel
+     */
+    void read(int[] channels, int count, int[] values) throws IOException;
+}
@@ -0,0 +1,24 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import java.io.IOException;
+
+/**
+ * Creates the devices named by the bus of a {@link SensorDescriptor}.
+ *
+ * A bus is the device type, optionally followed by its I2C address: {@code pcf8591} is the A/D converter that also
+ * serves the IR sensors, {@code pcf8591:0x49} another one.
+ */
+public interface SensorDeviceFactory {
+
+    /**
+     * @param bus the bus of a sensor
+     * @return the device
+     * @throws IOException if the device cannot be opened
+     * @throws IllegalArgumentException if the bus names an unknown device type
+     */
+    SensorDevice create(String bus) throws IOException;
+}
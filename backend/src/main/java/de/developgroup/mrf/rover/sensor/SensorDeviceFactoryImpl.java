@@ -0,0 +1,61 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+import de.developgroup.mrf.rover.pcf8591.PCF8591ADConverterImpl;
+import de.developgroup.mrf.rover.pcf8591.PCF8591Device;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates devices on the I2C bus of the Raspberry Pi, or on an emulated bus.
+ */
+@Singleton
+public class SensorDeviceFactoryImpl implements SensorDeviceFactory {
+
+    static final String PCF8591 = "pcf8591";
+
+    static final int PCF8591_DEFAULT_ADDRESS = 0x48;
+
+    /**
+     * The device of the A/D converter of the IR sensors. Shared, so its transactions are not interleaved with those of
+     * the collision thread.
+     */
+    private final I2CDevice defaultPcf8591;
+
+    private final I2CBus i2cBus;
+
+    private final Map<Integer, SensorDevice> pcf8591Devices = new HashMap<>();
+
+    @Inject
+    public SensorDeviceFactoryImpl(I2CBus i2cBus, @PCF8591Device I2CDevice defaultPcf8591) {
+        this.i2cBus = i2cBus;
+        this.defaultPcf8591 = defaultPcf8591;
+    }
+
+    @Override
+    public synchronized SensorDevice create(String bus) throws IOException {
+        String[] parts = bus.trim().toLowerCase().split(":");
+        if (!PCF8591.equals(parts[0])) {
+            throw new IllegalArgumentException("Unknown sensor device " + bus);
+        }
+        int address = parts.length > 1 ? Integer.decode(parts[1]) : PCF8591_DEFAULT_ADDRESS;
+        SensorDevice device = pcf8591Devices.get(address);
+        if (device == null) {
+            I2CDevice i2cDevice = address == PCF8591_DEFAULT_ADDRESS
+                    ? defaultPcf8591
+                    : i2cBus.getDevice(address);
+            device = new PCF8591SensorDevice(new PCF8591ADConverterImpl(i2cDevice));
+            pcf8591Devices.put(address, device);
+        }
+        return device;
+    }
+}
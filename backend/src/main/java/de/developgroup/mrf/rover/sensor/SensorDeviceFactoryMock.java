@@ -0,0 +1,27 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates devices that need no hardware and read 0 on every channel.
+ */
+public class SensorDeviceFactoryMock implements SensorDeviceFactory {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(SensorDeviceFactoryMock.class);
+
+    @Override
+    public SensorDevice create(String bus) {
+        LOGGER.debug("creating mock sensor device for " + bus);
+        return (channels, count, values) -> {
+            LOGGER.trace("reading {} channels of {}", count, bus);
+            for (int i = 0; i < count; i++) {
+                values[i] = 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+/**
+ * What the value of a {@link SensorReading} means, converted from the raw 8 bit value of the channel.
+ */
+public enum SensorOutput {
+    /**
+     * The raw value between 0 and 255.
+     */
+    RAW,
+    /**
+     * The raw value relative to the full range, between 0 and 1.
+     */
+    PERCENTAGE,
+    /**
+     * The voltage at the input of the channel, relative to the reference voltage of the converter.
+     */
+    VOLTAGE;
+
+    /**
+     * Reference voltage of the A/D converters on the rover.
+     */
+    public static final double REFERENCE_VOLTAGE = 3.3;
+
+    private static final double FULL_SCALE = 255;
+
+    /**
+     * @param raw raw value between 0 and 255
+     * @return the value of this output type
+     */
+    public double convert(int raw) {
+        switch (this) {
+            case PERCENTAGE:
+                return raw / FULL_SCALE;
+            case VOLTAGE:
+                return raw / FULL_SCALE * REFERENCE_VOLTAGE;
+            default:
+                return raw;
+        }
+    }
+
+    /**
+     * @param name "raw", "percentage" or "voltage", in any case
+     * @return the output type
+     * @throws IllegalArgumentException if there is no such output type
+     */
+    public static SensorOutput parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+/**
+ * One sample of a registered sensor, published by the {@link SensorSampler}.
+ */
+public final class SensorReading {
+
+    private final String sensor;
+
+    private final SensorOutput output;
+
+    private final int raw;
+
+    private final double value;
+
+    private final long timestampNanos;
+
+    /**
+     * @param sensor name of the sensor
+     * @param output type of the value
+     * @param raw raw value of the channel
+     * @param value the raw value converted to the output type
+     * @param timestampNanos {@link System#nanoTime()} of the sample
+     */
+    public SensorReading(String sensor, SensorOutput output, int raw, double value, long timestampNanos) {
+        this.sensor = sensor;
+        this.output = output;
+        this.raw = raw;
+        this.value = value;
+        this.timestampNanos = timestampNanos;
+    }
+
+    public String getSensor() {
+        return sensor;
+    }
+
+    public SensorOutput getOutput() {
+        return output;
+    }
+
+    public int getRaw() {
+        return raw;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public String toString() {
+        return sensor + "=" + value + " " + output;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import com.google.inject.Singleton;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The sensors sampled by the {@link SensorSampler}. Sensors are declared in rover.properties, so adding a sensor
+ * needs no code:
+ *
+ * <pre>
+ * sensors.names=battery
+ * sensor.battery.bus=pcf8591:0x49
+ * sensor.battery.channel=0
+ * sensor.battery.rate=1
+ * sensor.battery.output=voltage
+ * </pre>
+ *
+ * The IR sensors of the collision detection are not part of the registry, their LEDs are switched in step with the
+ * readings and their poll rate follows the motion of the rover, see
+ * {@link de.developgroup.mrf.rover.collision.CollisionRunnable}.
+ */
+@Singleton
+public class SensorRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SensorRegistry.class);
+
+    private final Map<String, SensorDescriptor> sensors = new LinkedHashMap<>();
+
+    /**
+     * Register the sensors declared in rover.properties. A sensor with an invalid declaration is skipped.
+     * @param configurationProvider provider of rover.properties
+     */
+    public void initialize(ConfigurationProvider configurationProvider) {
+        String names;
+        try {
+            names = configurationProvider.bind("sensors", SensorsConfiguration.class).names();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No sensors configured");
+            return;
+        }
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                SensorConfiguration configuration = configurationProvider.bind("sensor." + name,
+                        SensorConfiguration.class);
+                register(new SensorDescriptor(name, configuration.bus(), configuration.channel(),
+                        configuration.rate(), SensorOutput.parse(configuration.output())));
+            } catch (IllegalStateException | NoSuchElementException e) {
+                LOGGER.error("Incomplete configuration of sensor " + name + ", skipping it");
+            } catch (IllegalArgumentException e) {
+                LOGGER.error("Invalid configuration of sensor " + name + ", skipping it: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Register a sensor. Must be called before the sampler is started.
+     * @param descriptor the sensor
+     * @throws IllegalArgumentException if a sensor of the same name is registered already
+     */
+    public synchronized void register(SensorDescriptor descriptor) {
+        if (sensors.containsKey(descriptor.getName())) {
+            throw new IllegalArgumentException("Sensor " + descriptor.getName() + " is registered already");
+        }
+        sensors.put(descriptor.getName(), descriptor);
+        LOGGER.info("Registered sensor " + descriptor);
+    }
+
+    /**
+     * @return all registered sensors, in the order of their registration
+     */
+    public synchronized List<SensorDescriptor> getSensors() {
+        return new ArrayList<>(sensors.values());
+    }
+
+    /**
+     * @param name name of a sensor
+     * @return the sensor, null if there is no sensor of this name
+     */
+    public synchronized SensorDescriptor getSensor(String name) {
+        return sensors.get(name);
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Topic;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples every sensor of the {@link SensorRegistry} at its rate on a single thread, and publishes the readings as
+ * {@link #SENSOR_READINGS}.
+ *
+ * Sensors are grouped by their device. Whenever a sensor of a device is due, the other sensors of the device that are
+ * due within a quarter of their interval are read along with it, in one read of the device. Sensors of the same
+ * device and rate therefore always share their reads.
+ */
+@Singleton
+public class SensorSampler implements Runnable {
+
+    /**
+     * Readings of all registered sensors.
+     */
+    public static final Topic<SensorReading> SENSOR_READINGS = new Topic<>("sensor.readings", SensorReading.class);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SensorSampler.class);
+
+    /**
+     * Part of its interval by which a sensor may be sampled early, to share a read with other sensors of its device.
+     */
+    static final int BATCH_WINDOW_DIVISOR = 4;
+
+    /**
+     * Wait when no sensor is registered, only to recheck whether the thread was stopped.
+     */
+    private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final SensorRegistry registry;
+
+    private final SensorDeviceFactory deviceFactory;
+
+    private final EventBus eventBus;
+
+    private final Counter samples;
+
+    private final Counter deviceReads;
+
+    private final Counter errors;
+
+    /*
+     * Schedule of the sensors, only used by the sampler thread after start.
+     */
+    private DeviceGroup[] groups = new DeviceGroup[0];
+
+    private Thread thread;
+
+    @Inject
+    public SensorSampler(SensorRegistry registry, SensorDeviceFactory deviceFactory, EventBus eventBus,
+                         MetricsRegistry metricsRegistry) {
+        this.registry = registry;
+        this.deviceFactory = deviceFactory;
+        this.eventBus = eventBus;
+        samples = metricsRegistry.counter("sensors.samples");
+        deviceReads = metricsRegistry.counter("sensors.reads");
+        errors = metricsRegistry.counter("sensors.errors");
+    }
+
+    /**
+     * Open the devices of the registered sensors and start sampling them. Does nothing if no sensor is registered.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        schedule(registry.getSensors(), System.nanoTime());
+        if (groups.length == 0) {
+            return;
+        }
+        thread = new Thread(this, "sensor-sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Group the sensors by their device, all sensors are due at the given time. Sensors whose device cannot be opened
+     * are skipped.
+     */
+    void schedule(List<SensorDescriptor> sensors, long nowNanos) {
+        Map<String, List<SensorDescriptor>> byBus = new LinkedHashMap<>();
+        for (SensorDescriptor sensor : sensors) {
+            String bus = sensor.getBus().trim().toLowerCase();
+            if (!byBus.containsKey(bus)) {
+                byBus.put(bus, new ArrayList<>());
+            }
+            byBus.get(bus).add(sensor);
+        }
+        List<DeviceGroup> newGroups = new ArrayList<>();
+        for (Map.Entry<String, List<SensorDescriptor>> entry : byBus.entrySet()) {
+            try {
+                newGroups.add(new DeviceGroup(deviceFactory.create(entry.getKey()), entry.getValue(), nowNanos));
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.error("Cannot open sensor device " + entry.getKey() + ", its sensors are not sampled: " + e);
+            }
+        }
+        groups = newGroups.toArray(new DeviceGroup[newGroups.size()]);
+        LOGGER.info("Sampling " + sensors.size() + " sensors on " + groups.length + " devices");
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long waitNanos = sampleIfDue(System.nanoTime());
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+            }
+        }
+        LOGGER.info("Sensor sampler stopped");
+    }
+
+    /**
+     * Read the sensors that are due and publish their readings.
+     * @param nowNanos the current time
+     * @return time until the next sensor is due
+     */
+    long sampleIfDue(long nowNanos) {
+        long nextDue = nowNanos + IDLE_WAIT_NANOS;
+        for (DeviceGroup group : groups) {
+            group.sampleIfDue(nowNanos);
+            nextDue = Math.min(nextDue, group.nextDueNanos());
+        }
+        return nextDue - nowNanos;
+    }
+
+    /**
+     * The sensors of one device, with reusable arrays for the channels of a read.
+     */
+    private final class DeviceGroup {
+
+        final SensorDevice device;
+
+        final SensorDescriptor[] sensors;
+
+        final long[] intervals;
+
+        final long[] due;
+
+        final int[] channels;
+
+        final int[] values;
+
+        /**
+         * Indexes into sensors of the channels of the current read.
+         */
+        final int[] reading;
+
+        DeviceGroup(SensorDevice device, List<SensorDescriptor> sensors, long nowNanos) {
+            this.device = device;
+            this.sensors = sensors.toArray(new SensorDescriptor[sensors.size()]);
+            int count = this.sensors.length;
+            intervals = new long[count];
+            due = new long[count];
+            channels = new int[count];
+            values = new int[count];
+            reading = new int[count];
+            for (int i = 0; i < count; i++) {
+                intervals[i] = (long) (TimeUnit.SECONDS.toNanos(1) / this.sensors[i].getRate());
+                due[i] = nowNanos;
+            }
+        }
+
+        void sampleIfDue(long nowNanos) {
+            boolean anyDue = false;
+            for (int i = 0; i < sensors.length && !anyDue; i++) {
+                anyDue = due[i] - nowNanos <= 0;
+            }
+            if (!anyDue) {
+                return;
+            }
+
+            int count = 0;
+            for (int i = 0; i < sensors.length; i++) {
+                if (due[i] - nowNanos <= intervals[i] / BATCH_WINDOW_DIVISOR) {
+                    channels[count] = sensors[i].getChannel();
+                    reading[count++] = i;
+                    due[i] += intervals[i];
+                    if (due[i] - nowNanos <= 0) {
+                        // do not catch up on missed samples
+                        due[i] = nowNanos + intervals[i];
+                    }
+                }
+            }
+
+            try {
+                device.read(channels, count, values);
+                deviceReads.increment();
+            } catch (IOException | RuntimeException e) {
+                errors.increment();
+                LOGGER.error("Could not read sensors of " + sensors[0].getBus() + ": " + e);
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                SensorDescriptor sensor = sensors[reading[i]];
+                eventBus.publish(SENSOR_READINGS, new SensorReading(sensor.getName(), sensor.getOutput(), values[i],
+                        sensor.getOutput().convert(values[i]), nowNanos));
+                samples.increment();
+            }
+        }
+
+        long nextDueNanos() {
+            long next = due[0];
+            for (int i = 1; i < due.length; i++) {
+                if (due[i] - next < 0) {
+                    next = due[i];
+                }
+            }
+            return next;
+        }
+    }
+}
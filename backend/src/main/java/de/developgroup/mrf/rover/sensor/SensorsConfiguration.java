@@ -0,0 +1,16 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+/**
+ * The sensors of the {@link SensorRegistry}, bound to the "sensors" prefix in rover.properties.
+ */
+public interface SensorsConfiguration {
+
+    /**
+     * @return comma separated names of the sensors, each configured by a {@link SensorConfiguration}
+     */
+    String names();
+}
@@ -0,0 +1,42 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.simulation;
+
+/**
+ * A/D converter values of an IR sensor. Without its LED, the sensor only sees the ambient light. With its LED on, the
+ * light reflected by an obstacle adds to it, falling off with the square of the distance: at the reach of the sensor
+ * it covers the whole range above the ambient light.
+ */
+public class IRSensorModel {
+
+    private final int ambient;
+
+    private final double reach;
+
+    /**
+     * @param ambient A/D converter value of the ambient light, 0 to 255
+     * @param reach distance in metres up to which the reflection saturates the sensor
+     */
+    public IRSensorModel(int ambient, double reach) {
+        if (ambient < 0 || ambient > 255 || reach <= 0) {
+            throw new IllegalArgumentException("Invalid IR sensor model");
+        }
+        this.ambient = ambient;
+        this.reach = reach;
+    }
+
+    /**
+     * @param distance distance to the obstacle in front of the sensor in metres
+     * @param lit whether the IR LED of the sensor is on
+     * @return the A/D converter value
+     */
+    public int read(double distance, boolean lit) {
+        if (!lit) {
+            return ambient;
+        }
+        double ratio = reach / Math.max(distance, reach);
+        return ambient + (int) Math.round(ratio * ratio * (255 - ambient));
+    }
+}
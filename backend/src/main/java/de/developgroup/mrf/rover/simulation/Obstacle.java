@@ -0,0 +1,95 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rectangular obstacle of the simulated world, aligned with its axes. Coordinates are in metres.
+ */
+public final class Obstacle {
+
+    private final double minX;
+
+    private final double minY;
+
+    private final double maxX;
+
+    private final double maxY;
+
+    /**
+     * @param x1 x of one corner
+     * @param y1 y of one corner
+     * @param x2 x of the opposite corner
+     * @param y2 y of the opposite corner
+     */
+    public Obstacle(double x1, double y1, double x2, double y2) {
+        minX = Math.min(x1, x2);
+        minY = Math.min(y1, y2);
+        maxX = Math.max(x1, x2);
+        maxY = Math.max(y1, y2);
+    }
+
+    /**
+     * Parse obstacles written as "x1 y1 x2 y2", separated by semicolons.
+     * @param obstacles the obstacles, may be empty
+     * @return the parsed obstacles
+     * @throws IllegalArgumentException if an obstacle has not four coordinates
+     */
+    public static List<Obstacle> parse(String obstacles) {
+        List<Obstacle> result = new ArrayList<>();
+        for (String obstacle : obstacles.split(";")) {
+            if (obstacle.trim().isEmpty()) {
+                continue;
+            }
+            String[] coordinates = obstacle.trim().split("\\s+");
+            if (coordinates.length != 4) {
+                throw new IllegalArgumentException("Obstacle needs four coordinates: " + obstacle);
+            }
+            result.add(new Obstacle(Double.parseDouble(coordinates[0]), Double.parseDouble(coordinates[1]),
+                    Double.parseDouble(coordinates[2]), Double.parseDouble(coordinates[3])));
+        }
+        return result;
+    }
+
+    public boolean contains(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * @param x x of the origin of the ray
+     * @param y y of the origin of the ray
+     * @param dx x of the unit direction of the ray
+     * @param dy y of the unit direction of the ray
+     * @return distance along the ray to the obstacle, infinity if the ray misses it, 0 from inside
+     */
+    public double rayDistance(double x, double y, double dx, double dy) {
+        // intersect the ray with the slabs of the x and the y extent
+        double near = 0;
+        double far = Double.POSITIVE_INFINITY;
+        if (dx == 0) {
+            if (x < minX || x > maxX) {
+                return Double.POSITIVE_INFINITY;
+            }
+        } else {
+            double t1 = (minX - x) / dx;
+            double t2 = (maxX - x) / dx;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (y < minY || y > maxY) {
+                return Double.POSITIVE_INFINITY;
+            }
+        } else {
+            double t1 = (minY - y) / dy;
+            double t2 = (maxY - y) / dy;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+}
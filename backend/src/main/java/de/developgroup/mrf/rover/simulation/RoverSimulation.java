@@ -0,0 +1,224 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.simulation;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.pi4j.io.gpio.Pin;
+import com.pi4j.io.gpio.RaspiPin;
+import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.rover.gpio.EmulatedGpioController;
+import de.developgroup.mrf.rover.i2c.EmulatedI2CBus;
+import de.developgroup.mrf.rover.i2c.PCA9685Emulator;
+import de.developgroup.mrf.rover.i2c.PCF8591Emulator;
+import de.developgroup.mrf.rover.motor.MotorControllerConfiguration;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves the rover through a {@link SimulatedWorld} on a fixed tick, connected to the emulated I2C devices: the duty
+ * cycles of the motor channels of the PCA9685 and the direction pins give the wheel speeds, and the PCF8591 reads the
+ * IR sensors at the simulated distances, lit whenever the LED pin of a sensor is high.
+ *
+ * So the drive controller, the collision thread and everything that follows run unchanged, on their own threads, at
+ * the rates they have on the rover.
+ */
+@Singleton
+public class RoverSimulation implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoverSimulation.class);
+
+    /**
+     * PWM channels of the motors, as used by the drive controller.
+     */
+    static final int LEFT_MOTOR_CHANNEL = 14;
+
+    static final int RIGHT_MOTOR_CHANNEL = 15;
+
+    static final int PCA9685_ADDRESS = 0x40;
+
+    static final int PCF8591_ADDRESS = 0x48;
+
+    static final int DEFAULT_TICK_RATE = 100;
+
+    private final EmulatedI2CBus bus;
+
+    private final EmulatedGpioController gpio;
+
+    private final Counter ticks;
+
+    private final Counter overruns;
+
+    /**
+     * Sensor read from every input of the A/D converter.
+     */
+    private final int[] inputSensors = new int[PCF8591Emulator.INPUTS];
+
+    private volatile SimulatedWorld world;
+
+    private volatile IRSensorModel sensorModel = new IRSensorModel(30, 0.15);
+
+    private volatile double maxWheelSpeed = 0.5;
+
+    private volatile long tickNanos = TimeUnit.SECONDS.toNanos(1) / DEFAULT_TICK_RATE;
+
+    private Pin leftDirectionPin = RaspiPin.GPIO_00;
+
+    private boolean leftReversed = false;
+
+    private Pin rightDirectionPin = RaspiPin.GPIO_07;
+
+    private boolean rightReversed = true;
+
+    private PCA9685Emulator pwm;
+
+    private Thread thread;
+
+    @Inject
+    public RoverSimulation(EmulatedI2CBus bus, EmulatedGpioController gpio, MetricsRegistry metricsRegistry) {
+        this.bus = bus;
+        this.gpio = gpio;
+        ticks = metricsRegistry.counter("simulation.ticks");
+        overruns = metricsRegistry.counter("simulation.tick.overruns");
+        for (int sensor = 0; sensor < SimulatedWorld.SENSORS; sensor++) {
+            inputSensors[CollisionRunnable.getSensorChannel(sensor).getValue()] = sensor;
+        }
+        world = new SimulatedWorld(4, 3, Collections.emptyList(), 0.3, 0.2, 0.18);
+        world.place(2, 1.5, 0);
+        metricsRegistry.gauge("simulation.x", () -> world.getX());
+        metricsRegistry.gauge("simulation.y", () -> world.getY());
+        metricsRegistry.gauge("simulation.heading", () -> Math.toDegrees(world.getHeading()));
+        metricsRegistry.gauge("simulation.bumps", () -> world.getBumps());
+    }
+
+    /**
+     * Read the world from rover.properties and connect it to the emulated devices. Keeps an empty arena if the world
+     * is not configured.
+     * @param configurationProvider provider of rover.properties
+     * @throws IOException if the emulated devices are missing
+     */
+    public void initialize(ConfigurationProvider configurationProvider) throws IOException {
+        try {
+            SimulationConfiguration configuration = configurationProvider.bind("simulation",
+                    SimulationConfiguration.class);
+            SimulatedWorld configured = new SimulatedWorld(configuration.arenaWidth(), configuration.arenaHeight(),
+                    Obstacle.parse(configuration.obstacles()), configuration.roverLength(),
+                    configuration.roverWidth(), configuration.wheelBase());
+            configured.place(configuration.startX(), configuration.startY(),
+                    Math.toRadians(configuration.startHeading()));
+            IRSensorModel configuredModel = new IRSensorModel(configuration.ambient(), configuration.irReach());
+            if (configuration.tickRate() <= 0 || configuration.maxWheelSpeed() <= 0) {
+                throw new IllegalArgumentException("Tick rate and wheel speed must be positive");
+            }
+            world = configured;
+            sensorModel = configuredModel;
+            maxWheelSpeed = configuration.maxWheelSpeed();
+            tickNanos = TimeUnit.SECONDS.toNanos(1) / configuration.tickRate();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No simulation configuration found, simulating an empty arena");
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid simulation configuration, simulating an empty arena: " + e.getMessage());
+        }
+        try {
+            MotorControllerConfiguration left = configurationProvider.bind("motorLeft",
+                    MotorControllerConfiguration.class);
+            MotorControllerConfiguration right = configurationProvider.bind("motorRight",
+                    MotorControllerConfiguration.class);
+            leftDirectionPin = (Pin) FieldUtils.readDeclaredStaticField(RaspiPin.class, left.gpioPin());
+            leftReversed = left.reversed();
+            rightDirectionPin = (Pin) FieldUtils.readDeclaredStaticField(RaspiPin.class, right.gpioPin());
+            rightReversed = right.reversed();
+        } catch (IllegalStateException | NoSuchElementException | IllegalArgumentException
+                | IllegalAccessException e) {
+            LOGGER.error("Cannot read the motor direction pins, using the defaults: " + e);
+        }
+        connect();
+    }
+
+    /**
+     * Connect to the emulated devices of the rover.
+     */
+    void connect() throws IOException {
+        pwm = (PCA9685Emulator) bus.getDevice(PCA9685_ADDRESS);
+        ((PCF8591Emulator) bus.getDevice(PCF8591_ADDRESS)).setInputs(this::readInput);
+    }
+
+    /**
+     * Start the simulation thread.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Simulating " + TimeUnit.SECONDS.toNanos(1) / tickNanos + " ticks per second");
+    }
+
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        long tick = tickNanos;
+        double seconds = tick / (double) TimeUnit.SECONDS.toNanos(1);
+        long nextTick = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            tick(seconds);
+            nextTick += tick;
+            long waitNanos = nextTick - System.nanoTime();
+            if (waitNanos <= 0) {
+                // the tick took longer than its interval, do not catch up
+                overruns.increment();
+                nextTick = System.nanoTime();
+            } else {
+                LockSupport.parkNanos(this, waitNanos);
+            }
+        }
+        LOGGER.info("Simulation stopped");
+    }
+
+    /**
+     * Advance the world by one tick with the current motor outputs.
+     * @param seconds duration of the tick
+     */
+    void tick(double seconds) {
+        world.step(wheelSpeed(LEFT_MOTOR_CHANNEL, leftDirectionPin, leftReversed),
+                wheelSpeed(RIGHT_MOTOR_CHANNEL, rightDirectionPin, rightReversed), seconds);
+        ticks.increment();
+    }
+
+    private double wheelSpeed(int channel, Pin directionPin, boolean reversed) {
+        double speed = pwm.getDutyCycle(channel) * maxWheelSpeed;
+        // the motor controller sets the direction pin high for forward, unless the motor is reversed
+        boolean forward = gpio.getOutputState(directionPin).isHigh() != reversed;
+        return forward ? speed : -speed;
+    }
+
+    private int readInput(int input) {
+        int sensor = inputSensors[input];
+        boolean lit = gpio.getOutputState(CollisionRunnable.getLedPin(sensor)).isHigh();
+        return sensorModel.read(world.sensorDistance(sensor), lit);
+    }
+
+    public SimulatedWorld getWorld() {
+        return world;
+    }
+}
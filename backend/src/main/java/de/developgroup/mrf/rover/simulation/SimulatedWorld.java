@@ -0,0 +1,189 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.simulation;
+
+import de.developgroup.mrf.rover.collision.PackedCollisionState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A walled rectangular arena with obstacles and the rover in it, in metres and radians. The x axis points along a
+ * heading of 0, the y axis to the left of it.
+ *
+ * The rover moves as a differential drive: the speeds of its left and right wheels give its speed and rate of turn.
+ * A step that would move a corner of the rover into an obstacle or a wall is not taken, the rover stands still.
+ * The IR sensors sit at the corners of the rover, the front ones look ahead and the back ones behind.
+ */
+public class SimulatedWorld {
+
+    public static final int SENSORS = 4;
+
+    private final double width;
+
+    private final double height;
+
+    private final List<Obstacle> obstacles;
+
+    private final double roverLength;
+
+    private final double roverWidth;
+
+    private final double wheelBase;
+
+    /*
+     * Pose of the rover, guarded by this.
+     */
+    private double x;
+
+    private double y;
+
+    private double heading;
+
+    private long bumps;
+
+    /**
+     * @param width extent of the arena along x
+     * @param height extent of the arena along y
+     * @param obstacles the obstacles in the arena
+     * @param roverLength length of the rover
+     * @param roverWidth width of the rover
+     * @param wheelBase distance between the left and right wheels
+     */
+    public SimulatedWorld(double width, double height, List<Obstacle> obstacles, double roverLength,
+                          double roverWidth, double wheelBase) {
+        if (width <= 0 || height <= 0 || roverLength <= 0 || roverWidth <= 0 || wheelBase <= 0) {
+            throw new IllegalArgumentException("Sizes of the simulated world must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.obstacles = new ArrayList<>(obstacles);
+        this.roverLength = roverLength;
+        this.roverWidth = roverWidth;
+        this.wheelBase = wheelBase;
+    }
+
+    /**
+     * Put the rover at a pose, wherever that is.
+     */
+    public synchronized void place(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = normalize(heading);
+    }
+
+    /**
+     * Move the rover.
+     * @param leftSpeed speed of the left wheels in m/s, negative backwards
+     * @param rightSpeed speed of the right wheels in m/s
+     * @param seconds duration of the step
+     * @return false if the rover was blocked
+     */
+    public synchronized boolean step(double leftSpeed, double rightSpeed, double seconds) {
+        double speed = (leftSpeed + rightSpeed) / 2;
+        double turn = (rightSpeed - leftSpeed) / wheelBase * seconds;
+        // move along the mean heading of the step
+        double meanHeading = heading + turn / 2;
+        double newX = x + speed * Math.cos(meanHeading) * seconds;
+        double newY = y + speed * Math.sin(meanHeading) * seconds;
+        double newHeading = heading + turn;
+        if ((newX != x || newY != y || newHeading != heading) && blocked(newX, newY, newHeading)) {
+            bumps++;
+            return false;
+        }
+        x = newX;
+        y = newY;
+        heading = normalize(newHeading);
+        return true;
+    }
+
+    private boolean blocked(double x, double y, double heading) {
+        for (int sensor = 0; sensor < SENSORS; sensor++) {
+            double cornerX = x + cornerX(sensor, heading);
+            double cornerY = y + cornerY(sensor, heading);
+            if (cornerX < 0 || cornerX > width || cornerY < 0 || cornerY > height) {
+                return true;
+            }
+            for (Obstacle obstacle : obstacles) {
+                if (obstacle.contains(cornerX, cornerY)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param sensor index of a sensor as in {@link PackedCollisionState}
+     * @return distance from the sensor to the next obstacle or wall in its direction
+     */
+    public synchronized double sensorDistance(int sensor) {
+        double originX = x + cornerX(sensor, heading);
+        double originY = y + cornerY(sensor, heading);
+        double direction = isFront(sensor) ? heading : heading + Math.PI;
+        double dx = Math.cos(direction);
+        double dy = Math.sin(direction);
+
+        double distance = wallDistance(originX, dx, width);
+        distance = Math.min(distance, wallDistance(originY, dy, height));
+        for (Obstacle obstacle : obstacles) {
+            distance = Math.min(distance, obstacle.rayDistance(originX, originY, dx, dy));
+        }
+        return Math.max(0, distance);
+    }
+
+    private static double wallDistance(double origin, double direction, double size) {
+        if (direction > 0) {
+            return (size - origin) / direction;
+        }
+        if (direction < 0) {
+            return -origin / direction;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static boolean isFront(int sensor) {
+        return sensor == PackedCollisionState.FRONT_LEFT || sensor == PackedCollisionState.FRONT_RIGHT;
+    }
+
+    private static boolean isLeft(int sensor) {
+        return sensor == PackedCollisionState.FRONT_LEFT || sensor == PackedCollisionState.BACK_LEFT;
+    }
+
+    private double cornerX(int sensor, double heading) {
+        double along = isFront(sensor) ? roverLength / 2 : -roverLength / 2;
+        double across = isLeft(sensor) ? roverWidth / 2 : -roverWidth / 2;
+        return along * Math.cos(heading) - across * Math.sin(heading);
+    }
+
+    private double cornerY(int sensor, double heading) {
+        double along = isFront(sensor) ? roverLength / 2 : -roverLength / 2;
+        double across = isLeft(sensor) ? roverWidth / 2 : -roverWidth / 2;
+        return along * Math.sin(heading) + across * Math.cos(heading);
+    }
+
+    private static double normalize(double angle) {
+        return Math.atan2(Math.sin(angle), Math.cos(angle));
+    }
+
+    public synchronized double getX() {
+        return x;
+    }
+
+    public synchronized double getY() {
+        return y;
+    }
+
+    public synchronized double getHeading() {
+        return heading;
+    }
+
+    /**
+     * @return number of steps that were not taken because the rover was blocked
+     */
+    public synchronized long getBumps() {
+        return bumps;
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.simulation;
+
+/**
+ * Settings of the simulated world, lengths in metres.
+ */
+public interface SimulationConfiguration {
+
+    /**
+     * Simulation steps per second.
+     */
+    int tickRate();
+
+    double arenaWidth();
+
+    double arenaHeight();
+
+    /**
+     * Rectangles as "x1 y1 x2 y2", separated by semicolons.
+     */
+    String obstacles();
+
+    double startX();
+
+    double startY();
+
+    /**
+     * Heading at the start in degrees, counterclockwise from the x axis.
+     */
+    double startHeading();
+
+    double roverLength();
+
+    double roverWidth();
+
+    double wheelBase();
+
+    /**
+     * Speed of the wheels at full duty cycle, in m/s.
+     */
+    double maxWheelSpeed();
+
+    /**
+     * A/D converter value of the ambient light at the IR sensors.
+     */
+    int ambient();
+
+    /**
+     * Distance up to which the reflection of an obstacle saturates an IR sensor.
+     */
+    double irReach();
+}
@@ -1,14 +1,23 @@
 package de.developgroup.mrf.server;
 
+import de.developgroup.mrf.server.events.Topic;
 import de.developgroup.mrf.server.handler.ClientInformation;
 import de.developgroup.mrf.server.rpc.JsonRpc2Request;
 import org.eclipse.jetty.websocket.api.Session;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Observer;
 
 public interface ClientManager{
+
+	/**
+	 * Published when clients connected, disconnected or their information or
+	 * blocking state changed. Changes in quick succession are published as
+	 * one event.
+	 */
+	Topic<ClientManager> CLIENTS_CHANGED = new Topic<>("clients.changed",
+			ClientManager.class);
+
 	/**
 	 * Getter for sessions
 	 *
@@ -18,6 +27,15 @@ public interface ClientManager{
 
 	int addClient(Session session);
 
+	/**
+	 * Remove a client, e.g. because its connection was closed. Does nothing
+	 * if the client is not connected.
+	 *
+	 * @param clientId
+	 *            ID of the client given by the client manager
+	 */
+	void removeClient(int clientId);
+
 	void removeClosedSessions();
 
 	int getConnectedClientsCount();
@@ -46,8 +64,6 @@ public interface ClientManager{
 
 	boolean clientIsBlocked(String ipAddress);
 
-	void addObserver(Observer o);
-
 	boolean clientIdIsBlocked(int clientId);
 
 	void releaseDriverIfBlocked();
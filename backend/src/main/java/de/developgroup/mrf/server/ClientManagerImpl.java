@@ -4,14 +4,22 @@
  */
 package de.developgroup.mrf.server;
 
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.inject.Inject;
+import de.developgroup.mrf.server.capture.TrafficCapture;
+import de.developgroup.mrf.server.events.EventBus;
 import de.developgroup.mrf.server.handler.ClientInformation;
 import de.developgroup.mrf.server.handler.ClientInformationHandler;
 import de.developgroup.mrf.server.handler.SingleDriverHandler;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
 import org.eclipse.jetty.websocket.api.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,38 +30,102 @@ import de.developgroup.mrf.server.rpc.JsonRpc2Request;
 
 /**
  * Client Manager handles sessions for connected clients. If a clients connects
- * via websocket he will be listed here and gets an ID.
+ * via websocket he will be listed here and gets an ID. A client is removed by
+ * its id as soon as its connection closes; a periodic sweep on the shared
+ * scheduler only catches sessions whose close was never reported.
  */
 @Singleton
-public class ClientManagerImpl extends Observable implements ClientManager {
+public class ClientManagerImpl implements ClientManager {
 	private static final Logger LOGGER = LoggerFactory
 			.getLogger(ClientManagerImpl.class);
 	private static final String TEXT_NOTIFICATION_METHOD = "incomingNotification";
 	private static final long TIMEOUT = 20000; //[ms]
 
+	/**
+	 * Delay in which membership changes are collected into a single event for
+	 * the observers.
+	 */
+	static final long MEMBERSHIP_EVENT_DELAY = 100; //[ms]
+
 	/**
 	 * Map client ids to their sessions.
 	 */
-	private static final NavigableMap<Integer, Session> sessions = Collections
-			.synchronizedNavigableMap(new TreeMap<>());
+	private final ConcurrentNavigableMap<Integer, Session> sessions = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Map client ids to the outboxes their notifications are sent through.
+	 */
+	private final ConcurrentNavigableMap<Integer, SessionOutbox> outboxes = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Runs the sweep and delivers membership events, null to deliver events
+	 * immediately without sweeping.
+	 */
+	private final ScheduledExecutorService scheduler;
+
+	private final AtomicBoolean membershipEventPending = new AtomicBoolean();
 
 
 	ClientInformationHandler clientInformationHandler;
 
 	SingleDriverHandler singleDriverHandler;
 
+	private final EventBus eventBus;
+
+	/**
+	 * Captures the notifications while started, replaced by the shared
+	 * instance on injection.
+	 */
+	@Inject
+	TrafficCapture trafficCapture = new TrafficCapture();
+
+	private final Counter notificationsSent;
+
+	/**
+	 * Notifications that did not reach their client, because it was gone, too
+	 * slow or the send failed.
+	 */
+	private final Counter notificationsDropped;
+
 	private AtomicInteger lastClientId = new AtomicInteger(5000);
 	private boolean notifyAscending = true;
 
 
+	/**
+	 * Create a client manager that publishes membership events immediately and
+	 * does not sweep for closed sessions.
+	 */
+	public ClientManagerImpl(ClientInformationHandler clientInformationHandler, SingleDriverHandler singleDriverHandler,
+							 EventBus eventBus){
+		this(clientInformationHandler, singleDriverHandler, eventBus, new MetricsRegistry());
+	}
+
+	/**
+	 * Create a client manager that publishes membership events immediately and
+	 * does not sweep for closed sessions, counting notifications in the given
+	 * registry.
+	 */
+	public ClientManagerImpl(ClientInformationHandler clientInformationHandler, SingleDriverHandler singleDriverHandler,
+							 EventBus eventBus, MetricsRegistry metricsRegistry){
+		this.clientInformationHandler = clientInformationHandler;
+		this.singleDriverHandler = singleDriverHandler;
+		this.eventBus = eventBus;
+		this.scheduler = null;
+		notificationsSent = metricsRegistry.counter("clients.notifications.sent");
+		notificationsDropped = metricsRegistry.counter("clients.notifications.dropped");
+	}
+
 	@Inject
-	public ClientManagerImpl(ClientInformationHandler clientInformationHandler, SingleDriverHandler singleDriverHandler){
+	public ClientManagerImpl(ClientInformationHandler clientInformationHandler, SingleDriverHandler singleDriverHandler,
+							 EventBus eventBus, ScheduledExecutorService scheduler, MetricsRegistry metricsRegistry){
 		this.clientInformationHandler = clientInformationHandler;
 		this.singleDriverHandler = singleDriverHandler;
+		this.eventBus = eventBus;
+		this.scheduler = scheduler;
+		notificationsSent = metricsRegistry.counter("clients.notifications.sent");
+		notificationsDropped = metricsRegistry.counter("clients.notifications.dropped");
 
-		TimerTask timeoutTask = new TimerSchedulePeriod();
-		Timer timer = new Timer();
-		timer.schedule(timeoutTask,TIMEOUT, TIMEOUT);
+		scheduler.scheduleWithFixedDelay(this::removeClosedSessions, TIMEOUT, TIMEOUT, TimeUnit.MILLISECONDS);
 	}
 
 
@@ -72,58 +144,73 @@ public class ClientManagerImpl extends Observable implements ClientManager {
 		int clientId = generateClientId();
 		session.setIdleTimeout(TIMEOUT);
 		sessions.put(clientId, session);
+		outboxes.put(clientId, new SessionOutbox(clientId, session, notificationsSent, notificationsDropped));
 		notifyClientAboutId(clientId);
 		String msg = "new client has connected to server, id: " + clientId;
 		notifyAllClients(msg);
 
 		String ipAddress = session.getRemoteAddress().getHostString();
 		clientInformationHandler.addConnection(ipAddress,clientId);
-		// Notify Observers, e.g. Developer Settings Handler so that the connected users list can be updated
-		setChanged();
-		notifyObservers();
+		membershipChanged();
 		return clientId;
 	}
 
+	/**
+	 * Remove a client, e.g. because its connection was closed.
+	 *
+	 * @param clientId
+	 *            ID of the client given by the client manager.
+	 */
+	@Override
+	public void removeClient(int clientId) {
+		Session session = sessions.remove(clientId);
+		if (session == null) {
+			return;
+		}
+		outboxes.remove(clientId);
+		LOGGER.info("Remove session of client " + clientId);
+		clientInformationHandler.removeConnection(clientId);
+		membershipChanged();
+	}
+
 	@Override
 	public Map<Integer, Session> getSessions() {
 		return Collections.unmodifiableMap(sessions);
 	}
 
 	/**
-	 * Remove closed sessions from listed sessions. If any client disconnects
-	 * from the websocket he will be removed from the list of connected clients.
+	 * Remove closed sessions from listed sessions. Clients are usually removed
+	 * when their connection closes, this sweep catches sessions whose close was
+	 * never reported.
 	 */
 	@Override
 	public void removeClosedSessions() {
-		// New set because otherwise data wouldn't be copied
-		Set<Integer> clientIdsBefore = new HashSet<>();
-		clientIdsBefore.addAll(sessions.keySet());
-
-		boolean removedSomething = false;
-		Iterator<Session> iter = sessions.values().iterator();
-		while (iter.hasNext()) {
-			Session session = iter.next();
-			if (!session.isOpen()) {
-				LOGGER.info("Remove session: "
-						+ session.getRemoteAddress().toString());
-				iter.remove();
-				removedSomething = true;
+		for (Map.Entry<Integer, Session> entry : sessions.entrySet()) {
+			if (!entry.getValue().isOpen()) {
+				removeClient(entry.getKey());
 			}
 		}
-		if(removedSomething){
-			// Remove unused clientIds from ClientInformation
-			Set<Integer> clientIdsAfterwards = sessions.keySet();
-			for(int clientId : clientIdsBefore){
-				if(! clientIdsAfterwards.contains(clientId)){
-					clientInformationHandler.removeConnection(clientId);
-				}
-			}
-			// Notify Observers, e.g. Developer Settings Handler so that the connected users list can be updated
-			setChanged();
-			notifyObservers();
+	}
+
+	/**
+	 * Publish {@link #CLIENTS_CHANGED}, e.g. for the Developer Settings Handler
+	 * so that the connected users list can be updated. Changes within
+	 * {@value #MEMBERSHIP_EVENT_DELAY} ms are collected into one event, so a
+	 * burst of connects or disconnects costs a single fan-out.
+	 */
+	private void membershipChanged() {
+		if (scheduler == null) {
+			fireMembershipEvent();
+		} else if (membershipEventPending.compareAndSet(false, true)) {
+			scheduler.schedule(this::fireMembershipEvent, MEMBERSHIP_EVENT_DELAY, TimeUnit.MILLISECONDS);
 		}
 	}
 
+	private void fireMembershipEvent() {
+		membershipEventPending.set(false);
+		eventBus.publish(CLIENTS_CHANGED, this);
+	}
+
 	/**
 	 * Get the amount of connected clients.
 	 *
@@ -163,18 +250,18 @@ public class ClientManagerImpl extends Observable implements ClientManager {
 	 */
     @Override
     public void notifyAllClients(JsonRpc2Request notification) {
-        if (sessions.isEmpty()) {
+        if (outboxes.isEmpty()) {
             return;
         }
         // notify ascending
         if (notifyAscending) {
-            for (Integer clientId : sessions.keySet()) {
-                doSendNotificationToClient(clientId, notification);
+            for (Map.Entry<Integer, SessionOutbox> entry : outboxes.entrySet()) {
+                doSendNotification(entry.getKey(), entry.getValue(), notification);
             }
         // notify descending
         } else {
-			for (Integer clientId : sessions.descendingKeySet()) {
-				doSendNotificationToClient(clientId, notification);
+			for (Map.Entry<Integer, SessionOutbox> entry : outboxes.descendingMap().entrySet()) {
+				doSendNotification(entry.getKey(), entry.getValue(), notification);
 			}
         }
         // toggle ascending state for next iteration
@@ -239,15 +326,26 @@ public class ClientManagerImpl extends Observable implements ClientManager {
 		doSendNotificationToClient(clientId, notification);
 	}
 
-	private synchronized void doSendNotificationToClient(int clientId,
+	private void doSendNotificationToClient(int clientId,
+			JsonRpc2Request notification) {
+		SessionOutbox outbox = outboxes.get(clientId);
+		if (outbox == null) {
+			LOGGER.debug("Client with id " + clientId + " is not connected, notification dropped");
+			notificationsDropped.increment();
+			return;
+		}
+		doSendNotification(clientId, outbox, notification);
+	}
+
+	/**
+	 * Queue a notification in the client's outbox, without waiting for it to
+	 * be written.
+	 */
+	private void doSendNotification(int clientId, SessionOutbox outbox,
 			JsonRpc2Request notification) {
-		Session session = sessions.get(clientId);
-		try {
-			session.getRemote().sendString(notification.toString());
-		} catch (IOException e) {
-			LOGGER.error("An error has occurred by sending notification: "
-					+ notification.toString() + " to client with id "
-					+ clientId);
+		String text = notification.toString();
+		if (outbox.send(text)) {
+			trafficCapture.captureOutbound(clientId, text);
 		}
 	}
 
@@ -270,8 +368,7 @@ public class ClientManagerImpl extends Observable implements ClientManager {
 	@Override
 	public void setClientInformation(int clientId, String browser, String operatingSystem) {
 		clientInformationHandler.addClientInformation(clientId, browser, operatingSystem);
-		setChanged();
-		notifyObservers();
+		membershipChanged();
 	}
 
 	/**
@@ -300,8 +397,7 @@ public class ClientManagerImpl extends Observable implements ClientManager {
 	@Override
 	public void blockIp(String ipAddress) {
 		clientInformationHandler.blockIp(ipAddress);
-		setChanged();
-		notifyObservers();
+		eventBus.publish(CLIENTS_CHANGED, this);
 	}
 
 	/**
@@ -312,8 +408,7 @@ public class ClientManagerImpl extends Observable implements ClientManager {
 	@Override
 	public void unblockIp(String ipAddress) {
 		clientInformationHandler.unblockIp(ipAddress);
-		setChanged();
-		notifyObservers();
+		eventBus.publish(CLIENTS_CHANGED, this);
 	}
 
 	/**
@@ -352,14 +447,4 @@ public class ClientManagerImpl extends Observable implements ClientManager {
 		int driverId = singleDriverHandler.getCurrentDriverId();
 		singleDriverHandler.releaseDriver(driverId);
 	}
-
-	/**
-	 * Timer task class for timeout handling.
-	 */
-	private class TimerSchedulePeriod extends TimerTask {
-		@Override
-		public void run() {
-			removeClosedSessions();
-		}
-	}
 }
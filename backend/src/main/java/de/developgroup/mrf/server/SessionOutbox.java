@@ -0,0 +1,92 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server;
+
+import de.developgroup.mrf.server.metrics.Counter;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketException;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the notifications of one client without waiting for them to be written. Jetty queues asynchronous sends per
+ * connection; at most {@value #CAPACITY} notifications of a client may be queued there, further ones are dropped until
+ * the client catches up. So a slow client neither holds up the broadcasting thread nor the other clients, and its
+ * backlog is bounded.
+ *
+ * Asynchronous sends do not conflict with each other, so the responses of the client's socket, which are sent
+ * asynchronously as well, need no lock against the notifications.
+ */
+class SessionOutbox implements WriteCallback {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionOutbox.class);
+
+    static final int CAPACITY = 64; //[notifications]
+
+    private final int clientId;
+
+    private final Session session;
+
+    private final Counter sent;
+
+    private final Counter dropped;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    SessionOutbox(int clientId, Session session, Counter sent, Counter dropped) {
+        this.clientId = clientId;
+        this.session = session;
+        this.sent = sent;
+        this.dropped = dropped;
+    }
+
+    /**
+     * Queue a notification for the client, or drop it if the client's queue is full or its connection is closed.
+     * @param text the notification
+     * @return true if the notification was queued
+     */
+    boolean send(String text) {
+        if (pending.incrementAndGet() > CAPACITY) {
+            pending.decrementAndGet();
+            dropped.increment();
+            LOGGER.debug("Client with id " + clientId + " is too slow, notification dropped");
+            return false;
+        }
+        try {
+            session.getRemote().sendString(text, this);
+            return true;
+        } catch (WebSocketException | IllegalStateException e) {
+            // closed, but not removed yet; must not stop the other clients' notifications
+            pending.decrementAndGet();
+            dropped.increment();
+            LOGGER.debug("Connection of client with id " + clientId + " is closed, notification dropped");
+            return false;
+        }
+    }
+
+    /**
+     * @return notifications queued and not yet written
+     */
+    int getPending() {
+        return pending.get();
+    }
+
+    @Override
+    public void writeSuccess() {
+        pending.decrementAndGet();
+        sent.increment();
+    }
+
+    @Override
+    public void writeFailed(Throwable cause) {
+        pending.decrementAndGet();
+        dropped.increment();
+        LOGGER.error("An error has occurred by sending a notification to client with id " + clientId + ": "
+                + cause.getMessage());
+    }
+}
@@ -0,0 +1,288 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.capture;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.rpc.RpcMessageObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Captures the websocket traffic of all clients into one binary file, to reproduce production traffic patterns when
+ * benchmarking, see {@link TrafficCaptureReader} and the TrafficReplayer of the load test.
+ *
+ * Unlike the flight recorder, which keeps a bounded history of inbound RPCs for incidents, a capture holds every
+ * inbound and outbound frame of a session and the closing of connections, until it is stopped. The file starts with a
+ * header
+ * <pre>
+ * int magic, short version, long start time in ms since the epoch
+ * </pre>
+ * followed by frames of variable length, in the order they were captured:
+ * <pre>
+ * long ns since the start, int client id, byte type, int length, length bytes of UTF-8 text
+ * </pre>
+ * Capturing a frame only hands it to the capture's writer thread, through a queue of {@value #QUEUE_CAPACITY}
+ * frames; frames that do not fit are dropped, so the Jetty threads never wait for the disk. The writer flushes the
+ * file every {@value #FLUSH_INTERVAL} ms and when the capture stops. Nothing is captured until the capture is started.
+ */
+@Singleton
+public class TrafficCapture implements RpcMessageObserver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficCapture.class);
+
+    static final int MAGIC = 0x4D524654; // "MRFT"
+
+    static final short VERSION = 1;
+
+    /**
+     * A message received from the client.
+     */
+    public static final byte INBOUND = 0;
+
+    /**
+     * A message sent to the client, a response or a notification.
+     */
+    public static final byte OUTBOUND = 1;
+
+    /**
+     * The connection of the client was closed, without text.
+     */
+    public static final byte CLOSE = 2;
+
+    static final long FLUSH_INTERVAL = 1000; //[ms]
+
+    static final int QUEUE_CAPACITY = 4096; //[frames]
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] NO_TEXT = new byte[0];
+
+    private final Counter frames;
+
+    private final Counter bytes;
+
+    private final Counter dropped;
+
+    /*
+     * The writer of the running capture, null while stopped.
+     */
+    private final AtomicReference<Writer> writer = new AtomicReference<>();
+
+    /**
+     * Create a capture that counts its frames in a registry of its own.
+     */
+    public TrafficCapture() {
+        this(new MetricsRegistry());
+    }
+
+    @Inject
+    public TrafficCapture(MetricsRegistry metricsRegistry) {
+        frames = metricsRegistry.counter("trafficCapture.frames");
+        bytes = metricsRegistry.counter("trafficCapture.bytes");
+        dropped = metricsRegistry.counter("trafficCapture.dropped");
+    }
+
+    /**
+     * Start capturing into the given file, replacing it.
+     * @param file the capture file, its directory is created if missing
+     * @throws IOException if the file cannot be created
+     */
+    public synchronized void start(Path file) throws IOException {
+        stop();
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                BUFFER_SIZE));
+        stream.writeInt(MAGIC);
+        stream.writeShort(VERSION);
+        stream.writeLong(System.currentTimeMillis());
+        Writer started = new Writer(stream);
+        writer.set(started);
+        started.thread.start();
+        LOGGER.info("Capturing websocket traffic to " + file.toAbsolutePath());
+    }
+
+    /**
+     * Write the captured frames to the file and stop capturing. Waits for the writer thread.
+     */
+    public synchronized void stop() {
+        Writer stopped = writer.getAndSet(null);
+        if (stopped != null) {
+            stopped.finish();
+        }
+    }
+
+    public boolean isCapturing() {
+        return writer.get() != null;
+    }
+
+    /**
+     * @param clientId id of the sending client, -1 if unknown
+     * @param message the text as received
+     */
+    public void captureInbound(int clientId, String message) {
+        Writer current = writer.get();
+        if (current != null) {
+            current.offer(INBOUND, clientId, message.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param clientId id of the receiving client, -1 if unknown
+     * @param message the text as sent
+     */
+    public void captureOutbound(int clientId, String message) {
+        Writer current = writer.get();
+        if (current != null) {
+            current.offer(OUTBOUND, clientId, message.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param clientId id of the client whose connection was closed
+     */
+    public void captureClose(int clientId) {
+        Writer current = writer.get();
+        if (current != null) {
+            current.offer(CLOSE, clientId, NO_TEXT);
+        }
+    }
+
+    @Override
+    public void onInbound(int clientId, String message) {
+        captureInbound(clientId, message);
+    }
+
+    @Override
+    public void onOutbound(int clientId, String message) {
+        captureOutbound(clientId, message);
+    }
+
+    @Override
+    public void onClose(int clientId) {
+        captureClose(clientId);
+    }
+
+    private static final class Frame {
+
+        final long nanos;
+
+        final int clientId;
+
+        final byte type;
+
+        final byte[] text;
+
+        Frame(long nanos, int clientId, byte type, byte[] text) {
+            this.nanos = nanos;
+            this.clientId = clientId;
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Writes the frames of one capture on its own thread, until it is finished or the file cannot be written.
+     */
+    private final class Writer implements Runnable {
+
+        /**
+         * Put into the queue to finish the capture after the frames before it.
+         */
+        private final Frame end = new Frame(0, 0, CLOSE, NO_TEXT);
+
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        private final DataOutputStream out;
+
+        private final long startNanos = System.nanoTime();
+
+        private final Thread thread = new Thread(this, "traffic-capture");
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+            thread.setDaemon(true);
+        }
+
+        void offer(byte type, int clientId, byte[] text) {
+            if (!queue.offer(new Frame(System.nanoTime() - startNanos, clientId, type, text))) {
+                dropped.increment();
+            }
+        }
+
+        void finish() {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    if (queue.offer(end, FLUSH_INTERVAL, TimeUnit.MILLISECONDS)) {
+                        thread.join();
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            long lastNanos = 0;
+            long lastFlush = System.nanoTime();
+            try {
+                while (true) {
+                    Frame frame = queue.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (frame == end) {
+                        break;
+                    }
+                    if (frame != null) {
+                        // frames may be queued slightly out of the order of their times
+                        lastNanos = Math.max(lastNanos, frame.nanos);
+                        out.writeLong(lastNanos);
+                        out.writeInt(frame.clientId);
+                        out.writeByte(frame.type);
+                        out.writeInt(frame.text.length);
+                        out.write(frame.text);
+                        frames.increment();
+                        bytes.add(frame.text.length);
+                    }
+                    if (System.nanoTime() - lastFlush >= TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL)) {
+                        out.flush();
+                        lastFlush = System.nanoTime();
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Cannot write traffic capture, capture stopped: " + e);
+                writer.compareAndSet(this, null);
+            } catch (InterruptedException e) {
+                LOGGER.error("Traffic capture interrupted, capture stopped");
+                writer.compareAndSet(this, null);
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    LOGGER.error("Cannot close traffic capture: " + e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the frames of a {@link TrafficCapture} file in the order they were captured. The reader points to one frame
+ * at a time:
+ *
+ * <pre>
+ * try (TrafficCaptureReader reader = new TrafficCaptureReader(file)) {
+ *     while (reader.next()) {
+ *         if (reader.getType() == TrafficCapture.INBOUND) {
+ *             ... reader.getMessage() ...
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * A frame cut off at the end of the file, e.g. because the backend was killed while capturing, ends the capture.
+ */
+public final class TrafficCaptureReader implements Closeable {
+
+    private final DataInputStream in;
+
+    private final long startMillis;
+
+    private long nanos;
+
+    private int clientId;
+
+    private byte type;
+
+    private String message;
+
+    /**
+     * @param file a capture file
+     * @throws IOException if the file cannot be read or is no capture file
+     */
+    public TrafficCaptureReader(Path file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if (in.readInt() != TrafficCapture.MAGIC) {
+                throw new IOException(file + " is no traffic capture");
+            }
+            if (in.readShort() != TrafficCapture.VERSION) {
+                throw new IOException("Unsupported version of traffic capture " + file);
+            }
+            startMillis = in.readLong();
+        } catch (EOFException e) {
+            in.close();
+            throw new IOException(file + " is no traffic capture");
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Move to the next frame.
+     * @return false if there are no more frames
+     * @throws IOException if the file cannot be read
+     */
+    public boolean next() throws IOException {
+        try {
+            long frameNanos = in.readLong();
+            int frameClientId = in.readInt();
+            byte frameType = in.readByte();
+            int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            byte[] text = new byte[length];
+            in.readFully(text);
+            nanos = frameNanos;
+            clientId = frameClientId;
+            type = frameType;
+            message = new String(text, StandardCharsets.UTF_8);
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return start of the capture in ms since the epoch
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return time of the current frame in ns since the start of the capture
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @return {@link TrafficCapture#INBOUND}, {@link TrafficCapture#OUTBOUND} or {@link TrafficCapture#CLOSE}
+     */
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * @return text of the current frame, empty for a close
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
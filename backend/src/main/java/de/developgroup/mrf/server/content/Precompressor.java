@@ -0,0 +1,123 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.content;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a gzip variant next to every compressible client file, which the {@link StaticContentHandler} serves to
+ * browsers that accept it. Run by the build on the client files in target/classes:
+ *
+ * <pre>
+ * java -cp backend-1.0-SNAPSHOT-jar-with-dependencies.jar de.developgroup.mrf.server.content.Precompressor \
+ *      target/classes/client
+ * </pre>
+ *
+ * The gzip variant gets the modification time of its file, so it is only written again if the file changed. Variants
+ * that save less than {@link #MIN_SAVING} are not kept, and the server sends the file itself.
+ */
+public class Precompressor {
+
+    /**
+     * Smaller files fit into a few packets anyway.
+     */
+    static final int MIN_FILE_SIZE = 512; //[bytes]
+
+    /**
+     * Minimum share of the file size the gzip variant must save.
+     */
+    static final double MIN_SAVING = 0.1;
+
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = new HashSet<>(Arrays.asList("html", "htm", "js",
+            "css", "json", "map", "svg", "txt", "xml", "ttf", "otf", "eot", "ico"));
+
+    private int compressed;
+
+    private int skipped;
+
+    private long savedBytes;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: Precompressor <client directory>");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        if (!Files.isDirectory(directory)) {
+            System.out.println("No client files in " + directory + " to precompress");
+            return;
+        }
+        Precompressor precompressor = new Precompressor();
+        precompressor.precompress(directory);
+        System.out.println("Precompressed " + precompressor.compressed + " client files in " + directory
+                + ", saving " + precompressor.savedBytes / 1024 + " kB, " + precompressor.skipped + " up to date");
+    }
+
+    /**
+     * Write the gzip variants of all compressible files in a directory and its subdirectories.
+     */
+    public void precompress(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (attributes.isRegularFile() && isCompressible(file, attributes.size())) {
+                    precompressFile(file, attributes.lastModifiedTime());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    static boolean isCompressible(Path file, long size) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return size >= MIN_FILE_SIZE && dot >= 0
+                && COMPRESSIBLE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+    }
+
+    private void precompressFile(Path file, FileTime lastModified) throws IOException {
+        Path gzipFile = file.resolveSibling(file.getFileName() + ".gz");
+        if (Files.exists(gzipFile) && Files.getLastModifiedTime(gzipFile).equals(lastModified)) {
+            skipped++;
+            return;
+        }
+        byte[] content = Files.readAllBytes(file);
+        byte[] gzipContent = gzip(content);
+        if (gzipContent.length > content.length * (1 - MIN_SAVING)) {
+            Files.deleteIfExists(gzipFile);
+            return;
+        }
+        Files.write(gzipFile, gzipContent);
+        Files.setLastModifiedTime(gzipFile, lastModified);
+        compressed++;
+        savedBytes += content.length - gzipContent.length;
+    }
+
+    static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+        try (OutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.content;
+
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.resource.Resource;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the client files, with the gzip variant written by the {@link Precompressor} if the browser accepts it.
+ *
+ * Every response carries a strong ETag of the file, which differs between the plain and the gzip variant. The URLs
+ * of the client files, including the bower components, do not change with their content, so the browser revalidates
+ * every file on each load, and a file it already has costs a 304 without a body. Files up to
+ * {@link #MAX_CACHED_FILE_SIZE} are held in memory, so the Jetty threads do not read them from the jar again.
+ *
+ * Only GET and HEAD requests for existing files are handled here; everything else, e.g. directory listings and
+ * redirects, is left to the next handler.
+ */
+public class StaticContentHandler extends AbstractHandler {
+
+    /**
+     * Files and gzip variants larger than this are read from the resource on every request.
+     */
+    static final int MAX_CACHED_FILE_SIZE = 256 * 1024; //[bytes]
+
+    /**
+     * Upper limit of the bytes held in memory.
+     */
+    static final long MAX_CACHE_SIZE = 16 * 1024 * 1024; //[bytes]
+
+    static final String WELCOME_FILE = "index.html";
+
+    static final String CACHE_CONTROL = "no-cache";
+
+    private final Resource base;
+
+    private final MimeTypes mimeTypes = new MimeTypes();
+
+    private final ConcurrentMap<String, CachedContent> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong cacheSize = new AtomicLong();
+
+    private final Counter requests;
+
+    private final Counter gzipResponses;
+
+    private final Counter notModified;
+
+    /**
+     * @param base directory of the client files
+     */
+    public StaticContentHandler(Resource base, MetricsRegistry metricsRegistry) {
+        this.base = base;
+        requests = metricsRegistry.counter("content.requests");
+        gzipResponses = metricsRegistry.counter("content.gzip");
+        notModified = metricsRegistry.counter("content.notModified");
+        metricsRegistry.gauge("content.cachedBytes", cacheSize::get);
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (baseRequest.isHandled()) {
+            return;
+        }
+        boolean head = HttpMethod.HEAD.is(request.getMethod());
+        if (!head && !HttpMethod.GET.is(request.getMethod())) {
+            return;
+        }
+        String path = URIUtil.canonicalPath(target);
+        if (path == null || !path.startsWith("/")) {
+            return;
+        }
+        if (path.endsWith("/")) {
+            path += WELCOME_FILE;
+        }
+        Resource resource = base.addPath(path);
+        if (!resource.exists() || resource.isDirectory()) {
+            return;
+        }
+
+        Resource gzipResource = base.addPath(path + ".gz");
+        boolean gzipAvailable = gzipResource.exists() && !gzipResource.isDirectory();
+        boolean gzip = gzipAvailable && acceptsGzip(request.getHeader("Accept-Encoding"));
+        Resource served = gzip ? gzipResource : resource;
+        long lastModified = resource.lastModified();
+        String etag = etag(lastModified, resource.length(), gzip);
+
+        baseRequest.setHandled(true);
+        requests.increment();
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        if (gzipAvailable) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        if (isNotModified(request, etag, lastModified)) {
+            notModified.increment();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String mimeType = mimeTypes.getMimeByExtension(path);
+        if (mimeType != null) {
+            response.setContentType(mimeType);
+        }
+        if (gzip) {
+            gzipResponses.increment();
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        byte[] content = cachedContent(path + (gzip ? ".gz" : ""), served);
+        long length = content != null ? content.length : served.length();
+        if (length >= 0) {
+            response.setHeader("Content-Length", Long.toString(length));
+        }
+        if (head) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        if (content != null) {
+            out.write(content);
+        } else {
+            try (InputStream in = served.getInputStream()) {
+                IO.copy(in, out);
+            }
+        }
+    }
+
+    /**
+     * Get the content of a small file from the cache, reading it on the first request or if it changed.
+     * @return the content, null if the file is too large to cache
+     */
+    private byte[] cachedContent(String key, Resource resource) throws IOException {
+        long lastModified = resource.lastModified();
+        long length = resource.length();
+        CachedContent cached = cache.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.content.length == length) {
+            return cached.content;
+        }
+        if (length < 0 || length > MAX_CACHED_FILE_SIZE) {
+            return null;
+        }
+        byte[] content;
+        try (InputStream in = resource.getInputStream()) {
+            content = IO.readBytes(in);
+        }
+        long previousSize = cached != null ? cached.content.length : 0;
+        if (cacheSize.get() - previousSize + content.length > MAX_CACHE_SIZE) {
+            // serve it without caching
+            return content;
+        }
+        if (cached == null ? cache.putIfAbsent(key, new CachedContent(lastModified, content)) == null
+                : cache.replace(key, cached, new CachedContent(lastModified, content))) {
+            cacheSize.addAndGet(content.length - previousSize);
+        }
+        return content;
+    }
+
+    /**
+     * A strong ETag, as the same last modification and length within the jar mean the same bytes. The gzip variant
+     * is a different representation and so gets a different tag.
+     */
+    static String etag(long lastModified, long length, boolean gzip) {
+        return "\"" + Long.toString(lastModified, 36) + "-" + Long.toString(length, 36) + (gzip ? "-gzip" : "")
+                + "\"";
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        if (lastModified > 0) {
+            try {
+                long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+                // the header has a resolution of seconds
+                return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param ifNoneMatch value of an If-None-Match header, a list of tags or *
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param acceptEncoding value of an Accept-Encoding header, may be null
+     * @return true if gzip is accepted, explicitly or by *, and not with a quality of 0
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean accepted = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            boolean gzip = name.equals("gzip") || name.equals("x-gzip");
+            if (!gzip && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (gzip) {
+                // an explicit gzip outranks *
+                return !refused;
+            }
+            accepted = !refused;
+        }
+        return accepted;
+    }
+
+    private static final class CachedContent {
+
+        final long lastModified;
+
+        final byte[] content;
+
+        CachedContent(long lastModified, byte[] content) {
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+    }
+}
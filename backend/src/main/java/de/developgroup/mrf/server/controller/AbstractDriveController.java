@@ -6,21 +6,31 @@ package de.developgroup.mrf.server.controller;
 
 import com.google.inject.Inject;
 import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.rover.collision.PackedCollisionState;
 import de.developgroup.mrf.rover.collision.RoverCollisionInformation;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Subscription;
+import de.developgroup.mrf.server.recorder.FlightRecorder;
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
+import de.developgroup.mrf.server.telemetry.TimeSeries;
+import org.cfg4j.provider.ConfigurationProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.NoSuchElementException;
 
 /**
  * Provides common methods for interface DriveController to all subclasses.
  */
-public abstract class AbstractDriveController implements DriveController, Observer {
+public abstract class AbstractDriveController implements DriveController {
 
     private static Logger LOGGER = LoggerFactory.getLogger(AbstractDriveController.class);
 
+    static final String FORMULA_ALGORITHM = "formula";
+
+    static final String TABLE_ALGORITHM = "table";
+
     /**
      * The algorithm used to convert joystick input to motor commands.
      */
@@ -30,77 +40,150 @@ public abstract class AbstractDriveController implements DriveController, Observ
      * The runnable that holds and generates collision information for the rover.
      */
     protected CollisionRunnable collisionRunnable;
-    protected MotorSettings currentMotorSettings;
+
+    /**
+     * The settings the motors were last written with, not the setpoint a ramp may still be heading for. Guarded by
+     * motorSettingsLock, only handed out as a copy, so readers never see the left value of one setting with the right
+     * value of another.
+     */
+    private final MotorSettings currentMotorSettings;
     private final Object motorSettingsLock = new Object();
 
+    /**
+     * Reused for every joystick frame, so continuous driving does not allocate. Guarded by itself.
+     */
+    private final MotorSettings setpoint = new MotorSettings(0, 0);
+
+    private final MotorSettings stopSettings = new MotorSettings(0, 0);
+
+    private final MotorSettings forwardsSettings = new MotorSettings(1d, 1d);
+
+    private final MotorSettings backwardsSettings = new MotorSettings(-1d, -1d);
+
+    private final MotorSettings leftTurnSettings = new MotorSettings(-1d, 1d);
+
+    private final MotorSettings rightTurnSettings = new MotorSettings(1d, -1d);
+
+    /*
+     * Motor settings as recorded for the developer view, null until the telemetry store is injected.
+     */
+    private volatile TimeSeries leftMotorTelemetry;
+
+    private volatile TimeSeries rightMotorTelemetry;
+
+    private volatile FlightRecorder flightRecorder;
+
     @Inject
-    public AbstractDriveController(ContinuousDrivingAlgorithm drivingAlgorithm, CollisionRunnable collisionRunnable) {
+    public AbstractDriveController(ContinuousDrivingAlgorithm drivingAlgorithm, CollisionRunnable collisionRunnable,
+                                   EventBus eventBus) {
         this.drivingAlgorithm = drivingAlgorithm;
         this.collisionRunnable = collisionRunnable;
         this.currentMotorSettings = new MotorSettings(0, 0);
 
-        collisionRunnable.addObserver(this);
+        // synchronous, braking must not wait behind other events
+        eventBus.subscribe(CollisionRunnable.COLLISION_INFORMATION, Subscription.Delivery.SYNCHRONOUS,
+                this::onCollisionInformation);
     }
 
-    public void setContinuousDriving(int angle, int speed) {
-        MotorSettings setting = drivingAlgorithm.calculateMotorSetting(angle, speed);
+    /**
+     * Switch to the lookup table if "driving.algorithm" in rover.properties is "table", otherwise keep the injected
+     * algorithm, and let the algorithm read its settings.
+     * @param configurationProvider provider of the rover configuration
+     */
+    protected void initializeDrivingAlgorithm(ConfigurationProvider configurationProvider) {
+        String algorithm;
         try {
-            if (setting.drivesForwards()
-                    && !collisionRunnable.getCurrentCollisionInformation().hasCollisionFront()) {
-                applyMotorSettings(setting);
-            } else if (setting.drivesBackwards()
-                    && !collisionRunnable.getCurrentCollisionInformation().hasCollisionBack()) {
-                applyMotorSettings(setting);
-            } else {
-                stop();
-                LOGGER.info("Do not drive - collision in the direction of joystick driving detected.");
+            algorithm = configurationProvider.bind("driving", DrivingAlgorithmConfiguration.class).algorithm();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            algorithm = FORMULA_ALGORITHM;
+        }
+        if (TABLE_ALGORITHM.equals(algorithm)) {
+            drivingAlgorithm = new LookupTableDrivingAlgorithm();
+        } else if (!FORMULA_ALGORITHM.equals(algorithm)) {
+            LOGGER.error("Unknown driving algorithm " + algorithm + ", using the formula");
+        }
+        drivingAlgorithm.initialize(configurationProvider);
+    }
+
+    /**
+     * Record the motor settings as "motor.left" and "motor.right" in the given store.
+     * @param telemetryStore the store, injected after construction
+     */
+    @Inject
+    public void setTelemetryStore(TelemetryStore telemetryStore) {
+        leftMotorTelemetry = telemetryStore.series("motor.left");
+        rightMotorTelemetry = telemetryStore.series("motor.right");
+    }
+
+    /**
+     * Record every applied motor setting in the given flight recorder.
+     * @param flightRecorder the recorder, injected after construction
+     */
+    @Inject
+    public void setFlightRecorder(FlightRecorder flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    public void setContinuousDriving(int angle, int speed) {
+        synchronized (setpoint) {
+            drivingAlgorithm.calculateMotorSetting(angle, speed, setpoint);
+            int collisionState = collisionRunnable.getCurrentCollisionState();
+            try {
+                if (setpoint.drivesForwards() && !PackedCollisionState.hasCollisionFront(collisionState)) {
+                    applyMotorSettings(setpoint);
+                } else if (setpoint.drivesBackwards() && !PackedCollisionState.hasCollisionBack(collisionState)) {
+                    applyMotorSettings(setpoint);
+                } else {
+                    stop();
+                    LOGGER.info("Do not drive - collision in the direction of joystick driving detected.");
+                }
+            } catch (IOException e)  {
+                LOGGER.error("Failed to set motor settings: " + e);
             }
-        } catch (IOException e)  {
-            LOGGER.error("Failed to set motor settings: " + e);
         }
     }
 
     public void driveForwards() throws IOException {
-        MotorSettings settings = new MotorSettings(1d, 1d);
-        if (!collisionRunnable.getCurrentCollisionInformation().hasCollisionFront()) {
-            applyMotorSettings(settings);
+        if (!PackedCollisionState.hasCollisionFront(collisionRunnable.getCurrentCollisionState())) {
+            applyMotorSettings(forwardsSettings);
         }
     }
 
     public void driveBackwards() throws IOException {
-        MotorSettings settings = new MotorSettings(-1d, -1d);
-        if (!collisionRunnable.getCurrentCollisionInformation().hasCollisionBack()) {
-            applyMotorSettings(settings);
+        if (!PackedCollisionState.hasCollisionBack(collisionRunnable.getCurrentCollisionState())) {
+            applyMotorSettings(backwardsSettings);
         }
     }
 
     public void turnLeft() throws IOException {
-        MotorSettings settings = new MotorSettings(-1d, 1d);
-        applyMotorSettings(settings);
+        applyMotorSettings(leftTurnSettings);
     }
 
     public void turnRight() throws IOException {
-        MotorSettings settings = new MotorSettings(1d, -1d);
-        applyMotorSettings(settings);
+        applyMotorSettings(rightTurnSettings);
     }
 
     public void stop() throws IOException {
-        MotorSettings settings = new MotorSettings(0, 0);
-        applyMotorSettings(settings);
+        applyMotorSettings(stopSettings);
     }
 
-    @Override
-    public void update(Observable o, Object arg) {
-        if (!(arg instanceof RoverCollisionInformation)) {
-            return;
-        }
-        RoverCollisionInformation collisionInformation = (RoverCollisionInformation)arg;
+    /**
+     * Stop the rover if it drives towards a detected collision.
+     * @param collisionInformation the latest collision information
+     */
+    public void onCollisionInformation(RoverCollisionInformation collisionInformation) {
         if (collisionInformation.taintedReadings) {
             // do not brake if rover is exposed to sunlight and sensors do not work
             return;
         }
-        if ((getCurrentMotorSettings().drivesForwards() && collisionInformation.hasCollisionFront())
-                || (getCurrentMotorSettings().drivesBackwards() && collisionInformation.hasCollisionBack())) {
+        boolean drivesForwards;
+        boolean drivesBackwards;
+        synchronized (motorSettingsLock) {
+            drivesForwards = currentMotorSettings.drivesForwards();
+            drivesBackwards = currentMotorSettings.drivesBackwards();
+        }
+        if ((drivesForwards && collisionInformation.hasCollisionFront())
+                || (drivesBackwards && collisionInformation.hasCollisionBack())) {
             try {
                 stop();
             } catch (IOException e) {
@@ -112,13 +195,35 @@ public abstract class AbstractDriveController implements DriveController, Observ
 
     @Override
     public MotorSettings getCurrentMotorSettings() {
-        return currentMotorSettings;
+        synchronized (motorSettingsLock) {
+            return new MotorSettings(currentMotorSettings.leftMotorPercentage,
+                    currentMotorSettings.rightMotorPercentage);
+        }
     }
 
+    /**
+     * Remember the settings the motors were written with, record them as telemetry and in the flight recorder, and
+     * let the collision detection adapt its poll rate. Called on every write, so all of these describe what the
+     * motors actually do. The values are copied, so callers may reuse their object.
+     * @param newSettings settings the motors were written with
+     */
     @Override
     public void setCurrentMotorSettings(MotorSettings newSettings) {
         synchronized (motorSettingsLock) {
-            currentMotorSettings = newSettings;
+            currentMotorSettings.leftMotorPercentage = newSettings.leftMotorPercentage;
+            currentMotorSettings.rightMotorPercentage = newSettings.rightMotorPercentage;
+        }
+        TimeSeries left = leftMotorTelemetry;
+        TimeSeries right = rightMotorTelemetry;
+        if (left != null && right != null) {
+            long nowMillis = System.currentTimeMillis();
+            left.record(nowMillis, newSettings.leftMotorPercentage);
+            right.record(nowMillis, newSettings.rightMotorPercentage);
+        }
+        FlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.recordMotorSettings(newSettings.leftMotorPercentage, newSettings.rightMotorPercentage);
         }
+        collisionRunnable.motionChanged(newSettings.leftMotorPercentage, newSettings.rightMotorPercentage);
     }
 }
@@ -5,6 +5,8 @@
 
 package de.developgroup.mrf.server.controller;
 
+import org.cfg4j.provider.ConfigurationProvider;
+
 /**
  * Interface for an algorithm that converts joystick driving information to motor commands.
  */
@@ -16,4 +18,24 @@ public interface ContinuousDrivingAlgorithm {
      * @return a motor settings object that describes the movement of the robot for this input
      */
     MotorSettings calculateMotorSetting(int angle, int speed);
+
+    /**
+     * For a given angle and settings of the joystick, calculate the motor settings into an existing object.
+     * Used on the driving hot path, where a new object per joystick frame is not wanted.
+     * @param angle the angle of the joystick
+     * @param speed the deviation of the joystick, e.g. its speed
+     * @param target motor settings object that is overwritten with the result
+     */
+    default void calculateMotorSetting(int angle, int speed, MotorSettings target) {
+        MotorSettings settings = calculateMotorSetting(angle, speed);
+        target.leftMotorPercentage = settings.leftMotorPercentage;
+        target.rightMotorPercentage = settings.rightMotorPercentage;
+    }
+
+    /**
+     * Read the algorithm's settings, e.g. from rover.properties. Algorithms without settings do nothing.
+     * @param configurationProvider provider of the rover configuration
+     */
+    default void initialize(ConfigurationProvider configurationProvider) {
+    }
 }
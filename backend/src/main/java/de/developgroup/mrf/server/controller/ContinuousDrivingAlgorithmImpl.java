@@ -5,20 +5,60 @@
 
 package de.developgroup.mrf.server.controller;
 
+import org.cfg4j.provider.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.lang.Math;
+import java.util.NoSuchElementException;
 
 public class ContinuousDrivingAlgorithmImpl implements ContinuousDrivingAlgorithm {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContinuousDrivingAlgorithmImpl.class);
+
     /**
      * n degrees up/down the x-axis of the joystick there is a zone that is meant for rotating the robot in one place.
      */
-    private static final int ROTATE_ZONE_DEGREES = 20;
-
+    public static final int DEFAULT_ROTATE_ZONE_DEGREES = 20;
 
     /**
      * Maximum speed (positive). Will be inverted for driving backward.
      */
-    private static double V_MAX = 1d;
+    public static final double DEFAULT_V_MAX = 1d;
+
+    private volatile int rotateZoneDegrees;
+
+    private volatile double vMax;
+
+    public ContinuousDrivingAlgorithmImpl() {
+        this(DEFAULT_ROTATE_ZONE_DEGREES, DEFAULT_V_MAX);
+    }
+
+    /**
+     * @param rotateZoneDegrees width of the rotate zones around the x-axis of the joystick
+     * @param vMax maximum speed (positive)
+     */
+    public ContinuousDrivingAlgorithmImpl(int rotateZoneDegrees, double vMax) {
+        this.rotateZoneDegrees = rotateZoneDegrees;
+        this.vMax = vMax;
+    }
+
+    /**
+     * Read rotate zone and maximum speed from the "driving" settings in rover.properties. Without these settings the
+     * current ones stay in use.
+     * @param configurationProvider provider of the rover configuration
+     */
+    @Override
+    public void initialize(ConfigurationProvider configurationProvider) {
+        try {
+            DrivingConfiguration configuration = configurationProvider.bind("driving", DrivingConfiguration.class);
+            rotateZoneDegrees = configuration.rotateZoneDegrees();
+            vMax = configuration.maxSpeed();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.warn("No driving settings in rover.properties, using rotate zone {} and maximum speed {}",
+                    rotateZoneDegrees, vMax);
+        }
+    }
 
     /**
      * Perform the calculation of a simple differential driving algorithm for joysticks with added zone for
@@ -29,6 +69,16 @@ public class ContinuousDrivingAlgorithmImpl implements ContinuousDrivingAlgorith
      */
     @Override
     public MotorSettings calculateMotorSetting(int angle, int speed) {
+        MotorSettings settings = new MotorSettings(0d, 0d);
+        calculateMotorSetting(angle, speed, settings);
+        return settings;
+    }
+
+    @Override
+    public void calculateMotorSetting(int angle, int speed, MotorSettings target) {
+        // read once, so a concurrent initialize can not mix old and new settings
+        int rotateZoneDegrees = this.rotateZoneDegrees;
+        double vMax = this.vMax;
         double leftMotorPercentage = 0d;
         double rightMotorPercentage = 0d;
 
@@ -36,32 +86,32 @@ public class ContinuousDrivingAlgorithmImpl implements ContinuousDrivingAlgorith
 
         if (angle <= 90 || angle > 270) {
             // right side of coordinate system
-            if (angle <= ROTATE_ZONE_DEGREES || angle >= 360 - ROTATE_ZONE_DEGREES) {
+            if (angle <= rotateZoneDegrees || angle >= 360 - rotateZoneDegrees) {
                 // right robot rotate zone
-                leftMotorPercentage = V_MAX;
-                rightMotorPercentage = -V_MAX;
+                leftMotorPercentage = vMax;
+                rightMotorPercentage = -vMax;
             } else {
                 if (angle <= 90) {
                     // forward right
-                    leftMotorPercentage = V_MAX;
-                    rightMotorPercentage = Math.sin(angleRadians) * V_MAX;
+                    leftMotorPercentage = vMax;
+                    rightMotorPercentage = Math.sin(angleRadians) * vMax;
                 } else {
-                    leftMotorPercentage = -V_MAX;
-                    rightMotorPercentage = Math.sin(angleRadians) * V_MAX;
+                    leftMotorPercentage = -vMax;
+                    rightMotorPercentage = Math.sin(angleRadians) * vMax;
                 }
             }
         } else {
             // left side of coordinate system
-            if (angle >= 160 && angle <= 200) {
-                leftMotorPercentage = -V_MAX;
-                rightMotorPercentage = V_MAX;
+            if (angle >= 180 - rotateZoneDegrees && angle <= 180 + rotateZoneDegrees) {
+                leftMotorPercentage = -vMax;
+                rightMotorPercentage = vMax;
             } else {
                 if (angle <= 180) {
-                    leftMotorPercentage = Math.sin(angleRadians) * V_MAX;
-                    rightMotorPercentage = V_MAX;
+                    leftMotorPercentage = Math.sin(angleRadians) * vMax;
+                    rightMotorPercentage = vMax;
                 } else {
-                    leftMotorPercentage = Math.sin(angleRadians) * V_MAX;
-                    rightMotorPercentage = -V_MAX;
+                    leftMotorPercentage = Math.sin(angleRadians) * vMax;
+                    rightMotorPercentage = -vMax;
                 }
             }
         }
@@ -69,6 +119,7 @@ public class ContinuousDrivingAlgorithmImpl implements ContinuousDrivingAlgorith
         leftMotorPercentage *= (double)speed/100d;
         rightMotorPercentage *= (double)speed/100d;
 
-        return new MotorSettings(leftMotorPercentage, rightMotorPercentage);
+        target.leftMotorPercentage = leftMotorPercentage;
+        target.rightMotorPercentage = rightMotorPercentage;
     }
 }
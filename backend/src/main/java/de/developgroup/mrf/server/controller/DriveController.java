@@ -63,7 +63,7 @@ public interface DriveController {
 
     /**
      * Retrieve the currently used motor settings
-     * @return a MotorSettings object
+     * @return a copy of the settings, consistent for both motors
      */
     MotorSettings getCurrentMotorSettings();
 
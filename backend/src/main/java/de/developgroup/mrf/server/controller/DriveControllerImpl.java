@@ -6,19 +6,23 @@ package de.developgroup.mrf.server.controller;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.pi4j.io.gpio.GpioController;
 import com.pi4j.io.i2c.I2CBus;
 import com.pi4j.io.i2c.I2CDevice;
-import com.pi4j.io.i2c.I2CFactory;
 import de.developgroup.mrf.rover.collision.CollisionRunnable;
 import de.developgroup.mrf.rover.motor.MotorController;
 import de.developgroup.mrf.rover.motor.MotorControllerConfiguration;
 import de.developgroup.mrf.rover.motor.MotorControllerImpl;
 import de.developgroup.mrf.rover.pwmgenerator.PCA9685PWMGenerator;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.CommandTrace;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
 import org.cfg4j.provider.ConfigurationProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.NoSuchElementException;
 
 /**
  * Class to handle sending drive commands to the actual hardware.
@@ -29,14 +33,39 @@ public class DriveControllerImpl extends AbstractDriveController {
 
     private static Logger LOGGER = LoggerFactory.getLogger(DriveControllerImpl.class);
 
+    private static final int PWM_FREQUENCY = 50;
+
+    /**
+     * Used when no ramp is configured: from a standstill to full speed in half a second, and back in a quarter.
+     */
+    private static final double DEFAULT_ACCELERATION = 2.0;
+    private static final double DEFAULT_DECELERATION = 4.0;
+
     private double speedMultiplier = 1.0;
 
     public MotorController leftMotor;
     public MotorController rightMotor;
 
     @Inject
-    public DriveControllerImpl(ContinuousDrivingAlgorithm drivingAlgorithm, CollisionRunnable collisionRunnable) throws IOException {
-        super(drivingAlgorithm, collisionRunnable);
+    MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    @Inject
+    I2CBus bus;
+
+    @Inject
+    GpioController gpio;
+
+    private MotorControlLoop controlLoop;
+
+    /**
+     * The values last written to the motors, guarded by this.
+     */
+    private final MotorSettings written = new MotorSettings(0, 0);
+
+    @Inject
+    public DriveControllerImpl(ContinuousDrivingAlgorithm drivingAlgorithm, CollisionRunnable collisionRunnable,
+                               EventBus eventBus) throws IOException {
+        super(drivingAlgorithm, collisionRunnable, eventBus);
     }
 
     @Override
@@ -46,26 +75,91 @@ public class DriveControllerImpl extends AbstractDriveController {
         // we have a leftMotor and a rightMotor - same class, different configuration
         // I did not use the private module solution as it is a bit scary to look at. But maybe:
         // TODO: clean this mess up - MotorControllers should be injected
-        I2CBus bus = I2CFactory.getInstance(I2CBus.BUS_1);
+        initializeDrivingAlgorithm(configurationProvider);
+
         I2CDevice device = bus.getDevice(0x40);
         PCA9685PWMGenerator driver = new PCA9685PWMGenerator(device);
         driver.open();
-        driver.setFrequency(50);
+        driver.setFrequency(PWM_FREQUENCY);
 
-        leftMotor = new MotorControllerImpl(driver.getOutput(14),
+        leftMotor = new MotorControllerImpl(driver.getOutput(14), gpio,
                 configurationProvider.bind("motorLeft", MotorControllerConfiguration.class));
-        rightMotor = new MotorControllerImpl(driver.getOutput(15),
+        rightMotor = new MotorControllerImpl(driver.getOutput(15), gpio,
                 configurationProvider.bind("motorRight", MotorControllerConfiguration.class));
 
+        if (controlLoop != null) {
+            controlLoop.stop();
+        }
+        int tickRate = readTickRate(configurationProvider);
+        controlLoop = new MotorControlLoop(this::writeMotors, collisionRunnable, tickRate, metricsRegistry,
+                readRamp(configurationProvider, "motorLeft.ramp", tickRate),
+                readRamp(configurationProvider, "motorRight.ramp", tickRate));
+        controlLoop.start();
+
         LOGGER.debug("Completed setting up DriveController");
     }
 
     @Override
     public void applyMotorSettings(MotorSettings settings) throws IOException {
-        LOGGER.trace("left: {} right: {}", settings.leftMotorPercentage, settings.rightMotorPercentage);
-        setCurrentMotorSettings(settings);
-        leftMotor.setSpeedPercentage(speedMultiplier * settings.leftMotorPercentage);
-        rightMotor.setSpeedPercentage(speedMultiplier * settings.rightMotorPercentage);
+        CommandTrace.mark(CommandTrace.Stage.APPLY);
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("left: {} right: {}", settings.leftMotorPercentage, settings.rightMotorPercentage);
+        }
+        if (controlLoop != null && controlLoop.isRunning()) {
+            // the loop ramps towards the setting, the current settings follow its writes
+            controlLoop.submit(settings.leftMotorPercentage, settings.rightMotorPercentage);
+        } else {
+            writeMotors(settings.leftMotorPercentage, settings.rightMotorPercentage);
+        }
+    }
+
+    /**
+     * Stop both motors at once, bypassing the control loop and its ramp. Used for stop commands and whenever a
+     * collision is detected.
+     */
+    @Override
+    public void stop() throws IOException {
+        CommandTrace.mark(CommandTrace.Stage.APPLY);
+        if (controlLoop != null) {
+            // before writing, so a tick racing with this write is followed by another stop
+            controlLoop.stoppedExternally();
+        }
+        writeMotors(0, 0);
+    }
+
+    /**
+     * Write motor percentages to the hardware and make them the current motor settings. Called by the control loop
+     * and for immediate stops.
+     */
+    synchronized void writeMotors(double left, double right) throws IOException {
+        leftMotor.setSpeedPercentage(speedMultiplier * left);
+        rightMotor.setSpeedPercentage(speedMultiplier * right);
+        written.leftMotorPercentage = left;
+        written.rightMotorPercentage = right;
+        setCurrentMotorSettings(written);
+    }
+
+    /**
+     * Read the tick rate of the motor control loop. Defaults to the PWM frequency, there is no point in writing
+     * the motors more often than the outputs refresh.
+     */
+    private int readTickRate(ConfigurationProvider configurationProvider) {
+        try {
+            return configurationProvider.bind("motorControl", MotorControlConfiguration.class).tickRate();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No motor control configuration found, using a tick rate of " + PWM_FREQUENCY);
+            return PWM_FREQUENCY;
+        }
+    }
+
+    private SlewRateLimiter readRamp(ConfigurationProvider configurationProvider, String prefix, int tickRate) {
+        try {
+            RampConfiguration ramp = configurationProvider.bind(prefix, RampConfiguration.class);
+            return new SlewRateLimiter(ramp.acceleration(), ramp.deceleration(), tickRate);
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No ramp configuration found for " + prefix + ", using defaults");
+            return new SlewRateLimiter(DEFAULT_ACCELERATION, DEFAULT_DECELERATION, tickRate);
+        }
     }
 
     /**
@@ -82,7 +176,12 @@ public class DriveControllerImpl extends AbstractDriveController {
     public void setSpeedMultiplier(double value) throws IOException {
         if (value >= 0.0 && value <= 1.0) {
             speedMultiplier = value;
-            applyMotorSettings(getCurrentMotorSettings());
+            if (controlLoop != null && controlLoop.isRunning()) {
+                // re-applying the current settings would replace the loop's setpoint with where its ramp is
+                controlLoop.requestRewrite();
+            } else {
+                applyMotorSettings(getCurrentMotorSettings());
+            }
         } else {
             LOGGER.error("Speed multipilier value is invalid: " + value);
         }
@@ -6,6 +6,8 @@ package de.developgroup.mrf.server.controller;
 
 import com.google.inject.Inject;
 import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.CommandTrace;
 import org.cfg4j.provider.ConfigurationProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,18 +19,24 @@ public class DriveControllerMock extends AbstractDriveController {
     private static Logger LOGGER = LoggerFactory.getLogger(DriveControllerMock.class);
 
     @Inject
-    public DriveControllerMock(ContinuousDrivingAlgorithm drivingAlgorithm, CollisionRunnable collisionRunnable)  {
-        super(drivingAlgorithm, collisionRunnable);
+    public DriveControllerMock(ContinuousDrivingAlgorithm drivingAlgorithm, CollisionRunnable collisionRunnable,
+                               EventBus eventBus)  {
+        super(drivingAlgorithm, collisionRunnable, eventBus);
     }
 
     @Override
     public void initialize(ConfigurationProvider configurationProvider) throws IOException {
         LOGGER.info("initializing DriveController");
+        initializeDrivingAlgorithm(configurationProvider);
     }
 
     @Override
     public void applyMotorSettings(MotorSettings settings) throws IOException {
+        CommandTrace.mark(CommandTrace.Stage.APPLY);
         LOGGER.info("applying motor settings object " + settings);
+        // there is no hardware to write to, so the settings count as actuated right away
+        setCurrentMotorSettings(settings);
+        CommandTrace.mark(CommandTrace.Stage.ACTUATED);
     }
 
     @Override
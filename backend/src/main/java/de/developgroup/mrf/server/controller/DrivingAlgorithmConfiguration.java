@@ -0,0 +1,17 @@
+/*
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+
+package de.developgroup.mrf.server.controller;
+
+/**
+ * Choice of the continuous driving algorithm, bound to the "driving" prefix in rover.properties.
+ */
+public interface DrivingAlgorithmConfiguration {
+
+    /**
+     * @return "formula" for {@link ContinuousDrivingAlgorithmImpl}, "table" for {@link LookupTableDrivingAlgorithm}
+     */
+    String algorithm();
+}
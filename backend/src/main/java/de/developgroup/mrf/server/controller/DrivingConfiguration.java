@@ -0,0 +1,22 @@
+/*
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+
+package de.developgroup.mrf.server.controller;
+
+/**
+ * Settings of the continuous driving algorithm, bound to the "driving" prefix in rover.properties.
+ */
+public interface DrivingConfiguration {
+
+    /**
+     * @return width in degrees of the zones around the joystick's x-axis in which the rover rotates in place
+     */
+    int rotateZoneDegrees();
+
+    /**
+     * @return maximum motor percentage (0 .. 1) the algorithm will output
+     */
+    double maxSpeed();
+}
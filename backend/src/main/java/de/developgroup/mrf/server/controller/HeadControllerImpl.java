@@ -7,7 +7,6 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.pi4j.io.i2c.I2CBus;
 import com.pi4j.io.i2c.I2CDevice;
-import com.pi4j.io.i2c.I2CFactory;
 import de.developgroup.mrf.rover.pwmgenerator.PCA9685PWMGenerator;
 import de.developgroup.mrf.rover.servo.ServoConfiguration;
 import de.developgroup.mrf.rover.servo.ServoController;
@@ -31,15 +30,17 @@ public class HeadControllerImpl extends AbstractHeadController implements HeadCo
     private ServoController horizontalHeadMotor;
 
 
+    private final I2CBus bus;
+
     @Inject
-    public HeadControllerImpl() throws IOException {
+    public HeadControllerImpl(I2CBus bus) throws IOException {
+        this.bus = bus;
     }
 
     @Override
     public void initialize(ConfigurationProvider configurationProvider) throws IOException {
         super.initialize(configurationProvider);
 
-        I2CBus bus = I2CFactory.getInstance(I2CBus.BUS_1);
         I2CDevice device = bus.getDevice(0x40);
         PCA9685PWMGenerator driver = new PCA9685PWMGenerator(device);
         driver.open();
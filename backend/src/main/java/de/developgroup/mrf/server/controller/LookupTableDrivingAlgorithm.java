@@ -0,0 +1,137 @@
+/*
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+
+package de.developgroup.mrf.server.controller;
+
+import com.google.inject.Singleton;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Table driven variant of {@link ContinuousDrivingAlgorithmImpl}.
+ *
+ * The motor percentages at full speed are precomputed for every joystick angle 0 .. 359, a joystick frame then costs
+ * two array reads and two multiplications instead of a sine. Scaling by speed is the same multiplication the
+ * reference algorithm does, so both produce identical results. Angles outside 0 .. 359 fall back to the reference
+ * algorithm.
+ *
+ * The tables are rebuilt when rotate zone or maximum speed change in rover.properties ("driving" prefix). The
+ * configuration is checked at most every {@link #CONFIG_CHECK_INTERVAL_MS} milliseconds, between checks computing a
+ * setting neither locks nor allocates.
+ */
+@Singleton
+public class LookupTableDrivingAlgorithm implements ContinuousDrivingAlgorithm {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LookupTableDrivingAlgorithm.class);
+
+    static final int ANGLES = 360;
+
+    static final long CONFIG_CHECK_INTERVAL_MS = 5000;
+
+    /**
+     * Precomputed settings for one configuration. Never modified after construction.
+     */
+    static final class Table {
+
+        final int rotateZoneDegrees;
+
+        final double vMax;
+
+        final ContinuousDrivingAlgorithmImpl reference;
+
+        final double[] left = new double[ANGLES];
+
+        final double[] right = new double[ANGLES];
+
+        Table(int rotateZoneDegrees, double vMax) {
+            this.rotateZoneDegrees = rotateZoneDegrees;
+            this.vMax = vMax;
+            this.reference = new ContinuousDrivingAlgorithmImpl(rotateZoneDegrees, vMax);
+            MotorSettings settings = new MotorSettings(0d, 0d);
+            for (int angle = 0; angle < ANGLES; angle++) {
+                reference.calculateMotorSetting(angle, 100, settings);
+                left[angle] = settings.leftMotorPercentage;
+                right[angle] = settings.rightMotorPercentage;
+            }
+        }
+    }
+
+    private volatile Table table;
+
+    private volatile DrivingConfiguration configuration;
+
+    private volatile long nextConfigCheckNanos;
+
+    public LookupTableDrivingAlgorithm() {
+        this(ContinuousDrivingAlgorithmImpl.DEFAULT_ROTATE_ZONE_DEGREES, ContinuousDrivingAlgorithmImpl.DEFAULT_V_MAX);
+    }
+
+    public LookupTableDrivingAlgorithm(int rotateZoneDegrees, double vMax) {
+        table = new Table(rotateZoneDegrees, vMax);
+    }
+
+    /**
+     * Bind to the "driving" settings in rover.properties. Without these settings the defaults stay in use.
+     * @param configurationProvider provider of the rover configuration
+     */
+    @Override
+    public void initialize(ConfigurationProvider configurationProvider) {
+        try {
+            configuration = configurationProvider.bind("driving", DrivingConfiguration.class);
+            checkConfiguration();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.warn("No driving settings in rover.properties, using rotate zone {} and maximum speed {}",
+                    table.rotateZoneDegrees, table.vMax);
+            configuration = null;
+        }
+        nextConfigCheckNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONFIG_CHECK_INTERVAL_MS);
+    }
+
+    @Override
+    public MotorSettings calculateMotorSetting(int angle, int speed) {
+        MotorSettings settings = new MotorSettings(0d, 0d);
+        calculateMotorSetting(angle, speed, settings);
+        return settings;
+    }
+
+    @Override
+    public void calculateMotorSetting(int angle, int speed, MotorSettings target) {
+        if (configuration != null && System.nanoTime() - nextConfigCheckNanos >= 0) {
+            nextConfigCheckNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONFIG_CHECK_INTERVAL_MS);
+            checkConfiguration();
+        }
+        Table current = table;
+        if (angle < 0 || angle >= ANGLES) {
+            current.reference.calculateMotorSetting(angle, speed, target);
+            return;
+        }
+        target.leftMotorPercentage = current.left[angle] * ((double)speed/100d);
+        target.rightMotorPercentage = current.right[angle] * ((double)speed/100d);
+    }
+
+    /**
+     * Rebuild the tables if the configuration changed. Keeps the old tables if the configuration can not be read.
+     */
+    void checkConfiguration() {
+        int rotateZoneDegrees;
+        double vMax;
+        try {
+            rotateZoneDegrees = configuration.rotateZoneDegrees();
+            vMax = configuration.maxSpeed();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.error("Could not read driving settings, keeping the current ones: " + e.getMessage());
+            return;
+        }
+        Table current = table;
+        if (rotateZoneDegrees != current.rotateZoneDegrees || vMax != current.vMax) {
+            LOGGER.info("Building driving tables for rotate zone {} and maximum speed {}", rotateZoneDegrees, vMax);
+            table = new Table(rotateZoneDegrees, vMax);
+        }
+    }
+}
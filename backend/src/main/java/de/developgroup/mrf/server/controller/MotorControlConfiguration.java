@@ -0,0 +1,16 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.controller;
+
+/**
+ * Settings of the {@link MotorControlLoop}, bound to the "motorControl" prefix in rover.properties.
+ */
+public interface MotorControlConfiguration {
+
+    /**
+     * @return ticks per second of the motor control loop
+     */
+    int tickRate();
+}
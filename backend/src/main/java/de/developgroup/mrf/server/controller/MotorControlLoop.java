@@ -0,0 +1,313 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.controller;
+
+import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.rover.collision.PackedCollisionState;
+import de.developgroup.mrf.server.metrics.CommandTrace;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.LatencyHistogram;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Applies motor setpoints at a fixed rate on a dedicated thread.
+ *
+ * Drive commands only publish their setpoint into a {@link SetpointMailbox}. Once per tick the loop takes the latest
+ * setpoint, checks it against the current collision information, slows it down to the speed limit predicted by the
+ * collision detection, moves towards it within the acceleration limits of each motor and writes the motors if the
+ * result differs from what was written last. Bursts of commands between two ticks therefore cost a single I2C write
+ * sequence, and the write rate never exceeds the rate at which the PWM outputs refresh anyway.
+ */
+public class MotorControlLoop implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MotorControlLoop.class);
+
+    /**
+     * Writes motor percentages to the hardware.
+     */
+    interface MotorOutput {
+        void write(double left, double right) throws IOException;
+    }
+
+    private final SetpointMailbox mailbox = new SetpointMailbox();
+
+    private final MotorOutput output;
+
+    private final CollisionRunnable collisionRunnable;
+
+    private final SlewRateLimiter leftRamp;
+
+    private final SlewRateLimiter rightRamp;
+
+    private final long periodNanos;
+
+    private final AtomicBoolean stoppedExternally = new AtomicBoolean();
+
+    private final AtomicBoolean rewriteRequested = new AtomicBoolean();
+
+    private final Counter writes;
+
+    private final Counter coalescedSetpoints;
+
+    private final Counter gatedSetpoints;
+
+    private final Counter overruns;
+
+    private final Counter limitedSetpoints;
+
+    private final LatencyHistogram lateness;
+
+    /*
+     * Trace of the latest published setpoint, so the latency up to the motor write can be measured across threads.
+     */
+    private volatile long traceReceivedNanos;
+
+    private volatile String traceMethod;
+
+    /*
+     * The current loop thread, null while stopped. Each thread loops only while it is the current one, so a thread of
+     * an earlier start never writes along with a later one.
+     */
+    private volatile Thread thread;
+
+    /*
+     * State of the loop thread.
+     */
+    private double targetLeft;
+
+    private double targetRight;
+
+    private double writtenLeft;
+
+    private double writtenRight;
+
+    private final MotorSettings gateCheck = new MotorSettings(0, 0);
+
+    /**
+     * @param output destination of the motor values
+     * @param collisionRunnable source of the collision information used to gate setpoints
+     * @param tickRate ticks per second
+     * @param metricsRegistry registry for the loop's metrics
+     */
+    MotorControlLoop(MotorOutput output, CollisionRunnable collisionRunnable, int tickRate,
+                     MetricsRegistry metricsRegistry) {
+        this(output, collisionRunnable, tickRate, metricsRegistry, SlewRateLimiter.UNLIMITED, SlewRateLimiter.UNLIMITED);
+    }
+
+    /**
+     * @param output destination of the motor values
+     * @param collisionRunnable source of the collision information used to gate setpoints
+     * @param tickRate ticks per second
+     * @param metricsRegistry registry for the loop's metrics
+     * @param leftRamp acceleration limits of the left motor
+     * @param rightRamp acceleration limits of the right motor
+     */
+    MotorControlLoop(MotorOutput output, CollisionRunnable collisionRunnable, int tickRate,
+                     MetricsRegistry metricsRegistry, SlewRateLimiter leftRamp, SlewRateLimiter rightRamp) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Tick rate must be greater than zero");
+        }
+        this.output = output;
+        this.collisionRunnable = collisionRunnable;
+        this.leftRamp = leftRamp;
+        this.rightRamp = rightRamp;
+        this.periodNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+        writes = metricsRegistry.counter("motor.writes");
+        coalescedSetpoints = metricsRegistry.counter("motor.setpoints.coalesced");
+        gatedSetpoints = metricsRegistry.counter("motor.setpoints.gated");
+        overruns = metricsRegistry.counter("motor.loop.overruns");
+        limitedSetpoints = metricsRegistry.counter("motor.setpoints.limited");
+        lateness = metricsRegistry.histogram("motor.loop.lateness");
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread started = new Thread(this, "motor-control");
+        started.setDaemon(true);
+        started.setPriority(Thread.MAX_PRIORITY);
+        thread = started;
+        started.start();
+    }
+
+    /**
+     * Stop the loop and wait until its thread has finished its last tick.
+     */
+    public synchronized void stop() {
+        Thread stopped = thread;
+        thread = null;
+        if (stopped == null || stopped == Thread.currentThread()) {
+            return;
+        }
+        LockSupport.unpark(stopped);
+        boolean interrupted = false;
+        while (stopped.isAlive()) {
+            try {
+                stopped.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Publish a new setpoint, to be written with the next tick. Never blocks.
+     * @param left percentage of the left motor
+     * @param right percentage of the right motor
+     */
+    public void submit(double left, double right) {
+        traceReceivedNanos = CommandTrace.receivedNanos();
+        traceMethod = CommandTrace.method();
+        if (mailbox.offer(left, right)) {
+            coalescedSetpoints.increment();
+        }
+    }
+
+    /**
+     * Tell the loop that the motors were stopped outside of the loop, bypassing the ramp. Pending setpoints are
+     * dropped.
+     */
+    public void stoppedExternally() {
+        mailbox.clear();
+        stoppedExternally.set(true);
+    }
+
+    /**
+     * Write the current setpoint again with the next tick, e.g. after the speed multiplier changed.
+     */
+    public void requestRewrite() {
+        rewriteRequested.set(true);
+    }
+
+    @Override
+    public void run() {
+        LOGGER.info("Motor control loop started with a period of {} us", TimeUnit.NANOSECONDS.toMicros(periodNanos));
+        long nextTick = System.nanoTime();
+        Thread self = Thread.currentThread();
+        while (thread == self) {
+            long late = System.nanoTime() - nextTick;
+            lateness.record(late);
+            if (late > periodNanos) {
+                // do not try to catch up on missed ticks, that would only burst writes
+                overruns.increment();
+                nextTick = System.nanoTime();
+            }
+            nextTick += periodNanos;
+
+            try {
+                tick();
+            } catch (IOException e) {
+                LOGGER.error("Could not write motor settings: " + e);
+            } catch (RuntimeException e) {
+                LOGGER.error("Error in motor control loop", e);
+            }
+
+            long delay = nextTick - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(this, delay);
+            }
+        }
+        LOGGER.info("Motor control loop stopped");
+    }
+
+    /**
+     * One iteration of the loop. Only called by the loop thread, or directly by tests.
+     */
+    void tick() throws IOException {
+        boolean rewrite = rewriteRequested.getAndSet(false);
+        if (stoppedExternally.getAndSet(false)) {
+            // write the stop again, this tick may have raced with the external stop
+            targetLeft = targetRight = 0;
+            writtenLeft = writtenRight = 0;
+            rewrite = true;
+        }
+
+        long setpoint = mailbox.take();
+        long receivedNanos = 0;
+        if (setpoint != SetpointMailbox.EMPTY) {
+            targetLeft = SetpointMailbox.left(setpoint);
+            targetRight = SetpointMailbox.right(setpoint);
+            receivedNanos = traceReceivedNanos;
+            if (receivedNanos != 0) {
+                CommandTrace.begin(receivedNanos);
+                CommandTrace.setMethod(traceMethod);
+            }
+        }
+
+        if (isBlockedByCollision(targetLeft, targetRight)) {
+            // drop the setpoint, the rover must not drive on by itself once the obstacle is gone
+            gatedSetpoints.increment();
+            targetLeft = targetRight = 0;
+        }
+
+        // scale both motors alike, so the rover keeps its course while braking
+        double scale = speedLimitScale(targetLeft, targetRight);
+        if (scale < 1) {
+            limitedSetpoints.increment();
+        }
+        double nextLeft = leftRamp.next(writtenLeft, scale * targetLeft);
+        double nextRight = rightRamp.next(writtenRight, scale * targetRight);
+        if (rewrite || nextLeft != writtenLeft || nextRight != writtenRight) {
+            output.write(nextLeft, nextRight);
+            writtenLeft = nextLeft;
+            writtenRight = nextRight;
+            writes.increment();
+        }
+        if (receivedNanos != 0) {
+            CommandTrace.end();
+        }
+    }
+
+    /**
+     * @return factor that brings the faster motor down to the speed limit in the direction of travel, 1 if the
+     * setpoint is within the limit
+     */
+    private double speedLimitScale(double left, double right) {
+        double speed = Math.max(Math.abs(left), Math.abs(right));
+        if (speed == 0) {
+            return 1;
+        }
+        gateCheck.leftMotorPercentage = left;
+        gateCheck.rightMotorPercentage = right;
+        double limit = 1;
+        if (gateCheck.drivesForwards()) {
+            limit = collisionRunnable.getForwardSpeedLimit();
+        }
+        if (gateCheck.drivesBackwards()) {
+            limit = Math.min(limit, collisionRunnable.getBackwardSpeedLimit());
+        }
+        return Math.min(1, limit / speed);
+    }
+
+    /**
+     * The same gate as {@link AbstractDriveController#setContinuousDriving(int, int)}: a setpoint may be written if
+     * it drives forwards without a collision in front, or backwards without a collision behind.
+     */
+    private boolean isBlockedByCollision(double left, double right) {
+        if (left == 0 && right == 0) {
+            return false;
+        }
+        int collisionState = collisionRunnable.getCurrentCollisionState();
+        gateCheck.leftMotorPercentage = left;
+        gateCheck.rightMotorPercentage = right;
+        return !((gateCheck.drivesForwards() && !PackedCollisionState.hasCollisionFront(collisionState))
+                || (gateCheck.drivesBackwards() && !PackedCollisionState.hasCollisionBack(collisionState)));
+    }
+}
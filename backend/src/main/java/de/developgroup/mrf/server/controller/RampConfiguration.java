@@ -0,0 +1,22 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.controller;
+
+/**
+ * Acceleration limits of a single motor, bound to the "motorLeft.ramp" and "motorRight.ramp" prefixes in
+ * rover.properties. Rates are given in full scale per second.
+ */
+public interface RampConfiguration {
+
+    /**
+     * @return maximum change per second while speeding up
+     */
+    double acceleration();
+
+    /**
+     * @return maximum change per second while slowing down
+     */
+    double deceleration();
+}
@@ -0,0 +1,60 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-slot mailbox for motor setpoints.
+ *
+ * Both motor percentages are packed as floats into one long, so a setpoint is published and taken with a single
+ * atomic operation and without allocation. A new setpoint replaces one that has not been taken yet; only the latest
+ * setpoint matters for the motors. Float precision is far finer than the 12 bit resolution of the PWM outputs.
+ */
+final class SetpointMailbox {
+
+    /**
+     * Marks an empty slot. Both halves are a NaN bit pattern that {@link Float#floatToIntBits(float)} never returns.
+     */
+    static final long EMPTY = -1L;
+
+    private final AtomicLong slot = new AtomicLong(EMPTY);
+
+    /**
+     * Publish a new setpoint.
+     * @return true if an earlier setpoint was replaced before it was taken
+     */
+    boolean offer(double left, double right) {
+        return slot.getAndSet(pack(left, right)) != EMPTY;
+    }
+
+    /**
+     * Take the latest setpoint out of the mailbox.
+     * @return the packed setpoint, or {@link #EMPTY} if there is none
+     */
+    long take() {
+        return slot.getAndSet(EMPTY);
+    }
+
+    /**
+     * Drop a setpoint that has not been taken yet.
+     */
+    void clear() {
+        slot.set(EMPTY);
+    }
+
+    static long pack(double left, double right) {
+        return ((long) Float.floatToIntBits((float) left) << 32)
+                | (Float.floatToIntBits((float) right) & 0xFFFFFFFFL);
+    }
+
+    static double left(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    static double right(long packed) {
+        return Float.intBitsToFloat((int) packed);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.controller;
+
+/**
+ * Limits how fast a motor percentage may change from one control loop tick to the next.
+ *
+ * Speeding up is limited by the acceleration, slowing down by the deceleration. A change of direction first
+ * decelerates to a standstill and then accelerates the other way. Rates are given in full scale per second, e.g. an
+ * acceleration of 2.0 takes half a second from a standstill to full speed.
+ */
+final class SlewRateLimiter {
+
+    /**
+     * Does not limit anything.
+     */
+    static final SlewRateLimiter UNLIMITED = new SlewRateLimiter(Double.POSITIVE_INFINITY,
+            Double.POSITIVE_INFINITY, 1);
+
+    private final double maxAccelerationStep;
+
+    private final double maxDecelerationStep;
+
+    /**
+     * @param acceleration full scale per second while speeding up, not positive for no limit
+     * @param deceleration full scale per second while slowing down, not positive for no limit
+     * @param tickRate ticks per second of the loop calling {@link #next(double, double)}
+     */
+    SlewRateLimiter(double acceleration, double deceleration, int tickRate) {
+        maxAccelerationStep = toStep(acceleration, tickRate);
+        maxDecelerationStep = toStep(deceleration, tickRate);
+    }
+
+    private static double toStep(double rate, int tickRate) {
+        return rate > 0 ? rate / tickRate : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculate the value for the next tick.
+     * @param current value written with the last tick
+     * @param target value to approach
+     * @return the value to write with this tick
+     */
+    double next(double current, double target) {
+        if (current == target) {
+            return target;
+        }
+        if (current != 0 && Math.signum(target) != Math.signum(current)) {
+            if (maxDecelerationStep != Double.POSITIVE_INFINITY) {
+                // reverse: come to a standstill first
+                return approach(current, 0, maxDecelerationStep);
+            }
+            current = 0;
+        }
+        if (Math.abs(target) > Math.abs(current)) {
+            return approach(current, target, maxAccelerationStep);
+        }
+        return approach(current, target, maxDecelerationStep);
+    }
+
+    private static double approach(double current, double target, double maxStep) {
+        double difference = target - current;
+        if (Math.abs(difference) <= maxStep) {
+            return target;
+        }
+        return current + Math.signum(difference) * maxStep;
+    }
+}
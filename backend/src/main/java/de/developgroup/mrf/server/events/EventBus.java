@@ -0,0 +1,199 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.LatencyHistogram;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Typed in-process publish/subscribe.
+ *
+ * Every topic keeps its subscribers in a copy-on-write array: subscribing copies the array, publishing only reads
+ * the current one and neither locks nor allocates for synchronous subscribers. Each subscriber chooses whether it is
+ * called on the publishing thread or on the bus' dispatch thread, see {@link Subscription.Delivery}. An exception
+ * thrown by one listener is logged and does not keep the event from the other listeners.
+ *
+ * Per topic, the bus counts published events and listener errors, measures how long publishing takes and how long
+ * asynchronous events wait for their delivery.
+ */
+@Singleton
+public class EventBus {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventBus.class);
+
+    private final MetricsRegistry metricsRegistry;
+
+    private final Executor asyncExecutor;
+
+    private final ConcurrentMap<Topic<?>, Channel<?>> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Create an event bus that delivers asynchronous events on its own daemon thread.
+     */
+    @Inject
+    public EventBus(MetricsRegistry metricsRegistry) {
+        this(metricsRegistry, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param metricsRegistry registry for the per-topic metrics
+     * @param asyncExecutor executor for asynchronous deliveries, should run them in order
+     */
+    public EventBus(MetricsRegistry metricsRegistry, Executor asyncExecutor) {
+        this.metricsRegistry = metricsRegistry;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * Subscribe a listener to a topic.
+     * @param topic the topic
+     * @param delivery how to deliver events to the listener
+     * @param listener the listener
+     * @return the subscription, to cancel it later
+     */
+    public <T> Subscription subscribe(Topic<T> topic, Subscription.Delivery delivery,
+                                      EventListener<? super T> listener) {
+        Channel<T> channel = channel(topic);
+        Subscriber<T> subscriber = new Subscriber<>(channel, delivery, listener);
+        channel.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Publish an event to all subscribers of its topic. Returns after all synchronous subscribers were called.
+     * @param topic the topic
+     * @param event the event
+     */
+    public <T> void publish(Topic<T> topic, T event) {
+        channel(topic).publish(event);
+    }
+
+    /**
+     * @return number of listeners subscribed to the topic
+     */
+    public int getSubscriberCount(Topic<?> topic) {
+        Channel<?> channel = channels.get(topic);
+        return channel == null ? 0 : channel.subscribers.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Channel<T> channel(Topic<T> topic) {
+        Channel<?> channel = channels.get(topic);
+        if (channel == null) {
+            channel = channels.computeIfAbsent(topic, t -> new Channel<>(topic));
+        }
+        return (Channel<T>) channel;
+    }
+
+    private final class Channel<T> {
+
+        final Topic<T> topic;
+
+        volatile Subscriber<T>[] subscribers;
+
+        final Counter published;
+
+        final Counter errors;
+
+        final LatencyHistogram dispatch;
+
+        final LatencyHistogram queued;
+
+        @SuppressWarnings("unchecked")
+        Channel(Topic<T> topic) {
+            this.topic = topic;
+            this.subscribers = (Subscriber<T>[]) new Subscriber[0];
+            String prefix = "events." + topic.getName();
+            published = metricsRegistry.counter(prefix + ".published");
+            errors = metricsRegistry.counter(prefix + ".errors");
+            dispatch = metricsRegistry.histogram(prefix + ".dispatch");
+            queued = metricsRegistry.histogram(prefix + ".queued");
+        }
+
+        synchronized void add(Subscriber<T> subscriber) {
+            Subscriber<T>[] copy = Arrays.copyOf(subscribers, subscribers.length + 1);
+            copy[copy.length - 1] = subscriber;
+            subscribers = copy;
+        }
+
+        synchronized void remove(Subscriber<T> subscriber) {
+            Subscriber<T>[] current = subscribers;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == subscriber) {
+                    Subscriber<T>[] copy = Arrays.copyOf(current, current.length - 1);
+                    System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+                    subscribers = copy;
+                    return;
+                }
+            }
+        }
+
+        void publish(T event) {
+            long start = System.nanoTime();
+            published.increment();
+            for (Subscriber<T> subscriber : subscribers) {
+                if (subscriber.delivery == Subscription.Delivery.SYNCHRONOUS) {
+                    deliver(subscriber, event);
+                } else {
+                    asyncExecutor.execute(() -> {
+                        queued.recordSince(start);
+                        deliver(subscriber, event);
+                    });
+                }
+            }
+            dispatch.recordSince(start);
+        }
+
+        void deliver(Subscriber<T> subscriber, T event) {
+            if (subscriber.cancelled) {
+                return;
+            }
+            try {
+                subscriber.listener.onEvent(event);
+            } catch (RuntimeException e) {
+                errors.increment();
+                LOGGER.error("Listener of topic " + topic + " failed", e);
+            }
+        }
+    }
+
+    private static final class Subscriber<T> implements Subscription {
+
+        final EventBus.Channel<T> channel;
+
+        final Delivery delivery;
+
+        final EventListener<? super T> listener;
+
+        volatile boolean cancelled;
+
+        Subscriber(EventBus.Channel<T> channel, Delivery delivery, EventListener<? super T> listener) {
+            this.channel = channel;
+            this.delivery = delivery;
+            this.listener = listener;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            channel.remove(this);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.events;
+
+/**
+ * Receives the events of a {@link Topic}.
+ *
+ * @param <T> type of the received events
+ */
+@FunctionalInterface
+public interface EventListener<T> {
+
+    void onEvent(T event);
+}
@@ -0,0 +1,31 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.events;
+
+/**
+ * A listener subscribed to a topic of the {@link EventBus}.
+ */
+public interface Subscription {
+
+    /**
+     * How events are delivered to a listener.
+     */
+    enum Delivery {
+        /**
+         * On the publishing thread, before publish returns. For safety-critical listeners, e.g. stopping the motors.
+         */
+        SYNCHRONOUS,
+        /**
+         * On the event bus' dispatch thread, in publishing order. For listeners that may block, e.g. notifying
+         * clients.
+         */
+        ASYNCHRONOUS
+    }
+
+    /**
+     * Stop delivering events to the listener.
+     */
+    void cancel();
+}
@@ -0,0 +1,39 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.events;
+
+/**
+ * A kind of event on the {@link EventBus}. Topics are compared by identity, so declare each one once as a constant,
+ * next to the class that publishes it.
+ *
+ * @param <T> type of the events published on this topic
+ */
+public final class Topic<T> {
+
+    private final String name;
+
+    private final Class<T> eventType;
+
+    public Topic(String name, Class<T> eventType) {
+        this.name = name;
+        this.eventType = eventType;
+    }
+
+    /**
+     * @return name of the topic, used for its metrics
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getEventType() {
+        return eventType;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
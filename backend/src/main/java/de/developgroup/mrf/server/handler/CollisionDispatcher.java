@@ -7,15 +7,15 @@ package de.developgroup.mrf.server.handler;
 import com.google.inject.Inject;
 import de.developgroup.mrf.rover.collision.CollisionController;
 import de.developgroup.mrf.server.ClientManager;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Subscription;
 import de.developgroup.mrf.server.rpc.JsonRpc2Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Observable;
-import java.util.Observer;
 
-public class CollisionDispatcher implements Observer {
+public class CollisionDispatcher {
 
     private static Logger LOGGER = LoggerFactory.getLogger(CollisionDispatcher.class);
 
@@ -25,20 +25,20 @@ public class CollisionDispatcher implements Observer {
 
     @Inject
     public CollisionDispatcher(CollisionController collisionController,
-                               ClientManager clientManager) {
+                               ClientManager clientManager,
+                               EventBus eventBus) {
         LOGGER.debug("Creating new instance of CollisionDispatcher");
-        ((Observable)collisionController).addObserver(this);
         this.collisionController = collisionController;
         this.clientManager = clientManager;
+        // asynchronous, sending to all clients must not delay the sensor thread
+        eventBus.subscribe(CollisionController.SENSOR_EVENTS, Subscription.Delivery.ASYNCHRONOUS,
+                event -> dispatchCollisionState());
     }
 
-    @Override
-    public void update(Observable o, Object arg) {
-        if (o != collisionController) {
-            LOGGER.error("update() called by unknown Observable - ignoring call");
-            return;
-        }
-
+    /**
+     * Send the current collision state to all clients.
+     */
+    public void dispatchCollisionState() {
         // store collision state
         CollisionEvent collisionState = new CollisionEvent();
 
@@ -61,7 +61,6 @@ public class CollisionDispatcher implements Observer {
      * Container for the robot's collision state.
      * Serializable to JSON.
      *
-     * TODO: refactor once the notification bus is available
      */
     private class CollisionEvent {
         
@@ -7,6 +7,8 @@ package de.developgroup.mrf.server.handler;
 import com.google.inject.Inject;
 import de.developgroup.mrf.server.ClientManager;
 import de.developgroup.mrf.server.controller.DriveController;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Subscription;
 import de.developgroup.mrf.server.rpc.JsonRpc2Request;
 import de.developgroup.mrf.server.rpc.msgdata.RoverStatusVO;
 import org.slf4j.Logger;
@@ -15,7 +17,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.*;
 
-public class DeveloperSettingsHandler implements Observer {
+public class DeveloperSettingsHandler {
 
 	private static final Logger LOGGER = LoggerFactory
 			.getLogger(DeveloperSettingsHandler.class);
@@ -39,13 +41,15 @@ public class DeveloperSettingsHandler implements Observer {
 	@Inject
 	public DeveloperSettingsHandler(ClientManager clientManager,
 									RoverHandler roverHandler,
-									DriveController driveController) {
+									DriveController driveController,
+									EventBus eventBus) {
 		LOGGER.debug("Creating new instance of DeveloperSettingsHandler");
 		this.clientManager = clientManager;
 		this.roverHandler = roverHandler;
 		this.driveController = driveController;
-		// Observe clientManger about connected user changes
-		clientManager.addObserver(this);
+		// listen to clientManager about connected user changes
+		eventBus.subscribe(ClientManager.CLIENTS_CHANGED,
+				Subscription.Delivery.ASYNCHRONOUS, this::onClientsChanged);
 	}
 
 	/**
@@ -242,11 +246,9 @@ public class DeveloperSettingsHandler implements Observer {
 	 * Also, every client gets informed about his current blocking state so that the blocking screen can be
 	 * displayed to the user
 	 *
-	 * @param o   Observable, in this Case the clientManager
-	 * @param arg not used
+	 * @param changedClientManager the client manager that changed
 	 */
-	@Override
-	public void update(Observable o, Object arg) {
+	public void onClientsChanged(ClientManager changedClientManager) {
 //		LOGGER.debug("Updating connected users list");
 
 		List<ClientInformation> blockedConnections = clientManager.getBlockedConnections();
@@ -0,0 +1,51 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.handler;
+
+import org.cfg4j.provider.ConfigurationProvider;
+
+/**
+ * Dead man's switch for the driver. Every client re-arms its deadline with heartbeats and drive commands. When the
+ * current driver misses its deadline, e.g. because the browser froze mid-drive, the motors are stopped.
+ */
+public interface HeartbeatWatchdog {
+
+    /**
+     * Start checking deadlines.
+     *
+     * @param configurationProvider
+     *            provider of the "watchdog" settings, defaults are used if they are missing
+     */
+    void start(ConfigurationProvider configurationProvider);
+
+    /**
+     * Stop checking deadlines.
+     */
+    void stop();
+
+    /**
+     * A client sent a heartbeat.
+     *
+     * @param clientId
+     *            id of the client
+     */
+    void heartbeat(int clientId);
+
+    /**
+     * A client sent any other sign of life, e.g. a drive command.
+     *
+     * @param clientId
+     *            id of the client
+     */
+    void alive(int clientId);
+
+    /**
+     * Forget a client, e.g. because its connection closed.
+     *
+     * @param clientId
+     *            id of the client
+     */
+    void removeClient(int clientId);
+}
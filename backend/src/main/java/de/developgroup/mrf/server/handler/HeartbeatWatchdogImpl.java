@@ -0,0 +1,175 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.handler;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.LatencyHistogram;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.scheduling.HashedTimingWheel;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the deadlines of all clients in a {@link HashedTimingWheel} that is advanced by the shared scheduler, so
+ * checking many clients costs O(1) per tick. Deadlines of clients that are not the driver simply expire.
+ */
+@Singleton
+public class HeartbeatWatchdogImpl implements HeartbeatWatchdog, HashedTimingWheel.ExpiryListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatWatchdogImpl.class);
+
+    static final long DEFAULT_DRIVER_TIMEOUT_MILLIS = 300;
+
+    static final long DEFAULT_TICK_MILLIS = 10;
+
+    private final SingleDriverHandler singleDriverHandler;
+
+    private final RoverHandler roverHandler;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter missedDeadlines;
+
+    private final LatencyHistogram heartbeatInterval;
+
+    private final LatencyHistogram heartbeatJitter;
+
+    private volatile HashedTimingWheel wheel;
+
+    private volatile long driverTimeoutMillis = DEFAULT_DRIVER_TIMEOUT_MILLIS;
+
+    private ScheduledFuture<?> tickTask;
+
+    /*
+     * Timing of the driver's heartbeats, guarded by heartbeatLock.
+     */
+    private final Object heartbeatLock = new Object();
+
+    private int heartbeatClientId = -1;
+
+    private long lastHeartbeatNanos;
+
+    private long lastIntervalNanos = -1;
+
+    @Inject
+    public HeartbeatWatchdogImpl(SingleDriverHandler singleDriverHandler, RoverHandler roverHandler,
+                                 MetricsRegistry metricsRegistry, ScheduledExecutorService scheduler) {
+        this.singleDriverHandler = singleDriverHandler;
+        this.roverHandler = roverHandler;
+        this.scheduler = scheduler;
+        missedDeadlines = metricsRegistry.counter("watchdog.driver.missed");
+        heartbeatInterval = metricsRegistry.histogram("watchdog.heartbeat.interval");
+        heartbeatJitter = metricsRegistry.histogram("watchdog.heartbeat.jitter");
+        wheel = createWheel(DEFAULT_TICK_MILLIS, DEFAULT_DRIVER_TIMEOUT_MILLIS);
+    }
+
+    private HashedTimingWheel createWheel(long tickMillis, long timeoutMillis) {
+        // one revolution covers the deadline, so a tick never passes over deadlines of a later revolution
+        int wheelSize = (int) (timeoutMillis / tickMillis) + 2;
+        return new HashedTimingWheel(tickMillis, TimeUnit.MILLISECONDS, wheelSize, this);
+    }
+
+    @Override
+    public synchronized void start(ConfigurationProvider configurationProvider) {
+        long timeoutMillis = DEFAULT_DRIVER_TIMEOUT_MILLIS;
+        long tickMillis = DEFAULT_TICK_MILLIS;
+        try {
+            WatchdogConfiguration configuration = configurationProvider.bind("watchdog", WatchdogConfiguration.class);
+            timeoutMillis = configuration.driverTimeout();
+            tickMillis = configuration.tickDuration();
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No watchdog configuration found, using a driver timeout of " + timeoutMillis + " ms");
+        }
+        if (timeoutMillis <= 0 || tickMillis <= 0) {
+            LOGGER.error("Invalid watchdog configuration, the driver watchdog is disabled");
+            return;
+        }
+
+        stop();
+        driverTimeoutMillis = timeoutMillis;
+        wheel = createWheel(tickMillis, timeoutMillis);
+        tickTask = scheduler.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Driver watchdog started with a timeout of " + timeoutMillis + " ms");
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (tickTask != null) {
+            tickTask.cancel(false);
+            tickTask = null;
+        }
+    }
+
+    private void tick() {
+        try {
+            wheel.tick();
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic task and with it the watchdog
+            LOGGER.error("Error in driver watchdog", e);
+        }
+    }
+
+    @Override
+    public void heartbeat(int clientId) {
+        alive(clientId);
+        if (clientId == singleDriverHandler.getCurrentDriverId()) {
+            recordHeartbeat(clientId, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void alive(int clientId) {
+        wheel.schedule(clientId, driverTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void removeClient(int clientId) {
+        wheel.cancel(clientId);
+    }
+
+    /**
+     * Record the interval since the driver's last heartbeat, and its jitter: how much it differs from the interval
+     * before.
+     */
+    void recordHeartbeat(int clientId, long nowNanos) {
+        synchronized (heartbeatLock) {
+            if (clientId != heartbeatClientId) {
+                heartbeatClientId = clientId;
+                lastIntervalNanos = -1;
+            } else {
+                long interval = nowNanos - lastHeartbeatNanos;
+                heartbeatInterval.record(interval);
+                if (lastIntervalNanos >= 0) {
+                    heartbeatJitter.record(Math.abs(interval - lastIntervalNanos));
+                }
+                lastIntervalNanos = interval;
+            }
+            lastHeartbeatNanos = nowNanos;
+        }
+    }
+
+    @Override
+    public void expired(int clientId) {
+        if (clientId != singleDriverHandler.getCurrentDriverId()) {
+            return;
+        }
+        missedDeadlines.increment();
+        LOGGER.warn("Driver " + clientId + " missed its heartbeat deadline, stopping the motors");
+        try {
+            roverHandler.stop();
+        } catch (IOException e) {
+            LOGGER.error("Cannot stop rover although the driver went silent: " + e);
+        }
+    }
+}
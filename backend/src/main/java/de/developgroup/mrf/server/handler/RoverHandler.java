@@ -5,11 +5,10 @@
 package de.developgroup.mrf.server.handler;
 
 import java.io.IOException;
-import java.util.Observer;
 
 import org.cfg4j.provider.ConfigurationProvider;
 
-public interface RoverHandler extends Observer {
+public interface RoverHandler {
 
 	/**
 	 * Demonstration method that increments the squence number and responds with a string
@@ -5,10 +5,12 @@
 package de.developgroup.mrf.server.handler;
 
 import java.io.IOException;
-import java.util.Observable;
 
 import de.developgroup.mrf.server.ClientManager;
 import de.developgroup.mrf.server.controller.LoggingCommunicationController;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Subscription;
+import de.developgroup.mrf.server.metrics.CommandTrace;
 import org.cfg4j.provider.ConfigurationProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,12 +46,17 @@ public class RoverHandlerImpl implements RoverHandler {
 
 	final LoggingCommunicationController loggingCommunicationController;
 
+	final EventBus eventBus;
+
+	private Subscription collisionSubscription;
+
 	@Inject
 	public RoverHandlerImpl(CollisionController collisionController,
 			GpioController gpio, DriveController driveController,
 			HeadController headController,
 			CameraSnapshotController cameraSnapshotController,
-			LoggingCommunicationController loggingCommunicationController) {
+			LoggingCommunicationController loggingCommunicationController,
+			EventBus eventBus) {
 		LOGGER.info("RoverHandlerImpl startup");
 		this.collisionController = collisionController;
 		this.gpio = gpio;
@@ -57,6 +64,7 @@ public class RoverHandlerImpl implements RoverHandler {
 		this.headController = headController;
 		this.cameraSnapshotController = cameraSnapshotController;
 		this.loggingCommunicationController = loggingCommunicationController;
+		this.eventBus = eventBus;
 	}
 
 	public String handlePing(int sqn) {
@@ -68,8 +76,11 @@ public class RoverHandlerImpl implements RoverHandler {
 		LOGGER.debug("Heartbeat from client with id " +clientId);
 	}
 
-	public void update(Observable o, Object arg) {
-		GpioPinDigitalStateChangeEvent event = (GpioPinDigitalStateChangeEvent) arg;
+	/**
+	 * Stop the rover when an IR receiver detects a collision.
+	 * @param event state change of an IR receiver
+	 */
+	public void onCollisionSensorEvent(GpioPinDigitalStateChangeEvent event) {
 		if (event.getState().isHigh()) {
 			LOGGER.info("Sensor " + event.getPin().getName()
 					+ " Collision detected");
@@ -86,12 +97,14 @@ public class RoverHandlerImpl implements RoverHandler {
 
 	@Override
 	public void driveForward(int desiredSpeed) throws IOException {
+		CommandTrace.mark(CommandTrace.Stage.HANDLER);
 		LOGGER.debug("driveForward()");
 		driveController.driveForwards();
 	}
 
 	@Override
 	public void driveBackward(int desiredSpeed) throws IOException {
+		CommandTrace.mark(CommandTrace.Stage.HANDLER);
 		LOGGER.debug("driveBackward() with speed " + desiredSpeed);
 		driveController.driveBackwards();
 	}
@@ -101,7 +114,7 @@ public class RoverHandlerImpl implements RoverHandler {
 	 * @throws IOException
 	 */
 	@Override
-	public void initRover(ConfigurationProvider roverProperties)
+	public synchronized void initRover(ConfigurationProvider roverProperties)
 			throws IOException {
 
 		driveController.initialize(roverProperties);
@@ -110,8 +123,13 @@ public class RoverHandlerImpl implements RoverHandler {
 		headController.initialize(roverProperties);
 		LOGGER.info("Rover initialized for head movement");
 
-		// listen for collisions
-		((Observable) collisionController).addObserver(this);
+		// listen for collisions, once even if the rover is initialized again
+		if (collisionSubscription == null) {
+			collisionSubscription = eventBus.subscribe(
+					CollisionController.SENSOR_EVENTS,
+					Subscription.Delivery.SYNCHRONOUS,
+					this::onCollisionSensorEvent);
+		}
 
 		LOGGER.info("Rover initialized for collistion detection");
 	}
@@ -123,23 +141,27 @@ public class RoverHandlerImpl implements RoverHandler {
 
 	@Override
 	public void stop() throws IOException {
+		CommandTrace.mark(CommandTrace.Stage.HANDLER);
 		driveController.stop();
 	}
 
 	@Override
 	public void turnLeft(int turnRate) throws IOException {
+		CommandTrace.mark(CommandTrace.Stage.HANDLER);
 		LOGGER.debug("turnLeft()");
 		driveController.turnLeft();
 	}
 
 	@Override
 	public void turnRight(int turnRate) throws IOException {
+		CommandTrace.mark(CommandTrace.Stage.HANDLER);
 		LOGGER.debug("turnRight()");
 		driveController.turnRight();
 	}
 
 	@Override
 	public void driveContinuously(int angle, int speed) {
+		CommandTrace.mark(CommandTrace.Stage.HANDLER);
 		driveController.setContinuousDriving(angle, speed);
 	}
 
@@ -0,0 +1,21 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.handler;
+
+/**
+ * Settings of the {@link HeartbeatWatchdog}, bound to the "watchdog" prefix in rover.properties.
+ */
+public interface WatchdogConfiguration {
+
+    /**
+     * @return milliseconds the driver may stay silent before the motors are stopped
+     */
+    long driverTimeout();
+
+    /**
+     * @return milliseconds between two checks of the deadlines
+     */
+    long tickDuration();
+}
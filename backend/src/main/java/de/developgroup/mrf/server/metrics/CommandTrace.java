@@ -0,0 +1,117 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import com.google.inject.Inject;
+
+/**
+ * Traces a single command from the arrival of its websocket frame to the write of the PWM registers.
+ *
+ * The trace lives in a thread local of the thread that handles the frame, so the stages along the call chain
+ * (socket, handler, drive controller, motor controller, PWM generator) can mark themselves without passing the trace
+ * around. One instance per thread is reused for all commands, marking a stage neither locks nor allocates.
+ * Marks are ignored while no trace has been started on the current thread.
+ */
+public final class CommandTrace {
+
+    /**
+     * The stages a command passes on its way to the hardware, in order.
+     */
+    public enum Stage {
+        HANDLER, APPLY, MOTOR, ACTUATED
+    }
+
+    /**
+     * Receiver of completed traces. Replaced by the shared instance via static injection.
+     */
+    @Inject
+    static CommandTracer tracer = new CommandTracer(new MetricsRegistry());
+
+    private static final ThreadLocal<CommandTrace> CURRENT = ThreadLocal.withInitial(CommandTrace::new);
+
+    private boolean active;
+
+    private long receivedNanos;
+
+    private String method;
+
+    private final long[] stageNanos = new long[Stage.values().length];
+
+    private CommandTrace() {
+    }
+
+    /**
+     * Start a new trace on the current thread, discarding any unfinished one.
+     * @param receivedNanos {@link System#nanoTime()} at which the frame arrived
+     */
+    public static void begin(long receivedNanos) {
+        CommandTrace trace = CURRENT.get();
+        trace.active = true;
+        trace.receivedNanos = receivedNanos;
+        trace.method = null;
+        for (int i = 0; i < trace.stageNanos.length; i++) {
+            trace.stageNanos[i] = 0;
+        }
+    }
+
+    /**
+     * Name the command of the current trace, once the frame has been parsed.
+     * @param method name of the invoked RPC method
+     */
+    public static void setMethod(String method) {
+        CommandTrace trace = CURRENT.get();
+        if (trace.active) {
+            trace.method = method;
+        }
+    }
+
+    /**
+     * Mark that the current command reached a stage. Only the first time a stage is reached counts, except for
+     * {@link Stage#ACTUATED}, which marks the last completed register write.
+     * @param stage the reached stage
+     */
+    public static void mark(Stage stage) {
+        CommandTrace trace = CURRENT.get();
+        if (!trace.active) {
+            return;
+        }
+        int index = stage.ordinal();
+        if (stage == Stage.ACTUATED || trace.stageNanos[index] == 0) {
+            trace.stageNanos[index] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Get the receipt time of the current thread's trace, e.g. to continue the trace on another thread.
+     * @return {@link System#nanoTime()} at which the frame arrived, 0 if no trace is active
+     */
+    public static long receivedNanos() {
+        CommandTrace trace = CURRENT.get();
+        return trace.active ? trace.receivedNanos : 0;
+    }
+
+    /**
+     * @return name of the RPC method of the current thread's trace, null if no trace is active
+     */
+    public static String method() {
+        CommandTrace trace = CURRENT.get();
+        return trace.active ? trace.method : null;
+    }
+
+    /**
+     * Finish the trace of the current thread. Commands that reached the hardware are reported to the tracer,
+     * all others are dropped.
+     */
+    public static void end() {
+        CommandTrace trace = CURRENT.get();
+        if (!trace.active) {
+            return;
+        }
+        trace.active = false;
+        if (trace.stageNanos[Stage.ACTUATED.ordinal()] != 0) {
+            tracer.record(trace.method, trace.receivedNanos, trace.stageNanos);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Latency histograms per stage and the sampled traces of a {@link CommandTracer}.
+ * Serializable to JSON.
+ */
+public class CommandTraceReport {
+
+    /**
+     * Number of commands that reached the hardware since start or the last reset.
+     */
+    public long tracedCommands;
+
+    /**
+     * Latency from frame receipt to each stage, keyed by lower case stage name.
+     */
+    public final TreeMap<String, HistogramSnapshot> stages = new TreeMap<>();
+
+    public final List<Sample> samples = new ArrayList<>();
+
+    /**
+     * A single sampled trace. Stage latencies are in nanoseconds since frame receipt, -1 if a stage was skipped.
+     */
+    public static class Sample {
+
+        public final String method;
+
+        public final long timestamp;
+
+        public final long handler;
+
+        public final long apply;
+
+        public final long motor;
+
+        public final long actuated;
+
+        Sample(String method, long timestamp, long[] stageNanos) {
+            this.method = method;
+            this.timestamp = timestamp;
+            this.handler = stageNanos[CommandTrace.Stage.HANDLER.ordinal()];
+            this.apply = stageNanos[CommandTrace.Stage.APPLY.ordinal()];
+            this.motor = stageNanos[CommandTrace.Stage.MOTOR.ordinal()];
+            this.actuated = stageNanos[CommandTrace.Stage.ACTUATED.ordinal()];
+        }
+    }
+}
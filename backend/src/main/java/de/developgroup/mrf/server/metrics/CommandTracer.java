@@ -0,0 +1,109 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects completed {@link CommandTrace}s.
+ *
+ * For every stage the latency since frame receipt goes into a histogram named "trace.&lt;stage&gt;", so
+ * "trace.actuated" is the end-to-end latency from websocket frame to PWM register write. Every
+ * {@link #SAMPLE_INTERVAL}th trace is additionally kept in a ring buffer of the last {@link #CAPACITY} samples.
+ * The ring buffer is preallocated, recording a trace does not allocate.
+ */
+@Singleton
+public class CommandTracer {
+
+    public static final int CAPACITY = 128;
+
+    public static final int SAMPLE_INTERVAL = 4;
+
+    private static final int STAGE_COUNT = CommandTrace.Stage.values().length;
+
+    private final LatencyHistogram[] stageLatencies = new LatencyHistogram[STAGE_COUNT];
+
+    private final AtomicLong traceCount = new AtomicLong();
+
+    private final String[] sampleMethods = new String[CAPACITY];
+
+    private final long[] sampleTimestamps = new long[CAPACITY];
+
+    private final long[] sampleStageNanos = new long[CAPACITY * STAGE_COUNT];
+
+    private long samplesWritten;
+
+    @Inject
+    public CommandTracer(MetricsRegistry registry) {
+        for (CommandTrace.Stage stage : CommandTrace.Stage.values()) {
+            stageLatencies[stage.ordinal()] = registry.histogram("trace." + stage.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Record a completed trace.
+     * @param method name of the traced RPC method, may be null
+     * @param receivedNanos {@link System#nanoTime()} at which the frame arrived
+     * @param stageNanos {@link System#nanoTime()} at which each stage was reached, 0 for stages that were skipped
+     */
+    void record(String method, long receivedNanos, long[] stageNanos) {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            if (stageNanos[i] != 0) {
+                stageLatencies[i].record(stageNanos[i] - receivedNanos);
+            }
+        }
+        if (traceCount.getAndIncrement() % SAMPLE_INTERVAL != 0) {
+            return;
+        }
+        synchronized (sampleMethods) {
+            int slot = (int) (samplesWritten++ % CAPACITY);
+            sampleMethods[slot] = method;
+            sampleTimestamps[slot] = System.currentTimeMillis();
+            for (int i = 0; i < STAGE_COUNT; i++) {
+                sampleStageNanos[slot * STAGE_COUNT + i] = stageNanos[i] == 0 ? -1 : stageNanos[i] - receivedNanos;
+            }
+        }
+    }
+
+    /**
+     * Copy the stage histograms and the sampled traces.
+     * @return report with the most recent sample first
+     */
+    public CommandTraceReport report() {
+        CommandTraceReport report = new CommandTraceReport();
+        for (CommandTrace.Stage stage : CommandTrace.Stage.values()) {
+            report.stages.put(stage.name().toLowerCase(), stageLatencies[stage.ordinal()].snapshot());
+        }
+        report.tracedCommands = traceCount.get();
+        List<CommandTraceReport.Sample> samples = report.samples;
+        synchronized (sampleMethods) {
+            long oldest = Math.max(0, samplesWritten - CAPACITY);
+            for (long i = samplesWritten - 1; i >= oldest; i--) {
+                int slot = (int) (i % CAPACITY);
+                long[] stages = new long[STAGE_COUNT];
+                System.arraycopy(sampleStageNanos, slot * STAGE_COUNT, stages, 0, STAGE_COUNT);
+                samples.add(new CommandTraceReport.Sample(sampleMethods[slot], sampleTimestamps[slot], stages));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Forget all samples and clear the histograms.
+     */
+    public void reset() {
+        synchronized (sampleMethods) {
+            samplesWritten = 0;
+        }
+        for (LatencyHistogram histogram : stageLatencies) {
+            histogram.reset();
+        }
+        traceCount.set(0);
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}. All durations are in nanoseconds.
+ * Serializable to JSON.
+ */
+public class HistogramSnapshot {
+
+    public final long count;
+
+    public final double mean;
+
+    public final long p50;
+
+    public final long p90;
+
+    public final long p99;
+
+    public final long max;
+
+    public HistogramSnapshot(long count, double mean, long p50, long p90, long p99, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count
+                + " mean=" + formatMicros(mean)
+                + " p50=" + formatMicros(p50)
+                + " p90=" + formatMicros(p90)
+                + " p99=" + formatMicros(p99)
+                + " max=" + formatMicros(max);
+    }
+
+    private static String formatMicros(double nanos) {
+        return String.format("%.1fus", nanos / 1000d);
+    }
+}
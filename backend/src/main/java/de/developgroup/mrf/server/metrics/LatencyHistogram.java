@@ -0,0 +1,165 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds with fixed, logarithmic buckets.
+ *
+ * Every power of two is split into four linear sub-buckets, so a recorded value is off by at most 25 percent.
+ * Values from 0 ns up to about 68 s are covered, larger values end up in the last bucket.
+ *
+ * Recording is lock-free and does not allocate, so it is safe to call from the drive and RPC hot paths.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of linear sub-buckets per power of two (must be a power of two itself).
+     */
+    private static final int SUB_BUCKETS = 4;
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /**
+     * Highest power of two that gets its own buckets: 2^36 ns are roughly 68 seconds.
+     */
+    private static final int MAX_EXPONENT = 36;
+
+    /**
+     * Regular buckets for all exponents below {@link #MAX_EXPONENT} plus one overflow bucket.
+     */
+    static final int BUCKET_COUNT = (MAX_EXPONENT - 1) * SUB_BUCKETS + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one duration.
+     * @param nanos duration in nanoseconds; negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Record the time that passed since the given {@link System#nanoTime()} value.
+     * @param startNanos start time as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the mean of all recorded values.
+     * @return mean in nanoseconds, 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0d : (double) sum.get() / n;
+    }
+
+    /**
+     * Estimate the value at the given percentile. The upper bound of the matching bucket is returned, but never more
+     * than the maximum recorded value.
+     * @param percentile value in [0; 100]
+     * @return estimated value in nanoseconds, 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(Math.min(100d, Math.max(0d, percentile)) / 100d * total);
+        rank = Math.max(1, rank);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Reset all buckets and counters. Not atomic with respect to concurrent recordings.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Take a consistent-enough copy of the current state for reporting.
+     * @return snapshot of count, mean, max and the usual percentiles.
+     */
+    public HistogramSnapshot snapshot() {
+        return new HistogramSnapshot(getCount(), getMean(), getValueAtPercentile(50),
+                getValueAtPercentile(90), getValueAtPercentile(99), getMax());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + 1;
+        int subBucket = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket)) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return bucketLowerBound(index + 1) - 1;
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import com.google.inject.Singleton;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Central place for all counters, gauges and latency histograms of the backend.
+ *
+ * Metrics are created on first access and live as long as the registry. Callers on hot paths should look up their
+ * metric once and keep the reference, recording itself then neither locks nor allocates.
+ */
+@Singleton
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Get or create the counter with the given name.
+     * @param name unique metric name, e.g. "rpc.ping.calls"
+     * @return the counter registered under this name
+     */
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, key -> new Counter());
+        }
+        return counter;
+    }
+
+    /**
+     * Get or create the histogram with the given name.
+     * @param name unique metric name, e.g. "rpc.ping.latency"
+     * @return the histogram registered under this name
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Register a gauge that is evaluated whenever metrics are reported. An existing gauge with the same name is
+     * replaced.
+     * @param name unique metric name
+     * @param gauge supplier of the current value
+     */
+    public void gauge(String name, DoubleSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Copy the current values of all metrics.
+     * @return snapshot with all metrics sorted by name
+     */
+    public MetricsSnapshot snapshot() {
+        MetricsSnapshot snapshot = new MetricsSnapshot();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            snapshot.counters.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, DoubleSupplier> entry : gauges.entrySet()) {
+            snapshot.gauges.put(entry.getKey(), entry.getValue().getAsDouble());
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshot.histograms.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Render all metrics as plain text, one metric per line.
+     * @return human readable report
+     */
+    public String toText() {
+        MetricsSnapshot snapshot = snapshot();
+        StringBuilder builder = new StringBuilder();
+        appendSection(builder, snapshot.counters);
+        appendSection(builder, snapshot.gauges);
+        appendSection(builder, snapshot.histograms);
+        return builder.toString();
+    }
+
+    private static void appendSection(StringBuilder builder, TreeMap<String, ?> metrics) {
+        for (Map.Entry<String, ?> entry : metrics.entrySet()) {
+            builder.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+    }
+}
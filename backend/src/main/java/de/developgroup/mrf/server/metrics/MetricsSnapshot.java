@@ -0,0 +1,20 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import java.util.TreeMap;
+
+/**
+ * Point-in-time copy of all metrics in a {@link MetricsRegistry}, sorted by metric name.
+ * Serializable to JSON.
+ */
+public class MetricsSnapshot {
+
+    public final TreeMap<String, Long> counters = new TreeMap<>();
+
+    public final TreeMap<String, Double> gauges = new TreeMap<>();
+
+    public final TreeMap<String, HistogramSnapshot> histograms = new TreeMap<>();
+}
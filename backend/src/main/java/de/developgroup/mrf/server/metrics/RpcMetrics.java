@@ -0,0 +1,88 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.server.rpc.RpcMessageObserver;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-method call counts, error counts and latency histograms of the JSON-RPC endpoint.
+ *
+ * The metrics of a method are named "rpc.&lt;method&gt;.calls", "rpc.&lt;method&gt;.errors" and
+ * "rpc.&lt;method&gt;.latency". Requests that could not be parsed or name an unknown method are collected under
+ * {@link #INVALID_REQUEST} and {@link #UNKNOWN_METHOD}, so clients cannot make the registry grow without bounds.
+ */
+@Singleton
+public class RpcMetrics implements RpcMessageObserver {
+
+    public static final String INVALID_REQUEST = "_invalid";
+
+    public static final String UNKNOWN_METHOD = "_unknown";
+
+    private final MetricsRegistry registry;
+
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    @Inject
+    public RpcMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Record one processed request.
+     * @param method name of the invoked method, or one of {@link #INVALID_REQUEST} and {@link #UNKNOWN_METHOD}
+     * @param startNanos {@link System#nanoTime()} at which processing of the request started
+     * @param failed true if the request resulted in an error response
+     */
+    public void record(String method, long startNanos, boolean failed) {
+        MethodMetrics metrics = forMethod(method);
+        metrics.latency.recordSince(startNanos);
+        metrics.calls.increment();
+        if (failed) {
+            metrics.errors.increment();
+        }
+    }
+
+    @Override
+    public void onProcessed(String method, long startNanos, boolean failed) {
+        record(method, startNanos, failed);
+    }
+
+    /**
+     * Get the metrics of one method, creating them on first use.
+     * @param method name of the method
+     * @return metrics for this method
+     */
+    public MethodMetrics forMethod(String method) {
+        MethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(method, name -> new MethodMetrics(registry, name));
+        }
+        return metrics;
+    }
+
+    /**
+     * Metrics of a single RPC method.
+     */
+    public static class MethodMetrics {
+
+        public final Counter calls;
+
+        public final Counter errors;
+
+        public final LatencyHistogram latency;
+
+        MethodMetrics(MetricsRegistry registry, String method) {
+            String prefix = "rpc." + method + ".";
+            calls = registry.counter(prefix + "calls");
+            errors = registry.counter(prefix + "errors");
+            latency = registry.histogram(prefix + "latency");
+        }
+    }
+}
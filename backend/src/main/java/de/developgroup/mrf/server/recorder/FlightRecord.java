@@ -0,0 +1,125 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.recorder;
+
+/**
+ * Layout of the segment files written by the {@link FlightRecorder}, all values big endian.
+ *
+ * A segment starts with a header of one record size: magic, version, record size, creation time and sequence number
+ * of the segment. The records follow back to back, each {@link #SIZE} bytes. Every record starts with the wall clock
+ * time, the {@link System#nanoTime()} at which it was written, its type and one int whose meaning depends on the type.
+ * The type is written last, so a record of type 0 marks the end of the segment, even after a crash.
+ *
+ * An RPC message that does not fit into its record continues in the following records of type
+ * {@link #RPC_CONTINUATION}, which only hold the type and the next bytes of the message.
+ */
+public final class FlightRecord {
+
+    /**
+     * Size of the header and of every record, in bytes.
+     */
+    public static final int SIZE = 64;
+
+    /**
+     * One collision poll, the int after the type holds the mask of the polled sensors.
+     */
+    public static final int COLLISION = 1;
+
+    /**
+     * Motor settings that were applied.
+     */
+    public static final int MOTOR = 2;
+
+    /**
+     * An inbound RPC message, the int after the type holds the id of the client.
+     */
+    public static final int RPC = 3;
+
+    /**
+     * More bytes of the preceding RPC message.
+     */
+    public static final int RPC_CONTINUATION = 4;
+
+    /**
+     * Number of IR sensors in a collision record.
+     */
+    public static final int SENSORS = 4;
+
+    /**
+     * Longer RPC messages are truncated.
+     */
+    public static final int MAX_MESSAGE_LENGTH = 4096;
+
+    static final int MAGIC = 0x4D524652;
+
+    static final short VERSION = 1;
+
+    /*
+     * Header
+     */
+    static final int HEADER_MAGIC = 0;
+
+    static final int HEADER_VERSION = 4;
+
+    static final int HEADER_RECORD_SIZE = 6;
+
+    static final int HEADER_CREATED = 8;
+
+    static final int HEADER_SEQUENCE = 16;
+
+    /*
+     * Every record
+     */
+    static final int TIME_MILLIS = 0;
+
+    static final int NANOS = 8;
+
+    static final int TYPE = 16;
+
+    static final int AUX = 20;
+
+    /*
+     * Collision: packed state, ambient and lit ADC values as shorts, compensated percentages as floats
+     */
+    static final int COLLISION_STATE = 24;
+
+    static final int COLLISION_AMBIENT = 28;
+
+    static final int COLLISION_LIT = COLLISION_AMBIENT + 2 * SENSORS;
+
+    static final int COLLISION_COMPENSATED = COLLISION_LIT + 2 * SENSORS;
+
+    /*
+     * Motor: left and right percentage as doubles
+     */
+    static final int MOTOR_LEFT = 24;
+
+    static final int MOTOR_RIGHT = 32;
+
+    /*
+     * RPC: length of the UTF-8 message, then its first bytes. Continuations hold bytes from behind their type.
+     */
+    static final int RPC_LENGTH = 24;
+
+    static final int RPC_TEXT = 28;
+
+    static final int RPC_CONTINUATION_TEXT = 20;
+
+    private FlightRecord() {
+    }
+
+    /**
+     * @param length length of an RPC message in bytes
+     * @return number of records the message takes
+     */
+    static int rpcRecords(int length) {
+        int remaining = length - (SIZE - RPC_TEXT);
+        if (remaining <= 0) {
+            return 1;
+        }
+        int chunk = SIZE - RPC_CONTINUATION_TEXT;
+        return 1 + (remaining + chunk - 1) / chunk;
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.recorder;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the records of one segment file of the {@link FlightRecorder}, oldest first. The reader points to one record
+ * at a time, whose values are read with the getters matching its type:
+ *
+ * <pre>
+ * FlightRecordReader reader = new FlightRecordReader(segment);
+ * while (reader.next()) {
+ *     if (reader.getType() == FlightRecord.MOTOR) {
+ *         ... reader.getLeftMotor() ...
+ *     }
+ * }
+ * </pre>
+ */
+public final class FlightRecordReader {
+
+    private final MappedByteBuffer buffer;
+
+    private final long sequence;
+
+    private int current = -1;
+
+    private int next = FlightRecord.SIZE;
+
+    /**
+     * @param segment a segment file
+     * @throws IOException if the file cannot be read or is no segment file
+     */
+    public FlightRecordReader(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < FlightRecord.SIZE || buffer.getInt(FlightRecord.HEADER_MAGIC) != FlightRecord.MAGIC) {
+            throw new IOException(segment + " is no flight recorder segment");
+        }
+        if (buffer.getShort(FlightRecord.HEADER_VERSION) != FlightRecord.VERSION
+                || buffer.getShort(FlightRecord.HEADER_RECORD_SIZE) != FlightRecord.SIZE) {
+            throw new IOException("Unsupported version of flight recorder segment " + segment);
+        }
+        sequence = buffer.getLong(FlightRecord.HEADER_SEQUENCE);
+    }
+
+    /**
+     * @param directory directory the recorder wrote to
+     * @return the segment files in the directory, oldest first
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                FlightRecorder.SEGMENT_PREFIX + "[0-9]*" + FlightRecorder.SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        // the sequence numbers have a fixed number of digits
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * @return sequence number of the segment
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getCreatedMillis() {
+        return buffer.getLong(FlightRecord.HEADER_CREATED);
+    }
+
+    /**
+     * Move to the next record.
+     * @return false if there are no more records
+     */
+    public boolean next() {
+        while (next + FlightRecord.SIZE <= buffer.limit()) {
+            int offset = next;
+            int type = buffer.getInt(offset + FlightRecord.TYPE);
+            if (type == 0) {
+                return false;
+            }
+            next += FlightRecord.SIZE;
+            if (type == FlightRecord.RPC) {
+                next += (FlightRecord.rpcRecords(buffer.getInt(offset + FlightRecord.RPC_LENGTH)) - 1)
+                        * FlightRecord.SIZE;
+            }
+            if (type != FlightRecord.RPC_CONTINUATION) {
+                current = offset;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return type of the record, e.g. {@link FlightRecord#COLLISION}
+     */
+    public int getType() {
+        return buffer.getInt(current + FlightRecord.TYPE);
+    }
+
+    /**
+     * @return wall clock time of the record, in milliseconds since the epoch
+     */
+    public long getTimeMillis() {
+        return buffer.getLong(current + FlightRecord.TIME_MILLIS);
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the record, only comparable within a run of the backend
+     */
+    public long getNanos() {
+        return buffer.getLong(current + FlightRecord.NANOS);
+    }
+
+    /**
+     * @return mask of the polled sensors of a collision record
+     */
+    public int getSensors() {
+        return buffer.getInt(current + FlightRecord.AUX);
+    }
+
+    /**
+     * @return packed collision state of a collision record
+     */
+    public int getCollisionState() {
+        return buffer.getInt(current + FlightRecord.COLLISION_STATE);
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @return ADC value with the IR LED off
+     */
+    public int getAmbient(int sensor) {
+        return buffer.getShort(current + FlightRecord.COLLISION_AMBIENT + 2 * sensor);
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @return ADC value with the IR LED on
+     */
+    public int getLit(int sensor) {
+        return buffer.getShort(current + FlightRecord.COLLISION_LIT + 2 * sensor);
+    }
+
+    /**
+     * @param sensor index of the sensor
+     * @return compensated percentage
+     */
+    public double getCompensated(int sensor) {
+        return buffer.getFloat(current + FlightRecord.COLLISION_COMPENSATED + 4 * sensor);
+    }
+
+    public double getLeftMotor() {
+        return buffer.getDouble(current + FlightRecord.MOTOR_LEFT);
+    }
+
+    public double getRightMotor() {
+        return buffer.getDouble(current + FlightRecord.MOTOR_RIGHT);
+    }
+
+    /**
+     * @return id of the client that sent an RPC message
+     */
+    public int getClientId() {
+        return buffer.getInt(current + FlightRecord.AUX);
+    }
+
+    /**
+     * @return the RPC message, truncated to {@link FlightRecord#MAX_MESSAGE_LENGTH} bytes
+     */
+    public String getMessage() {
+        int length = buffer.getInt(current + FlightRecord.RPC_LENGTH);
+        byte[] bytes = new byte[length];
+        int read = getBytes(current + FlightRecord.RPC_TEXT, bytes, 0);
+        for (int record = current + FlightRecord.SIZE; read < length; record += FlightRecord.SIZE) {
+            read += getBytes(record + FlightRecord.RPC_CONTINUATION_TEXT, bytes, read);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getBytes(int offset, byte[] bytes, int from) {
+        int count = Math.min(bytes.length - from, FlightRecord.SIZE - (offset % FlightRecord.SIZE));
+        for (int i = 0; i < count; i++) {
+            bytes[from + i] = buffer.get(offset + i);
+        }
+        return count;
+    }
+}
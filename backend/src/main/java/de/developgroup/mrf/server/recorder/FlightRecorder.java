@@ -0,0 +1,401 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.recorder;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.rpc.RpcMessageObserver;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Records collision polls, applied motor settings and inbound RPC messages in binary segment files, for the analysis
+ * of incidents. See {@link FlightRecord} for the format and {@link FlightRecordReader} to read them.
+ *
+ * Every segment is preallocated and mapped into memory, so recording only copies a fixed-size record into the
+ * mapping, without a system call. The kernel writes the pages back, so the records survive a crash of the JVM. The
+ * next segment is preallocated and mapped on the recorder's own thread while the current one fills up, and a full
+ * segment is only swapped for it. Writing back the full segment and deleting the oldest ones to stay within the disk
+ * budget also happen on that thread, so recording never waits for the disk, e.g. while the motors are stopped. If the
+ * next segment is not ready yet, records are dropped. Nothing is recorded until the recorder is started.
+ */
+@Singleton
+public class FlightRecorder implements RpcMessageObserver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecorder.class);
+
+    static final String SEGMENT_PREFIX = "flight-";
+
+    static final String SEGMENT_SUFFIX = ".rec";
+
+    private static final int ZERO_BLOCK_SIZE = 64 * 1024;
+
+    private final Counter records;
+
+    private final Counter segments;
+
+    private final Counter dropped;
+
+    /**
+     * Runs the preallocation, write back and deletion of segments, in order.
+     */
+    private final Executor background;
+
+    /*
+     * Guarded by this, segment is also read without the lock to skip recording while stopped.
+     */
+    private volatile MappedByteBuffer segment;
+
+    private int position;
+
+    /*
+     * The preallocated next segment, set by the background thread and taken when the current segment is full.
+     */
+    private volatile MappedByteBuffer nextSegment;
+
+    private volatile boolean preallocationFailed;
+
+    /*
+     * Only used by start and by the background tasks, which start waits for.
+     */
+    private Path directory;
+
+    private long segmentSize;
+
+    private long budget;
+
+    private long nextSequence;
+
+    private final Deque<Path> segmentFiles = new ArrayDeque<>();
+
+    /**
+     * Create a recorder that manages its segments on its own daemon thread.
+     */
+    @Inject
+    public FlightRecorder(MetricsRegistry metricsRegistry) {
+        this(metricsRegistry, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flight-recorder");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param metricsRegistry registry for the recorder's metrics
+     * @param background executor for the disk operations on segments, must run them in order
+     */
+    FlightRecorder(MetricsRegistry metricsRegistry, Executor background) {
+        this.background = background;
+        records = metricsRegistry.counter("flightRecorder.records");
+        segments = metricsRegistry.counter("flightRecorder.segments");
+        dropped = metricsRegistry.counter("flightRecorder.dropped");
+    }
+
+    /**
+     * Read the settings from rover.properties and start recording if enabled.
+     * @param configurationProvider provider of rover.properties
+     */
+    public void start(ConfigurationProvider configurationProvider) {
+        FlightRecorderConfiguration configuration;
+        try {
+            configuration = configurationProvider.bind("flightRecorder", FlightRecorderConfiguration.class);
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No flight recorder configuration found, not recording");
+            return;
+        }
+        if (!configuration.enabled()) {
+            LOGGER.info("Flight recorder disabled");
+            return;
+        }
+        try {
+            start(Paths.get(configuration.directory()), configuration.segmentSize(), configuration.budget());
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.error("Cannot start flight recorder, not recording: " + e);
+        }
+    }
+
+    /**
+     * Start recording into the given directory, after the segments recorded there before.
+     * @param directory directory of the segment files, created if missing
+     * @param segmentSize size of a segment file in bytes, rounded down to whole records
+     * @param budget disk space of all segment files together, including the preallocated one; two are always kept
+     * @throws IOException if the first segment cannot be created
+     */
+    public synchronized void start(Path directory, long segmentSize, long budget) throws IOException {
+        segmentSize -= segmentSize % FlightRecord.SIZE;
+        if (segmentSize < 2 * FlightRecord.SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size " + segmentSize);
+        }
+        if (budget < segmentSize) {
+            throw new IllegalArgumentException("Budget must hold at least one segment");
+        }
+        stop();
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.budget = budget;
+        Files.createDirectories(directory);
+        segmentFiles.clear();
+        List<Path> existing = FlightRecordReader.listSegments(directory);
+        segmentFiles.addAll(existing);
+        nextSequence = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1)) + 1;
+        preallocationFailed = false;
+        segment = createSegment();
+        position = FlightRecord.SIZE;
+        background.execute(this::preallocateNextSegment);
+        LOGGER.info("Flight recorder writes to " + directory.toAbsolutePath());
+    }
+
+    /**
+     * Stop recording, write the current segment back to disk and delete the preallocated next segment. Waits for the
+     * background tasks to finish.
+     */
+    public synchronized void stop() {
+        if (segment == null) {
+            return;
+        }
+        MappedByteBuffer last = segment;
+        segment = null;
+        CountDownLatch stopped = new CountDownLatch(1);
+        background.execute(() -> {
+            try {
+                last.force();
+                if (nextSegment != null) {
+                    nextSegment = null;
+                    Files.deleteIfExists(segmentFiles.removeLast());
+                }
+            } catch (IOException e) {
+                LOGGER.error("Cannot delete unused flight recorder segment: " + e);
+            } finally {
+                stopped.countDown();
+            }
+        });
+        boolean interrupted = false;
+        while (true) {
+            try {
+                stopped.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRecording() {
+        return segment != null;
+    }
+
+    /**
+     * Record a collision poll.
+     * @param sensors mask of the polled sensors, the others hold the values of an earlier poll
+     * @param state the packed collision state
+     * @param ambient ADC values of the sensors with the IR LEDs off
+     * @param lit ADC values of the sensors with the IR LEDs on
+     * @param compensated compensated percentages of the sensors
+     */
+    public void recordCollision(int sensors, int state, int[] ambient, int[] lit, double[] compensated) {
+        if (segment == null) {
+            return;
+        }
+        synchronized (this) {
+            int offset = claim(1);
+            if (offset < 0) {
+                return;
+            }
+            MappedByteBuffer buffer = segment;
+            buffer.putInt(offset + FlightRecord.COLLISION_STATE, state);
+            for (int i = 0; i < FlightRecord.SENSORS; i++) {
+                buffer.putShort(offset + FlightRecord.COLLISION_AMBIENT + 2 * i, (short) ambient[i]);
+                buffer.putShort(offset + FlightRecord.COLLISION_LIT + 2 * i, (short) lit[i]);
+                buffer.putFloat(offset + FlightRecord.COLLISION_COMPENSATED + 4 * i, (float) compensated[i]);
+            }
+            finish(buffer, offset, FlightRecord.COLLISION, sensors);
+        }
+    }
+
+    /**
+     * Record motor settings that were applied.
+     * @param left percentage of the left motor
+     * @param right percentage of the right motor
+     */
+    public void recordMotorSettings(double left, double right) {
+        if (segment == null) {
+            return;
+        }
+        synchronized (this) {
+            int offset = claim(1);
+            if (offset < 0) {
+                return;
+            }
+            MappedByteBuffer buffer = segment;
+            buffer.putDouble(offset + FlightRecord.MOTOR_LEFT, left);
+            buffer.putDouble(offset + FlightRecord.MOTOR_RIGHT, right);
+            finish(buffer, offset, FlightRecord.MOTOR, 0);
+        }
+    }
+
+    @Override
+    public void onInbound(int clientId, String message) {
+        recordRpc(clientId, message);
+    }
+
+    /**
+     * Record an inbound RPC message, as received.
+     * @param clientId id of the sending client, -1 if unknown
+     * @param message the JSON-RPC message
+     */
+    public void recordRpc(int clientId, String message) {
+        if (segment == null) {
+            return;
+        }
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, FlightRecord.MAX_MESSAGE_LENGTH);
+        synchronized (this) {
+            int count = FlightRecord.rpcRecords(length);
+            int offset = claim(count);
+            if (offset < 0) {
+                return;
+            }
+            MappedByteBuffer buffer = segment;
+            buffer.putInt(offset + FlightRecord.RPC_LENGTH, length);
+            int written = putBytes(buffer, offset + FlightRecord.RPC_TEXT, bytes, 0, length);
+            for (int i = 1; i < count; i++) {
+                int continuation = offset + i * FlightRecord.SIZE;
+                written += putBytes(buffer, continuation + FlightRecord.RPC_CONTINUATION_TEXT, bytes, written,
+                        length - written);
+                buffer.putInt(continuation + FlightRecord.TYPE, FlightRecord.RPC_CONTINUATION);
+            }
+            // the first record last, so a reader never sees an incomplete message
+            finish(buffer, offset, FlightRecord.RPC, clientId);
+        }
+    }
+
+    private static int putBytes(MappedByteBuffer buffer, int offset, byte[] bytes, int from, int length) {
+        int count = Math.min(length, FlightRecord.SIZE - (offset % FlightRecord.SIZE));
+        for (int i = 0; i < count; i++) {
+            buffer.put(offset + i, bytes[from + i]);
+        }
+        return count;
+    }
+
+    private void finish(MappedByteBuffer buffer, int offset, int type, int aux) {
+        buffer.putLong(offset + FlightRecord.TIME_MILLIS, System.currentTimeMillis());
+        buffer.putLong(offset + FlightRecord.NANOS, System.nanoTime());
+        buffer.putInt(offset + FlightRecord.AUX, aux);
+        buffer.putInt(offset + FlightRecord.TYPE, type);
+        records.increment();
+    }
+
+    /**
+     * Reserve consecutive records, in the preallocated next segment if the current one is full.
+     * @return offset of the first record, -1 if the records are dropped
+     */
+    private int claim(int count) {
+        int length = count * FlightRecord.SIZE;
+        if (segment != null && position + length > segmentSize) {
+            MappedByteBuffer next = nextSegment;
+            if (next != null) {
+                MappedByteBuffer full = segment;
+                nextSegment = null;
+                segment = next;
+                position = FlightRecord.SIZE;
+                background.execute(() -> {
+                    full.force();
+                    preallocateNextSegment();
+                });
+            } else if (preallocationFailed) {
+                segment = null;
+            }
+        }
+        if (segment == null || position + length > segmentSize) {
+            dropped.increment();
+            return -1;
+        }
+        int offset = position;
+        position += length;
+        return offset;
+    }
+
+    /**
+     * Create the next segment and delete the oldest ones that exceed the budget. Runs on the background thread.
+     */
+    private void preallocateNextSegment() {
+        if (segment == null) {
+            // stopped meanwhile
+            return;
+        }
+        try {
+            MappedByteBuffer next = createSegment();
+            long total = 0;
+            for (Path existing : segmentFiles) {
+                total += Files.size(existing);
+            }
+            // never the segment in use and the next one
+            while (total > budget && segmentFiles.size() > 2) {
+                Path oldest = segmentFiles.removeFirst();
+                total -= Files.size(oldest);
+                Files.delete(oldest);
+            }
+            nextSegment = next;
+        } catch (IOException e) {
+            LOGGER.error("Cannot create flight recorder segment, recording stops with the current one: " + e);
+            preallocationFailed = true;
+        }
+    }
+
+    private MappedByteBuffer createSegment() throws IOException {
+        long sequence = nextSequence++;
+        Path file = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            // write zeros instead of a sparse file, so the disk space is taken now and not while recording
+            ByteBuffer zeros = ByteBuffer.allocate(ZERO_BLOCK_SIZE);
+            channel.truncate(0);
+            for (long written = 0; written < segmentSize; ) {
+                zeros.clear();
+                zeros.limit((int) Math.min(ZERO_BLOCK_SIZE, segmentSize - written));
+                written += channel.write(zeros, written);
+            }
+            // the mapping stays valid after the file is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buffer.putInt(FlightRecord.HEADER_MAGIC, FlightRecord.MAGIC);
+        buffer.putShort(FlightRecord.HEADER_VERSION, FlightRecord.VERSION);
+        buffer.putShort(FlightRecord.HEADER_RECORD_SIZE, (short) FlightRecord.SIZE);
+        buffer.putLong(FlightRecord.HEADER_CREATED, System.currentTimeMillis());
+        buffer.putLong(FlightRecord.HEADER_SEQUENCE, sequence);
+        segmentFiles.addLast(file);
+        segments.increment();
+        return buffer;
+    }
+
+    private static long sequenceOf(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
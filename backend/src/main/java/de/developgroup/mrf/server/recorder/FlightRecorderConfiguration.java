@@ -0,0 +1,25 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.recorder;
+
+public interface FlightRecorderConfiguration {
+
+    boolean enabled();
+
+    /**
+     * Directory of the segment files, relative to the working directory.
+     */
+    String directory();
+
+    /**
+     * Size of one segment file in bytes.
+     */
+    long segmentSize();
+
+    /**
+     * Disk space all segment files may take together, in bytes. The oldest segments are deleted to stay within.
+     */
+    long budget();
+}
@@ -0,0 +1,57 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.replay;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.rover.pcf8591.PCF8591ADConverter;
+
+/**
+ * A/D converter for replays, which answers with the readings of the recorded collision poll: the lit reading while
+ * the IR LEDs are switched on, the ambient reading otherwise.
+ */
+@Singleton
+public class ReplayADConverter implements PCF8591ADConverter {
+
+    private static final int CHANNELS = InputChannel.values().length;
+
+    private final ReplayGpioController gpio;
+
+    /*
+     * Set and read by the replay thread.
+     */
+    private final int[] ambient = new int[CHANNELS];
+
+    private final int[] lit = new int[CHANNELS];
+
+    @Inject
+    public ReplayADConverter(ReplayGpioController gpio) {
+        this.gpio = gpio;
+    }
+
+    /**
+     * Set the readings of a channel for the next poll.
+     * @param channel the channel
+     * @param ambientReading reading with the IR LED off
+     * @param litReading reading with the IR LED on
+     */
+    public void setReadings(InputChannel channel, int ambientReading, int litReading) {
+        ambient[channel.getValue()] = ambientReading;
+        lit[channel.getValue()] = litReading;
+    }
+
+    @Override
+    public int getChannelValue(InputChannel channel) {
+        return gpio.isIrLedsOn() ? lit[channel.getValue()] : ambient[channel.getValue()];
+    }
+
+    @Override
+    public void getChannelValues(int[] values) {
+        boolean irLedsOn = gpio.isIrLedsOn();
+        for (int i = 0; i < CHANNELS; i++) {
+            values[i] = irLedsOn ? lit[i] : ambient[i];
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.replay;
+
+import com.google.inject.Singleton;
+import com.pi4j.io.gpio.PinState;
+import de.developgroup.mrf.rover.gpio.EmulatedGpioController;
+
+/**
+ * GPIO controller for replays, which remembers whether the IR LEDs were switched on last, so the
+ * {@link ReplayADConverter} can answer with the recorded lit or ambient reading.
+ */
+@Singleton
+public class ReplayGpioController extends EmulatedGpioController {
+
+    private volatile boolean irLedsOn;
+
+    @Override
+    protected void onStateChanged(PinState pinState) {
+        irLedsOn = pinState.isHigh();
+    }
+
+    /**
+     * @return true if the IR LEDs were switched on last
+     */
+    public boolean isIrLedsOn() {
+        return irLedsOn;
+    }
+}
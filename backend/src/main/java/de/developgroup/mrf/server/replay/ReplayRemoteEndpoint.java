@@ -0,0 +1,87 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.replay;
+
+import de.developgroup.mrf.server.metrics.Counter;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Counts and discards everything the backend sends to a replayed client.
+ */
+final class ReplayRemoteEndpoint implements RemoteEndpoint {
+
+    private final Counter sent;
+
+    ReplayRemoteEndpoint(Counter sent) {
+        this.sent = sent;
+    }
+
+    @Override
+    public void sendBytes(ByteBuffer data) {
+        sent.increment();
+    }
+
+    @Override
+    public Future<Void> sendBytesByFuture(ByteBuffer data) {
+        sent.increment();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void sendBytes(ByteBuffer data, WriteCallback callback) {
+        sent.increment();
+        callback.writeSuccess();
+    }
+
+    @Override
+    public void sendPartialBytes(ByteBuffer fragment, boolean isLast) {
+        sent.increment();
+    }
+
+    @Override
+    public void sendPartialString(String fragment, boolean isLast) {
+        sent.increment();
+    }
+
+    @Override
+    public void sendPing(ByteBuffer applicationData) {
+    }
+
+    @Override
+    public void sendPong(ByteBuffer applicationData) {
+    }
+
+    @Override
+    public void sendString(String text) {
+        sent.increment();
+    }
+
+    @Override
+    public Future<Void> sendStringByFuture(String text) {
+        sent.increment();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void sendString(String text, WriteCallback callback) {
+        sent.increment();
+        callback.writeSuccess();
+    }
+
+    @Override
+    public BatchMode getBatchMode() {
+        return BatchMode.OFF;
+    }
+
+    @Override
+    public void flush() {
+    }
+}
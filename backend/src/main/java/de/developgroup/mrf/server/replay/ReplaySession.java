@@ -0,0 +1,113 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.replay;
+
+import org.eclipse.jetty.websocket.api.CloseStatus;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.SuspendToken;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.eclipse.jetty.websocket.api.UpgradeResponse;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Websocket session of a replayed client, without a connection.
+ */
+final class ReplaySession implements Session {
+
+    private static final InetSocketAddress ADDRESS = InetSocketAddress.createUnresolved("replay", 0);
+
+    private final RemoteEndpoint remote;
+
+    private volatile boolean open = true;
+
+    private volatile long idleTimeout;
+
+    ReplaySession(RemoteEndpoint remote) {
+        this.remote = remote;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void close(CloseStatus closeStatus) {
+        open = false;
+    }
+
+    @Override
+    public void close(int statusCode, String reason) {
+        open = false;
+    }
+
+    @Override
+    public void disconnect() {
+        open = false;
+    }
+
+    @Override
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return ADDRESS;
+    }
+
+    @Override
+    public WebSocketPolicy getPolicy() {
+        return WebSocketPolicy.newServerPolicy();
+    }
+
+    @Override
+    public String getProtocolVersion() {
+        return "13";
+    }
+
+    @Override
+    public RemoteEndpoint getRemote() {
+        return remote;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return ADDRESS;
+    }
+
+    @Override
+    public UpgradeRequest getUpgradeRequest() {
+        return null;
+    }
+
+    @Override
+    public UpgradeResponse getUpgradeResponse() {
+        return null;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public void setIdleTimeout(long ms) {
+        idleTimeout = ms;
+    }
+
+    @Override
+    public SuspendToken suspend() {
+        return () -> { };
+    }
+}
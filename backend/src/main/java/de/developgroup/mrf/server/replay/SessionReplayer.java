@@ -0,0 +1,226 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.replay;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.recorder.FlightRecord;
+import de.developgroup.mrf.server.recorder.FlightRecordReader;
+import de.developgroup.mrf.server.rpc.JsonRpc2Socket;
+import de.developgroup.mrf.server.socket.RoverSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Replays the recordings of the {@link de.developgroup.mrf.server.recorder.FlightRecorder} through the real backend,
+ * to reproduce field sessions without hardware.
+ *
+ * Recorded collision polls are fed into the {@link ReplayADConverter} and polled by the {@link CollisionRunnable},
+ * instead of its own thread, on a clock that follows the recording. Recorded RPC messages are sent to a websocket of
+ * their client, which is connected to the client manager with a {@link ReplaySession} on its first message. Motor
+ * settings are not replayed, they follow from the replayed commands.
+ *
+ * Records are replayed in the pace they were recorded in, sped up by a factor, or as fast as possible. Where the
+ * recording continues after a restart of the backend, the records of the next run follow immediately.
+ */
+@Singleton
+public class SessionReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionReplayer.class);
+
+    /**
+     * Wall clock and monotonic clock of two records disagree by more if a restart lies between them.
+     */
+    static final long MAX_CLOCK_DRIFT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final CollisionRunnable collisionRunnable;
+
+    private final ReplayADConverter converter;
+
+    private final Supplier<JsonRpc2Socket> socketFactory;
+
+    private final Counter records;
+
+    private final Counter messages;
+
+    private final Counter sent;
+
+    private final Counter mismatches;
+
+    /**
+     * Websockets of the replayed clients by their recorded ids, only used by the replay thread.
+     */
+    private final Map<Integer, JsonRpc2Socket> sockets = new LinkedHashMap<>();
+
+    @Inject
+    public SessionReplayer(CollisionRunnable collisionRunnable, ReplayADConverter converter,
+                           MetricsRegistry metricsRegistry) {
+        this(collisionRunnable, converter, metricsRegistry, RoverSocket::new);
+    }
+
+    SessionReplayer(CollisionRunnable collisionRunnable, ReplayADConverter converter,
+                    MetricsRegistry metricsRegistry, Supplier<JsonRpc2Socket> socketFactory) {
+        this.collisionRunnable = collisionRunnable;
+        this.converter = converter;
+        this.socketFactory = socketFactory;
+        records = metricsRegistry.counter("replay.records");
+        messages = metricsRegistry.counter("replay.messages.received");
+        sent = metricsRegistry.counter("replay.messages.sent");
+        mismatches = metricsRegistry.counter("replay.collision.mismatches");
+    }
+
+    /**
+     * Replay all segments of a recording, then disconnect the replayed clients.
+     * @param directory directory the flight recorder wrote to
+     * @param speed factor to speed up the replay by, {@link Double#POSITIVE_INFINITY} to replay as fast as possible
+     * @throws IOException if the recording cannot be read
+     */
+    public void replay(Path directory, double speed) throws IOException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Replay speed must be greater than zero");
+        }
+        List<Path> segments = FlightRecordReader.listSegments(directory);
+        if (segments.isEmpty()) {
+            throw new IOException("No recording found in " + directory.toAbsolutePath());
+        }
+        LOGGER.info("Replaying " + segments.size() + " segments from " + directory.toAbsolutePath());
+
+        long startNanos = System.nanoTime();
+        long elapsedNanos = 0;
+        boolean first = true;
+        long previousNanos = 0;
+        long previousMillis = 0;
+        try {
+            for (Path segment : segments) {
+                FlightRecordReader reader = new FlightRecordReader(segment);
+                while (reader.next()) {
+                    if (!first) {
+                        elapsedNanos += gapNanos(reader.getNanos() - previousNanos,
+                                reader.getTimeMillis() - previousMillis);
+                    }
+                    first = false;
+                    previousNanos = reader.getNanos();
+                    previousMillis = reader.getTimeMillis();
+
+                    if (!Double.isInfinite(speed)) {
+                        waitUntil(startNanos + (long) (elapsedNanos / speed));
+                    }
+                    replayRecord(reader, startNanos + elapsedNanos);
+                    records.increment();
+                }
+            }
+        } finally {
+            disconnectClients();
+        }
+        LOGGER.info("Replayed " + records.get() + " records in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms, recorded duration "
+                + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms, " + mismatches.get()
+                + " collision states differ from the recording");
+    }
+
+    /**
+     * @return time between two records, 0 if the backend was restarted between them
+     */
+    static long gapNanos(long deltaNanos, long deltaMillis) {
+        if (deltaNanos < 0 || Math.abs(deltaNanos - TimeUnit.MILLISECONDS.toNanos(deltaMillis))
+                > MAX_CLOCK_DRIFT_NANOS) {
+            return 0;
+        }
+        return deltaNanos;
+    }
+
+    private static void waitUntil(long dueNanos) {
+        long waitNanos;
+        while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    private void replayRecord(FlightRecordReader reader, long nowNanos) throws IOException {
+        switch (reader.getType()) {
+            case FlightRecord.COLLISION:
+                for (int sensor = 0; sensor < FlightRecord.SENSORS; sensor++) {
+                    converter.setReadings(CollisionRunnable.getSensorChannel(sensor), reader.getAmbient(sensor),
+                            reader.getLit(sensor));
+                }
+                if (collisionRunnable.replayPoll(reader.getSensors(), nowNanos) != reader.getCollisionState()) {
+                    mismatches.increment();
+                }
+                break;
+            case FlightRecord.RPC:
+                int recordedClientId = reader.getClientId();
+                JsonRpc2Socket socket = sockets.get(recordedClientId);
+                if (socket == null) {
+                    socket = socketFactory.get();
+                    socket.onWebSocketConnect(new ReplaySession(new ReplayRemoteEndpoint(sent)));
+                    sockets.put(recordedClientId, socket);
+                }
+                messages.increment();
+                socket.onWebSocketText(remapClientId(reader.getMessage(), recordedClientId, socket.getClientId()));
+                break;
+            default:
+                // motor settings follow from the replayed commands
+        }
+    }
+
+    /**
+     * Replace the recorded client id by the id the client got in the replay. Methods of clients take the id as first
+     * parameter. Ids start above 5000, so no other first parameter is mistaken for one.
+     * @return the message with the id replaced, the message itself if it holds no id or is no valid JSON
+     */
+    public static String remapClientId(String message, int recordedClientId, int clientId) {
+        if (recordedClientId == clientId) {
+            return message;
+        }
+        try {
+            JsonElement element = new JsonParser().parse(message);
+            if (!element.isJsonObject()) {
+                return message;
+            }
+            JsonObject request = element.getAsJsonObject();
+            JsonElement params = request.get("params");
+            if (params == null || !params.isJsonArray() || params.getAsJsonArray().size() == 0) {
+                return message;
+            }
+            JsonArray array = params.getAsJsonArray();
+            JsonElement firstParam = array.get(0);
+            if (!firstParam.isJsonPrimitive() || !firstParam.getAsJsonPrimitive().isNumber()
+                    || firstParam.getAsDouble() != recordedClientId) {
+                return message;
+            }
+            array.set(0, new JsonPrimitive(clientId));
+            return request.toString();
+        } catch (JsonParseException | IllegalStateException e) {
+            // replay invalid messages as they were received
+            return message;
+        }
+    }
+
+    private void disconnectClients() {
+        for (JsonRpc2Socket socket : sockets.values()) {
+            socket.getSession().close();
+            socket.onWebSocketClose(1000, "Replay finished");
+        }
+        sockets.clear();
+    }
+}
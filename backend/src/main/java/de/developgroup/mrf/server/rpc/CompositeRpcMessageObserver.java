@@ -0,0 +1,58 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.rpc;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.server.capture.TrafficCapture;
+import de.developgroup.mrf.server.metrics.RpcMetrics;
+import de.developgroup.mrf.server.recorder.FlightRecorder;
+
+/**
+ * Passes the messages of the sockets on to the RPC metrics, the flight recorder and the traffic capture, in this order.
+ */
+@Singleton
+public class CompositeRpcMessageObserver implements RpcMessageObserver {
+
+    private final RpcMessageObserver[] observers;
+
+    @Inject
+    public CompositeRpcMessageObserver(RpcMetrics rpcMetrics, FlightRecorder flightRecorder,
+                                       TrafficCapture trafficCapture) {
+        this(new RpcMessageObserver[] {rpcMetrics, flightRecorder, trafficCapture});
+    }
+
+    public CompositeRpcMessageObserver(RpcMessageObserver... observers) {
+        this.observers = observers.clone();
+    }
+
+    @Override
+    public void onInbound(int clientId, String message) {
+        for (RpcMessageObserver observer : observers) {
+            observer.onInbound(clientId, message);
+        }
+    }
+
+    @Override
+    public void onProcessed(String method, long startNanos, boolean failed) {
+        for (RpcMessageObserver observer : observers) {
+            observer.onProcessed(method, startNanos, failed);
+        }
+    }
+
+    @Override
+    public void onOutbound(int clientId, String message) {
+        for (RpcMessageObserver observer : observers) {
+            observer.onOutbound(clientId, message);
+        }
+    }
+
+    @Override
+    public void onClose(int clientId) {
+        for (RpcMessageObserver observer : observers) {
+            observer.onClose(clientId);
+        }
+    }
+}
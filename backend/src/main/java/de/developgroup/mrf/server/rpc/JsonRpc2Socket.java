@@ -5,13 +5,16 @@
 package de.developgroup.mrf.server.rpc;
 
 import com.google.gson.JsonSyntaxException;
+import com.google.inject.Inject;
+import de.developgroup.mrf.server.metrics.CommandTrace;
+import de.developgroup.mrf.server.metrics.RpcMetrics;
 import org.apache.commons.lang3.reflect.MethodUtils;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
@@ -29,6 +32,24 @@ public class JsonRpc2Socket extends WebSocketAdapter {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(JsonRpc2Socket.class);
 
+    /**
+     * Measures, records and captures the messages of all sockets. Replaced by the shared observer via static
+     * injection.
+     */
+    @Inject
+    static RpcMessageObserver messageObserver = RpcMessageObserver.NONE;
+
+    private static final WriteCallback RESPONSE_CALLBACK = new WriteCallback() {
+        @Override
+        public void writeFailed(Throwable cause) {
+            LOGGER.error("Could not send response: " + cause.getMessage(), cause);
+        }
+
+        @Override
+        public void writeSuccess() {
+        }
+    };
+
     public JsonRpc2Socket(){
 
     }
@@ -42,6 +63,7 @@ public class JsonRpc2Socket extends WebSocketAdapter {
 
     @Override
     public void onWebSocketClose(int statusCode, String reason) {
+        messageObserver.onClose(getClientId());
         super.onWebSocketClose(statusCode, reason);
         LOGGER.debug("Socket closed: [{}] {}", statusCode, reason);
     }
@@ -54,22 +76,38 @@ public class JsonRpc2Socket extends WebSocketAdapter {
 
     @Override
     public void onWebSocketText(String message) {
+        CommandTrace.begin(System.nanoTime());
         LOGGER.debug("Received message: {}", message);
+        messageObserver.onInbound(getClientId(), message);
 
-        String responseMsg = processMessage(message);
+        String responseMsg;
+        try {
+            responseMsg = processMessage(message);
+        } finally {
+            CommandTrace.end();
+        }
         if(!responseMsg.isEmpty()) {
-            try {
-                LOGGER.debug("Sending response: {}", responseMsg);
-                getRemote().sendString(responseMsg);
-            } catch (IOException e) {
-                LOGGER.error("Could not send response: " + e.getMessage(), e);
-            }
+            LOGGER.debug("Sending response: {}", responseMsg);
+            messageObserver.onOutbound(getClientId(), responseMsg);
+            // asynchronously, like the notifications sent from other threads, as Jetty rejects a blocking send while
+            // another one is pending, see ClientManagerImpl
+            getRemote().sendString(responseMsg, RESPONSE_CALLBACK);
         }
     }
 
+    /**
+     * @return id of the client connected to this socket, -1 if unknown
+     */
+    public int getClientId() {
+        return -1;
+    }
+
     protected String processMessage(String message) {
-        JsonRpc2Request request;
+        long startNanos = System.nanoTime();
+        JsonRpc2Request request = null;
         String response = "";
+        String metricName = RpcMetrics.INVALID_REQUEST;
+        boolean failed = true;
 
         try {
             request = JsonRpc2Request.parse(message);
@@ -77,8 +115,12 @@ public class JsonRpc2Socket extends WebSocketAdapter {
             if(request.isValid()){
                 // handle valid requests
                 Object result;
+                CommandTrace.setMethod(request.getMethod());
+                // before invoking, so a method that throws is recorded under its name
+                metricName = request.getMethod();
 
                 result = doInvokeMethod(request.getMethod(),request.getParams());
+                failed = false;
 
                 if (!request.isNotification()){
                     if (result == null){
@@ -95,9 +137,12 @@ public class JsonRpc2Socket extends WebSocketAdapter {
             String errorMessage = "The request could not be parsed: " + e.getMessage();
             response = new JsonRpc2ResponseError(JsonRpc2ResponseError.CODE_PARSE_ERROR,errorMessage).toJsonString();
         } catch (NoSuchMethodException | IllegalAccessException e){
+            metricName = RpcMetrics.UNKNOWN_METHOD;
             response = new JsonRpc2ResponseError(JsonRpc2ResponseError.CODE_METHOD_NOT_FOUND,e.getMessage()).toJsonString();
         } catch (InvocationTargetException e ){
             response = new JsonRpc2ResponseError(JsonRpc2ResponseError.CODE_INTERNAL_ERROR,e.getCause().getMessage()).toJsonString();
+        } finally {
+            messageObserver.onProcessed(metricName, startNanos, failed);
         }
 
         return response;
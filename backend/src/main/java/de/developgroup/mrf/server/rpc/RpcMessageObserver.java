@@ -0,0 +1,52 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.rpc;
+
+/**
+ * Observes the messages of the {@link JsonRpc2Socket}, e.g. to measure, record or capture them.
+ *
+ * All methods are called on the Jetty thread of the socket and must not block. An observer only overrides the
+ * methods it is interested in.
+ */
+public interface RpcMessageObserver {
+
+    /**
+     * Observes nothing, for sockets that are not statically injected.
+     */
+    RpcMessageObserver NONE = new RpcMessageObserver() {
+    };
+
+    /**
+     * A message was received, before it is processed.
+     * @param clientId id of the sending client, -1 if unknown
+     * @param message the text as received
+     */
+    default void onInbound(int clientId, String message) {
+    }
+
+    /**
+     * A message was processed.
+     * @param method name of the invoked method, or one of the placeholders of the RPC metrics for invalid requests
+     * @param startNanos {@link System#nanoTime()} at which processing of the message started
+     * @param failed true if the message resulted in an error response
+     */
+    default void onProcessed(String method, long startNanos, boolean failed) {
+    }
+
+    /**
+     * A response is about to be sent.
+     * @param clientId id of the receiving client, -1 if unknown
+     * @param message the text as sent
+     */
+    default void onOutbound(int clientId, String message) {
+    }
+
+    /**
+     * The connection was closed.
+     * @param clientId id of the client, -1 if unknown
+     */
+    default void onClose(int clientId) {
+    }
+}
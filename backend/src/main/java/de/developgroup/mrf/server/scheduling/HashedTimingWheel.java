@@ -0,0 +1,236 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.scheduling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadlines for integer keys (e.g. client ids), kept in a hashed timing wheel.
+ *
+ * The wheel is an array of buckets, each holding a doubly linked list of deadlines. A deadline is put into the bucket
+ * of the tick in which it expires, so re-arming or cancelling a deadline is O(1), and a tick only visits a single
+ * bucket instead of all keys. Deadlines further away than one revolution stay in their bucket until their tick has
+ * come around. Entries are reused for the lifetime of their key and looked up in an open addressing table without
+ * boxing the key, so re-arming does not allocate.
+ *
+ * Expired keys are reported after the wheel's lock has been released, so listeners may call back into the wheel.
+ */
+public class HashedTimingWheel {
+
+    /**
+     * Gets notified of expired deadlines, on the thread calling {@link #tick()}.
+     */
+    public interface ExpiryListener {
+        void expired(int key);
+    }
+
+    private static final class Entry {
+        final int key;
+        long deadlineTick;
+        Entry previous;
+        Entry next;
+        boolean linked;
+
+        Entry(int key) {
+            this.key = key;
+        }
+    }
+
+    private final Entry[] buckets;
+
+    private final long tickNanos;
+
+    private final ExpiryListener listener;
+
+    /**
+     * All entries by key, linear probing. Kept at most half full.
+     */
+    private Entry[] table = new Entry[16];
+
+    private int size;
+
+    private long currentTick;
+
+    private int[] expired = new int[16];
+
+    /**
+     * @param tickDuration duration of one tick
+     * @param unit unit of the tick duration
+     * @param wheelSize number of buckets, should cover the usual deadline
+     * @param listener receiver of expired deadlines
+     */
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int wheelSize, ExpiryListener listener) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be greater than zero");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.buckets = new Entry[wheelSize];
+        this.listener = listener;
+    }
+
+    /**
+     * Set the deadline of a key, replacing an earlier deadline of the same key.
+     * @param key the key, e.g. a client id
+     * @param delay time until the deadline expires, rounded up to whole ticks
+     * @param unit unit of the delay
+     */
+    public synchronized void schedule(int key, long delay, TimeUnit unit) {
+        Entry entry = get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            put(entry);
+        } else if (entry.linked) {
+            unlink(entry);
+        }
+        long delayNanos = unit.toNanos(delay);
+        long ticks = Math.max(1, (delayNanos + tickNanos - 1) / tickNanos);
+        entry.deadlineTick = currentTick + ticks;
+        link(entry);
+    }
+
+    /**
+     * Forget a key and its deadline.
+     * @param key the key
+     * @return true if the key had a pending deadline
+     */
+    public synchronized boolean cancel(int key) {
+        Entry entry = remove(key);
+        if (entry == null || !entry.linked) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * @return true if the key has a deadline that did not expire yet
+     */
+    public synchronized boolean isScheduled(int key) {
+        Entry entry = get(key);
+        return entry != null && entry.linked;
+    }
+
+    /**
+     * Advance the wheel by one tick and report the deadlines that expired with it.
+     */
+    public void tick() {
+        int expiredCount = 0;
+        synchronized (this) {
+            currentTick++;
+            Entry entry = buckets[bucketOf(currentTick)];
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.deadlineTick <= currentTick) {
+                    unlink(entry);
+                    if (expiredCount == expired.length) {
+                        int[] grown = new int[expired.length * 2];
+                        System.arraycopy(expired, 0, grown, 0, expiredCount);
+                        expired = grown;
+                    }
+                    expired[expiredCount++] = entry.key;
+                }
+                entry = next;
+            }
+        }
+        // only the ticking thread uses the expired array
+        for (int i = 0; i < expiredCount; i++) {
+            listener.expired(expired[i]);
+        }
+    }
+
+    /**
+     * @return duration of one tick in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    private int bucketOf(long tick) {
+        return (int) (tick % buckets.length);
+    }
+
+    private void link(Entry entry) {
+        int bucket = bucketOf(entry.deadlineTick);
+        entry.previous = null;
+        entry.next = buckets[bucket];
+        if (entry.next != null) {
+            entry.next.previous = entry;
+        }
+        buckets[bucket] = entry;
+        entry.linked = true;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            buckets[bucketOf(entry.deadlineTick)] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+        entry.linked = false;
+    }
+
+    private int slotOf(int key, int length) {
+        // spread sequential ids over the table
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+
+    private Entry get(int key) {
+        for (int slot = slotOf(key, table.length); table[slot] != null; slot = (slot + 1) & (table.length - 1)) {
+            if (table[slot].key == key) {
+                return table[slot];
+            }
+        }
+        return null;
+    }
+
+    private void put(Entry entry) {
+        if (2 * (size + 1) > table.length) {
+            Entry[] old = table;
+            table = new Entry[old.length * 2];
+            for (Entry e : old) {
+                if (e != null) {
+                    insert(table, e);
+                }
+            }
+        }
+        insert(table, entry);
+        size++;
+    }
+
+    private void insert(Entry[] target, Entry entry) {
+        int slot = slotOf(entry.key, target.length);
+        while (target[slot] != null) {
+            slot = (slot + 1) & (target.length - 1);
+        }
+        target[slot] = entry;
+    }
+
+    private Entry remove(int key) {
+        int mask = table.length - 1;
+        int slot = slotOf(key, table.length);
+        while (table[slot] != null && table[slot].key != key) {
+            slot = (slot + 1) & mask;
+        }
+        Entry removed = table[slot];
+        if (removed == null) {
+            return null;
+        }
+        table[slot] = null;
+        size--;
+        // re-insert the rest of the probe run, so lookups do not stop at the gap
+        for (int next = (slot + 1) & mask; table[next] != null; next = (next + 1) & mask) {
+            Entry moved = table[next];
+            table[next] = null;
+            insert(table, moved);
+        }
+        return removed;
+    }
+}
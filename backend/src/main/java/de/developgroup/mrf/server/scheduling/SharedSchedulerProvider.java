@@ -0,0 +1,32 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.scheduling;
+
+import com.google.inject.Provider;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Guice adapter for the scheduler shared by all periodic backend tasks. Bound as singleton, so the backend runs
+ * its periodic housekeeping on a single daemon thread instead of one timer thread per task.
+ * Scheduled tasks must be short and must not block.
+ */
+public class SharedSchedulerProvider implements Provider<ScheduledExecutorService> {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    public ScheduledExecutorService get() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // cancelled deadlines must not pile up in the queue
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
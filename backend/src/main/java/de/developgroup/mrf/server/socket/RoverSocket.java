@@ -1,6 +1,7 @@
 package de.developgroup.mrf.server.socket;
 
 import java.io.IOException;
+import java.util.SortedSet;
 
 import de.developgroup.mrf.server.handler.*;
 import org.eclipse.jetty.websocket.api.Session;
@@ -10,7 +11,13 @@ import org.slf4j.LoggerFactory;
 import com.google.inject.Inject;
 
 import de.developgroup.mrf.server.ClientManager;
+import de.developgroup.mrf.server.metrics.CommandTracer;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.metrics.MetricsSnapshot;
+import de.developgroup.mrf.server.rpc.JsonRpc2Request;
 import de.developgroup.mrf.server.rpc.JsonRpc2Socket;
+import de.developgroup.mrf.server.startup.StartupOrchestrator;
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
 
 public class RoverSocket extends JsonRpc2Socket {
     private static final Logger LOGGER = LoggerFactory
@@ -31,6 +38,26 @@ public class RoverSocket extends JsonRpc2Socket {
     @Inject
     static ClientManager clientManager;
 
+    @Inject
+    static MetricsRegistry metricsRegistry;
+
+    @Inject
+    static CommandTracer commandTracer;
+
+    @Inject
+    static HeartbeatWatchdog heartbeatWatchdog;
+
+    @Inject
+    static TelemetryStore telemetryStore;
+
+    @Inject
+    static StartupOrchestrator startupOrchestrator = new StartupOrchestrator(new MetricsRegistry());
+
+    /**
+     * Id the client manager assigned to this connection.
+     */
+    private int clientId = -1;
+
 //	@Inject
 //	static ClientInformationHandler clientInformationHandler;
 
@@ -41,22 +68,23 @@ public class RoverSocket extends JsonRpc2Socket {
     public void onWebSocketConnect(final Session sess) {
         super.onWebSocketConnect(sess);
         int newClientId = clientManager.addClient(sess);
+        clientId = newClientId;
         // if killswitch is enabled, notify the newly connected user
         developerSettingsHandler.notifyIfBlocked(newClientId,
                 "Interactions with the rover are blocked at the moment");
     }
 
     @Override
-    public void onWebSocketClose(int statusCode, String reason) {
-        super.onWebSocketClose(statusCode, reason);
-        clientManager.removeClosedSessions();
-        singleDriverHandler.verifyDriverAvailability();
+    public int getClientId() {
+        return clientId;
     }
 
     @Override
-    public void onWebSocketError(Throwable cause) {
-        super.onWebSocketError(cause);
-        clientManager.removeClosedSessions();
+    public void onWebSocketClose(int statusCode, String reason) {
+        super.onWebSocketClose(statusCode, reason);
+        heartbeatWatchdog.removeClient(clientId);
+        clientManager.removeClient(clientId);
+        singleDriverHandler.verifyDriverAvailability();
     }
 
 
@@ -68,48 +96,57 @@ public class RoverSocket extends JsonRpc2Socket {
         return roverHandler.handlePing(sqn.intValue());
     }
 
+    /**
+     * @param clientId id the client sent, ignored: a client may only keep its own deadline alive
+     */
     public void heartbeat(Number clientId){
-        LOGGER.trace("heartbeat({})", clientId);
-        roverHandler.heartbeat(clientId.intValue());
+        LOGGER.trace("heartbeat({})", this.clientId);
+        heartbeatWatchdog.heartbeat(this.clientId);
+        roverHandler.heartbeat(this.clientId);
     }
 
     public void driveForward(Number desiredSpeed) throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("driveForeward({})", desiredSpeed);
+        heartbeatWatchdog.alive(clientId);
         roverHandler.driveForward(desiredSpeed.intValue());
     }
 
     public void driveBackward(Number desiredSpeed) throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("driveBackward({})", desiredSpeed);
+        heartbeatWatchdog.alive(clientId);
         roverHandler.driveBackward(desiredSpeed.intValue());
     }
 
     public void stop() throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("stop()");
+        heartbeatWatchdog.alive(clientId);
         roverHandler.stop();
     }
 
     public void turnLeft(Number turnRate) throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("turnLeft({})", turnRate);
+        heartbeatWatchdog.alive(clientId);
         roverHandler.turnLeft(turnRate.intValue());
     }
 
     public void turnRight(Number turnRate) throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("turnRight({})", turnRate);
+        heartbeatWatchdog.alive(clientId);
         roverHandler.turnRight(turnRate.intValue());
     }
 
@@ -119,15 +156,16 @@ public class RoverSocket extends JsonRpc2Socket {
 	 * @param speed speed between 0 (stop) and 100 (full speed).
 	 */
 	public void driveContinuously(Number angle, Number speed) {
-		if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+		if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
 			return;
 		}
 		LOGGER.trace("driveContinuously({0}, {1})", angle, speed);
+		heartbeatWatchdog.alive(clientId);
 		roverHandler.driveContinuously(angle.intValue(), speed.intValue());
 	}
 
 	public void turnHeadUp(Number angle) throws IOException {
-		if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+		if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
 			return;
 		}
 		LOGGER.trace("turnHeadUp({})", angle);
@@ -135,7 +173,7 @@ public class RoverSocket extends JsonRpc2Socket {
 	}
 
     public void turnHeadDown(Number angle) throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("turnHeadDown({})", angle);
@@ -143,7 +181,7 @@ public class RoverSocket extends JsonRpc2Socket {
     }
 
     public void turnHeadLeft(Number angle) throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("turnHeadLeft({})", angle);
@@ -151,7 +189,7 @@ public class RoverSocket extends JsonRpc2Socket {
     }
 
     public void turnHeadRight(Number angle) throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("turnHeadRight({})", angle);
@@ -159,7 +197,7 @@ public class RoverSocket extends JsonRpc2Socket {
     }
 
     public void resetHeadPosition() throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("resetHeadPosition()");
@@ -173,7 +211,7 @@ public class RoverSocket extends JsonRpc2Socket {
     }
 
     public void getCameraSnapshot(Number clientId) throws IOException {
-        if (remoteIpIsBlocked() || developerSettingsHandler.checkKillswitchEnabled()) {
+        if (remoteIpIsBlocked() || roverIsNotReady() || developerSettingsHandler.checkKillswitchEnabled()) {
             return;
         }
         LOGGER.trace("getCameraSnapshot()");
@@ -190,6 +228,49 @@ public class RoverSocket extends JsonRpc2Socket {
         roverHandler.getSystemUpTime(clientId.intValue());
     }
 
+    /**
+     * Get all backend metrics, e.g. call counts and latency percentiles per RPC method.
+     * @return snapshot of all metrics
+     */
+    public MetricsSnapshot getMetrics() {
+        LOGGER.trace("getMetrics()");
+        return metricsRegistry.snapshot();
+    }
+
+    /**
+     * Send the command-to-actuation latency histograms and the latest sampled traces to a client.
+     * The client receives them via "incomingCommandTraces".
+     * @param clientId id of the requesting client
+     */
+    public void getCommandTraces(Number clientId) {
+        LOGGER.trace("getCommandTraces({})", clientId);
+        clientManager.notifyClientById(clientId.intValue(),
+                new JsonRpc2Request("incomingCommandTraces", commandTracer.report()));
+    }
+
+    /**
+     * @return names of all telemetry series that can be queried
+     */
+    public SortedSet<String> getTelemetrySeries() {
+        LOGGER.trace("getTelemetrySeries()");
+        return telemetryStore.getSeriesNames();
+    }
+
+    /**
+     * Send the recorded history of a telemetry series to a client, e.g. to chart the sensor readings and motor
+     * settings before an incident. The client receives it via "incomingTelemetry".
+     * @param clientId id of the requesting client
+     * @param series name of the series, e.g. "motor.left"
+     * @param from start of the range, in milliseconds since the epoch
+     * @param to end of the range, in milliseconds since the epoch
+     * @param resolution "raw" for the samples, "second" or "minute" for minimum, maximum and average per bucket
+     */
+    public void queryTelemetry(Number clientId, String series, Number from, Number to, String resolution) {
+        LOGGER.trace("queryTelemetry({}, {})", clientId, series);
+        clientManager.notifyClientById(clientId.intValue(), new JsonRpc2Request("incomingTelemetry",
+                telemetryStore.query(series, from.longValue(), to.longValue(), resolution)));
+    }
+
     // TODO: Delete if not needed
     public Boolean getKillswitchState() {
         return developerSettingsHandler.isKillswitchEnabled();
@@ -218,6 +299,10 @@ public class RoverSocket extends JsonRpc2Socket {
             return;
         }
         singleDriverHandler.acquireDriver(clientId.intValue());
+        if (singleDriverHandler.getCurrentDriverId() == clientId.intValue()) {
+            // the new driver must send signs of life from now on, even before its first command
+            heartbeatWatchdog.alive(clientId.intValue());
+        }
     }
 
     public void exitDriverMode(Number clientId) {
@@ -245,6 +330,19 @@ public class RoverSocket extends JsonRpc2Socket {
         return isBlocked;
     }
 
+    /**
+     * Commands for drive, head and camera are dropped until the hardware is open and the collision detection runs, so
+     * the rover never moves before it can stop in front of an obstacle.
+     */
+    protected boolean roverIsNotReady() {
+        if (startupOrchestrator.admit(StartupOrchestrator.HARDWARE)
+                && startupOrchestrator.admit(StartupOrchestrator.COLLISION)) {
+            return false;
+        }
+        LOGGER.trace("Rover is not ready yet, action aborted");
+        return true;
+    }
+
     public void releaseDriver(){
         developerSettingsHandler.releaseDriver();
     }
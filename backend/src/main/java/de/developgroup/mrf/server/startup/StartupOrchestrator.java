@@ -0,0 +1,218 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.startup;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.server.metrics.Counter;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the independent stages of the backend startup in parallel, so the rover is reachable while the hardware is
+ * still being opened.
+ *
+ * Every stage runs on its own thread as soon as the stages it depends on are complete. If a stage fails, the stages
+ * depending on it are skipped. The duration of every stage is logged and published as gauge
+ * "startup.&lt;stage&gt;.millis". Clients may connect as soon as the server stage is complete; commands for the
+ * hardware are gated with {@link #admit(String)} until the {@link #HARDWARE} stage is complete.
+ */
+@Singleton
+public class StartupOrchestrator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+    /**
+     * Jetty binds its port and serves the client files.
+     */
+    public static final String SERVER = "server";
+
+    /**
+     * Drive and head open their PWM generator, the watchdog starts.
+     */
+    public static final String HARDWARE = "hardware";
+
+    /**
+     * The collision sensors are configured and polled.
+     */
+    public static final String COLLISION = "collision";
+
+    /**
+     * The sensors are provisioned and sampled.
+     */
+    public static final String SENSORS = "sensors";
+
+    /**
+     * The flight recorder allocates its segment.
+     */
+    public static final String RECORDER = "recorder";
+
+    /**
+     * Work of one stage.
+     */
+    @FunctionalInterface
+    public interface Stage {
+        void run() throws Exception;
+    }
+
+    private final MetricsRegistry metricsRegistry;
+
+    private final Counter gatedCommands;
+
+    /**
+     * Stages in the order they were added. Only changed before the startup runs.
+     */
+    private final List<StageState> stages = new ArrayList<>();
+
+    private final Map<String, StageState> stagesByName = new ConcurrentHashMap<>();
+
+    private volatile boolean started;
+
+    @Inject
+    public StartupOrchestrator(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        gatedCommands = metricsRegistry.counter("startup.commands.gated");
+    }
+
+    /**
+     * Add a stage to the startup.
+     * @param name unique name of the stage
+     * @param stage work of the stage
+     * @param dependencies names of the stages that must be complete before this one runs, added before
+     */
+    public synchronized void addStage(String name, Stage stage, String... dependencies) {
+        if (started) {
+            throw new IllegalStateException("Startup is already running");
+        }
+        if (stagesByName.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup stage " + name);
+        }
+        List<StageState> required = new ArrayList<>();
+        for (String dependency : dependencies) {
+            StageState state = stagesByName.get(dependency);
+            if (state == null) {
+                throw new IllegalArgumentException("Startup stage " + name + " depends on unknown stage "
+                        + dependency);
+            }
+            required.add(state);
+        }
+        StageState state = new StageState(name, stage, required);
+        stages.add(state);
+        stagesByName.put(name, state);
+        metricsRegistry.gauge("startup." + name + ".millis", () -> state.millis);
+    }
+
+    /**
+     * Run all stages and wait until they are complete, failed or skipped.
+     * @return true if all stages completed
+     */
+    public boolean run() {
+        long startNanos = System.nanoTime();
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("Startup is already running");
+            }
+            started = true;
+        }
+        for (StageState state : stages) {
+            Thread thread = new Thread(() -> runStage(state), "startup-" + state.name);
+            thread.start();
+        }
+
+        boolean complete = true;
+        StringBuilder summary = new StringBuilder();
+        for (StageState state : stages) {
+            try {
+                state.done.join();
+                summary.append(", ").append(state.name).append(' ').append(Math.round(state.millis)).append(" ms");
+            } catch (CompletionException e) {
+                complete = false;
+                summary.append(", ").append(state.name).append(" failed");
+            }
+        }
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        metricsRegistry.gauge("startup.total.millis", () -> totalMillis);
+        LOGGER.info("Startup took " + totalMillis + " ms" + summary);
+        return complete;
+    }
+
+    private void runStage(StageState state) {
+        CompletableFuture<?>[] dependencies = new CompletableFuture<?>[state.dependencies.size()];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = state.dependencies.get(i).done;
+        }
+        try {
+            CompletableFuture.allOf(dependencies).join();
+        } catch (CompletionException e) {
+            LOGGER.error("Startup stage " + state.name + " skipped, as a stage it depends on failed");
+            state.done.completeExceptionally(e.getCause());
+            return;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            state.stage.run();
+        } catch (Exception | Error e) {
+            LOGGER.error("Startup stage " + state.name + " failed", e);
+            state.done.completeExceptionally(e);
+            return;
+        }
+        state.millis = (System.nanoTime() - startNanos) / 1e6;
+        LOGGER.debug("Startup stage " + state.name + " took " + Math.round(state.millis) + " ms");
+        state.done.complete(null);
+    }
+
+    /**
+     * @param name name of a stage
+     * @return true if the stage is complete or not part of the startup
+     */
+    public boolean isReady(String name) {
+        StageState state = stagesByName.get(name);
+        return state == null || (state.done.isDone() && !state.done.isCompletedExceptionally());
+    }
+
+    /**
+     * Gate a command on a stage.
+     * @param name name of the stage the command needs
+     * @return true if the command may run, false if it must be dropped because the stage is not ready
+     */
+    public boolean admit(String name) {
+        if (isReady(name)) {
+            return true;
+        }
+        gatedCommands.increment();
+        return false;
+    }
+
+    private static final class StageState {
+
+        final String name;
+
+        final Stage stage;
+
+        final List<StageState> dependencies;
+
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        /**
+         * Duration of the stage, -1 until it is complete.
+         */
+        volatile double millis = -1;
+
+        StageState(String name, Stage stage, List<StageState> dependencies) {
+            this.name = name;
+            this.stage = stage;
+            this.dependencies = dependencies;
+        }
+    }
+}
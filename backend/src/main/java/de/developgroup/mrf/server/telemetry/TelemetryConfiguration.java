@@ -0,0 +1,26 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.telemetry;
+
+/**
+ * Sizes of the telemetry buffers, bound to the "telemetry" prefix in rover.properties.
+ */
+public interface TelemetryConfiguration {
+
+    /**
+     * @return raw samples kept per series
+     */
+    int rawSamples();
+
+    /**
+     * @return one second rollups kept per series
+     */
+    int secondBuckets();
+
+    /**
+     * @return one minute rollups kept per series
+     */
+    int minuteBuckets();
+}
@@ -0,0 +1,28 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.telemetry;
+
+/**
+ * Result of a telemetry query, sent to the client as is. Times are milliseconds since the epoch.
+ *
+ * Raw samples fill values, rollups fill min, max and avg with one entry per bucket, at the start time of the bucket.
+ * The unused arrays are null.
+ */
+public class TelemetryData {
+
+    public String series;
+
+    public TelemetryResolution resolution;
+
+    public long[] times;
+
+    public double[] values;
+
+    public double[] min;
+
+    public double[] max;
+
+    public double[] avg;
+}
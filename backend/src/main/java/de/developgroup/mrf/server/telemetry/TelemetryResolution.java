@@ -0,0 +1,45 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.telemetry;
+
+/**
+ * Resolution of a telemetry query.
+ */
+public enum TelemetryResolution {
+    /**
+     * Every sample, as recorded.
+     */
+    RAW(0),
+    /**
+     * Minimum, maximum and average per second.
+     */
+    SECOND(1000),
+    /**
+     * Minimum, maximum and average per minute.
+     */
+    MINUTE(60000);
+
+    private final long bucketMillis;
+
+    TelemetryResolution(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * @return width of a rollup bucket, 0 for raw samples
+     */
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * @param name "raw", "second" or "minute", in any case
+     * @return the resolution
+     * @throws IllegalArgumentException if there is no such resolution
+     */
+    public static TelemetryResolution parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.telemetry;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import de.developgroup.mrf.rover.sensor.SensorReading;
+import de.developgroup.mrf.rover.sensor.SensorSampler;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Subscription;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the recent history of sensor values, motor commands and collision states in memory, so the developer view
+ * can chart what happened before an incident without any disk I/O. See {@link TimeSeries}.
+ *
+ * Series are created on first access. Like metrics, callers on hot paths should look up their series once and keep
+ * the reference. The readings of the {@link SensorSampler} are recorded as "sensor.&lt;name&gt;".
+ */
+@Singleton
+public class TelemetryStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelemetryStore.class);
+
+    /**
+     * 1 minute at the highest collision poll rate.
+     */
+    static final int DEFAULT_RAW_SAMPLES = 3000;
+
+    static final int DEFAULT_SECOND_BUCKETS = 3600;
+
+    static final int DEFAULT_MINUTE_BUCKETS = 1440;
+
+    private final ConcurrentMap<String, TimeSeries> series = new ConcurrentHashMap<>();
+
+    private volatile int rawSamples = DEFAULT_RAW_SAMPLES;
+
+    private volatile int secondBuckets = DEFAULT_SECOND_BUCKETS;
+
+    private volatile int minuteBuckets = DEFAULT_MINUTE_BUCKETS;
+
+    /**
+     * Create a store that only records what is recorded explicitly.
+     */
+    public TelemetryStore() {
+    }
+
+    /**
+     * Create a store that also records the readings of the sensor sampler.
+     */
+    @Inject
+    public TelemetryStore(EventBus eventBus) {
+        eventBus.subscribe(SensorSampler.SENSOR_READINGS, Subscription.Delivery.SYNCHRONOUS, this::onSensorReading);
+    }
+
+    /**
+     * Read the buffer sizes from rover.properties. Only affects series without samples, so it must be called before
+     * anything is recorded.
+     * @param configurationProvider provider of rover.properties
+     */
+    public void initialize(ConfigurationProvider configurationProvider) {
+        try {
+            TelemetryConfiguration configuration = configurationProvider.bind("telemetry",
+                    TelemetryConfiguration.class);
+            if (configuration.rawSamples() < 1 || configuration.secondBuckets() < 1
+                    || configuration.minuteBuckets() < 1) {
+                LOGGER.error("Invalid telemetry configuration, using defaults");
+                return;
+            }
+            rawSamples = configuration.rawSamples();
+            secondBuckets = configuration.secondBuckets();
+            minuteBuckets = configuration.minuteBuckets();
+            for (TimeSeries timeSeries : series.values()) {
+                timeSeries.setCapacity(rawSamples, secondBuckets, minuteBuckets);
+            }
+        } catch (IllegalStateException | NoSuchElementException e) {
+            LOGGER.info("No telemetry configuration found, keeping " + rawSamples + " samples per series");
+        }
+    }
+
+    /**
+     * Get or create the series with the given name.
+     * @param name unique series name, e.g. "motor.left"
+     * @return the series registered under this name
+     */
+    public TimeSeries series(String name) {
+        TimeSeries timeSeries = series.get(name);
+        if (timeSeries == null) {
+            timeSeries = series.computeIfAbsent(name,
+                    key -> new TimeSeries(key, rawSamples, secondBuckets, minuteBuckets));
+        }
+        return timeSeries;
+    }
+
+    /**
+     * Record a sample taken now.
+     * @param name name of the series
+     * @param value the sample
+     */
+    public void record(String name, double value) {
+        series(name).record(value);
+    }
+
+    /**
+     * @return names of all series, sorted
+     */
+    public SortedSet<String> getSeriesNames() {
+        return new TreeSet<>(series.keySet());
+    }
+
+    /**
+     * Copy the samples or rollups of a series within a time range.
+     * @param name name of the series
+     * @param from start of the range, inclusive, in milliseconds since the epoch
+     * @param to end of the range, inclusive
+     * @param resolution "raw", "second" or "minute"
+     * @return the data, oldest first
+     * @throws IllegalArgumentException if there is no such series or resolution
+     */
+    public TelemetryData query(String name, long from, long to, String resolution) {
+        TimeSeries timeSeries = series.get(name);
+        if (timeSeries == null) {
+            throw new IllegalArgumentException("Unknown telemetry series " + name);
+        }
+        return timeSeries.query(from, to, TelemetryResolution.parse(resolution));
+    }
+
+    private void onSensorReading(SensorReading reading) {
+        record("sensor." + reading.getSensor(), reading.getValue());
+    }
+}
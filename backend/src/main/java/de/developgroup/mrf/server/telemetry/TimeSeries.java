@@ -0,0 +1,235 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.telemetry;
+
+/**
+ * Recent samples of one value, in memory.
+ *
+ * The raw samples are kept in a ring buffer, as are rollups with minimum, maximum and average per second and per
+ * minute. All buffers are primitive arrays allocated with the first sample, so recording neither allocates nor grows
+ * the heap afterwards: the oldest entries are simply overwritten. Buckets only exist for seconds and minutes with
+ * samples, so the rollups reach further back if the value was not recorded all the time.
+ */
+public final class TimeSeries {
+
+    private final String name;
+
+    private int rawSamples;
+
+    private int secondBuckets;
+
+    private int minuteBuckets;
+
+    /*
+     * Buffers, null until the first sample. Guarded by this.
+     */
+    private long[] rawTimes;
+
+    private double[] rawValues;
+
+    private int rawNext;
+
+    private int rawCount;
+
+    private Rollup seconds;
+
+    private Rollup minutes;
+
+    /**
+     * @param name name of the series
+     * @param rawSamples raw samples to keep
+     * @param secondBuckets one second rollups to keep
+     * @param minuteBuckets one minute rollups to keep
+     */
+    public TimeSeries(String name, int rawSamples, int secondBuckets, int minuteBuckets) {
+        this.name = name;
+        setCapacity(rawSamples, secondBuckets, minuteBuckets);
+    }
+
+    /**
+     * Change the sizes of the buffers. Ignored once the series holds samples.
+     */
+    synchronized void setCapacity(int rawSamples, int secondBuckets, int minuteBuckets) {
+        if (rawSamples < 1 || secondBuckets < 1 || minuteBuckets < 1) {
+            throw new IllegalArgumentException("Telemetry buffers must hold at least one entry");
+        }
+        if (rawTimes != null) {
+            return;
+        }
+        this.rawSamples = rawSamples;
+        this.secondBuckets = secondBuckets;
+        this.minuteBuckets = minuteBuckets;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record a sample taken now.
+     * @param value the sample
+     */
+    public void record(double value) {
+        record(System.currentTimeMillis(), value);
+    }
+
+    /**
+     * Record a sample.
+     * @param timeMillis time of the sample, in milliseconds since the epoch
+     * @param value the sample
+     */
+    public synchronized void record(long timeMillis, double value) {
+        if (rawTimes == null) {
+            rawTimes = new long[rawSamples];
+            rawValues = new double[rawSamples];
+            seconds = new Rollup(TelemetryResolution.SECOND.getBucketMillis(), secondBuckets);
+            minutes = new Rollup(TelemetryResolution.MINUTE.getBucketMillis(), minuteBuckets);
+        }
+        rawTimes[rawNext] = timeMillis;
+        rawValues[rawNext] = value;
+        rawNext = (rawNext + 1) % rawTimes.length;
+        if (rawCount < rawTimes.length) {
+            rawCount++;
+        }
+        seconds.add(timeMillis, value);
+        minutes.add(timeMillis, value);
+    }
+
+    /**
+     * Copy the samples or rollups within a time range.
+     * @param from start of the range, inclusive, in milliseconds since the epoch
+     * @param to end of the range, inclusive
+     * @param resolution raw samples or rollups
+     * @return the data, oldest first
+     */
+    public synchronized TelemetryData query(long from, long to, TelemetryResolution resolution) {
+        TelemetryData data = new TelemetryData();
+        data.series = name;
+        data.resolution = resolution;
+        if (rawTimes == null) {
+            // nothing recorded yet
+            data.times = new long[0];
+            if (resolution == TelemetryResolution.RAW) {
+                data.values = new double[0];
+            } else {
+                data.min = data.max = data.avg = new double[0];
+            }
+            return data;
+        }
+        switch (resolution) {
+            case RAW:
+                queryRaw(from, to, data);
+                break;
+            case SECOND:
+                seconds.query(from, to, data);
+                break;
+            default:
+                minutes.query(from, to, data);
+        }
+        return data;
+    }
+
+    private void queryRaw(long from, long to, TelemetryData data) {
+        int oldest = (rawNext - rawCount + rawTimes.length) % rawTimes.length;
+        int count = 0;
+        for (int i = 0; i < rawCount; i++) {
+            long time = rawTimes[(oldest + i) % rawTimes.length];
+            if (time >= from && time <= to) {
+                count++;
+            }
+        }
+        data.times = new long[count];
+        data.values = new double[count];
+        int j = 0;
+        for (int i = 0; i < rawCount && j < count; i++) {
+            int slot = (oldest + i) % rawTimes.length;
+            if (rawTimes[slot] >= from && rawTimes[slot] <= to) {
+                data.times[j] = rawTimes[slot];
+                data.values[j++] = rawValues[slot];
+            }
+        }
+    }
+
+    /**
+     * Minimum, maximum and sum of the samples per bucket of fixed width, in ring buffers.
+     */
+    private static final class Rollup {
+
+        final long widthMillis;
+
+        final long[] starts;
+
+        final double[] min;
+
+        final double[] max;
+
+        final double[] sum;
+
+        final int[] counts;
+
+        /**
+         * Index of the newest bucket.
+         */
+        int current = -1;
+
+        int size;
+
+        Rollup(long widthMillis, int buckets) {
+            this.widthMillis = widthMillis;
+            starts = new long[buckets];
+            min = new double[buckets];
+            max = new double[buckets];
+            sum = new double[buckets];
+            counts = new int[buckets];
+        }
+
+        void add(long timeMillis, double value) {
+            long start = timeMillis - Math.floorMod(timeMillis, widthMillis);
+            // samples from before the newest bucket, e.g. after the clock was set back, go into the newest bucket
+            if (current < 0 || start > starts[current]) {
+                current = (current + 1) % starts.length;
+                if (size < starts.length) {
+                    size++;
+                }
+                starts[current] = start;
+                min[current] = value;
+                max[current] = value;
+                sum[current] = value;
+                counts[current] = 1;
+                return;
+            }
+            min[current] = Math.min(min[current], value);
+            max[current] = Math.max(max[current], value);
+            sum[current] += value;
+            counts[current]++;
+        }
+
+        void query(long from, long to, TelemetryData data) {
+            int oldest = (current - size + 1 + starts.length) % starts.length;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                long start = starts[(oldest + i) % starts.length];
+                // buckets overlapping the range
+                if (start + widthMillis > from && start <= to) {
+                    count++;
+                }
+            }
+            data.times = new long[count];
+            data.min = new double[count];
+            data.max = new double[count];
+            data.avg = new double[count];
+            int j = 0;
+            for (int i = 0; i < size && j < count; i++) {
+                int slot = (oldest + i) % starts.length;
+                if (starts[slot] + widthMillis > from && starts[slot] <= to) {
+                    data.times[j] = starts[slot];
+                    data.min[j] = min[slot];
+                    data.max[j] = max[slot];
+                    data.avg[j++] = sum[slot] / counts[slot];
+                }
+            }
+        }
+    }
+}
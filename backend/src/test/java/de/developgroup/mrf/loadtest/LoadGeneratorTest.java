@@ -0,0 +1,57 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.loadtest;
+
+import org.junit.Test;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void testParseSteps() {
+        int[] steps = LoadGenerator.parseSteps("1, 5,20");
+        assertEquals(3, steps.length);
+        assertEquals(1, steps[0]);
+        assertEquals(5, steps[1]);
+        assertEquals(20, steps[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStepsMustAscend() {
+        LoadGenerator.parseSteps("10,5");
+    }
+
+    @Test
+    public void testParseCounter() {
+        String metrics = "clients.notifications.dropped 12\nclients.notifications.sent 3400\n"
+                + "rpc.ping count=3 mean=1.0us\n";
+        assertEquals(12, LoadGenerator.parseCounter(metrics, "clients.notifications.dropped"));
+        assertEquals(3400, LoadGenerator.parseCounter(metrics, "clients.notifications.sent"));
+        assertEquals(-1, LoadGenerator.parseCounter(metrics, "clients.notifications"));
+        assertEquals(-1, LoadGenerator.parseCounter(metrics, "rpc.ping"));
+    }
+
+    @Test
+    public void testMetricsUrlIsOnTheWebsocketHost() throws Exception {
+        assertEquals("http://rover:8000/metrics",
+                LoadGenerator.metricsUrlOf(new URI("ws://rover:8000/rover")).toString());
+        assertEquals("https://rover/metrics",
+                LoadGenerator.metricsUrlOf(new URI("wss://rover/rover")).toString());
+    }
+
+    @Test
+    public void testFormatStep() {
+        LoadStatistics statistics = new LoadStatistics();
+        statistics.observerPing.record(2000000);
+        String line = LoadGenerator.formatStep(10, statistics, -1);
+        assertTrue(line, line.trim().startsWith("10 "));
+        assertTrue(line, line.contains("2.0 / 2.0"));
+        assertTrue(line, line.endsWith("n/a"));
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.loadtest;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SimulatedClientTest {
+
+    private LoadStatistics statistics;
+
+    private RemoteEndpoint remote;
+
+    private SimulatedClient observer;
+
+    @Before
+    public void setUp() {
+        statistics = new LoadStatistics();
+        remote = mock(RemoteEndpoint.class);
+        observer = connectedClient(false);
+    }
+
+    private SimulatedClient connectedClient(boolean driver) {
+        Session session = mock(Session.class);
+        when(session.getRemote()).thenReturn(remote);
+        when(session.isOpen()).thenReturn(true);
+        SimulatedClient client = new SimulatedClient(statistics, driver);
+        client.connecting();
+        client.onWebSocketConnect(session);
+        return client;
+    }
+
+    private String lastSent() {
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(remote, atLeastOnce()).sendStringByFuture(message.capture());
+        return message.getValue();
+    }
+
+    @Test
+    public void testClientIdRegistersAndSendsClientInformation() throws InterruptedException {
+        assertFalse(observer.awaitRegistration(0, TimeUnit.SECONDS));
+
+        observer.onWebSocketText("{\"method\":\"setClientId\",\"params\":[5001],\"jsonrpc\":\"2.0\"}");
+
+        assertTrue(observer.awaitRegistration(0, TimeUnit.SECONDS));
+        assertEquals(5001, observer.getClientId());
+        assertEquals(1, statistics.connect.getCount());
+        String sent = lastSent();
+        assertTrue(sent, sent.contains("\"method\":\"setClientInformation\""));
+        assertTrue(sent, sent.contains("\"params\":[5001,\"LoadGenerator\""));
+    }
+
+    @Test
+    public void testPingResponseRecordsRoundTrip() {
+        observer.ping();
+        String ping = lastSent();
+        assertTrue(ping, ping.contains("\"method\":\"ping\""));
+        assertTrue(ping, ping.contains("\"id\":1"));
+
+        observer.onWebSocketText("{\"jsonrpc\":\"2.0\",\"result\":\"pong 2\",\"id\":1}");
+
+        assertEquals(1, statistics.observerPing.getCount());
+        assertEquals(0, statistics.driverPing.getCount());
+        observer.expirePings(System.nanoTime());
+        assertEquals(0, statistics.lostPings.get());
+    }
+
+    @Test
+    public void testDriverPingsAreRecordedSeparately() {
+        SimulatedClient driver = connectedClient(true);
+        driver.ping();
+
+        driver.onWebSocketText("{\"jsonrpc\":\"2.0\",\"result\":\"pong 2\",\"id\":1}");
+
+        assertEquals(1, statistics.driverPing.getCount());
+        assertEquals(0, statistics.observerPing.getCount());
+    }
+
+    @Test
+    public void testUnansweredPingsExpireAsLost() {
+        observer.ping();
+        observer.ping();
+
+        observer.expirePings(System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, statistics.lostPings.get());
+        observer.expirePings(System.nanoTime() + 1);
+        assertEquals(2, statistics.lostPings.get());
+    }
+
+    @Test
+    public void testProbeLagIsRecorded() {
+        long sentNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+
+        observer.onWebSocketText("{\"method\":\"showAlertNotification\",\"params\":[\""
+                + SimulatedClient.PROBE_PREFIX + sentNanos + "\"],\"jsonrpc\":\"2.0\"}");
+        observer.onWebSocketText("{\"method\":\"showAlertNotification\",\"params\":[\"a real alert\"],"
+                + "\"jsonrpc\":\"2.0\"}");
+
+        assertEquals(1, statistics.broadcastLag.getCount());
+        assertTrue(statistics.broadcastLag.getMax() >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(2, statistics.received.get());
+    }
+
+    @Test
+    public void testErrorsAndInvalidMessagesAreCounted() {
+        observer.onWebSocketText("{\"jsonrpc\":\"2.0\",\"error\":{\"code\":-32601},\"id\":7}");
+        observer.onWebSocketText("no json");
+
+        assertEquals(2, statistics.errors.get());
+    }
+}
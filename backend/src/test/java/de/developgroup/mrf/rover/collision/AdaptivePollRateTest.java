@@ -0,0 +1,70 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class AdaptivePollRateTest {
+
+    AdaptivePollRate pollRate;
+
+    @Before
+    public void setUp() {
+        pollRate = new AdaptivePollRate(2, 10, 50);
+    }
+
+    @Test
+    public void testIdlePollsAllSensorsSlowly() {
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), pollRate.getIntervalNanos());
+        Assert.assertEquals(2, pollRate.getRate(), 0.001);
+        Assert.assertEquals(AdaptivePollRate.ALL_SENSORS, pollRate.getFastSensors());
+    }
+
+    @Test
+    public void testRateGrowsWithSpeed() {
+        pollRate.setMotion(0.1, 0.1);
+        double slowRate = pollRate.getRate();
+        pollRate.setMotion(1, 1);
+
+        Assert.assertEquals(14, slowRate, 0.001);
+        Assert.assertEquals(50, pollRate.getRate(), 0.001);
+    }
+
+    @Test
+    public void testOnlySensorsFacingTravelArePolledFast() {
+        pollRate.setMotion(0.5, 0.8);
+        Assert.assertEquals(AdaptivePollRate.FRONT_SENSORS, pollRate.getFastSensors());
+
+        pollRate.setMotion(-0.5, -0.8);
+        Assert.assertEquals(AdaptivePollRate.BACK_SENSORS, pollRate.getFastSensors());
+
+        // turning on the spot
+        pollRate.setMotion(-1, 1);
+        Assert.assertEquals(AdaptivePollRate.ALL_SENSORS, pollRate.getFastSensors());
+    }
+
+    @Test
+    public void testOtherSensorsArePolledAtDrivingRate() {
+        pollRate.setMotion(1, 1);
+
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), pollRate.getFullPollIntervalNanos());
+    }
+
+    @Test
+    public void testSpeedingUpShortensInterval() {
+        Assert.assertTrue(pollRate.setMotion(1, 1));
+        Assert.assertFalse(pollRate.setMotion(1, 1));
+        Assert.assertFalse(pollRate.setMotion(0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRates() {
+        new AdaptivePollRate(10, 2, 50);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import com.pi4j.io.gpio.GpioController;
+import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.PinState;
+import de.developgroup.mrf.rover.pcf8591.IRSensor;
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+public class CollisionClassifierTest {
+
+    private static final long NOW = 1000;
+
+    CollisionClassifier classifier;
+    IRMeasurementCycle measurementCycle;
+    boolean ledsOn;
+    int[] litReadings = new int[PackedCollisionState.SENSORS];
+
+    @Before
+    public void setUp() throws IOException {
+        GpioController gpio = Mockito.mock(GpioController.class);
+        doAnswer(invocation -> {
+            ledsOn = invocation.getArguments()[0] == PinState.HIGH;
+            return null;
+        }).when(gpio).setState(any(PinState.class), Mockito.<GpioPinDigitalOutput>anyVararg());
+        IRSensor[] sensors = new IRSensor[PackedCollisionState.SENSORS];
+        GpioPinDigitalOutput[] leds = new GpioPinDigitalOutput[PackedCollisionState.SENSORS];
+        for (int i = 0; i < sensors.length; i++) {
+            int sensor = i;
+            sensors[i] = Mockito.mock(IRSensor.class);
+            when(sensors[i].getRawReading()).thenAnswer(invocation -> ledsOn ? litReadings[sensor] : 0);
+            leds[i] = Mockito.mock(GpioPinDigitalOutput.class);
+        }
+        measurementCycle = new IRMeasurementCycle(gpio, sensors, leds);
+        classifier = new CollisionClassifier(new TelemetryStore(), "none", 1, 1, 0.05);
+    }
+
+    /**
+     * Let a sensor read the given compensated percentage, in a dark environment.
+     */
+    private void stubReading(int sensor, double percentage) {
+        litReadings[sensor] = (int) Math.round(percentage * 256);
+    }
+
+    private int measure(int sensors) throws IOException {
+        measurementCycle.measure(sensors);
+        return classifier.classify(measurementCycle, sensors, NOW);
+    }
+
+    @Test
+    public void testSensorsAreClassifiedIndividually() throws IOException {
+        stubReading(PackedCollisionState.FRONT_LEFT, 0.6);
+        stubReading(PackedCollisionState.BACK_RIGHT, 0.36);
+
+        int state = measure(AdaptivePollRate.ALL_SENSORS);
+
+        Assert.assertEquals(CollisionState.Close,
+                PackedCollisionState.getState(state, PackedCollisionState.FRONT_LEFT));
+        Assert.assertEquals(CollisionState.None,
+                PackedCollisionState.getState(state, PackedCollisionState.FRONT_RIGHT));
+        Assert.assertEquals(CollisionState.Far, PackedCollisionState.getState(state, PackedCollisionState.BACK_RIGHT));
+        Assert.assertEquals(0.36, classifier.getReading(PackedCollisionState.BACK_RIGHT), 0.01);
+    }
+
+    @Test
+    public void testUnmeasuredSensorsKeepTheirState() throws IOException {
+        stubReading(PackedCollisionState.BACK_LEFT, 0.6);
+        measure(AdaptivePollRate.ALL_SENSORS);
+
+        stubReading(PackedCollisionState.BACK_LEFT, 0.1);
+        int state = measure(AdaptivePollRate.FRONT_SENSORS);
+
+        Assert.assertEquals(CollisionState.Close, PackedCollisionState.getState(state, PackedCollisionState.BACK_LEFT));
+    }
+
+    @Test
+    public void testHysteresisHoldsStateButReportsRawChange() throws IOException {
+        stubReading(PackedCollisionState.FRONT_RIGHT, 0.42);
+        measure(AdaptivePollRate.ALL_SENSORS);
+        Assert.assertTrue(classifier.hasRawStateChanged());
+
+        stubReading(PackedCollisionState.FRONT_RIGHT, 0.38);
+        int state = measure(AdaptivePollRate.ALL_SENSORS);
+
+        Assert.assertEquals(CollisionState.Medium,
+                PackedCollisionState.getState(state, PackedCollisionState.FRONT_RIGHT));
+        Assert.assertTrue(classifier.hasRawStateChanged());
+
+        measure(AdaptivePollRate.ALL_SENSORS);
+        Assert.assertFalse(classifier.hasRawStateChanged());
+    }
+
+    @Test
+    public void testInvalidFilterKeepsCurrentFilters() throws IOException {
+        classifier.setFilters("median", 3, 1, 0);
+        try {
+            classifier.setFilters("kalman", 3, 1, 0);
+            Assert.fail("unknown filter type accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // the median filter still drops a single outlier
+        stubReading(PackedCollisionState.FRONT_LEFT, 0.1);
+        measure(AdaptivePollRate.ALL_SENSORS);
+        measure(AdaptivePollRate.ALL_SENSORS);
+        stubReading(PackedCollisionState.FRONT_LEFT, 0.6);
+        int state = measure(AdaptivePollRate.ALL_SENSORS);
+        Assert.assertEquals(CollisionState.None, PackedCollisionState.getState(state, PackedCollisionState.FRONT_LEFT));
+        state = measure(AdaptivePollRate.ALL_SENSORS);
+        Assert.assertEquals(CollisionState.Close,
+                PackedCollisionState.getState(state, PackedCollisionState.FRONT_LEFT));
+    }
+}
@@ -5,17 +5,32 @@
 package de.developgroup.mrf.rover.collision;
 
 import com.pi4j.io.gpio.GpioController;
+import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.PinState;
 import de.developgroup.mrf.server.ClientManager;
+import de.developgroup.mrf.rover.pcf8591.IRSensor;
 import de.developgroup.mrf.server.ClientManagerImpl;
-import de.developgroup.mrf.server.handler.RoverHandler;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.recorder.FlightRecorder;
 import de.developgroup.mrf.server.rpc.JsonRpc2Request;
+import de.developgroup.mrf.server.telemetry.TelemetryData;
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class CollisionRunnableTest {
 
@@ -23,16 +38,40 @@ public class CollisionRunnableTest {
     IRSensorFactory irSensorFactory;
     GpioController gpio;
     ClientManager clientManager;
-    RoverHandler roverHandler;
+    IRSensor sensor;
+    MetricsRegistry metricsRegistry;
+    TelemetryStore telemetryStore;
+    boolean ledsOn;
+    int ambientReading;
+    int litReading;
 
     @Before
-    public void setUp() {
+    public void setUp() throws IOException {
         irSensorFactory = Mockito.mock(IRSensorFactory.class);
         gpio = Mockito.mock(GpioController.class);
         clientManager = Mockito.mock(ClientManagerImpl.class);
-        roverHandler = Mockito.mock(RoverHandler.class);
+        sensor = Mockito.mock(IRSensor.class);
+        when(irSensorFactory.create(any(), any())).thenReturn(sensor);
+        doAnswer(invocation -> {
+            ledsOn = invocation.getArguments()[0] == PinState.HIGH;
+            return null;
+        }).when(gpio).setState(any(PinState.class), Mockito.<GpioPinDigitalOutput>anyVararg());
+        when(sensor.getRawReading()).thenAnswer(invocation -> ledsOn ? litReading : ambientReading);
+        stubReading(0.1);
+        metricsRegistry = new MetricsRegistry();
+        telemetryStore = new TelemetryStore();
+
+        runnable = new CollisionRunnable(irSensorFactory, gpio, clientManager,
+                new EventBus(new MetricsRegistry(), Runnable::run), metricsRegistry, telemetryStore,
+                new FlightRecorder(new MetricsRegistry()));
+    }
 
-        runnable = new CollisionRunnable(irSensorFactory, gpio, clientManager, roverHandler);
+    /**
+     * Let all sensors read the given compensated percentage, in a dark environment.
+     */
+    private void stubReading(double percentage) {
+        ambientReading = 0;
+        litReading = (int) Math.round(percentage * 256);
     }
 
     @Test
@@ -48,6 +87,24 @@ public class CollisionRunnableTest {
         Assert.assertEquals("updateCollisionInformation", actualRequest.getMethod());
     }
 
+    @Test
+    public void testPackedStateIsSentAsSingleNumber() throws IOException {
+        ArgumentCaptor<JsonRpc2Request> requestCaptor = ArgumentCaptor.forClass(JsonRpc2Request.class);
+        runnable.setFilters("none", 1, 1, 0);
+        runnable.setSendPacked(true);
+        stubReading(0.6);
+
+        runnable.poll();
+
+        verify(clientManager).notifyAllClients(requestCaptor.capture());
+        JsonRpc2Request actualRequest = requestCaptor.getValue();
+        Assert.assertEquals("updateCollisionState", actualRequest.getMethod());
+        int packed = (Integer) actualRequest.getParams().get(0);
+        Assert.assertEquals(runnable.getCurrentCollisionState(), packed);
+        Assert.assertEquals(CollisionState.Close, PackedCollisionState.getState(packed, PackedCollisionState.BACK_LEFT));
+        Assert.assertTrue(PackedCollisionState.hasCollisionFront(packed));
+    }
+
     @Test
     public void testConvertSensorReadingToCollisionState() {
         Assert.assertEquals(CollisionState.None, runnable.convertSensorReadingToCollisionState(0.2));
@@ -58,4 +115,180 @@ public class CollisionRunnableTest {
         Assert.assertEquals(CollisionState.Medium, runnable.convertSensorReadingToCollisionState(0.49));
         Assert.assertEquals(CollisionState.Close, runnable.convertSensorReadingToCollisionState(0.5));
     }
+
+    @Test
+    public void testNoiseAroundThresholdIsSuppressed() throws IOException {
+        runnable.setFilters("none", 1, 1, 0.03);
+        stubReading(0.41);
+        runnable.poll();
+        Assert.assertEquals(CollisionState.Medium, runnable.getCurrentCollisionInformation().collisionFrontLeft);
+
+        // wobbling around the medium threshold
+        for (double reading : new double[] {0.39, 0.41, 0.39, 0.41}) {
+            stubReading(reading);
+            runnable.poll();
+        }
+
+        verify(clientManager, times(1)).notifyAllClients(any(JsonRpc2Request.class));
+        Assert.assertEquals(CollisionState.Medium, runnable.getCurrentCollisionInformation().collisionFrontLeft);
+        Assert.assertEquals(4, metricsRegistry.counter("collision.broadcasts.suppressed").get());
+        Assert.assertEquals(1, metricsRegistry.counter("collision.broadcasts").get());
+    }
+
+    @Test
+    public void testMedianFilterDropsSingleOutlier() throws IOException {
+        runnable.setFilters("median", 3, 1, 0);
+        for (int i = 0; i < 3; i++) {
+            runnable.poll();
+        }
+
+        stubReading(0.6);
+        runnable.poll();
+        stubReading(0.1);
+        runnable.poll();
+
+        verify(clientManager, times(1)).notifyAllClients(any(JsonRpc2Request.class));
+        Assert.assertEquals(CollisionState.None, runnable.getCurrentCollisionInformation().collisionFrontLeft);
+    }
+
+    @Test
+    public void testObstacleIsReportedAfterFilterDelay() throws IOException {
+        runnable.setFilters("median", 3, 1, 0.03);
+        runnable.poll();
+
+        stubReading(0.6);
+        runnable.poll();
+        runnable.poll();
+
+        Assert.assertEquals(CollisionState.Close, runnable.getCurrentCollisionInformation().collisionFrontLeft);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFilterType() {
+        runnable.setFilters("kalman", 3, 1, 0);
+    }
+
+    @Test
+    public void testMeasurementCycleSwitchesAllLedsAtOnce() throws IOException {
+        runnable.readAllSensors();
+
+        verify(gpio, times(2)).setState(Mockito.eq(PinState.LOW), Mockito.<GpioPinDigitalOutput>anyVararg());
+        verify(gpio, times(1)).setState(Mockito.eq(PinState.HIGH), Mockito.<GpioPinDigitalOutput>anyVararg());
+        verify(sensor, times(8)).getRawReading();
+        verify(sensor, never()).getCompensatedPercentage();
+        verify(sensor, never()).isEnvironmentTooBright();
+    }
+
+    @Test
+    public void testBrightEnvironmentTaintsReadings() throws IOException {
+        ambientReading = 240;
+        litReading = 250;
+
+        RoverCollisionInformation info = runnable.readAllSensors();
+
+        Assert.assertTrue(info.taintedReadings);
+    }
+
+    @Test
+    public void testIdlePollsAtIdleRate() throws IOException {
+        long start = 1000000000L;
+        long interval = runnable.pollIfDue(start);
+
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), interval);
+        Assert.assertEquals(interval - 1000, runnable.pollIfDue(start + 1000));
+        verify(sensor, times(8)).getRawReading();
+    }
+
+    @Test
+    public void testSpeedingUpTakesEffectImmediately() throws IOException {
+        long start = 1000000000L;
+        runnable.pollIfDue(start);
+
+        runnable.motionChanged(1, 1);
+
+        long twentyMillis = TimeUnit.MILLISECONDS.toNanos(20);
+        Assert.assertEquals(twentyMillis, runnable.pollIfDue(start + twentyMillis));
+        // all sensors, then the front sensors
+        verify(sensor, times(8 + 4)).getRawReading();
+    }
+
+    @Test
+    public void testDrivingForwardPollsFrontSensorsFast() throws IOException {
+        long start = 1000000000L;
+        long twentyMillis = TimeUnit.MILLISECONDS.toNanos(20);
+        runnable.motionChanged(1, 1);
+        runnable.pollIfDue(start);
+
+        // 4 polls of the front sensors, then all sensors again after 100 ms
+        for (int i = 1; i <= 5; i++) {
+            runnable.pollIfDue(start + i * twentyMillis);
+        }
+
+        verify(sensor, times(8 + 4 * 4 + 8)).getRawReading();
+    }
+
+    @Test
+    public void testApproachingObstacleLimitsForwardSpeed() throws IOException {
+        runnable.setFilters("none", 1, 1, 0);
+        long start = 1000000000L;
+        long twentyMillis = TimeUnit.MILLISECONDS.toNanos(20);
+        runnable.motionChanged(1, 1);
+
+        stubReading(92 / 256.0);
+        runnable.pollIfDue(start);
+        stubReading(96 / 256.0);
+        runnable.pollIfDue(start + twentyMillis);
+
+        // 0.78 per second at full speed: the margin of 0.125 lasts 0.8 s at 20 %, below the minimum speed
+        Assert.assertEquals(0.25, runnable.getForwardSpeedLimit(), 1e-9);
+        Assert.assertEquals(1, runnable.getBackwardSpeedLimit(), 0);
+
+        // obstacle out of sight
+        stubReading(0.1);
+        runnable.pollIfDue(start + 2 * twentyMillis);
+        Assert.assertEquals(1, runnable.getForwardSpeedLimit(), 0);
+    }
+
+    @Test
+    public void testParkedRoverIsNotLimited() throws IOException {
+        runnable.setFilters("none", 1, 1, 0);
+        for (double reading : new double[] {0.36, 0.4, 0.45}) {
+            stubReading(reading);
+            runnable.poll();
+        }
+
+        Assert.assertEquals(1, runnable.getForwardSpeedLimit(), 0);
+        Assert.assertEquals(1, runnable.getBackwardSpeedLimit(), 0);
+    }
+
+    @Test
+    public void testDisabledPredictionDoesNotLimit() throws IOException {
+        runnable.setFilters("none", 1, 1, 0);
+        runnable.disablePrediction();
+        runnable.motionChanged(1, 1);
+        long start = 1000000000L;
+        long twentyMillis = TimeUnit.MILLISECONDS.toNanos(20);
+
+        double[] readings = {0.36, 0.4, 0.45};
+        for (int i = 0; i < readings.length; i++) {
+            stubReading(readings[i]);
+            runnable.pollIfDue(start + i * twentyMillis);
+        }
+
+        Assert.assertEquals(1, runnable.getForwardSpeedLimit(), 0);
+    }
+
+    @Test
+    public void testReadingsAreRecordedAsTelemetry() throws IOException {
+        runnable.setFilters("none", 1, 1, 0);
+        stubReading(0.6);
+
+        runnable.poll();
+
+        TelemetryData readings = telemetryStore.query("collision.frontLeft.reading", 0, Long.MAX_VALUE, "raw");
+        Assert.assertEquals(1, readings.values.length);
+        Assert.assertEquals(0.6, readings.values[0], 0.01);
+        TelemetryData states = telemetryStore.query("collision.backLeft.state", 0, Long.MAX_VALUE, "raw");
+        Assert.assertEquals(CollisionState.Close.getValue(), states.values[0], 0);
+    }
 }
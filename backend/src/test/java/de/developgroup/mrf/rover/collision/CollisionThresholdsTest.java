@@ -0,0 +1,50 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CollisionThresholdsTest {
+
+    @Test
+    public void testRisingIgnoresHysteresis() {
+        CollisionThresholds thresholds = new CollisionThresholds(0.05);
+
+        Assert.assertEquals(CollisionState.Far, thresholds.classify(0.35, CollisionState.None));
+        Assert.assertEquals(CollisionState.Close, thresholds.classify(0.5, CollisionState.Far));
+    }
+
+    @Test
+    public void testFallingKeepsStateWithinHysteresis() {
+        CollisionThresholds thresholds = new CollisionThresholds(0.05);
+
+        Assert.assertEquals(CollisionState.Medium, thresholds.classify(0.37, CollisionState.Medium));
+        Assert.assertEquals(CollisionState.Far, thresholds.classify(0.34, CollisionState.Medium));
+        Assert.assertEquals(CollisionState.None, thresholds.classify(0.29, CollisionState.Far));
+    }
+
+    @Test
+    public void testFallingAcrossSeveralStates() {
+        CollisionThresholds thresholds = new CollisionThresholds(0.05);
+
+        Assert.assertEquals(CollisionState.None, thresholds.classify(0.1, CollisionState.Close));
+        Assert.assertEquals(CollisionState.Close, thresholds.classify(0.46, CollisionState.Close));
+        Assert.assertEquals(CollisionState.Medium, thresholds.classify(0.44, CollisionState.Close));
+    }
+
+    @Test
+    public void testWithoutHysteresis() {
+        CollisionThresholds thresholds = new CollisionThresholds(0);
+
+        Assert.assertEquals(CollisionState.Far, thresholds.classify(0.39, CollisionState.Medium));
+        Assert.assertEquals(CollisionState.None, thresholds.classify(0.34, CollisionState.Far));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeHysteresis() {
+        new CollisionThresholds(-0.1);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IRSignalFilterTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testNonePassesSamples() {
+        IRSignalFilter filter = IRSignalFilter.none();
+
+        Assert.assertEquals(0.3, filter.filter(0.3), DELTA);
+        Assert.assertEquals(0.9, filter.filter(0.9), DELTA);
+    }
+
+    @Test
+    public void testMedianDropsOutlier() {
+        IRSignalFilter filter = IRSignalFilter.median(3);
+
+        filter.filter(0.3);
+        filter.filter(0.3);
+        Assert.assertEquals(0.3, filter.filter(0.9), DELTA);
+        Assert.assertEquals(0.3, filter.filter(0.3), DELTA);
+    }
+
+    @Test
+    public void testMedianFollowsStep() {
+        IRSignalFilter filter = IRSignalFilter.median(3);
+
+        filter.filter(0.1);
+        filter.filter(0.1);
+        Assert.assertEquals(0.1, filter.filter(0.6), DELTA);
+        Assert.assertEquals(0.6, filter.filter(0.6), DELTA);
+    }
+
+    @Test
+    public void testMedianOfPartialWindow() {
+        IRSignalFilter filter = IRSignalFilter.median(5);
+
+        Assert.assertEquals(0.2, filter.filter(0.2), DELTA);
+        Assert.assertEquals(0.3, filter.filter(0.4), DELTA);
+        Assert.assertEquals(0.4, filter.filter(0.8), DELTA);
+    }
+
+    @Test
+    public void testEmaSmooths() {
+        IRSignalFilter filter = IRSignalFilter.ema(0.5);
+
+        Assert.assertEquals(0.2, filter.filter(0.2), DELTA);
+        Assert.assertEquals(0.4, filter.filter(0.6), DELTA);
+        Assert.assertEquals(0.5, filter.filter(0.6), DELTA);
+    }
+
+    @Test
+    public void testResetForgetsSamples() {
+        IRSignalFilter filter = IRSignalFilter.median(3);
+        filter.filter(0.9);
+        filter.filter(0.9);
+
+        filter.reset();
+
+        Assert.assertEquals(0.1, filter.filter(0.1), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindowSize() {
+        IRSignalFilter.median(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAlpha() {
+        IRSignalFilter.ema(1.5);
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import org.junit.Test;
+
+import static de.developgroup.mrf.rover.collision.PackedCollisionState.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PackedCollisionStateTest {
+
+    @Test
+    public void testNoneHasNoCollision() {
+        for (int sensor = FRONT_LEFT; sensor <= BACK_LEFT; sensor++) {
+            assertEquals(CollisionState.None, getState(NONE, sensor));
+        }
+        assertFalse(isTainted(NONE));
+        assertFalse(hasDangerousCollision(NONE));
+    }
+
+    @Test
+    public void testWithStateOnlyChangesOneSensor() {
+        int packed = withState(NONE, FRONT_RIGHT, CollisionState.Medium);
+        packed = withState(packed, BACK_LEFT, CollisionState.Close);
+        packed = withState(packed, FRONT_RIGHT, CollisionState.Far);
+
+        assertEquals(CollisionState.None, getState(packed, FRONT_LEFT));
+        assertEquals(CollisionState.Far, getState(packed, FRONT_RIGHT));
+        assertEquals(CollisionState.None, getState(packed, BACK_RIGHT));
+        assertEquals(CollisionState.Close, getState(packed, BACK_LEFT));
+    }
+
+    @Test
+    public void testLayoutMatchesClientDecoding() {
+        int packed = withState(NONE, BACK_RIGHT, CollisionState.Medium);
+        packed = withTainted(packed, true);
+
+        assertEquals(CollisionState.Medium.getValue(), (packed >> (2 * BACK_RIGHT)) & 3);
+        assertEquals(256, packed & 256);
+    }
+
+    @Test
+    public void testTaintedFlag() {
+        int packed = withTainted(withState(NONE, FRONT_LEFT, CollisionState.Close), true);
+        assertTrue(isTainted(packed));
+        assertEquals(CollisionState.Close, getState(packed, FRONT_LEFT));
+
+        packed = withTainted(packed, false);
+        assertFalse(isTainted(packed));
+        assertEquals(CollisionState.Close, getState(packed, FRONT_LEFT));
+    }
+
+    @Test
+    public void testCollisionFrontAndBack() {
+        for (int sensor : new int[]{FRONT_LEFT, FRONT_RIGHT}) {
+            int packed = withState(NONE, sensor, CollisionState.Close);
+            assertTrue(hasCollisionFront(packed));
+            assertFalse(hasCollisionBack(packed));
+            assertTrue(hasDangerousCollision(packed));
+        }
+        for (int sensor : new int[]{BACK_RIGHT, BACK_LEFT}) {
+            int packed = withState(NONE, sensor, CollisionState.Close);
+            assertFalse(hasCollisionFront(packed));
+            assertTrue(hasCollisionBack(packed));
+            assertTrue(hasDangerousCollision(packed));
+        }
+    }
+
+    @Test
+    public void testMediumIsNoCollision() {
+        int packed = NONE;
+        for (int sensor = FRONT_LEFT; sensor <= BACK_LEFT; sensor++) {
+            packed = withState(packed, sensor, CollisionState.Medium);
+        }
+        assertFalse(hasDangerousCollision(withTainted(packed, true)));
+    }
+}
@@ -83,4 +83,26 @@ public class RoverCollisionInformationTest {
         Assert.assertTrue(info.hasCollisionFront());
         Assert.assertFalse(info.hasCollisionBack());
     }
+
+    @Test
+    public void testPackedRoundTrip() {
+        info.taintedReadings = true;
+        info.collisionFrontLeft = CollisionState.Far;
+        info.collisionFrontRight = CollisionState.Medium;
+        info.collisionBackRight = CollisionState.Close;
+        info.collisionBackLeft = CollisionState.None;
+
+        RoverCollisionInformation decoded = RoverCollisionInformation.fromPacked(info.toPacked());
+
+        Assert.assertTrue(decoded.taintedReadings);
+        Assert.assertEquals(CollisionState.Far, decoded.collisionFrontLeft);
+        Assert.assertEquals(CollisionState.Medium, decoded.collisionFrontRight);
+        Assert.assertEquals(CollisionState.Close, decoded.collisionBackRight);
+        Assert.assertEquals(CollisionState.None, decoded.collisionBackLeft);
+    }
+
+    @Test
+    public void testDefaultPacksToNone() {
+        Assert.assertEquals(PackedCollisionState.NONE, info.toPacked());
+    }
 }
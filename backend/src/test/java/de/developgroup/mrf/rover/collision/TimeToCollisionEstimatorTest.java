@@ -0,0 +1,92 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.collision;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TimeToCollisionEstimatorTest {
+
+    static final long TENTH_SECOND = TimeUnit.MILLISECONDS.toNanos(100);
+
+    TimeToCollisionEstimator estimator;
+
+    @Before
+    public void setUp() {
+        estimator = new TimeToCollisionEstimator(1, 4, 1, 0.2);
+    }
+
+    private void feed(double speed, double... readings) {
+        for (int i = 0; i < readings.length; i++) {
+            estimator.update(0, readings[i], i * TENTH_SECOND, speed);
+        }
+    }
+
+    @Test
+    public void testApproachRateIsNormalizedBySpeed() {
+        feed(0.5, 0.36, 0.37, 0.38, 0.39);
+
+        // 0.1 per second at half speed
+        Assert.assertEquals(0.2, estimator.getApproachRate(0), 1e-9);
+    }
+
+    @Test
+    public void testSlopeIsFittedOverTheWindow() {
+        feed(1, 0.36, 0.385, 0.38, 0.405, 0.40);
+
+        // the last four samples rise by 0.1 per second with alternating noise
+        Assert.assertEquals(0.1, estimator.getApproachRate(0), 0.03);
+    }
+
+    @Test
+    public void testSpeedLimitKeepsTimeToCollisionAboveHorizon() {
+        feed(1, 0.36, 0.37, 0.38, 0.39, 0.40);
+
+        // margin of 0.1 at 0.1 per second and full speed: one second ahead, exactly the horizon
+        Assert.assertEquals(1, estimator.getSpeedLimit(0, 0.40), 1e-9);
+        Assert.assertEquals(0.5, estimator.getSpeedLimit(0, 0.45), 1e-9);
+    }
+
+    @Test
+    public void testSpeedLimitDoesNotFallBelowMinimum() {
+        feed(1, 0.36, 0.42, 0.48);
+
+        Assert.assertEquals(0.2, estimator.getSpeedLimit(0, 0.49), 1e-9);
+        Assert.assertEquals(0.2, estimator.getSpeedLimit(0, 0.6), 1e-9);
+    }
+
+    @Test
+    public void testRecedingObstacleIsNotLimited() {
+        feed(1, 0.45, 0.43, 0.41);
+
+        Assert.assertEquals(0, estimator.getApproachRate(0), 0);
+        Assert.assertEquals(1, estimator.getSpeedLimit(0, 0.41), 0);
+    }
+
+    @Test
+    public void testStoppingKeepsApproachRate() {
+        feed(1, 0.36, 0.38, 0.40);
+        estimator.update(0, 0.40, 3 * TENTH_SECOND, 0);
+
+        Assert.assertEquals(0.2, estimator.getApproachRate(0), 1e-9);
+    }
+
+    @Test
+    public void testNothingInSightResetsApproachRate() {
+        feed(1, 0.36, 0.38, 0.40);
+        estimator.update(0, 0.2, 3 * TENTH_SECOND, 1);
+
+        Assert.assertEquals(0, estimator.getApproachRate(0), 0);
+        Assert.assertEquals(1, estimator.getSpeedLimit(0, 0.2), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMinimumSpeed() {
+        new TimeToCollisionEstimator(1, 4, 1, 0);
+    }
+}
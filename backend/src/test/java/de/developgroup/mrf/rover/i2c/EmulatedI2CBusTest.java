@@ -0,0 +1,81 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EmulatedI2CBusTest {
+
+    MetricsRegistry metricsRegistry;
+
+    EmulatedI2CBus bus;
+
+    @Before
+    public void setUp() {
+        metricsRegistry = new MetricsRegistry();
+        bus = new EmulatedI2CBus(metricsRegistry);
+    }
+
+    @Test
+    public void testTransactionTimeFollowsClockFrequency() {
+        // start and stop condition, address byte and two data bytes, 9 cycles each
+        assertEquals(290000, bus.transactionNanos(2));
+        bus.setClockFrequency(EmulatedI2CBus.FAST_MODE);
+        assertEquals(72500, bus.transactionNanos(2));
+        bus.setClockFrequency(0);
+        assertEquals(0, bus.transactionNanos(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeClockFrequencyIsRejected() {
+        bus.setClockFrequency(-1);
+    }
+
+    @Test
+    public void testDevicesOfTheRover() throws IOException {
+        assertTrue(bus.getDevice(0x40) instanceof PCA9685Emulator);
+        assertTrue(bus.getDevice(0x48) instanceof PCF8591Emulator);
+        assertTrue(bus.getDevice(0x4F) instanceof PCF8591Emulator);
+        assertSame(bus.getDevice(0x48), bus.getDevice(0x48));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoDeviceAtOtherAddresses() throws IOException {
+        bus.getDevice(0x20);
+    }
+
+    @Test
+    public void testTransactionsAreCounted() throws IOException {
+        bus.setClockFrequency(0);
+        EmulatedI2CDevice device = (EmulatedI2CDevice) bus.getDevice(0x48);
+        device.write((byte) 0x40);
+        device.read(new byte[5], 0, 5);
+        device.read(0x41);
+
+        assertEquals(3, device.getTransactions());
+        assertEquals(2, device.getBytesWritten());
+        assertEquals(6, device.getBytesRead());
+        assertEquals(3, metricsRegistry.counter("i2c.0x48.transactions").get());
+    }
+
+    @Test
+    public void testTransactionsTakeTheirTime() throws IOException {
+        bus.setClockFrequency(EmulatedI2CBus.STANDARD_MODE);
+        EmulatedI2CDevice device = (EmulatedI2CDevice) bus.getDevice(0x40);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            device.write(0x06, (byte) i);
+        }
+        assertTrue(System.nanoTime() - start >= 10 * bus.transactionNanos(2));
+    }
+}
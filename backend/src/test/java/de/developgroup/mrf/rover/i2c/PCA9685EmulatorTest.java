@@ -0,0 +1,109 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+import de.developgroup.mrf.rover.pwmgenerator.PCA9685PWMGenerator;
+import de.developgroup.mrf.rover.pwmgenerator.PWMOutput;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PCA9685EmulatorTest {
+
+    PCA9685Emulator device;
+
+    @Before
+    public void setUp() throws IOException {
+        EmulatedI2CBus bus = new EmulatedI2CBus(new MetricsRegistry());
+        bus.setClockFrequency(0);
+        device = (PCA9685Emulator) bus.getDevice(0x40);
+    }
+
+    @Test
+    public void testPowerOnState() {
+        assertTrue(device.isSleeping());
+        assertEquals(0x1E, device.getPrescale());
+        assertEquals(0, device.getDutyCycle(0), 0);
+    }
+
+    @Test
+    public void testDriverSetsFrequencyAndDutyCycle() throws IOException {
+        PCA9685PWMGenerator generator = new PCA9685PWMGenerator(device);
+        generator.open();
+        generator.setFrequency(50);
+        PWMOutput output = generator.getOutput(14);
+        output.setPWM(1024);
+
+        assertFalse(device.isSleeping());
+        assertEquals(121, device.getPrescale());
+        assertEquals(50.03, device.getFrequency(), 0.01);
+        assertEquals(0, device.getOn(14));
+        assertEquals(1024, device.getOff(14));
+        assertEquals(0.25, device.getDutyCycle(14), 0);
+        assertEquals(0, device.getDutyCycle(15), 0);
+    }
+
+    @Test
+    public void testPrescaleIsOnlyWrittenWhileSleeping() throws IOException {
+        device.write(PCA9685Emulator.REG_MODE1, (byte) 0x00);
+        device.write(PCA9685Emulator.REG_PRESCALE, (byte) 121);
+        assertEquals(0x1E, device.getPrescale());
+        assertEquals(1, device.getBlockedPrescaleWrites());
+
+        device.write(PCA9685Emulator.REG_MODE1, (byte) PCA9685Emulator.SLEEP);
+        device.write(PCA9685Emulator.REG_PRESCALE, (byte) 1);
+        assertEquals(PCA9685Emulator.MIN_PRESCALE, device.getPrescale());
+    }
+
+    @Test
+    public void testAutoIncrement() throws IOException {
+        byte[] counts = {0x00, 0x01, (byte) 0xFF, 0x02};
+
+        // without auto-increment every byte goes to the same register
+        device.write(PCA9685Emulator.REG_LED0_ON_L, counts, 0, counts.length);
+        assertEquals(0x02, device.getRegister(PCA9685Emulator.REG_LED0_ON_L));
+        assertEquals(0x00, device.getRegister(PCA9685Emulator.REG_LED0_ON_L + 1));
+
+        device.write(PCA9685Emulator.REG_MODE1, (byte) PCA9685Emulator.AI);
+        device.write(PCA9685Emulator.REG_LED0_ON_L + 4, counts, 0, counts.length);
+        assertEquals(0x100, device.getOn(1));
+        assertEquals(0x2FF, device.getOff(1));
+
+        byte[] read = new byte[4];
+        device.read(PCA9685Emulator.REG_LED0_ON_L + 4, read, 0, read.length);
+        assertEquals(counts[2], read[2]);
+
+        // rolls over from the last LED register to MODE1
+        device.read(PCA9685Emulator.REG_LED15_OFF_H, read, 0, 2);
+        assertEquals(PCA9685Emulator.AI, read[1]);
+    }
+
+    @Test
+    public void testAllLedRegistersWriteAllChannels() throws IOException {
+        device.write(PCA9685Emulator.REG_MODE1, (byte) 0x00);
+        device.write(PCA9685Emulator.REG_ALL_LED_OFF_H, (byte) 0x08);
+
+        for (int channel = 0; channel < PCA9685Emulator.CHANNELS; channel++) {
+            assertEquals(0.5, device.getDutyCycle(channel), 0);
+        }
+        assertEquals(0, device.read(PCA9685Emulator.REG_ALL_LED_OFF_H));
+    }
+
+    @Test
+    public void testFullOnAndRestart() throws IOException {
+        device.write(PCA9685Emulator.REG_MODE1, (byte) PCA9685Emulator.RESTART);
+        assertEquals(0, device.read(PCA9685Emulator.REG_MODE1));
+
+        device.write(PCA9685Emulator.REG_LED0_ON_L + 1, (byte) PCA9685Emulator.FULL);
+        device.write(PCA9685Emulator.REG_LED0_ON_L + 3, (byte) 0);
+        assertEquals(1, device.getDutyCycle(0), 0);
+    }
+}
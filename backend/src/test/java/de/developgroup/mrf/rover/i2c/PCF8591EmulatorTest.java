@@ -0,0 +1,104 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.i2c;
+
+import de.developgroup.mrf.rover.pcf8591.PCF8591ADConverter;
+import de.developgroup.mrf.rover.pcf8591.PCF8591ADConverterImpl;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class PCF8591EmulatorTest {
+
+    PCF8591Emulator device;
+
+    @Before
+    public void setUp() throws IOException {
+        EmulatedI2CBus bus = new EmulatedI2CBus(new MetricsRegistry());
+        bus.setClockFrequency(0);
+        device = (PCF8591Emulator) bus.getDevice(0x48);
+        for (int input = 0; input < PCF8591Emulator.INPUTS; input++) {
+            device.setInput(input, 10 * (input + 1));
+        }
+    }
+
+    @Test
+    public void testFirstByteIsThePreviousConversion() throws IOException {
+        device.write((byte) 0x42);
+        assertEquals(PCF8591Emulator.POWER_ON_RESULT, device.read());
+        assertEquals(30, device.read());
+        assertEquals(30, device.read());
+
+        device.write((byte) 0x40);
+        // still the result of channel 2
+        assertEquals(30, device.read());
+        assertEquals(10, device.read());
+    }
+
+    @Test
+    public void testAutoIncrement() throws IOException {
+        device.write((byte) 0x44);
+        byte[] buffer = new byte[6];
+        device.read(buffer, 0, buffer.length);
+        assertEquals(10, buffer[1]);
+        assertEquals(20, buffer[2]);
+        assertEquals(30, buffer[3]);
+        assertEquals(40, buffer[4]);
+        assertEquals(10, buffer[5]);
+        assertEquals(2, device.getChannel());
+    }
+
+    @Test
+    public void testConverterReadsThroughTheEmulator() throws IOException {
+        PCF8591ADConverter converter = new PCF8591ADConverterImpl(device);
+        assertEquals(20, converter.getChannelValue(PCF8591ADConverter.InputChannel.ONE));
+
+        device.setInputs(input -> 100 + input);
+        int[] values = new int[PCF8591Emulator.INPUTS];
+        converter.getChannelValues(values);
+        assertEquals(100, values[0]);
+        assertEquals(103, values[3]);
+    }
+
+    @Test
+    public void testInputsAreClamped() throws IOException {
+        device.setInput(0, 300);
+        device.setInput(1, -5);
+        device.write((byte) 0x44);
+        byte[] buffer = new byte[3];
+        device.read(buffer, 0, buffer.length);
+        assertEquals(255, buffer[1] & 0xFF);
+        assertEquals(0, buffer[2]);
+    }
+
+    @Test
+    public void testDifferentialInputs() throws IOException {
+        // inputs 0 to 2 against input 3
+        device.write((byte) 0x10);
+        device.read();
+        assertEquals(-30, (byte) device.read());
+
+        // input 0 against 1, input 2 against 3, with auto-increment
+        device.write((byte) 0x34);
+        byte[] buffer = new byte[4];
+        device.read(buffer, 0, buffer.length);
+        assertEquals(-10, buffer[1]);
+        assertEquals(-10, buffer[2]);
+        assertEquals(-10, buffer[3]);
+    }
+
+    @Test
+    public void testAnalogOutput() throws IOException {
+        device.write(new byte[] {0x40, 0x7F}, 0, 2);
+        assertEquals(0x7F, device.getAnalogOutput());
+
+        device.write((byte) 0x00);
+        assertEquals(0, device.getAnalogOutput());
+    }
+}
@@ -12,6 +12,9 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -58,4 +61,27 @@ public class PCF8591ADConverterImplTest {
 
         Assert.assertEquals(42, converter.getChannelValue(PCF8591ADConverter.InputChannel.ZERO));
     }
+
+    @Test
+    public void testAllChannelsAreReadInOneTransaction() throws IOException {
+        doAnswer(invocation -> {
+            byte[] buffer = (byte[]) invocation.getArguments()[0];
+            buffer[0] = 1;
+            buffer[1] = 10;
+            buffer[2] = 20;
+            buffer[3] = (byte) 200;
+            buffer[4] = 40;
+            return 5;
+        }).when(fakeDevice).read(any(byte[].class), eq(0), eq(5));
+        int[] values = new int[4];
+
+        converter.getChannelValues(values);
+
+        verify(fakeDevice).write((byte)0x44);
+        verify(fakeDevice, times(0)).read();
+        Assert.assertEquals(10, values[0]);
+        Assert.assertEquals(20, values[1]);
+        Assert.assertEquals(200, values[2]);
+        Assert.assertEquals(40, values[3]);
+    }
 }
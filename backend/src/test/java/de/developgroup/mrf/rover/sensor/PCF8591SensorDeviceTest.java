@@ -0,0 +1,65 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import de.developgroup.mrf.rover.pcf8591.PCF8591ADConverter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PCF8591SensorDeviceTest {
+
+    PCF8591ADConverter converter;
+
+    PCF8591SensorDevice device;
+
+    int[] values = new int[4];
+
+    @Before
+    public void setUp() throws IOException {
+        converter = Mockito.mock(PCF8591ADConverter.class);
+        doAnswer(invocation -> {
+            int[] all = (int[]) invocation.getArguments()[0];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = 100 + i;
+            }
+            return null;
+        }).when(converter).getChannelValues(any(int[].class));
+        when(converter.getChannelValue(PCF8591ADConverter.InputChannel.TWO)).thenReturn(7);
+        device = new PCF8591SensorDevice(converter);
+    }
+
+    @Test
+    public void testSingleChannelIsReadAlone() throws IOException {
+        device.read(new int[]{2}, 1, values);
+
+        Assert.assertEquals(7, values[0]);
+        verify(converter, never()).getChannelValues(any(int[].class));
+    }
+
+    @Test
+    public void testSeveralChannelsAreReadAtOnce() throws IOException {
+        device.read(new int[]{3, 0, 1}, 3, values);
+
+        Assert.assertEquals(103, values[0]);
+        Assert.assertEquals(100, values[1]);
+        Assert.assertEquals(101, values[2]);
+        verify(converter, never()).getChannelValue(any(PCF8591ADConverter.InputChannel.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownChannel() throws IOException {
+        device.read(new int[]{4}, 1, values);
+    }
+}
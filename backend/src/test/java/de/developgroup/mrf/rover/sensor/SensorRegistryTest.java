@@ -0,0 +1,88 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import org.cfg4j.provider.ConfigurationProvider;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SensorRegistryTest {
+
+    SensorRegistry registry;
+
+    ConfigurationProvider provider;
+
+    @Before
+    public void setUp() {
+        registry = new SensorRegistry();
+        provider = mock(ConfigurationProvider.class);
+    }
+
+    private void configure(String name, String bus, int channel, double rate, String output) {
+        SensorConfiguration configuration = mock(SensorConfiguration.class);
+        when(configuration.bus()).thenReturn(bus);
+        when(configuration.channel()).thenReturn(channel);
+        when(configuration.rate()).thenReturn(rate);
+        when(configuration.output()).thenReturn(output);
+        when(provider.bind("sensor." + name, SensorConfiguration.class)).thenReturn(configuration);
+    }
+
+    private void configureNames(String names) {
+        SensorsConfiguration configuration = mock(SensorsConfiguration.class);
+        when(configuration.names()).thenReturn(names);
+        when(provider.bind("sensors", SensorsConfiguration.class)).thenReturn(configuration);
+    }
+
+    @Test
+    public void testSensorsAreReadFromConfiguration() {
+        configureNames("battery, sonar");
+        configure("battery", "pcf8591:0x49", 0, 1, "voltage");
+        configure("sonar", "pcf8591:0x49", 1, 20, "Percentage");
+
+        registry.initialize(provider);
+
+        Assert.assertEquals(2, registry.getSensors().size());
+        SensorDescriptor battery = registry.getSensor("battery");
+        Assert.assertEquals("pcf8591:0x49", battery.getBus());
+        Assert.assertEquals(0, battery.getChannel());
+        Assert.assertEquals(1, battery.getRate(), 0);
+        Assert.assertEquals(SensorOutput.VOLTAGE, battery.getOutput());
+        Assert.assertEquals(SensorOutput.PERCENTAGE, registry.getSensor("sonar").getOutput());
+    }
+
+    @Test
+    public void testInvalidSensorIsSkipped() {
+        configureNames("battery,broken,missing");
+        configure("battery", "pcf8591", 0, 1, "voltage");
+        configure("broken", "pcf8591", 1, 0, "voltage");
+        when(provider.bind("sensor.missing", SensorConfiguration.class)).thenThrow(new NoSuchElementException());
+
+        registry.initialize(provider);
+
+        Assert.assertEquals(1, registry.getSensors().size());
+        Assert.assertNull(registry.getSensor("broken"));
+    }
+
+    @Test
+    public void testNoSensorsConfigured() {
+        configureNames("");
+
+        registry.initialize(provider);
+
+        Assert.assertTrue(registry.getSensors().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNamesAreUnique() {
+        registry.register(new SensorDescriptor("battery", "pcf8591", 0, 1, SensorOutput.RAW));
+        registry.register(new SensorDescriptor("battery", "pcf8591", 1, 1, SensorOutput.RAW));
+    }
+}
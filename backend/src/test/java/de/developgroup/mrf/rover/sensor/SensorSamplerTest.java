@@ -0,0 +1,135 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.sensor;
+
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Subscription;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class SensorSamplerTest {
+
+    static final long START = 1000000000L;
+
+    static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    SensorSampler sampler;
+
+    MetricsRegistry metricsRegistry;
+
+    final List<SensorReading> readings = new ArrayList<>();
+
+    /**
+     * Channels of every read, per bus.
+     */
+    final Map<String, List<int[]>> reads = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        metricsRegistry = new MetricsRegistry();
+        EventBus eventBus = new EventBus(metricsRegistry, Runnable::run);
+        eventBus.subscribe(SensorSampler.SENSOR_READINGS, Subscription.Delivery.SYNCHRONOUS, readings::add);
+        SensorDeviceFactory deviceFactory = bus -> {
+            if (bus.equals("broken")) {
+                throw new IOException("no such device");
+            }
+            reads.put(bus, new ArrayList<>());
+            return (channels, count, values) -> {
+                reads.get(bus).add(Arrays.copyOf(channels, count));
+                for (int i = 0; i < count; i++) {
+                    values[i] = 10 * channels[i] + 51;
+                }
+            };
+        };
+        sampler = new SensorSampler(new SensorRegistry(), deviceFactory, eventBus, metricsRegistry);
+    }
+
+    private static SensorDescriptor sensor(String name, String bus, int channel, double rate) {
+        return new SensorDescriptor(name, bus, channel, rate, SensorOutput.RAW);
+    }
+
+    @Test
+    public void testSensorsOfOneDeviceShareReads() {
+        sampler.schedule(Arrays.asList(sensor("a", "pcf8591", 0, 10), sensor("b", "pcf8591", 2, 10)), START);
+
+        sampler.sampleIfDue(START);
+        sampler.sampleIfDue(START + 100 * MILLIS);
+
+        Assert.assertEquals(2, reads.get("pcf8591").size());
+        Assert.assertArrayEquals(new int[]{0, 2}, reads.get("pcf8591").get(1));
+        Assert.assertEquals(4, readings.size());
+        Assert.assertEquals(2, metricsRegistry.counter("sensors.reads").get());
+        Assert.assertEquals(4, metricsRegistry.counter("sensors.samples").get());
+    }
+
+    @Test
+    public void testEachSensorIsSampledAtItsRate() {
+        sampler.schedule(Arrays.asList(sensor("fast", "pcf8591", 0, 10), sensor("slow", "pcf8591", 1, 2)), START);
+
+        for (long t = 0; t < 1000; t += 10) {
+            sampler.sampleIfDue(START + t * MILLIS);
+        }
+
+        long fast = readings.stream().filter(reading -> reading.getSensor().equals("fast")).count();
+        long[] slow = readings.stream().filter(reading -> reading.getSensor().equals("slow"))
+                .mapToLong(reading -> (reading.getTimestampNanos() - START) / MILLIS).toArray();
+        Assert.assertEquals(10, fast);
+        // sampled early to share the reads of the fast sensor, but still every 500 ms
+        Assert.assertArrayEquals(new long[]{0, 400, 900}, slow);
+        Assert.assertEquals(10, reads.get("pcf8591").size());
+    }
+
+    @Test
+    public void testDevicesAreReadSeparately() {
+        sampler.schedule(Arrays.asList(sensor("a", "pcf8591", 0, 10), sensor("b", "pcf8591:0x49", 0, 10)), START);
+
+        sampler.sampleIfDue(START);
+
+        Assert.assertEquals(1, reads.get("pcf8591").size());
+        Assert.assertEquals(1, reads.get("pcf8591:0x49").size());
+    }
+
+    @Test
+    public void testReturnsTimeUntilNextSensorIsDue() {
+        sampler.schedule(Arrays.asList(sensor("a", "pcf8591", 0, 10), sensor("b", "other", 0, 20)), START);
+
+        Assert.assertEquals(50 * MILLIS, sampler.sampleIfDue(START));
+        Assert.assertEquals(20 * MILLIS, sampler.sampleIfDue(START + 30 * MILLIS));
+    }
+
+    @Test
+    public void testReadingsAreConvertedToTheirOutput() {
+        sampler.schedule(Arrays.asList(new SensorDescriptor("battery", "pcf8591", 0, 1, SensorOutput.VOLTAGE)),
+                START);
+
+        sampler.sampleIfDue(START);
+
+        SensorReading reading = readings.get(0);
+        Assert.assertEquals("battery", reading.getSensor());
+        Assert.assertEquals(51, reading.getRaw());
+        Assert.assertEquals(0.66, reading.getValue(), 1e-9);
+        Assert.assertEquals(START, reading.getTimestampNanos());
+    }
+
+    @Test
+    public void testSensorsOfBrokenDeviceAreSkipped() {
+        sampler.schedule(Arrays.asList(sensor("a", "broken", 0, 10), sensor("b", "pcf8591", 0, 10)), START);
+
+        sampler.sampleIfDue(START);
+
+        Assert.assertEquals(1, readings.size());
+        Assert.assertEquals("b", readings.get(0).getSensor());
+    }
+}
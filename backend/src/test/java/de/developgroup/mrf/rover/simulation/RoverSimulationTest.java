@@ -0,0 +1,110 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.simulation;
+
+import com.pi4j.io.gpio.PinState;
+import com.pi4j.io.gpio.RaspiPin;
+import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.rover.collision.PackedCollisionState;
+import de.developgroup.mrf.rover.gpio.EmulatedGpioController;
+import de.developgroup.mrf.rover.i2c.EmulatedI2CBus;
+import de.developgroup.mrf.rover.motor.MotorController;
+import de.developgroup.mrf.rover.motor.MotorControllerConfiguration;
+import de.developgroup.mrf.rover.motor.MotorControllerImpl;
+import de.developgroup.mrf.rover.pcf8591.IRSensor;
+import de.developgroup.mrf.rover.pcf8591.IRSensorImpl;
+import de.developgroup.mrf.rover.pcf8591.PCF8591ADConverterImpl;
+import de.developgroup.mrf.rover.pwmgenerator.PCA9685PWMGenerator;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the simulated rover through the real drivers on the emulated devices.
+ */
+public class RoverSimulationTest {
+
+    EmulatedI2CBus bus;
+
+    EmulatedGpioController gpio;
+
+    RoverSimulation simulation;
+
+    MotorController leftMotor;
+
+    MotorController rightMotor;
+
+    @Before
+    public void setUp() throws IOException {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        bus = new EmulatedI2CBus(metricsRegistry);
+        bus.setClockFrequency(0);
+        gpio = new EmulatedGpioController();
+        simulation = new RoverSimulation(bus, gpio, metricsRegistry);
+        simulation.connect();
+
+        PCA9685PWMGenerator generator = new PCA9685PWMGenerator(bus.getDevice(0x40));
+        generator.open();
+        generator.setFrequency(50);
+        // as configured in rover.properties
+        MotorControllerConfiguration left = Mockito.mock(MotorControllerConfiguration.class);
+        when(left.gpioPin()).thenReturn("GPIO_00");
+        MotorControllerConfiguration right = Mockito.mock(MotorControllerConfiguration.class);
+        when(right.gpioPin()).thenReturn("GPIO_07");
+        when(right.reversed()).thenReturn(true);
+        leftMotor = new MotorControllerImpl(generator.getOutput(RoverSimulation.LEFT_MOTOR_CHANNEL), gpio, left);
+        rightMotor = new MotorControllerImpl(generator.getOutput(RoverSimulation.RIGHT_MOTOR_CHANNEL), gpio, right);
+    }
+
+    @Test
+    public void testMotorsMoveTheRover() throws IOException {
+        double startX = simulation.getWorld().getX();
+        leftMotor.setSpeedPercentage(1.0);
+        rightMotor.setSpeedPercentage(1.0);
+        for (int i = 0; i < 100; i++) {
+            simulation.tick(0.01);
+        }
+        // half a metre at full speed in a second
+        assertEquals(startX + 0.5, simulation.getWorld().getX(), 0.01);
+        assertEquals(0, simulation.getWorld().getHeading(), 0.01);
+
+        leftMotor.setSpeedPercentage(-0.5);
+        rightMotor.setSpeedPercentage(-0.5);
+        for (int i = 0; i < 100; i++) {
+            simulation.tick(0.01);
+        }
+        assertEquals(startX + 0.25, simulation.getWorld().getX(), 0.01);
+    }
+
+    @Test
+    public void testMotorsTurnTheRover() throws IOException {
+        leftMotor.setSpeedPercentage(-0.5);
+        rightMotor.setSpeedPercentage(0.5);
+        simulation.tick(0.1);
+        assertTrue(simulation.getWorld().getHeading() > 0);
+    }
+
+    @Test
+    public void testIRSensorsSeeTheWalls() throws IOException {
+        PCF8591ADConverterImpl converter = new PCF8591ADConverterImpl(bus.getDevice(0x48));
+        int sensor = PackedCollisionState.FRONT_LEFT;
+        IRSensor frontLeft = new IRSensorImpl(converter, CollisionRunnable.getSensorChannel(sensor),
+                gpio.provisionDigitalOutputPin(CollisionRunnable.getLedPin(sensor), PinState.LOW));
+
+        assertEquals(0, frontLeft.getCompensatedPercentage(), 0.01);
+
+        // 5 cm in front of the right wall of the default arena
+        simulation.getWorld().place(4 - 0.15 - 0.05, 1.5, 0);
+        assertEquals(1, frontLeft.getCompensatedPercentage(), 0.01);
+        assertEquals(PinState.LOW, gpio.getOutputState(RaspiPin.GPIO_05));
+    }
+}
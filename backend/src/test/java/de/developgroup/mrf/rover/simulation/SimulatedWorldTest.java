@@ -0,0 +1,116 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.rover.simulation;
+
+import de.developgroup.mrf.rover.collision.PackedCollisionState;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatedWorldTest {
+
+    static final double DELTA = 1e-9;
+
+    SimulatedWorld world;
+
+    @Before
+    public void setUp() {
+        // 4 x 3 m with a box ahead of the start
+        world = new SimulatedWorld(4, 3, Obstacle.parse("3 1 3.5 2"), 0.3, 0.2, 0.2);
+        world.place(1, 1.5, 0);
+    }
+
+    @Test
+    public void testParseObstacles() {
+        List<Obstacle> obstacles = Obstacle.parse(" 0 0 1 1;2 2 1.5 3 ; ");
+        assertEquals(2, obstacles.size());
+        assertTrue(obstacles.get(1).contains(1.75, 2.5));
+        assertTrue(Obstacle.parse("").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsIncompleteObstacles() {
+        Obstacle.parse("0 0 1");
+    }
+
+    @Test
+    public void testRayDistance() {
+        Obstacle obstacle = new Obstacle(1, 1, 2, 2);
+        assertEquals(0.5, obstacle.rayDistance(0.5, 1.5, 1, 0), DELTA);
+        assertEquals(Double.POSITIVE_INFINITY, obstacle.rayDistance(0.5, 1.5, -1, 0), DELTA);
+        assertEquals(Double.POSITIVE_INFINITY, obstacle.rayDistance(0.5, 0.5, 1, 0), DELTA);
+        assertEquals(0, obstacle.rayDistance(1.5, 1.5, 0, 1), DELTA);
+    }
+
+    @Test
+    public void testDriveStraight() {
+        assertTrue(world.step(0.5, 0.5, 1));
+        assertEquals(1.5, world.getX(), DELTA);
+        assertEquals(1.5, world.getY(), DELTA);
+        assertEquals(0, world.getHeading(), DELTA);
+    }
+
+    @Test
+    public void testTurnInPlace() {
+        // a quarter turn to the left: the wheels cover a quarter of the circle of the wheel base
+        double wheelSpeed = Math.PI / 2 * 0.1;
+        world.step(-wheelSpeed, wheelSpeed, 1);
+        assertEquals(1, world.getX(), DELTA);
+        assertEquals(Math.PI / 2, world.getHeading(), DELTA);
+    }
+
+    @Test
+    public void testSensorDistances() {
+        // front sensors at x = 1.15, the box starts at 3
+        assertEquals(1.85, world.sensorDistance(PackedCollisionState.FRONT_LEFT), DELTA);
+        assertEquals(1.85, world.sensorDistance(PackedCollisionState.FRONT_RIGHT), DELTA);
+        // back sensors at x = 0.85 look at the wall
+        assertEquals(0.85, world.sensorDistance(PackedCollisionState.BACK_LEFT), DELTA);
+
+        // the left front sensor at y = 2.1 passes the box
+        world.place(1, 2.0, 0);
+        assertEquals(2.85, world.sensorDistance(PackedCollisionState.FRONT_LEFT), DELTA);
+        assertEquals(1.85, world.sensorDistance(PackedCollisionState.FRONT_RIGHT), DELTA);
+    }
+
+    @Test
+    public void testObstaclesBlockTheRover() {
+        world.place(2.8, 1.5, 0);
+        assertFalse(world.step(0.5, 0.5, 0.2));
+        assertEquals(2.8, world.getX(), DELTA);
+        assertEquals(1, world.getBumps());
+
+        // backing off is possible
+        assertTrue(world.step(-0.5, -0.5, 0.2));
+    }
+
+    @Test
+    public void testWallsBlockTheRover() {
+        SimulatedWorld empty = new SimulatedWorld(1, 1, Collections.emptyList(), 0.3, 0.2, 0.2);
+        empty.place(0.5, 0.5, Math.PI);
+        for (int i = 0; i < 10; i++) {
+            empty.step(0.5, 0.5, 0.1);
+        }
+        assertEquals(0.15, empty.getX(), 0.05);
+        assertTrue(empty.getBumps() > 0);
+    }
+
+    @Test
+    public void testSensorModel() {
+        IRSensorModel model = new IRSensorModel(30, 0.15);
+        assertEquals(30, model.read(0.1, false));
+        assertEquals(255, model.read(0.1, true));
+        assertEquals(255, model.read(0.15, true));
+        // a quarter of the range at twice the reach
+        assertEquals(86, model.read(0.3, true));
+        assertEquals(30, model.read(Double.POSITIVE_INFINITY, true));
+    }
+}
@@ -7,29 +7,42 @@ package de.developgroup.mrf.server;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.inject.Injector;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.events.Subscription;
 import de.developgroup.mrf.server.handler.ClientInformationHandler;
 import de.developgroup.mrf.server.handler.ClientInformationHandlerImpl;
 import de.developgroup.mrf.server.handler.SingleDriverHandler;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
 import de.developgroup.mrf.server.rpc.JsonRpc2Request;
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketException;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class ClientManagerTest {
 
@@ -37,6 +50,7 @@ public class ClientManagerTest {
     private static ClientManagerImpl clientManager;
     private ClientInformationHandler clientInformationHandler = mock(ClientInformationHandlerImpl.class);
 	private SingleDriverHandler singleDriverHandler = mock(SingleDriverHandler.class);
+	private EventBus eventBus = new EventBus(new MetricsRegistry(), Runnable::run);
 
 	private static Session session;
 	private static RemoteEndpoint remoteEndpoint;
@@ -50,7 +64,7 @@ public class ClientManagerTest {
 
 	@Before
 	public void setUp() throws Exception {
-		clientManager = new ClientManagerImpl(clientInformationHandler, singleDriverHandler);
+		clientManager = new ClientManagerImpl(clientInformationHandler, singleDriverHandler, eventBus);
 
 		// mocking session
 		session = mock(Session.class);
@@ -58,6 +72,11 @@ public class ClientManagerTest {
 		when(session.getRemote()).thenReturn(remoteEndpoint);
 		when(session.getRemoteAddress()).thenReturn(new InetSocketAddress(0));
 		when(session.isOpen()).thenReturn(false);
+		// the notifications are written right away
+		doAnswer(invocation -> {
+			((WriteCallback) invocation.getArguments()[1]).writeSuccess();
+			return null;
+		}).when(remoteEndpoint).sendString(anyString(), any(WriteCallback.class));
 	}
 
 	@After
@@ -86,30 +105,171 @@ public class ClientManagerTest {
 	@Test
 	public void testAddAndRemoveClients() throws IOException {
 		clientManager.addClient(session);
-		verify(remoteEndpoint).sendString(sendFirstClientMsg);
+		verify(remoteEndpoint).sendString(eq(sendFirstClientMsg), any(WriteCallback.class));
 		assertEquals(1, clientManager.getConnectedClientsCount());
 
 		clientManager.addClient(session);
-		verify(remoteEndpoint).sendString(sendSecondClientMsg);
+		verify(remoteEndpoint).sendString(eq(sendSecondClientMsg), any(WriteCallback.class));
 		assertEquals(2, clientManager.getConnectedClientsCount());
 
 		// remove all session
-		verify(remoteEndpoint, atLeastOnce()).sendString(anyString());
+		verify(remoteEndpoint, atLeastOnce()).sendString(anyString(), any(WriteCallback.class));
 		clientManager.removeClosedSessions();
 		assertEquals(0, clientManager.getConnectedClientsCount());
 	}
 
+	@Test
+	public void testRemoveClient() {
+		int clientId = clientManager.addClient(session);
+
+		clientManager.removeClient(clientId);
+
+		assertEquals(0, clientManager.getConnectedClientsCount());
+		verify(clientInformationHandler).removeConnection(clientId);
+	}
+
+	@Test
+	public void testRemoveUnknownClientIsIgnored() {
+		clientManager.addClient(session);
+
+		clientManager.removeClient(4711);
+
+		assertEquals(1, clientManager.getConnectedClientsCount());
+		verify(clientInformationHandler, never()).removeConnection(4711);
+	}
+
+	@Test
+	public void testNotifyAllClientsSkipsRemovedClients() throws IOException {
+		int clientId = clientManager.addClient(session);
+		Session otherSession = mock(Session.class);
+		RemoteEndpoint otherRemote = mock(RemoteEndpoint.class);
+		when(otherSession.getRemote()).thenReturn(otherRemote);
+		when(otherSession.getRemoteAddress()).thenReturn(new InetSocketAddress(0));
+		clientManager.addClient(otherSession);
+
+		clientManager.removeClient(clientId);
+		clientManager.notifyAllClients("after removal");
+
+		String notificationMsg = "{\"method\":\"incomingNotification\",\"params\":[\"after removal\"],\"jsonrpc\":\"2.0\"}";
+		verify(remoteEndpoint, never()).sendString(eq(notificationMsg), any(WriteCallback.class));
+		verify(otherRemote).sendString(eq(notificationMsg), any(WriteCallback.class));
+	}
+
+	@Test
+	public void testFailedAndUndeliverableNotificationsAreCountedAsDropped() throws IOException {
+		MetricsRegistry metricsRegistry = new MetricsRegistry();
+		ClientManagerImpl countingClientManager = new ClientManagerImpl(clientInformationHandler,
+				singleDriverHandler, eventBus, metricsRegistry);
+		int clientId = countingClientManager.addClient(session);
+		long sent = metricsRegistry.counter("clients.notifications.sent").get();
+		assertEquals(2, sent);
+
+		doAnswer(invocation -> {
+			((WriteCallback) invocation.getArguments()[1]).writeFailed(new IOException("broken pipe"));
+			return null;
+		}).when(remoteEndpoint).sendString(anyString(), any(WriteCallback.class));
+		countingClientManager.notifyAllClients("lost");
+		countingClientManager.notifyClientById(4711, "unknown client");
+
+		assertEquals(sent, metricsRegistry.counter("clients.notifications.sent").get());
+		assertEquals(2, metricsRegistry.counter("clients.notifications.dropped").get());
+		countingClientManager.removeClient(clientId);
+	}
+
+	@Test
+	public void testClosedSessionDoesNotStopNotifications() throws IOException {
+		MetricsRegistry metricsRegistry = new MetricsRegistry();
+		ClientManagerImpl countingClientManager = new ClientManagerImpl(clientInformationHandler,
+				singleDriverHandler, eventBus, metricsRegistry);
+		Session closedSession = mock(Session.class);
+		when(closedSession.getRemote()).thenReturn(mock(RemoteEndpoint.class));
+		when(closedSession.getRemoteAddress()).thenReturn(new InetSocketAddress(0));
+		countingClientManager.addClient(closedSession);
+		when(closedSession.getRemote()).thenThrow(new WebSocketException("RemoteEndpoint unavailable"));
+
+		countingClientManager.addClient(session);
+
+		verify(remoteEndpoint, times(2)).sendString(anyString(), any(WriteCallback.class));
+		assertEquals(1, metricsRegistry.counter("clients.notifications.dropped").get());
+	}
+
+	@Test
+	public void testSlowClientDropsNotificationsBeyondItsQueue() throws IOException {
+		MetricsRegistry metricsRegistry = new MetricsRegistry();
+		ClientManagerImpl countingClientManager = new ClientManagerImpl(clientInformationHandler,
+				singleDriverHandler, eventBus, metricsRegistry);
+		// the writes of the slow client never complete
+		Session slowSession = mock(Session.class);
+		RemoteEndpoint slowRemote = mock(RemoteEndpoint.class);
+		when(slowSession.getRemote()).thenReturn(slowRemote);
+		when(slowSession.getRemoteAddress()).thenReturn(new InetSocketAddress(0));
+		countingClientManager.addClient(slowSession);
+		countingClientManager.addClient(session);
+
+		for (int i = 0; i < SessionOutbox.CAPACITY; i++) {
+			countingClientManager.notifyAllClients("notification " + i);
+		}
+
+		// id, two connect messages and the notifications, of which the last three did not fit
+		verify(slowRemote, times(SessionOutbox.CAPACITY)).sendString(anyString(), any(WriteCallback.class));
+		assertEquals(3, metricsRegistry.counter("clients.notifications.dropped").get());
+		verify(remoteEndpoint, times(SessionOutbox.CAPACITY + 2)).sendString(anyString(), any(WriteCallback.class));
+	}
+
+	@Test
+	public void testMembershipEventsAreCoalesced() {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		ClientManagerImpl scheduledClientManager = new ClientManagerImpl(clientInformationHandler,
+				singleDriverHandler, eventBus, scheduler, new MetricsRegistry());
+		AtomicInteger events = new AtomicInteger();
+		eventBus.subscribe(ClientManager.CLIENTS_CHANGED, Subscription.Delivery.SYNCHRONOUS,
+				changed -> events.incrementAndGet());
+
+		int clientId = scheduledClientManager.addClient(session);
+		scheduledClientManager.addClient(session);
+		scheduledClientManager.removeClient(clientId);
+
+		ArgumentCaptor<Runnable> event = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler, times(1)).schedule(event.capture(),
+				eq(ClientManagerImpl.MEMBERSHIP_EVENT_DELAY), eq(TimeUnit.MILLISECONDS));
+		assertEquals(0, events.get());
+
+		event.getValue().run();
+		assertEquals(1, events.get());
+
+		// the next change is a new event
+		scheduledClientManager.removeClosedSessions();
+		verify(scheduler, times(2)).schedule(any(Runnable.class),
+				eq(ClientManagerImpl.MEMBERSHIP_EVENT_DELAY), eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testSweepRunsOnSharedScheduler() {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		ClientManagerImpl scheduledClientManager = new ClientManagerImpl(clientInformationHandler,
+				singleDriverHandler, eventBus, scheduler, new MetricsRegistry());
+		scheduledClientManager.addClient(session);
+
+		ArgumentCaptor<Runnable> sweep = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler).scheduleWithFixedDelay(sweep.capture(), any(Long.class), any(Long.class),
+				eq(TimeUnit.MILLISECONDS));
+		sweep.getValue().run();
+
+		// the mocked session is closed
+		assertEquals(0, scheduledClientManager.getConnectedClientsCount());
+	}
+
 	@Test
 	public void testNotifyClientByIdText() throws IOException {
 		clientManager.addClient(session);
 		// send id to client
-		verify(remoteEndpoint, atLeastOnce()).sendString(sendFirstClientMsg);
+		verify(remoteEndpoint, atLeastOnce()).sendString(eq(sendFirstClientMsg), any(WriteCallback.class));
 		// notification that a new client has connected to the server
-		verify(remoteEndpoint, atLeastOnce()).sendString(anyString());
+		verify(remoteEndpoint, atLeastOnce()).sendString(anyString(), any(WriteCallback.class));
 
 		clientManager.notifyClientById(5000, "Test Another Notification");
 		String notificationMsg = "{\"method\":\"incomingNotification\",\"params\":[\"Test Another Notification\"],\"jsonrpc\":\"2.0\"}";
-		verify(remoteEndpoint).sendString(notificationMsg);
+		verify(remoteEndpoint).sendString(eq(notificationMsg), any(WriteCallback.class));
 
 	}
 
@@ -117,9 +277,9 @@ public class ClientManagerTest {
 	public void testNotifyClientById() throws IOException {
 		clientManager.addClient(session);
 		// send id to client
-		verify(remoteEndpoint, atLeastOnce()).sendString(sendFirstClientMsg);
+		verify(remoteEndpoint, atLeastOnce()).sendString(eq(sendFirstClientMsg), any(WriteCallback.class));
 		// notification that a new client has connected to the server
-		verify(remoteEndpoint, atLeastOnce()).sendString(anyString());
+		verify(remoteEndpoint, atLeastOnce()).sendString(anyString(), any(WriteCallback.class));
 
 		List<Object> params = new ArrayList<>();
 		params.add("testParam");
@@ -128,7 +288,7 @@ public class ClientManagerTest {
 		clientManager.notifyClientById(5000, notification);
 
 		String notificationMsg = "{\"method\":\"Notification 123\",\"params\":[\"testParam\"],\"jsonrpc\":\"2.0\"}";
-		verify(remoteEndpoint, atLeastOnce()).sendString(notificationMsg);
+		verify(remoteEndpoint, atLeastOnce()).sendString(eq(notificationMsg), any(WriteCallback.class));
 
 	}
 
@@ -139,7 +299,7 @@ public class ClientManagerTest {
 
 		clientManager.notifyAllClients("Test Notification");
 		String notificationMsg = "{\"method\":\"incomingNotification\",\"params\":[\"Test Notification\"],\"jsonrpc\":\"2.0\"}";
-		verify(remoteEndpoint, times(2)).sendString(notificationMsg);
+		verify(remoteEndpoint, times(2)).sendString(eq(notificationMsg), any(WriteCallback.class));
 	}
 
 	@Test
@@ -154,7 +314,7 @@ public class ClientManagerTest {
 
 		clientManager.notifyAllClients(notification);
 		String notificationMsg = "{\"method\":\"Notification 456\",\"params\":[\"testParam\"],\"jsonrpc\":\"2.0\"}";
-		verify(remoteEndpoint, times(2)).sendString(notificationMsg);
+		verify(remoteEndpoint, times(2)).sendString(eq(notificationMsg), any(WriteCallback.class));
 	}
 
 	@Test
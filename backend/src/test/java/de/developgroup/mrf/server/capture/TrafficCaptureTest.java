@@ -0,0 +1,129 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.capture;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficCaptureTest {
+
+    private Path directory;
+
+    private Path file;
+
+    private MetricsRegistry metricsRegistry;
+
+    private TrafficCapture capture;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("capture");
+        file = directory.resolve("traffic.cap");
+        metricsRegistry = new MetricsRegistry();
+        capture = new TrafficCapture(metricsRegistry);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        capture.stop();
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testNothingIsCapturedBeforeStart() {
+        capture.captureInbound(5001, "ignored");
+        assertFalse(capture.isCapturing());
+        assertFalse(Files.exists(file));
+        assertEquals(0, metricsRegistry.counter("trafficCapture.frames").get());
+    }
+
+    @Test
+    public void testFramesAreReadInCaptureOrder() throws IOException {
+        long before = System.currentTimeMillis();
+        capture.start(file);
+        assertTrue(capture.isCapturing());
+        capture.captureOutbound(5001, "{\"method\":\"setClientId\",\"params\":[5001],\"jsonrpc\":\"2.0\"}");
+        capture.captureInbound(5001, "{\"method\":\"ping\",\"params\":[1],\"jsonrpc\":\"2.0\",\"id\":1}");
+        capture.captureOutbound(5001, "{\"result\":\"pong 2\",\"jsonrpc\":\"2.0\",\"id\":1}");
+        capture.captureInbound(5002, "Grüße");
+        capture.captureClose(5001);
+        capture.stop();
+        assertFalse(capture.isCapturing());
+        assertEquals(5, metricsRegistry.counter("trafficCapture.frames").get());
+
+        try (TrafficCaptureReader reader = new TrafficCaptureReader(file)) {
+            assertTrue(reader.getStartMillis() >= before);
+            byte[] types = new byte[5];
+            int[] clientIds = new int[5];
+            String[] messages = new String[5];
+            long previousNanos = -1;
+            for (int i = 0; i < 5; i++) {
+                assertTrue(reader.next());
+                assertTrue(reader.getNanos() >= previousNanos);
+                previousNanos = reader.getNanos();
+                types[i] = reader.getType();
+                clientIds[i] = reader.getClientId();
+                messages[i] = reader.getMessage();
+            }
+            assertFalse(reader.next());
+
+            assertTrue(Arrays.equals(new byte[] {TrafficCapture.OUTBOUND, TrafficCapture.INBOUND,
+                    TrafficCapture.OUTBOUND, TrafficCapture.INBOUND, TrafficCapture.CLOSE}, types));
+            assertTrue(Arrays.equals(new int[] {5001, 5001, 5001, 5002, 5001}, clientIds));
+            assertEquals("{\"method\":\"ping\",\"params\":[1],\"jsonrpc\":\"2.0\",\"id\":1}", messages[1]);
+            assertEquals("Grüße", messages[3]);
+            assertEquals("", messages[4]);
+        }
+    }
+
+    @Test
+    public void testRestartReplacesTheCapture() throws IOException {
+        capture.start(file);
+        capture.captureInbound(5001, "first");
+        capture.start(file);
+        capture.captureInbound(5001, "second");
+        capture.stop();
+
+        try (TrafficCaptureReader reader = new TrafficCaptureReader(file)) {
+            assertTrue(reader.next());
+            assertEquals("second", reader.getMessage());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void testFrameCutOffAtTheEndIsIgnored() throws IOException {
+        capture.start(file);
+        capture.captureInbound(5001, "complete");
+        capture.captureInbound(5001, "cut off");
+        capture.stop();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (TrafficCaptureReader reader = new TrafficCaptureReader(file)) {
+            assertTrue(reader.next());
+            assertEquals("complete", reader.getMessage());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOtherFilesAreRejected() throws IOException {
+        Files.write(file, "no capture".getBytes("UTF-8"));
+        new TrafficCaptureReader(file).close();
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.content;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrecompressorTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("client");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testCompressibleFilesGetAGzipVariant() throws IOException {
+        Path script = directory.resolve("main/main.js");
+        Files.createDirectories(script.getParent());
+        byte[] content = text(4096);
+        Files.write(script, content);
+
+        new Precompressor().precompress(directory);
+
+        Path gzip = Paths.get(script + ".gz");
+        assertTrue(Files.exists(gzip));
+        assertTrue(Arrays.equals(content, gunzip(Files.readAllBytes(gzip))));
+        assertEquals(Files.getLastModifiedTime(script), Files.getLastModifiedTime(gzip));
+    }
+
+    @Test
+    public void testSmallIncompressibleAndOtherFilesAreSkipped() throws IOException {
+        Files.write(directory.resolve("small.js"), text(100));
+        Files.write(directory.resolve("logo.png"), text(4096));
+        byte[] random = new byte[4096];
+        new Random(42).nextBytes(random);
+        Files.write(directory.resolve("random.css"), random);
+
+        new Precompressor().precompress(directory);
+
+        assertFalse(Files.exists(directory.resolve("small.js.gz")));
+        assertFalse(Files.exists(directory.resolve("logo.png.gz")));
+        assertFalse(Files.exists(directory.resolve("random.css.gz")));
+    }
+
+    @Test
+    public void testChangedFilesAreCompressedAgain() throws IOException {
+        Path style = directory.resolve("app.css");
+        Files.write(style, text(4096));
+        new Precompressor().precompress(directory);
+
+        byte[] changed = text(8192);
+        Files.write(style, changed);
+        Files.setLastModifiedTime(style, FileTime.fromMillis(Files.getLastModifiedTime(style).toMillis() + 2000));
+        new Precompressor().precompress(directory);
+
+        assertTrue(Arrays.equals(changed, gunzip(Files.readAllBytes(directory.resolve("app.css.gz")))));
+    }
+
+    private static byte[] text(int length) {
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = (byte) ('a' + i % 7);
+        }
+        return text;
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+}
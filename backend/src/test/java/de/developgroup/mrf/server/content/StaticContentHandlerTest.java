@@ -0,0 +1,197 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.content;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.DefaultHandler;
+import org.eclipse.jetty.server.handler.HandlerList;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.resource.Resource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StaticContentHandlerTest {
+
+    private static final String SCRIPT = repeat(
+            "angular.module('roverApp').controller('DriveCtrl', function () {});\n", 100);
+
+    private Path directory;
+
+    private MetricsRegistry metricsRegistry;
+
+    private Server server;
+
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("client");
+        Files.createDirectories(directory.resolve("ss16/proj2/bower_components/angular"));
+        Files.write(directory.resolve("ss16/proj2/index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("ss16/proj2/app.js"), SCRIPT.getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("ss16/proj2/bower_components/angular/angular.min.js"),
+                SCRIPT.getBytes(StandardCharsets.UTF_8));
+        new Precompressor().precompress(directory);
+
+        metricsRegistry = new MetricsRegistry();
+        server = new Server(0);
+        HandlerList handlers = new HandlerList();
+        handlers.addHandler(new StaticContentHandler(Resource.newResource(directory.toFile()), metricsRegistry));
+        handlers.addHandler(new DefaultHandler());
+        server.setHandler(handlers);
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPlainFileWithoutAcceptEncoding() throws IOException {
+        HttpURLConnection connection = get("/ss16/proj2/app.js", null, null);
+        assertEquals(200, connection.getResponseCode());
+        assertNull(connection.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", connection.getHeaderField("Vary"));
+        assertTrue(connection.getContentType().contains("javascript"));
+        assertEquals(SCRIPT.length(), connection.getContentLength());
+        assertEquals(SCRIPT, read(connection.getInputStream()));
+    }
+
+    @Test
+    public void testGzipVariantIfAccepted() throws IOException {
+        HttpURLConnection connection = get("/ss16/proj2/app.js", "deflate, gzip;q=0.8", null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        assertTrue(connection.getContentLength() < SCRIPT.length());
+        assertEquals(SCRIPT, read(new GZIPInputStream(connection.getInputStream())));
+        assertEquals(1, metricsRegistry.counter("content.gzip").get());
+    }
+
+    @Test
+    public void testStrongETagsDifferPerEncoding() throws IOException {
+        String plain = get("/ss16/proj2/app.js", null, null).getHeaderField("ETag");
+        String gzip = get("/ss16/proj2/app.js", "gzip", null).getHeaderField("ETag");
+        assertTrue(plain.startsWith("\""));
+        assertTrue(gzip.startsWith("\""));
+        assertFalse(plain.equals(gzip));
+    }
+
+    @Test
+    public void testNotModifiedForMatchingETag() throws IOException {
+        String etag = get("/ss16/proj2/app.js", "gzip", null).getHeaderField("ETag");
+
+        HttpURLConnection connection = get("/ss16/proj2/app.js", "gzip", etag);
+        assertEquals(304, connection.getResponseCode());
+        assertEquals(etag, connection.getHeaderField("ETag"));
+        assertEquals(1, metricsRegistry.counter("content.notModified").get());
+
+        // the plain variant does not match the tag of the gzip variant
+        assertEquals(200, get("/ss16/proj2/app.js", null, etag).getResponseCode());
+    }
+
+    @Test
+    public void testAllFilesAreRevalidated() throws IOException {
+        assertEquals(StaticContentHandler.CACHE_CONTROL,
+                get("/ss16/proj2/app.js", null, null).getHeaderField("Cache-Control"));
+        // not content-addressed, an update of a component keeps its URL
+        HttpURLConnection component = get("/ss16/proj2/bower_components/angular/angular.min.js", null, null);
+        assertEquals(StaticContentHandler.CACHE_CONTROL, component.getHeaderField("Cache-Control"));
+        assertEquals(304, get("/ss16/proj2/bower_components/angular/angular.min.js", null,
+                component.getHeaderField("ETag")).getResponseCode());
+    }
+
+    @Test
+    public void testSmallFilesAreCached() throws IOException {
+        get("/ss16/proj2/app.js", "gzip", null).getInputStream().close();
+        get("/ss16/proj2/app.js", "gzip", null).getInputStream().close();
+        String cachedBytes = metricsRegistry.toText().split("content.cachedBytes ")[1].split("\n")[0];
+        assertEquals(Files.size(directory.resolve("ss16/proj2/app.js.gz")), (long) Double.parseDouble(cachedBytes));
+    }
+
+    @Test
+    public void testWelcomeFileOfDirectory() throws IOException {
+        HttpURLConnection connection = get("/ss16/proj2/", null, null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("<html></html>", read(connection.getInputStream()));
+        // too small to be worth a gzip variant
+        assertNull(connection.getHeaderField("Vary"));
+    }
+
+    @Test
+    public void testMissingFilesAndEscapesAreLeftToTheNextHandler() throws IOException {
+        assertEquals(404, get("/ss16/proj2/missing.js", null, null).getResponseCode());
+        assertFalse(get("/ss16/../../client.js", null, null).getResponseCode() == 200);
+        assertEquals(0, metricsRegistry.counter("content.requests").get());
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(StaticContentHandler.acceptsGzip("gzip, deflate, br"));
+        assertTrue(StaticContentHandler.acceptsGzip("*"));
+        assertTrue(StaticContentHandler.acceptsGzip("GZIP;q=0.5"));
+        assertFalse(StaticContentHandler.acceptsGzip(null));
+        assertFalse(StaticContentHandler.acceptsGzip("identity"));
+        assertFalse(StaticContentHandler.acceptsGzip("gzip;q=0, *"));
+        assertFalse(StaticContentHandler.acceptsGzip("*;q=0"));
+    }
+
+    @Test
+    public void testMatches() {
+        assertTrue(StaticContentHandler.matches("\"a\", \"b\"", "\"b\""));
+        assertTrue(StaticContentHandler.matches("*", "\"b\""));
+        assertFalse(StaticContentHandler.matches("W/\"b\"", "\"b\""));
+    }
+
+    private HttpURLConnection get(String path, String acceptEncoding, String ifNoneMatch) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path)
+                .openConnection();
+        if (acceptEncoding != null) {
+            connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        return connection;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            return new String(IO.readBytes(in), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder(text.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
@@ -6,8 +6,10 @@
 package de.developgroup.mrf.server.controller;
 
 import junit.framework.Assert;
+import org.cfg4j.provider.ConfigurationProvider;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 public class ContinuousDrivingAlgorithmImplTest {
 
@@ -126,4 +128,23 @@ public class ContinuousDrivingAlgorithmImplTest {
         Assert.assertTrue(Math.abs(upFast.leftMotorPercentage) + Math.abs(upFast.rightMotorPercentage)
                 > Math.abs(upSlow.leftMotorPercentage) + Math.abs(upSlow.rightMotorPercentage));
     }
+
+    @Test
+    public void testSettingsAreReadFromConfiguration() {
+        DrivingConfiguration configuration = Mockito.mock(DrivingConfiguration.class);
+        Mockito.when(configuration.rotateZoneDegrees()).thenReturn(30);
+        Mockito.when(configuration.maxSpeed()).thenReturn(0.5);
+        ConfigurationProvider provider = Mockito.mock(ConfigurationProvider.class);
+        Mockito.when(provider.bind("driving", DrivingConfiguration.class)).thenReturn(configuration);
+
+        algorithm.initialize(provider);
+
+        MotorSettings forward = algorithm.calculateMotorSetting(90, 100);
+        Assert.assertEquals(0.5, forward.leftMotorPercentage);
+        Assert.assertEquals(0.5, forward.rightMotorPercentage);
+        // within the wider rotate zone
+        MotorSettings rotate = algorithm.calculateMotorSetting(25, 100);
+        Assert.assertEquals(0.5, rotate.leftMotorPercentage);
+        Assert.assertEquals(-0.5, rotate.rightMotorPercentage);
+    }
 }
@@ -7,15 +7,20 @@ package de.developgroup.mrf.server.controller;
 
 import de.developgroup.mrf.rover.collision.CollisionRunnable;
 import de.developgroup.mrf.rover.collision.CollisionState;
+import de.developgroup.mrf.rover.collision.PackedCollisionState;
 import de.developgroup.mrf.rover.collision.RoverCollisionInformation;
 import de.developgroup.mrf.rover.motor.MotorController;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
 import junit.framework.Assert;
+import org.cfg4j.provider.ConfigurationProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.util.NoSuchElementException;
 
 import static org.mockito.Mockito.*;
 
@@ -31,13 +36,26 @@ public class DriveControllerTest {
     public void setUp() throws IOException {
         drivingAlgorithm = Mockito.mock(ContinuousDrivingAlgorithm.class);
         collisionRunnable = Mockito.mock(CollisionRunnable.class);
-        Mockito.when(collisionRunnable.getCurrentCollisionInformation()).thenReturn(new RoverCollisionInformation());
+        Mockito.when(collisionRunnable.getCurrentCollisionState()).thenReturn(PackedCollisionState.NONE);
 
-        driveController = Mockito.spy(new DriveControllerImpl(drivingAlgorithm, collisionRunnable));
+        driveController = Mockito.spy(new DriveControllerImpl(drivingAlgorithm, collisionRunnable,
+                new EventBus(new MetricsRegistry(), Runnable::run)));
         driveController.leftMotor = Mockito.mock(MotorController.class);
         driveController.rightMotor = Mockito.mock(MotorController.class);
     }
 
+    /**
+     * Let the mocked driving algorithm return the given motor settings through the allocation free overload.
+     */
+    private void stubDrivingAlgorithm(double left, double right) {
+        doAnswer(invocation -> {
+            MotorSettings target = (MotorSettings) invocation.getArguments()[2];
+            target.leftMotorPercentage = left;
+            target.rightMotorPercentage = right;
+            return null;
+        }).when(drivingAlgorithm).calculateMotorSetting(anyInt(), anyInt(), any(MotorSettings.class));
+    }
+
     @Test
     public void testApplyMotorSettings() throws IOException {
         MotorSettings newSetting = new MotorSettings(0.6, -0.8);
@@ -94,20 +112,23 @@ public class DriveControllerTest {
 
     @Test
     public void testStop() throws IOException {
-        ArgumentCaptor<MotorSettings> motorSettingsCaptor = ArgumentCaptor.forClass(MotorSettings.class);
+        driveController.applyMotorSettings(new MotorSettings(0.5, 0.5));
 
         driveController.stop();
 
-        verify(driveController).applyMotorSettings(motorSettingsCaptor.capture());
-        Assert.assertEquals(0d, motorSettingsCaptor.getValue().leftMotorPercentage);
-        Assert.assertEquals(0d, motorSettingsCaptor.getValue().rightMotorPercentage);
+        // stopping bypasses applyMotorSettings and with it the acceleration ramp
+        verify(driveController).applyMotorSettings(any(MotorSettings.class));
+        verify(driveController.leftMotor).setSpeedPercentage(0d);
+        verify(driveController.rightMotor).setSpeedPercentage(0d);
+        Assert.assertEquals(0d, driveController.getCurrentMotorSettings().leftMotorPercentage);
+        Assert.assertEquals(0d, driveController.getCurrentMotorSettings().rightMotorPercentage);
     }
 
     @Test
     public void testDriveForwardsBlocked() throws IOException {
         RoverCollisionInformation info = new RoverCollisionInformation();
         info.collisionFrontLeft = CollisionState.Close;
-        when(collisionRunnable.getCurrentCollisionInformation()).thenReturn(info);
+        when(collisionRunnable.getCurrentCollisionState()).thenReturn(info.toPacked());
 
         driveController.driveForwards();
 
@@ -118,7 +139,7 @@ public class DriveControllerTest {
     public void testDriveBackwardsBlocked() throws IOException {
         RoverCollisionInformation info = new RoverCollisionInformation();
         info.collisionBackRight = CollisionState.Close;
-        when(collisionRunnable.getCurrentCollisionInformation()).thenReturn(info);
+        when(collisionRunnable.getCurrentCollisionState()).thenReturn(info.toPacked());
 
         driveController.driveBackwards();
 
@@ -130,8 +151,8 @@ public class DriveControllerTest {
         // assure a collision front is encountered
         RoverCollisionInformation collisionFront = new RoverCollisionInformation();
         collisionFront.collisionFrontLeft = CollisionState.Close;
-        Mockito.when(collisionRunnable.getCurrentCollisionInformation()).thenReturn(collisionFront);
-        Mockito.when(drivingAlgorithm.calculateMotorSetting(anyInt(), anyInt())).thenReturn(new MotorSettings(1, 1));
+        Mockito.when(collisionRunnable.getCurrentCollisionState()).thenReturn(collisionFront.toPacked());
+        stubDrivingAlgorithm(1, 1);
 
         driveController.leftMotor = Mockito.mock(MotorController.class);
         driveController.rightMotor = Mockito.mock(MotorController.class);
@@ -146,8 +167,8 @@ public class DriveControllerTest {
         // make collision back happen
         RoverCollisionInformation collisionBack = new RoverCollisionInformation();
         collisionBack.collisionBackRight = CollisionState.Close;
-        Mockito.when(collisionRunnable.getCurrentCollisionInformation()).thenReturn(collisionBack);
-        Mockito.when(drivingAlgorithm.calculateMotorSetting(anyInt(), anyInt())).thenReturn(new MotorSettings(-1, -1));
+        Mockito.when(collisionRunnable.getCurrentCollisionState()).thenReturn(collisionBack.toPacked());
+        stubDrivingAlgorithm(-1, -1);
 
         driveController.leftMotor = Mockito.mock(MotorController.class);
         driveController.rightMotor = Mockito.mock(MotorController.class);
@@ -157,13 +178,53 @@ public class DriveControllerTest {
         verify(driveController).stop();
     }
 
+    @Test
+    public void testJoystickDrivesIfNoCollision() throws IOException {
+        stubDrivingAlgorithm(0.5, 0.25);
+
+        driveController.setContinuousDriving(60, 50);
+
+        verify(driveController.leftMotor).setSpeedPercentage(0.5);
+        verify(driveController.rightMotor).setSpeedPercentage(0.25);
+        verify(driveController, never()).stop();
+    }
+
+    @Test
+    public void testCurrentMotorSettingsAreNotAliased() throws IOException {
+        MotorSettings settings = new MotorSettings(0.6, 0.6);
+        driveController.applyMotorSettings(settings);
+
+        settings.leftMotorPercentage = -1;
+
+        Assert.assertEquals(0.6, driveController.getCurrentMotorSettings().leftMotorPercentage);
+    }
+
+    @Test
+    public void testCurrentMotorSettingsAreWhatWasWritten() throws IOException {
+        // e.g. a step of the control loop's ramp towards a setpoint
+        driveController.writeMotors(0.2, 0.1);
+
+        Assert.assertEquals(0.2, driveController.getCurrentMotorSettings().leftMotorPercentage);
+        Assert.assertEquals(0.1, driveController.getCurrentMotorSettings().rightMotorPercentage);
+        verify(collisionRunnable).motionChanged(0.2, 0.1);
+    }
+
+    @Test
+    public void testCurrentMotorSettingsAreReturnedAsCopy() throws IOException {
+        driveController.applyMotorSettings(new MotorSettings(0.6, 0.6));
+
+        driveController.getCurrentMotorSettings().leftMotorPercentage = -1;
+
+        Assert.assertEquals(0.6, driveController.getCurrentMotorSettings().leftMotorPercentage);
+    }
+
     @Test
     public void testUpdateWithCollidingCollisionInformationStopsForwards() throws IOException {
         RoverCollisionInformation info = Mockito.mock(RoverCollisionInformation.class);
         Mockito.when(info.hasCollisionFront()).thenReturn(true);
 
         driveController.driveForwards();
-        driveController.update(collisionRunnable, info);
+        driveController.onCollisionInformation(info);
 
         verify(driveController).stop();
     }
@@ -174,7 +235,7 @@ public class DriveControllerTest {
         Mockito.when(info.hasCollisionFront()).thenReturn(false);
 
         driveController.driveForwards();
-        driveController.update(collisionRunnable, info);
+        driveController.onCollisionInformation(info);
 
         verify(driveController, never()).stop();
     }
@@ -185,7 +246,7 @@ public class DriveControllerTest {
         Mockito.when(info.hasCollisionBack()).thenReturn(true);
 
         driveController.driveBackwards();
-        driveController.update(collisionRunnable, info);
+        driveController.onCollisionInformation(info);
 
         verify(driveController).stop();
     }
@@ -196,7 +257,7 @@ public class DriveControllerTest {
         Mockito.when(info.hasCollisionBack()).thenReturn(false);
 
         driveController.driveBackwards();
-        driveController.update(collisionRunnable, info);
+        driveController.onCollisionInformation(info);
 
         verify(driveController, never()).stop();
     }
@@ -234,4 +295,29 @@ public class DriveControllerTest {
         Assert.assertEquals(min, driveController.clamp(-1337, min, max));
         Assert.assertEquals(max, driveController.clamp(666, min, max));
     }
+
+    @Test
+    public void testTableAlgorithmIsSelectedByConfiguration() {
+        DrivingAlgorithmConfiguration configuration = Mockito.mock(DrivingAlgorithmConfiguration.class);
+        when(configuration.algorithm()).thenReturn(AbstractDriveController.TABLE_ALGORITHM);
+        ConfigurationProvider provider = Mockito.mock(ConfigurationProvider.class);
+        when(provider.bind(eq("driving"), eq(DrivingAlgorithmConfiguration.class))).thenReturn(configuration);
+        when(provider.bind(eq("driving"), eq(DrivingConfiguration.class))).thenThrow(new NoSuchElementException());
+
+        driveController.initializeDrivingAlgorithm(provider);
+
+        Assert.assertTrue(driveController.drivingAlgorithm instanceof LookupTableDrivingAlgorithm);
+    }
+
+    @Test
+    public void testInjectedAlgorithmIsKeptWithoutConfiguration() {
+        ConfigurationProvider provider = Mockito.mock(ConfigurationProvider.class);
+        when(provider.bind(eq("driving"), eq(DrivingAlgorithmConfiguration.class)))
+                .thenThrow(new NoSuchElementException());
+
+        driveController.initializeDrivingAlgorithm(provider);
+
+        Assert.assertSame(drivingAlgorithm, driveController.drivingAlgorithm);
+        verify(drivingAlgorithm).initialize(provider);
+    }
 }
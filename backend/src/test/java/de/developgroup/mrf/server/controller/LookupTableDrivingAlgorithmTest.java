@@ -0,0 +1,94 @@
+/*
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+
+package de.developgroup.mrf.server.controller;
+
+import junit.framework.Assert;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.NoSuchElementException;
+
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+
+public class LookupTableDrivingAlgorithmTest {
+
+    LookupTableDrivingAlgorithm algorithm;
+
+    ContinuousDrivingAlgorithmImpl reference;
+
+    @Before
+    public void setUp() {
+        algorithm = new LookupTableDrivingAlgorithm();
+        reference = new ContinuousDrivingAlgorithmImpl();
+    }
+
+    private void assertSameAsReference(ContinuousDrivingAlgorithm reference, int angle, int speed) {
+        MotorSettings expected = reference.calculateMotorSetting(angle, speed);
+        MotorSettings actual = algorithm.calculateMotorSetting(angle, speed);
+        Assert.assertEquals("left at " + angle + "/" + speed, expected.leftMotorPercentage, actual.leftMotorPercentage);
+        Assert.assertEquals("right at " + angle + "/" + speed, expected.rightMotorPercentage, actual.rightMotorPercentage);
+    }
+
+    @Test
+    public void testSameResultsAsReferenceForAllInputs() {
+        for (int angle = 0; angle < 360; angle++) {
+            for (int speed = 0; speed <= 100; speed++) {
+                assertSameAsReference(reference, angle, speed);
+            }
+        }
+    }
+
+    @Test
+    public void testAnglesOutOfRangeFallBackToReference() {
+        assertSameAsReference(reference, -90, 50);
+        assertSameAsReference(reference, 360, 50);
+        assertSameAsReference(reference, 450, 80);
+    }
+
+    @Test
+    public void testResultIsWrittenIntoTarget() {
+        MotorSettings target = new MotorSettings(0, 0);
+
+        algorithm.calculateMotorSetting(90, 100, target);
+
+        Assert.assertEquals(1d, target.leftMotorPercentage);
+        Assert.assertEquals(1d, target.rightMotorPercentage);
+    }
+
+    @Test
+    public void testTablesAreRebuiltWhenConfigurationChanges() {
+        DrivingConfiguration configuration = Mockito.mock(DrivingConfiguration.class);
+        when(configuration.rotateZoneDegrees()).thenReturn(20);
+        when(configuration.maxSpeed()).thenReturn(1d);
+        ConfigurationProvider provider = Mockito.mock(ConfigurationProvider.class);
+        when(provider.bind(eq("driving"), eq(DrivingConfiguration.class))).thenReturn(configuration);
+        algorithm.initialize(provider);
+
+        when(configuration.rotateZoneDegrees()).thenReturn(30);
+        when(configuration.maxSpeed()).thenReturn(0.5);
+        algorithm.checkConfiguration();
+
+        ContinuousDrivingAlgorithmImpl changedReference = new ContinuousDrivingAlgorithmImpl(30, 0.5);
+        for (int angle = 0; angle < 360; angle++) {
+            assertSameAsReference(changedReference, angle, 70);
+        }
+    }
+
+    @Test
+    public void testMissingConfigurationKeepsDefaults() {
+        ConfigurationProvider provider = Mockito.mock(ConfigurationProvider.class);
+        when(provider.bind(eq("driving"), eq(DrivingConfiguration.class))).thenThrow(new NoSuchElementException());
+
+        algorithm.initialize(provider);
+
+        for (int angle = 0; angle < 360; angle++) {
+            assertSameAsReference(reference, angle, 100);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+
+package de.developgroup.mrf.server.controller;
+
+import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.rover.collision.CollisionState;
+import de.developgroup.mrf.rover.collision.RoverCollisionInformation;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.when;
+
+public class MotorControlLoopTest {
+
+    MotorControlLoop loop;
+
+    MetricsRegistry metricsRegistry;
+
+    CollisionRunnable collisionRunnable;
+
+    RoverCollisionInformation collisionInformation;
+
+    final List<double[]> writes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        metricsRegistry = new MetricsRegistry();
+        collisionInformation = new RoverCollisionInformation();
+        collisionRunnable = Mockito.mock(CollisionRunnable.class);
+        when(collisionRunnable.getCurrentCollisionState()).thenAnswer(invocation -> collisionInformation.toPacked());
+        when(collisionRunnable.getForwardSpeedLimit()).thenReturn(1.0);
+        when(collisionRunnable.getBackwardSpeedLimit()).thenReturn(1.0);
+        loop = new MotorControlLoop((left, right) -> writes.add(new double[]{left, right}),
+                collisionRunnable, 50, metricsRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        loop.stop();
+    }
+
+    private void assertWrite(int index, double left, double right) {
+        Assert.assertEquals(left, writes.get(index)[0], 1e-6);
+        Assert.assertEquals(right, writes.get(index)[1], 1e-6);
+    }
+
+    @Test
+    public void testOnlyLatestSetpointIsWritten() throws Exception {
+        loop.submit(0.2, 0.3);
+        loop.submit(0.5, 0.6);
+
+        loop.tick();
+
+        Assert.assertEquals(1, writes.size());
+        assertWrite(0, 0.5, 0.6);
+        Assert.assertEquals(1, metricsRegistry.counter("motor.setpoints.coalesced").get());
+    }
+
+    @Test
+    public void testUnchangedSetpointIsNotWrittenAgain() throws Exception {
+        loop.submit(0.5, 0.5);
+        loop.tick();
+        loop.submit(0.5, 0.5);
+        loop.tick();
+        loop.tick();
+
+        Assert.assertEquals(1, writes.size());
+    }
+
+    @Test
+    public void testRequestedRewriteWritesAgain() throws Exception {
+        loop.submit(0.5, 0.5);
+        loop.tick();
+        loop.requestRewrite();
+        loop.tick();
+
+        Assert.assertEquals(2, writes.size());
+        assertWrite(1, 0.5, 0.5);
+    }
+
+    @Test
+    public void testForwardSetpointIsDroppedOnFrontCollision() throws Exception {
+        loop.submit(0.5, 0.5);
+        loop.tick();
+        collisionInformation.collisionFrontLeft = CollisionState.Close;
+
+        loop.tick();
+        // the obstacle is gone, but the dropped setpoint must not come back
+        collisionInformation.collisionFrontLeft = CollisionState.Far;
+        loop.tick();
+
+        Assert.assertEquals(2, writes.size());
+        assertWrite(1, 0, 0);
+        Assert.assertEquals(1, metricsRegistry.counter("motor.setpoints.gated").get());
+    }
+
+    @Test
+    public void testBackwardSetpointPassesFrontCollision() throws Exception {
+        collisionInformation.collisionFrontRight = CollisionState.Close;
+        loop.submit(-0.5, -0.5);
+
+        loop.tick();
+
+        Assert.assertEquals(1, writes.size());
+        assertWrite(0, -0.5, -0.5);
+    }
+
+    @Test
+    public void testSpeedLimitScalesBothMotors() throws Exception {
+        when(collisionRunnable.getForwardSpeedLimit()).thenReturn(0.4);
+        loop.submit(0.8, 0.4);
+
+        loop.tick();
+
+        assertWrite(0, 0.4, 0.2);
+        Assert.assertEquals(1, metricsRegistry.counter("motor.setpoints.limited").get());
+    }
+
+    @Test
+    public void testSetpointIsRestoredWhenLimitIsLifted() throws Exception {
+        when(collisionRunnable.getForwardSpeedLimit()).thenReturn(0.5);
+        loop.submit(0.8, 0.8);
+        loop.tick();
+
+        when(collisionRunnable.getForwardSpeedLimit()).thenReturn(1.0);
+        loop.tick();
+
+        Assert.assertEquals(2, writes.size());
+        assertWrite(0, 0.5, 0.5);
+        assertWrite(1, 0.8, 0.8);
+    }
+
+    @Test
+    public void testForwardLimitDoesNotSlowBackwardDriving() throws Exception {
+        when(collisionRunnable.getForwardSpeedLimit()).thenReturn(0.3);
+        loop.submit(-0.8, -0.8);
+
+        loop.tick();
+
+        assertWrite(0, -0.8, -0.8);
+        Assert.assertEquals(0, metricsRegistry.counter("motor.setpoints.limited").get());
+    }
+
+    @Test
+    public void testExternalStopDropsPendingSetpoint() throws Exception {
+        loop.submit(0.5, 0.5);
+        loop.tick();
+        loop.submit(0.8, 0.8);
+        loop.stoppedExternally();
+
+        loop.tick();
+
+        Assert.assertEquals(2, writes.size());
+        assertWrite(1, 0, 0);
+    }
+
+    @Test
+    public void testSetpointIsApproachedAlongTheRamp() throws Exception {
+        SlewRateLimiter ramp = new SlewRateLimiter(5, 5, 50);
+        loop = new MotorControlLoop((left, right) -> writes.add(new double[]{left, right}), collisionRunnable, 50,
+                metricsRegistry, ramp, ramp);
+        loop.submit(0.25, -0.25);
+
+        loop.tick();
+        loop.tick();
+        loop.tick();
+        loop.tick();
+
+        Assert.assertEquals(3, writes.size());
+        assertWrite(0, 0.1, -0.1);
+        assertWrite(1, 0.2, -0.2);
+        assertWrite(2, 0.25, -0.25);
+    }
+
+    @Test
+    public void testExternalStopBypassesTheRamp() throws Exception {
+        SlewRateLimiter ramp = new SlewRateLimiter(5, 5, 50);
+        loop = new MotorControlLoop((left, right) -> writes.add(new double[]{left, right}), collisionRunnable, 50,
+                metricsRegistry, ramp, ramp);
+        loop.submit(1, 1);
+        loop.tick();
+        loop.tick();
+
+        loop.stoppedExternally();
+        loop.tick();
+        loop.submit(1, 1);
+        loop.tick();
+
+        assertWrite(2, 0, 0);
+        // ramps up from the standstill again
+        assertWrite(3, 0.1, 0.1);
+    }
+
+    @Test
+    public void testMailboxRoundTrip() {
+        long packed = SetpointMailbox.pack(-0.25, 0.75);
+
+        Assert.assertTrue(packed != SetpointMailbox.EMPTY);
+        Assert.assertEquals(-0.25, SetpointMailbox.left(packed));
+        Assert.assertEquals(0.75, SetpointMailbox.right(packed));
+    }
+
+    @Test
+    public void testRunningLoopWritesSetpoint() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        loop = new MotorControlLoop((left, right) -> written.countDown(), collisionRunnable, 200, metricsRegistry);
+        loop.start();
+
+        loop.submit(0.4, 0.4);
+
+        Assert.assertTrue(written.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRestartedLoopWritesFromOneThreadOnly() throws Exception {
+        Set<Thread> writers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        CountDownLatch written = new CountDownLatch(1);
+        loop = new MotorControlLoop((left, right) -> {
+            writers.add(Thread.currentThread());
+            written.countDown();
+        }, collisionRunnable, 200, metricsRegistry);
+        loop.start();
+        Thread first = findThread("motor-control");
+        loop.stop();
+        Assert.assertFalse(first.isAlive());
+        loop.start();
+
+        loop.submit(0.4, 0.4);
+
+        Assert.assertTrue(written.await(2, TimeUnit.SECONDS));
+        loop.stop();
+        Assert.assertEquals(1, writers.size());
+        Assert.assertFalse(writers.contains(first));
+        Assert.assertFalse(writers.iterator().next().isAlive());
+    }
+
+    private static Thread findThread(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name) && thread.isAlive()) {
+                return thread;
+            }
+        }
+        throw new AssertionError("No thread " + name);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+
+package de.developgroup.mrf.server.controller;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class SlewRateLimiterTest {
+
+    private static final double DELTA = 1e-9;
+
+    // 0.1 per tick up, 0.25 per tick down
+    SlewRateLimiter limiter = new SlewRateLimiter(5, 12.5, 50);
+
+    @Test
+    public void testAccelerationIsLimited() {
+        Assert.assertEquals(0.1, limiter.next(0, 1), DELTA);
+        Assert.assertEquals(0.2, limiter.next(0.1, 1), DELTA);
+        Assert.assertEquals(-0.1, limiter.next(0, -1), DELTA);
+    }
+
+    @Test
+    public void testDecelerationIsLimited() {
+        Assert.assertEquals(0.75, limiter.next(1, 0), DELTA);
+        Assert.assertEquals(-0.75, limiter.next(-1, 0), DELTA);
+        Assert.assertEquals(0.6, limiter.next(0.8, 0.6), DELTA);
+    }
+
+    @Test
+    public void testTargetWithinOneStepIsReached() {
+        Assert.assertEquals(0.55, limiter.next(0.5, 0.55), DELTA);
+        Assert.assertEquals(0, limiter.next(0.2, 0), DELTA);
+    }
+
+    @Test
+    public void testReversingStopsFirst() {
+        Assert.assertEquals(0.75, limiter.next(1, -1), DELTA);
+        Assert.assertEquals(0, limiter.next(0.1, -1), DELTA);
+        Assert.assertEquals(-0.1, limiter.next(0, -1), DELTA);
+    }
+
+    @Test
+    public void testUnlimitedJumpsToTarget() {
+        Assert.assertEquals(-1, SlewRateLimiter.UNLIMITED.next(1, -1), DELTA);
+    }
+
+    @Test
+    public void testNonPositiveRatesDisableTheLimit() {
+        SlewRateLimiter disabled = new SlewRateLimiter(0, -1, 50);
+
+        Assert.assertEquals(1, disabled.next(0, 1), DELTA);
+        Assert.assertEquals(0, disabled.next(1, 0), DELTA);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.events;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventBusTest {
+
+    private static final Topic<String> TOPIC = new Topic<>("test", String.class);
+
+    private MetricsRegistry metricsRegistry;
+
+    private List<Runnable> queuedDeliveries;
+
+    private EventBus eventBus;
+
+    @Before
+    public void setUp() {
+        metricsRegistry = new MetricsRegistry();
+        queuedDeliveries = new ArrayList<>();
+        eventBus = new EventBus(metricsRegistry, queuedDeliveries::add);
+    }
+
+    @Test
+    public void testSynchronousDeliveryOnPublishingThread() {
+        List<Thread> threads = new ArrayList<>();
+        eventBus.subscribe(TOPIC, Subscription.Delivery.SYNCHRONOUS, event -> threads.add(Thread.currentThread()));
+
+        eventBus.publish(TOPIC, "event");
+
+        Assert.assertEquals(1, threads.size());
+        Assert.assertSame(Thread.currentThread(), threads.get(0));
+        Assert.assertTrue(queuedDeliveries.isEmpty());
+    }
+
+    @Test
+    public void testAsynchronousDeliveryThroughExecutor() {
+        List<String> received = new ArrayList<>();
+        eventBus.subscribe(TOPIC, Subscription.Delivery.ASYNCHRONOUS, received::add);
+
+        eventBus.publish(TOPIC, "event");
+        Assert.assertTrue(received.isEmpty());
+        Assert.assertEquals(1, queuedDeliveries.size());
+
+        queuedDeliveries.get(0).run();
+        Assert.assertEquals(1, received.size());
+        Assert.assertEquals("event", received.get(0));
+        Assert.assertEquals(1, metricsRegistry.histogram("events.test.queued").getCount());
+    }
+
+    @Test
+    public void testCancelStopsDelivery() {
+        List<String> received = new ArrayList<>();
+        Subscription subscription = eventBus.subscribe(TOPIC, Subscription.Delivery.SYNCHRONOUS, received::add);
+        Assert.assertEquals(1, eventBus.getSubscriberCount(TOPIC));
+
+        subscription.cancel();
+        eventBus.publish(TOPIC, "event");
+
+        Assert.assertTrue(received.isEmpty());
+        Assert.assertEquals(0, eventBus.getSubscriberCount(TOPIC));
+    }
+
+    @Test
+    public void testCancelDropsQueuedDelivery() {
+        List<String> received = new ArrayList<>();
+        Subscription subscription = eventBus.subscribe(TOPIC, Subscription.Delivery.ASYNCHRONOUS, received::add);
+
+        eventBus.publish(TOPIC, "event");
+        subscription.cancel();
+        queuedDeliveries.get(0).run();
+
+        Assert.assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testFailingListenerDoesNotBlockOthers() {
+        List<String> received = new ArrayList<>();
+        eventBus.subscribe(TOPIC, Subscription.Delivery.SYNCHRONOUS, event -> {
+            throw new IllegalStateException("listener failed");
+        });
+        eventBus.subscribe(TOPIC, Subscription.Delivery.SYNCHRONOUS, received::add);
+
+        eventBus.publish(TOPIC, "event");
+
+        Assert.assertEquals(1, received.size());
+        Assert.assertEquals(1, metricsRegistry.counter("events.test.errors").get());
+    }
+
+    @Test
+    public void testTopicsAreSeparate() {
+        Topic<Integer> otherTopic = new Topic<>("other", Integer.class);
+        List<Object> received = new ArrayList<>();
+        eventBus.subscribe(otherTopic, Subscription.Delivery.SYNCHRONOUS, received::add);
+
+        eventBus.publish(TOPIC, "event");
+        Assert.assertTrue(received.isEmpty());
+
+        eventBus.publish(otherTopic, 42);
+        Assert.assertEquals(1, received.size());
+    }
+
+    @Test
+    public void testPublishIsMeasured() {
+        eventBus.publish(TOPIC, "first");
+        eventBus.publish(TOPIC, "second");
+
+        Assert.assertEquals(2, metricsRegistry.counter("events.test.published").get());
+        Assert.assertEquals(2, metricsRegistry.histogram("events.test.dispatch").getCount());
+    }
+}
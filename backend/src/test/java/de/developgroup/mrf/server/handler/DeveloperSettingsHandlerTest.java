@@ -22,6 +22,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import de.developgroup.mrf.server.ClientManagerImpl;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
 import de.developgroup.mrf.server.rpc.JsonRpc2Request;
 import de.developgroup.mrf.server.rpc.msgdata.RoverStatusVO;
 import org.mockito.Mockito;
@@ -34,7 +36,8 @@ public class DeveloperSettingsHandlerTest {
     public void setUp() {
         handler = Mockito.spy(new DeveloperSettingsHandler(mock(ClientManagerImpl.class),
                 mock(RoverHandler.class),
-                mock(DriveController.class)));
+                mock(DriveController.class),
+                new EventBus(new MetricsRegistry(), Runnable::run)));
     }
 
     @After
@@ -180,7 +183,7 @@ public class DeveloperSettingsHandlerTest {
         when(handler.clientManager.clientIsBlocked("987.654.321")).thenReturn(true);
 
         // test
-        handler.update(null, null);
+        handler.onClientsChanged(null);
 
         verify(handler.clientManager).notifyClientById(1337, jsonRpc2RequestUnblocked);
         verify(handler.clientManager).notifyClientById(7777, jsonRpc2RequestBlocked);
@@ -213,7 +216,7 @@ public class DeveloperSettingsHandlerTest {
         when(handler.clientManager.getUnblockedConnections()).thenReturn(unblockedUsers);
 
         // test
-        handler.update(null, null);
+        handler.onClientsChanged(null);
         verify(handler.clientManager).notifyAllClients((JsonRpc2Request)anyObject());
     }
 
@@ -0,0 +1,141 @@
+/*
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+
+package de.developgroup.mrf.server.handler;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import junit.framework.Assert;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+public class HeartbeatWatchdogImplTest {
+
+    static final int DRIVER = 5001;
+    static final int OTHER = 5002;
+
+    SingleDriverHandler singleDriverHandler;
+    RoverHandler roverHandler;
+    ScheduledExecutorService scheduler;
+    MetricsRegistry metricsRegistry;
+    HeartbeatWatchdogImpl watchdog;
+    Runnable tick;
+
+    @Before
+    public void setUp() {
+        singleDriverHandler = mock(SingleDriverHandler.class);
+        when(singleDriverHandler.getCurrentDriverId()).thenReturn(DRIVER);
+        roverHandler = mock(RoverHandler.class);
+        scheduler = mock(ScheduledExecutorService.class);
+        metricsRegistry = new MetricsRegistry();
+        watchdog = new HeartbeatWatchdogImpl(singleDriverHandler, roverHandler, metricsRegistry, scheduler);
+
+        WatchdogConfiguration configuration = mock(WatchdogConfiguration.class);
+        when(configuration.driverTimeout()).thenReturn(300L);
+        when(configuration.tickDuration()).thenReturn(10L);
+        ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        when(provider.bind("watchdog", WatchdogConfiguration.class)).thenReturn(configuration);
+        watchdog.start(provider);
+
+        ArgumentCaptor<Runnable> tickCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).scheduleAtFixedRate(tickCaptor.capture(), eq(10L), eq(10L), eq(TimeUnit.MILLISECONDS));
+        tick = tickCaptor.getValue();
+    }
+
+    /**
+     * Let the given number of milliseconds pass on the watchdog's clock.
+     */
+    private void elapse(int millis) {
+        for (int i = 0; i < millis / 10; i++) {
+            tick.run();
+        }
+    }
+
+    @Test
+    public void testSilentDriverStopsMotors() throws IOException {
+        watchdog.heartbeat(DRIVER);
+
+        elapse(290);
+        verify(roverHandler, never()).stop();
+        elapse(10);
+
+        verify(roverHandler).stop();
+        Assert.assertEquals(1, metricsRegistry.counter("watchdog.driver.missed").get());
+    }
+
+    @Test
+    public void testMissedDeadlineStopsOnlyOnce() throws IOException {
+        watchdog.heartbeat(DRIVER);
+
+        elapse(1000);
+
+        verify(roverHandler, times(1)).stop();
+    }
+
+    @Test
+    public void testDriveCommandsKeepDriverAlive() throws IOException {
+        watchdog.heartbeat(DRIVER);
+        for (int i = 0; i < 10; i++) {
+            elapse(200);
+            watchdog.alive(DRIVER);
+        }
+
+        verify(roverHandler, never()).stop();
+    }
+
+    @Test
+    public void testSilentOtherClientDoesNotStopMotors() throws IOException {
+        watchdog.heartbeat(OTHER);
+
+        elapse(1000);
+
+        verify(roverHandler, never()).stop();
+        Assert.assertEquals(0, metricsRegistry.counter("watchdog.driver.missed").get());
+    }
+
+    @Test
+    public void testRemovedClientDoesNotExpire() throws IOException {
+        watchdog.heartbeat(DRIVER);
+        watchdog.removeClient(DRIVER);
+
+        elapse(1000);
+
+        verify(roverHandler, never()).stop();
+    }
+
+    @Test
+    public void testHeartbeatJitterIsRecorded() {
+        watchdog.recordHeartbeat(DRIVER, 0);
+        watchdog.recordHeartbeat(DRIVER, 100_000_000L);
+        watchdog.recordHeartbeat(DRIVER, 230_000_000L);
+
+        Assert.assertEquals(2, metricsRegistry.histogram("watchdog.heartbeat.interval").getCount());
+        Assert.assertEquals(1, metricsRegistry.histogram("watchdog.heartbeat.jitter").getCount());
+        Assert.assertTrue(metricsRegistry.histogram("watchdog.heartbeat.jitter").getMax() >= 30_000_000L);
+    }
+
+    @Test
+    public void testMissingConfigurationUsesDefaults() {
+        ScheduledExecutorService otherScheduler = mock(ScheduledExecutorService.class);
+        HeartbeatWatchdogImpl otherWatchdog = new HeartbeatWatchdogImpl(singleDriverHandler, roverHandler,
+                metricsRegistry, otherScheduler);
+        ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        when(provider.bind("watchdog", WatchdogConfiguration.class)).thenThrow(new NoSuchElementException());
+
+        otherWatchdog.start(provider);
+
+        verify(otherScheduler).scheduleAtFixedRate(any(Runnable.class),
+                eq(HeartbeatWatchdogImpl.DEFAULT_TICK_MILLIS), eq(HeartbeatWatchdogImpl.DEFAULT_TICK_MILLIS),
+                eq(TimeUnit.MILLISECONDS));
+    }
+}
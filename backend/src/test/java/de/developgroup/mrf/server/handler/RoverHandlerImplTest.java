@@ -18,10 +18,13 @@ import org.junit.Test;
 
 import com.pi4j.io.gpio.GpioController;
 
+import de.developgroup.mrf.rover.collision.CollisionController;
 import de.developgroup.mrf.rover.collision.CollisionControllerMock;
 import de.developgroup.mrf.server.controller.CameraSnapshotController;
 import de.developgroup.mrf.server.controller.DriveController;
 import de.developgroup.mrf.server.controller.HeadController;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
 
 public class RoverHandlerImplTest {
 
@@ -34,7 +37,8 @@ public class RoverHandlerImplTest {
 				mock(GpioController.class), mock(DriveController.class),
 				mock(HeadController.class),
 				mock(CameraSnapshotController.class),
-				mock(LoggingCommunicationController.class));
+				mock(LoggingCommunicationController.class),
+				new EventBus(new MetricsRegistry(), Runnable::run));
 	}
 
 	@After
@@ -151,4 +155,14 @@ public class RoverHandlerImplTest {
 		verify(handler.driveController).initialize(roverProperties);
 	}
 
+	@Test
+	public void testInitRoverTwiceSubscribesOnce() throws IOException {
+		ConfigurationProvider roverProperties = mock(ConfigurationProvider.class);
+		handler.initRover(roverProperties);
+		handler.initRover(roverProperties);
+
+		assertEquals(1, handler.eventBus
+				.getSubscriberCount(CollisionController.SENSOR_EVENTS));
+	}
+
 }
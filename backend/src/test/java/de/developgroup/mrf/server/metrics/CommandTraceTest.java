@@ -0,0 +1,103 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandTraceTest {
+
+    CommandTracer tracer;
+
+    @Before
+    public void setUp() {
+        tracer = new CommandTracer(new MetricsRegistry());
+        CommandTrace.tracer = tracer;
+    }
+
+    @Test
+    public void testActuatedCommandIsRecorded() {
+        CommandTrace.begin(System.nanoTime());
+        CommandTrace.setMethod("driveContinuously");
+        CommandTrace.mark(CommandTrace.Stage.HANDLER);
+        CommandTrace.mark(CommandTrace.Stage.APPLY);
+        CommandTrace.mark(CommandTrace.Stage.MOTOR);
+        CommandTrace.mark(CommandTrace.Stage.ACTUATED);
+        CommandTrace.end();
+
+        CommandTraceReport report = tracer.report();
+        Assert.assertEquals(1, report.tracedCommands);
+        Assert.assertEquals(1, report.stages.get("actuated").count);
+        Assert.assertEquals(1, report.samples.size());
+
+        CommandTraceReport.Sample sample = report.samples.get(0);
+        Assert.assertEquals("driveContinuously", sample.method);
+        Assert.assertTrue(sample.handler >= 0);
+        Assert.assertTrue(sample.handler <= sample.apply);
+        Assert.assertTrue(sample.apply <= sample.motor);
+        Assert.assertTrue(sample.motor <= sample.actuated);
+    }
+
+    @Test
+    public void testCommandWithoutActuationIsDropped() {
+        CommandTrace.begin(System.nanoTime());
+        CommandTrace.setMethod("ping");
+        CommandTrace.mark(CommandTrace.Stage.HANDLER);
+        CommandTrace.end();
+
+        Assert.assertEquals(0, tracer.report().tracedCommands);
+    }
+
+    @Test
+    public void testMarksWithoutTraceAreIgnored() {
+        CommandTrace.mark(CommandTrace.Stage.ACTUATED);
+        CommandTrace.end();
+
+        Assert.assertEquals(0, tracer.report().tracedCommands);
+    }
+
+    @Test
+    public void testSkippedStagesAreReported() {
+        CommandTrace.begin(System.nanoTime());
+        CommandTrace.mark(CommandTrace.Stage.ACTUATED);
+        CommandTrace.end();
+
+        CommandTraceReport.Sample sample = tracer.report().samples.get(0);
+        Assert.assertNull(sample.method);
+        Assert.assertEquals(-1, sample.handler);
+        Assert.assertEquals(-1, sample.motor);
+        Assert.assertTrue(sample.actuated >= 0);
+    }
+
+    @Test
+    public void testOnlyEveryNthTraceIsSampled() {
+        for (int i = 0; i < CommandTracer.SAMPLE_INTERVAL * 3; i++) {
+            CommandTrace.begin(System.nanoTime());
+            CommandTrace.mark(CommandTrace.Stage.ACTUATED);
+            CommandTrace.end();
+        }
+
+        CommandTraceReport report = tracer.report();
+        Assert.assertEquals(CommandTracer.SAMPLE_INTERVAL * 3, report.tracedCommands);
+        Assert.assertEquals(CommandTracer.SAMPLE_INTERVAL * 3, report.stages.get("actuated").count);
+        Assert.assertEquals(3, report.samples.size());
+    }
+
+    @Test
+    public void testRingBufferKeepsLatestSamples() {
+        int traces = (CommandTracer.CAPACITY + 10) * CommandTracer.SAMPLE_INTERVAL;
+        for (int i = 0; i < traces; i++) {
+            CommandTrace.begin(System.nanoTime());
+            CommandTrace.setMethod("cmd" + i);
+            CommandTrace.mark(CommandTrace.Stage.ACTUATED);
+            CommandTrace.end();
+        }
+
+        CommandTraceReport report = tracer.report();
+        Assert.assertEquals(CommandTracer.CAPACITY, report.samples.size());
+        Assert.assertEquals("cmd" + (traces - CommandTracer.SAMPLE_INTERVAL), report.samples.get(0).method);
+    }
+}
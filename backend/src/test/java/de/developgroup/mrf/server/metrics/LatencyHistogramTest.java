@@ -0,0 +1,80 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.metrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(0d, histogram.getMean(), 0d);
+    }
+
+    @Test
+    public void testBucketBoundsAreContiguous() {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+            Assert.assertEquals(LatencyHistogram.bucketUpperBound(i) + 1, LatencyHistogram.bucketLowerBound(i + 1));
+        }
+    }
+
+    @Test
+    public void testValuesEndUpInMatchingBucket() {
+        long[] values = {0, 1, 3, 4, 7, 8, 1000, 123456, 999999999L};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            Assert.assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+            Assert.assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+        }
+    }
+
+    @Test
+    public void testHugeValuesGoToOverflowBucket() {
+        Assert.assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (int i = 1; i <= 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1000000);
+
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(1000000, histogram.getMax());
+        // estimates are bucket upper bounds, at most 25 percent off
+        Assert.assertEquals(1000, histogram.getValueAtPercentile(50), 250);
+        Assert.assertEquals(1000, histogram.getValueAtPercentile(99), 250);
+        Assert.assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testNegativeValuesAreRecordedAsZero() {
+        histogram.record(-5);
+
+        Assert.assertEquals(1, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void testReset() {
+        histogram.record(42);
+        histogram.reset();
+
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+    }
+}
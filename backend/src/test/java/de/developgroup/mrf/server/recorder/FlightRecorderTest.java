@@ -0,0 +1,215 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.recorder;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+public class FlightRecorderTest {
+
+    /**
+     * Header and four records.
+     */
+    static final long SEGMENT_SIZE = 5 * FlightRecord.SIZE;
+
+    Path directory;
+
+    MetricsRegistry metricsRegistry;
+
+    /**
+     * Background tasks held back by a test, run on the test thread otherwise.
+     */
+    Deque<Runnable> heldTasks;
+
+    boolean holdTasks;
+
+    FlightRecorder recorder;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("flight");
+        metricsRegistry = new MetricsRegistry();
+        heldTasks = new ArrayDeque<>();
+        recorder = new FlightRecorder(metricsRegistry, task -> {
+            if (holdTasks) {
+                heldTasks.add(task);
+            } else {
+                task.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        recorder.stop();
+        for (Path segment : FlightRecordReader.listSegments(directory)) {
+            Files.delete(segment);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testStoppedRecorderRecordsNothing() throws IOException {
+        recorder.recordMotorSettings(1, 1);
+        recorder.recordRpc(1, "{}");
+
+        Assert.assertFalse(recorder.isRecording());
+        Assert.assertTrue(FlightRecordReader.listSegments(directory).isEmpty());
+    }
+
+    @Test
+    public void testRecordsAreReadBack() throws IOException {
+        recorder.start(directory, 1024 * 1024, 1024 * 1024);
+        recorder.recordCollision(0x5, 0x1C, new int[] {10, 11, 12, 13}, new int[] {200, 201, 202, 203},
+                new double[] {0.5, 0.25, 0, 1});
+        recorder.recordMotorSettings(0.5, -0.75);
+        String message = "{\"jsonrpc\":\"2.0\",\"method\":\"setContinuousDriving\",\"params\":[90,50,\"äöü\"],\"id\":42}";
+        recorder.recordRpc(7, message);
+        recorder.recordRpc(8, "{}");
+
+        FlightRecordReader reader = new FlightRecordReader(FlightRecordReader.listSegments(directory).get(0));
+        Assert.assertEquals(0, reader.getSequence());
+
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(FlightRecord.COLLISION, reader.getType());
+        Assert.assertEquals(0x5, reader.getSensors());
+        Assert.assertEquals(0x1C, reader.getCollisionState());
+        Assert.assertEquals(12, reader.getAmbient(2));
+        Assert.assertEquals(203, reader.getLit(3));
+        Assert.assertEquals(0.25, reader.getCompensated(1), 0);
+        Assert.assertTrue(reader.getTimeMillis() > 0);
+
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(FlightRecord.MOTOR, reader.getType());
+        Assert.assertEquals(0.5, reader.getLeftMotor(), 0);
+        Assert.assertEquals(-0.75, reader.getRightMotor(), 0);
+
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(FlightRecord.RPC, reader.getType());
+        Assert.assertEquals(7, reader.getClientId());
+        Assert.assertEquals(message, reader.getMessage());
+
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(8, reader.getClientId());
+        Assert.assertEquals("{}", reader.getMessage());
+
+        Assert.assertFalse(reader.next());
+    }
+
+    @Test
+    public void testSegmentsRotateWithinBudget() throws IOException {
+        recorder.start(directory, SEGMENT_SIZE, 3 * SEGMENT_SIZE);
+        for (int i = 0; i < 20; i++) {
+            recorder.recordMotorSettings(i, i);
+        }
+
+        // the budget includes the preallocated next segment
+        List<Path> segments = FlightRecordReader.listSegments(directory);
+        Assert.assertEquals(3, segments.size());
+        Assert.assertFalse(new FlightRecordReader(segments.get(2)).next());
+        FlightRecordReader reader = new FlightRecordReader(segments.get(1));
+        Assert.assertEquals(4, reader.getSequence());
+        int count = 0;
+        double last = -1;
+        while (reader.next()) {
+            count++;
+            last = reader.getLeftMotor();
+        }
+        Assert.assertEquals(4, count);
+        Assert.assertEquals(19, last, 0);
+    }
+
+    @Test
+    public void testRestartContinuesAfterLastSegment() throws IOException {
+        recorder.start(directory, SEGMENT_SIZE, 10 * SEGMENT_SIZE);
+        recorder.recordMotorSettings(1, 1);
+        recorder.stop();
+
+        recorder.start(directory, SEGMENT_SIZE, 10 * SEGMENT_SIZE);
+
+        // the unused preallocated segment was deleted on stop
+        List<Path> segments = FlightRecordReader.listSegments(directory);
+        Assert.assertEquals(3, segments.size());
+        Assert.assertEquals(1, new FlightRecordReader(segments.get(1)).getSequence());
+        FlightRecordReader first = new FlightRecordReader(segments.get(0));
+        Assert.assertTrue(first.next());
+        Assert.assertEquals(1, first.getLeftMotor(), 0);
+    }
+
+    @Test
+    public void testMessageSpanningRecordsStartsNewSegment() throws IOException {
+        recorder.start(directory, SEGMENT_SIZE, 10 * SEGMENT_SIZE);
+        recorder.recordMotorSettings(1, 1);
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            message.append('x');
+        }
+        // takes three records, only two are left in the first segment
+        recorder.recordMotorSettings(2, 2);
+        recorder.recordRpc(1, message.toString());
+
+        List<Path> segments = FlightRecordReader.listSegments(directory);
+        Assert.assertEquals(3, segments.size());
+        FlightRecordReader reader = new FlightRecordReader(segments.get(1));
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(message.toString(), reader.getMessage());
+    }
+
+    @Test
+    public void testRecordsAreDroppedUntilTheNextSegmentIsReady() throws IOException {
+        holdTasks = true;
+        recorder.start(directory, SEGMENT_SIZE, 10 * SEGMENT_SIZE);
+        for (int i = 0; i < 5; i++) {
+            recorder.recordMotorSettings(i, i);
+        }
+        Assert.assertEquals(1, metricsRegistry.counter("flightRecorder.dropped").get());
+        Assert.assertEquals(1, FlightRecordReader.listSegments(directory).size());
+
+        holdTasks = false;
+        while (!heldTasks.isEmpty()) {
+            heldTasks.removeFirst().run();
+        }
+        recorder.recordMotorSettings(5, 5);
+
+        List<Path> segments = FlightRecordReader.listSegments(directory);
+        Assert.assertEquals(3, segments.size());
+        FlightRecordReader reader = new FlightRecordReader(segments.get(1));
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(5, reader.getLeftMotor(), 0);
+        Assert.assertEquals(1, metricsRegistry.counter("flightRecorder.dropped").get());
+    }
+
+    @Test
+    public void testTruncatedMessage() throws IOException {
+        recorder.start(directory, 1024 * 1024, 1024 * 1024);
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < FlightRecord.MAX_MESSAGE_LENGTH + 10; i++) {
+            message.append('x');
+        }
+        recorder.recordRpc(1, message.toString());
+        recorder.recordMotorSettings(1, 1);
+
+        FlightRecordReader reader = new FlightRecordReader(FlightRecordReader.listSegments(directory).get(0));
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(FlightRecord.MAX_MESSAGE_LENGTH, reader.getMessage().length());
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(FlightRecord.MOTOR, reader.getType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBudgetBelowSegmentSize() throws IOException {
+        recorder.start(directory, 2 * SEGMENT_SIZE, SEGMENT_SIZE);
+    }
+}
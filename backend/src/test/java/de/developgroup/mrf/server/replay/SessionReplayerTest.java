@@ -0,0 +1,195 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.replay;
+
+import de.developgroup.mrf.rover.collision.CollisionRunnable;
+import de.developgroup.mrf.rover.collision.PackedCollisionState;
+import de.developgroup.mrf.rover.pcf8591.IRSensorImpl;
+import de.developgroup.mrf.server.ClientManager;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.recorder.FlightRecordReader;
+import de.developgroup.mrf.server.recorder.FlightRecorder;
+import de.developgroup.mrf.server.rpc.JsonRpc2Socket;
+import de.developgroup.mrf.server.telemetry.TelemetryStore;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class SessionReplayerTest {
+
+    /**
+     * Websocket that logs the calls of its method, with ids counting up from 1.
+     */
+    public static class EchoSocket extends JsonRpc2Socket {
+
+        static int lastClientId;
+
+        final int clientId = ++lastClientId;
+
+        final List<String> calls = new ArrayList<>();
+
+        Session closedSession;
+
+        public void echo(Number clientId, String text) {
+            calls.add(clientId.intValue() + ":" + text);
+        }
+
+        @Override
+        public int getClientId() {
+            return clientId;
+        }
+
+        @Override
+        public void onWebSocketClose(int statusCode, String reason) {
+            closedSession = getSession();
+            super.onWebSocketClose(statusCode, reason);
+        }
+    }
+
+    Path directory;
+
+    FlightRecorder recorder;
+
+    MetricsRegistry metricsRegistry;
+
+    CollisionRunnable collisionRunnable;
+
+    List<EchoSocket> sockets;
+
+    SessionReplayer replayer;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("replay");
+        recorder = new FlightRecorder(new MetricsRegistry());
+        recorder.start(directory, 1024 * 1024, 1024 * 1024);
+
+        ReplayGpioController gpio = new ReplayGpioController();
+        ReplayADConverter converter = new ReplayADConverter(gpio);
+        collisionRunnable = new CollisionRunnable((channel, led) -> new IRSensorImpl(converter, channel, led), gpio,
+                Mockito.mock(ClientManager.class), new EventBus(new MetricsRegistry(), Runnable::run),
+                new MetricsRegistry(), new TelemetryStore(),
+                new FlightRecorder(new MetricsRegistry()));
+        metricsRegistry = new MetricsRegistry();
+        sockets = new ArrayList<>();
+        EchoSocket.lastClientId = 0;
+        replayer = new SessionReplayer(collisionRunnable, converter, metricsRegistry, () -> {
+            EchoSocket socket = new EchoSocket();
+            sockets.add(socket);
+            return socket;
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        recorder.stop();
+        for (Path segment : FlightRecordReader.listSegments(directory)) {
+            Files.delete(segment);
+        }
+        Files.delete(directory);
+    }
+
+    private void recordPoll(int ambient, int lit, int recordedState) {
+        recorder.recordCollision(0xF, recordedState, new int[] {ambient, ambient, ambient, ambient},
+                new int[] {lit, lit, lit, lit}, new double[4]);
+    }
+
+    @Test
+    public void testCollisionPollsAreReplayedThroughTheRealSensors() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            recordPoll(10, 10, PackedCollisionState.NONE);
+        }
+
+        replayer.replay(directory, Double.POSITIVE_INFINITY);
+
+        Assert.assertEquals(PackedCollisionState.NONE, collisionRunnable.getCurrentCollisionState());
+        Assert.assertEquals(3, metricsRegistry.counter("replay.records").get());
+        Assert.assertEquals(0, metricsRegistry.counter("replay.collision.mismatches").get());
+    }
+
+    @Test
+    public void testDifferingCollisionStatesAreCounted() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            // an obstacle right in front of all sensors, but recorded as free
+            recordPoll(0, 250, PackedCollisionState.NONE);
+        }
+
+        replayer.replay(directory, Double.POSITIVE_INFINITY);
+
+        Assert.assertTrue(PackedCollisionState.hasCollisionFront(collisionRunnable.getCurrentCollisionState()));
+        Assert.assertTrue(PackedCollisionState.hasCollisionBack(collisionRunnable.getCurrentCollisionState()));
+        Assert.assertEquals(3, metricsRegistry.counter("replay.collision.mismatches").get());
+    }
+
+    @Test
+    public void testMessagesAreReplayedPerClient() throws IOException {
+        recorder.recordRpc(5003, "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":[5003,\"a\"]}");
+        recorder.recordRpc(5004, "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":[5004,\"b\"]}");
+        recorder.recordRpc(5003, "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":[7,\"c\"],\"id\":3}");
+        recorder.recordMotorSettings(1, 1);
+
+        replayer.replay(directory, Double.POSITIVE_INFINITY);
+
+        Assert.assertEquals(2, sockets.size());
+        Assert.assertEquals("[1:a, 7:c]", sockets.get(0).calls.toString());
+        Assert.assertEquals("[2:b]", sockets.get(1).calls.toString());
+        Assert.assertEquals(3, metricsRegistry.counter("replay.messages.received").get());
+        // only the request with an id is answered
+        Assert.assertEquals(1, metricsRegistry.counter("replay.messages.sent").get());
+        Assert.assertFalse(sockets.get(0).closedSession.isOpen());
+        Assert.assertEquals(4, metricsRegistry.counter("replay.records").get());
+    }
+
+    @Test
+    public void testReplayKeepsThePace() throws IOException {
+        recorder.recordMotorSettings(1, 1);
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100)) {
+            Thread.yield();
+        }
+        recorder.recordMotorSettings(0, 0);
+
+        long replayStart = System.nanoTime();
+        replayer.replay(directory, 2);
+
+        Assert.assertTrue(System.nanoTime() - replayStart >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test(expected = IOException.class)
+    public void testEmptyDirectory() throws IOException {
+        recorder.stop();
+        Files.delete(FlightRecordReader.listSegments(directory).get(0));
+
+        replayer.replay(directory, 1);
+    }
+
+    @Test
+    public void testRemapClientId() {
+        Assert.assertEquals("{\"method\":\"heartbeat\",\"params\":[1]}",
+                SessionReplayer.remapClientId("{\"method\":\"heartbeat\",\"params\":[5003]}", 5003, 1));
+        Assert.assertEquals("{\"method\":\"stop\"}", SessionReplayer.remapClientId("{\"method\":\"stop\"}", 5003, 1));
+        Assert.assertEquals("{\"params\":[5004]}", SessionReplayer.remapClientId("{\"params\":[5004]}", 5003, 1));
+        Assert.assertEquals("{invalid", SessionReplayer.remapClientId("{invalid", 5003, 1));
+    }
+
+    @Test
+    public void testGapAcrossRestartIsSkipped() {
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(20),
+                SessionReplayer.gapNanos(TimeUnit.MILLISECONDS.toNanos(20), 20));
+        Assert.assertEquals(0, SessionReplayer.gapNanos(-5, 3000));
+        Assert.assertEquals(0, SessionReplayer.gapNanos(TimeUnit.HOURS.toNanos(1), 3000));
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.rpc;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+public class CompositeRpcMessageObserverTest {
+
+    @Test
+    public void testPassesEveryMessageToAllObserversInOrder() {
+        RpcMessageObserver first = mock(RpcMessageObserver.class);
+        RpcMessageObserver second = mock(RpcMessageObserver.class);
+        CompositeRpcMessageObserver composite = new CompositeRpcMessageObserver(first, second);
+
+        composite.onInbound(5001, "in");
+        composite.onProcessed("ping", 42, false);
+        composite.onOutbound(5001, "out");
+        composite.onClose(5001);
+
+        InOrder inOrder = inOrder(first, second);
+        inOrder.verify(first).onInbound(5001, "in");
+        inOrder.verify(second).onInbound(5001, "in");
+        inOrder.verify(first).onProcessed("ping", 42, false);
+        inOrder.verify(second).onProcessed("ping", 42, false);
+        inOrder.verify(first).onOutbound(5001, "out");
+        inOrder.verify(second).onOutbound(5001, "out");
+        inOrder.verify(first).onClose(5001);
+        inOrder.verify(second).onClose(5001);
+    }
+}
@@ -4,11 +4,14 @@
  */
 package de.developgroup.mrf.server.rpc;
 
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.metrics.RpcMetrics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.matchers.JUnitMatchers.containsString;
 
@@ -56,8 +59,12 @@ public class JsonRpc2SocketTest {
 
 	TestJsonRpcSocket socket;
 
+	RpcMetrics rpcMetrics;
+
 	@Before
 	public void setUp() throws Exception {
+		rpcMetrics = new RpcMetrics(new MetricsRegistry());
+		JsonRpc2Socket.messageObserver = rpcMetrics;
 		socket = new TestJsonRpcSocket();
 	}
 
@@ -140,4 +147,37 @@ public class JsonRpc2SocketTest {
 		
 		
 	}
+
+	@Test
+	public void testMetricsCountCalls() {
+		String msg = "{\"jsonrpc\": \"2.0\", \"method\": \"method0\", \"id\": 1}";
+		socket.invokeProcessMessage(msg);
+		socket.invokeProcessMessage(msg);
+
+		RpcMetrics.MethodMetrics metrics = rpcMetrics.forMethod("method0");
+		assertEquals(2, metrics.calls.get());
+		assertEquals(0, metrics.errors.get());
+		assertEquals(2, metrics.latency.getCount());
+	}
+
+	@Test
+	public void testMetricsCountErrors() {
+		String msg = "{\"jsonrpc\": \"2.0\", \"method\": \"method0Throw\", \"id\": 1}";
+		Mockito.doThrow(IllegalStateException.class).when(socket.mock).method0Throw();
+		socket.invokeProcessMessage(msg);
+
+		RpcMetrics.MethodMetrics metrics = rpcMetrics.forMethod("method0Throw");
+		assertEquals(1, metrics.calls.get());
+		assertEquals(1, metrics.errors.get());
+	}
+
+	@Test
+	public void testMetricsCollectUnknownMethodsUnderOneName() {
+		socket.invokeProcessMessage("{\"jsonrpc\": \"2.0\", \"method\": \"subtract\", \"id\": 1}");
+		socket.invokeProcessMessage("{\"jsonrpc\": \"2.0\", \"method\": \"add\", \"id\": 2}");
+		socket.invokeProcessMessage("Something not JSON");
+
+		assertEquals(2, rpcMetrics.forMethod(RpcMetrics.UNKNOWN_METHOD).errors.get());
+		assertEquals(1, rpcMetrics.forMethod(RpcMetrics.INVALID_REQUEST).errors.get());
+	}
 }
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+
+package de.developgroup.mrf.server.scheduling;
+
+import junit.framework.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class HashedTimingWheelTest {
+
+    HashedTimingWheel wheel;
+
+    final List<Integer> expired = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, expired::add);
+    }
+
+    private void tick(int times) {
+        for (int i = 0; i < times; i++) {
+            wheel.tick();
+        }
+    }
+
+    @Test
+    public void testDeadlineExpiresAfterItsTicks() {
+        wheel.schedule(7, 30, TimeUnit.MILLISECONDS);
+
+        tick(2);
+        Assert.assertTrue(expired.isEmpty());
+        tick(1);
+
+        Assert.assertEquals(1, expired.size());
+        Assert.assertEquals(7, (int) expired.get(0));
+        Assert.assertFalse(wheel.isScheduled(7));
+    }
+
+    @Test
+    public void testDelayIsRoundedUpToWholeTicks() {
+        wheel.schedule(1, 11, TimeUnit.MILLISECONDS);
+
+        tick(1);
+        Assert.assertTrue(expired.isEmpty());
+        tick(1);
+
+        Assert.assertEquals(1, expired.size());
+    }
+
+    @Test
+    public void testRescheduleReplacesDeadline() {
+        wheel.schedule(1, 30, TimeUnit.MILLISECONDS);
+        tick(2);
+        wheel.schedule(1, 30, TimeUnit.MILLISECONDS);
+
+        tick(2);
+        Assert.assertTrue(expired.isEmpty());
+        tick(1);
+
+        Assert.assertEquals(1, expired.size());
+    }
+
+    @Test
+    public void testCancelledDeadlineDoesNotExpire() {
+        wheel.schedule(1, 30, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(wheel.cancel(1));
+        tick(8);
+
+        Assert.assertTrue(expired.isEmpty());
+        Assert.assertFalse(wheel.cancel(1));
+    }
+
+    @Test
+    public void testDeadlineBeyondOneRevolution() {
+        wheel.schedule(1, 100, TimeUnit.MILLISECONDS);
+
+        tick(9);
+        Assert.assertTrue(expired.isEmpty());
+        tick(1);
+
+        Assert.assertEquals(1, expired.size());
+    }
+
+    @Test
+    public void testExpiredKeyCanBeScheduledAgain() {
+        wheel.schedule(1, 10, TimeUnit.MILLISECONDS);
+        tick(1);
+        wheel.schedule(1, 10, TimeUnit.MILLISECONDS);
+        tick(1);
+
+        Assert.assertEquals(2, expired.size());
+    }
+
+    @Test
+    public void testManyKeys() {
+        for (int key = 5000; key < 5100; key++) {
+            wheel.schedule(key, 20, TimeUnit.MILLISECONDS);
+        }
+        for (int key = 5000; key < 5100; key += 2) {
+            Assert.assertTrue(wheel.cancel(key));
+        }
+        for (int key = 5001; key < 5100; key += 2) {
+            Assert.assertTrue(wheel.isScheduled(key));
+        }
+
+        tick(2);
+
+        Assert.assertEquals(50, expired.size());
+        for (int key : expired) {
+            Assert.assertEquals(1, key % 2);
+        }
+    }
+}
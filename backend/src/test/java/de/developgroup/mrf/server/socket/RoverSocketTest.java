@@ -5,19 +5,31 @@
 package de.developgroup.mrf.server.socket;
 
 import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import de.developgroup.mrf.server.ClientManager;
 import de.developgroup.mrf.server.ClientManagerImpl;
+import org.cfg4j.provider.ConfigurationProvider;
 import org.eclipse.jetty.websocket.api.Session;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import de.developgroup.mrf.server.handler.DeveloperSettingsHandler;
+import de.developgroup.mrf.server.handler.HeartbeatWatchdog;
+import de.developgroup.mrf.server.handler.HeartbeatWatchdogImpl;
 import de.developgroup.mrf.server.handler.NotificationHandler;
 import de.developgroup.mrf.server.handler.RoverHandler;
 import de.developgroup.mrf.server.handler.SingleDriverHandler;
+import de.developgroup.mrf.server.handler.WatchdogConfiguration;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import de.developgroup.mrf.server.startup.StartupOrchestrator;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class RoverSocketTest {
@@ -29,6 +41,8 @@ public class RoverSocketTest {
 	SingleDriverHandler singleDriverHandler = mock(SingleDriverHandler.class);
 	RoverHandler roverHandler = mock(RoverHandler.class);
 	NotificationHandler notificationHandler = mock(NotificationHandler.class);
+	HeartbeatWatchdog heartbeatWatchdog = mock(HeartbeatWatchdog.class);
+	MetricsRegistry metricsRegistry = new MetricsRegistry();
 
 
 	@Before
@@ -38,6 +52,8 @@ public class RoverSocketTest {
 		RoverSocket.singleDriverHandler = singleDriverHandler;
 		RoverSocket.roverHandler = roverHandler;
 		RoverSocket.notificationHandler = notificationHandler;
+		RoverSocket.heartbeatWatchdog = heartbeatWatchdog;
+		RoverSocket.startupOrchestrator = new StartupOrchestrator(metricsRegistry);
 
 		// mock method
 		doReturn(false).when(roverSocket).remoteIpIsBlocked();
@@ -68,8 +84,76 @@ public class RoverSocketTest {
 	@Test
 	public void testOnWebSocketClose() {
 		roverSocket.onWebSocketClose(0, "for testing");
-		verify(RoverSocket.clientManager).removeClosedSessions();
+		verify(RoverSocket.clientManager).removeClient(anyInt());
 		verify(RoverSocket.singleDriverHandler).verifyDriverAvailability();
+		verify(RoverSocket.heartbeatWatchdog).removeClient(anyInt());
+	}
+
+	@Test
+	public void testOnWebSocketCloseRemovesOwnClient() {
+		Session sess = mock(Session.class);
+		when(clientManager.addClient(sess)).thenReturn(5001);
+		roverSocket.onWebSocketConnect(sess);
+
+		roverSocket.onWebSocketClose(1001, "going away");
+
+		verify(RoverSocket.clientManager).removeClient(5001);
+		verify(RoverSocket.clientManager, never()).removeClosedSessions();
+	}
+
+	@Test
+	public void testHeartbeat() {
+		Session sess = mock(Session.class);
+		when(clientManager.addClient(sess)).thenReturn(5001);
+		roverSocket.onWebSocketConnect(sess);
+
+		roverSocket.heartbeat(5001);
+		verify(RoverSocket.heartbeatWatchdog).heartbeat(5001);
+		verify(RoverSocket.roverHandler).heartbeat(5001);
+	}
+
+	@Test
+	public void testHeartbeatForAnotherClientKeepsOnlyTheSenderAlive() throws IOException {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		HeartbeatWatchdogImpl watchdog = new HeartbeatWatchdogImpl(singleDriverHandler, roverHandler,
+				metricsRegistry, scheduler);
+		ConfigurationProvider provider = mock(ConfigurationProvider.class);
+		when(provider.bind("watchdog", WatchdogConfiguration.class)).thenThrow(new NoSuchElementException());
+		watchdog.start(provider);
+		ArgumentCaptor<Runnable> tick = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler).scheduleAtFixedRate(tick.capture(), anyLong(), anyLong(), any(TimeUnit.class));
+		RoverSocket.heartbeatWatchdog = watchdog;
+
+		Session driverSession = mock(Session.class);
+		when(clientManager.addClient(driverSession)).thenReturn(5001);
+		roverSocket.onWebSocketConnect(driverSession);
+		RoverSocket observerSocket = mock(RoverSocket.class, CALLS_REAL_METHODS);
+		Session observerSession = mock(Session.class);
+		when(clientManager.addClient(observerSession)).thenReturn(5002);
+		observerSocket.onWebSocketConnect(observerSession);
+
+		// the driver never sends a sign of life, an observer sends heartbeats with the driver's id
+		when(singleDriverHandler.getCurrentDriverId()).thenReturn(5001);
+		roverSocket.enterDriverMode(5001);
+		for (int i = 0; i < 100; i++) {
+			observerSocket.heartbeat(5001);
+			tick.getValue().run();
+		}
+
+		verify(roverHandler, atLeastOnce()).stop();
+		verify(roverHandler, never()).heartbeat(5001);
+		verify(roverHandler, atLeastOnce()).heartbeat(5002);
+	}
+
+	@Test
+	public void testDriveCommandKeepsClientAlive() throws IOException {
+		Session sess = mock(Session.class);
+		when(clientManager.addClient(sess)).thenReturn(5001);
+		roverSocket.onWebSocketConnect(sess);
+
+		roverSocket.driveContinuously(90, 50);
+
+		verify(RoverSocket.heartbeatWatchdog).alive(5001);
 	}
 
 
@@ -88,6 +172,47 @@ public class RoverSocketTest {
 		verify(RoverSocket.roverHandler, never()).driveForward(500);
 	}
 
+	@Test
+	public void testDriveCommandsAreDroppedUntilHardwareIsReady() throws IOException {
+		// added, but not run yet
+		RoverSocket.startupOrchestrator.addStage(StartupOrchestrator.HARDWARE, () -> {
+		});
+		roverSocket.driveForward(500);
+		roverSocket.turnHeadUp(10);
+		verify(RoverSocket.roverHandler, never()).driveForward(500);
+		verify(RoverSocket.roverHandler, never()).turnHeadUp(10);
+		assertEquals(2, metricsRegistry.counter("startup.commands.gated").get());
+
+		RoverSocket.startupOrchestrator.run();
+		roverSocket.driveForward(500);
+		verify(RoverSocket.roverHandler).driveForward(500);
+	}
+
+	@Test
+	public void testCommandsAreDroppedUntilCollisionDetectionRuns() throws Exception {
+		CountDownLatch collisionStarted = new CountDownLatch(1);
+		RoverSocket.startupOrchestrator.addStage(StartupOrchestrator.HARDWARE, () -> {
+		});
+		RoverSocket.startupOrchestrator.addStage(StartupOrchestrator.COLLISION,
+				collisionStarted::await, StartupOrchestrator.HARDWARE);
+		Thread startup = new Thread(RoverSocket.startupOrchestrator::run);
+		startup.start();
+		while (!RoverSocket.startupOrchestrator.isReady(StartupOrchestrator.HARDWARE)) {
+			Thread.sleep(1);
+		}
+
+		roverSocket.driveForward(500);
+		roverSocket.getCameraSnapshot(5001);
+		verify(RoverSocket.roverHandler, never()).driveForward(500);
+		verify(RoverSocket.roverHandler, never()).getCameraSnapshot(5001);
+		assertEquals(2, metricsRegistry.counter("startup.commands.gated").get());
+
+		collisionStarted.countDown();
+		startup.join();
+		roverSocket.driveForward(500);
+		verify(RoverSocket.roverHandler).driveForward(500);
+	}
+
 	@Test
 	public void testDriveBackward() throws IOException {
 		roverSocket.driveBackward(350);
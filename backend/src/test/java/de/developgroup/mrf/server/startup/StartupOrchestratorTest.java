@@ -0,0 +1,125 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.startup;
+
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StartupOrchestratorTest {
+
+    private MetricsRegistry metricsRegistry;
+
+    private StartupOrchestrator orchestrator;
+
+    @Before
+    public void setUp() {
+        metricsRegistry = new MetricsRegistry();
+        orchestrator = new StartupOrchestrator(metricsRegistry);
+    }
+
+    @Test
+    public void testIndependentStagesRunInParallel() {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        StartupOrchestrator.Stage stage = () -> {
+            bothRunning.countDown();
+            // only completes if the other stage runs at the same time
+            if (!bothRunning.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Stages did not run in parallel");
+            }
+        };
+        orchestrator.addStage(StartupOrchestrator.SERVER, stage);
+        orchestrator.addStage(StartupOrchestrator.HARDWARE, stage);
+
+        assertTrue(orchestrator.run());
+        assertTrue(orchestrator.isReady(StartupOrchestrator.SERVER));
+        assertTrue(orchestrator.isReady(StartupOrchestrator.HARDWARE));
+    }
+
+    @Test
+    public void testStageRunsAfterItsDependencies() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        orchestrator.addStage(StartupOrchestrator.HARDWARE, () -> {
+            Thread.sleep(50);
+            order.add(StartupOrchestrator.HARDWARE);
+        });
+        orchestrator.addStage(StartupOrchestrator.COLLISION, () -> order.add(StartupOrchestrator.COLLISION),
+                StartupOrchestrator.HARDWARE);
+
+        assertTrue(orchestrator.run());
+        assertEquals(2, order.size());
+        assertEquals(StartupOrchestrator.HARDWARE, order.get(0));
+        assertEquals(StartupOrchestrator.COLLISION, order.get(1));
+    }
+
+    @Test
+    public void testFailedStageSkipsItsDependents() {
+        List<String> run = new CopyOnWriteArrayList<>();
+        orchestrator.addStage(StartupOrchestrator.HARDWARE, () -> {
+            throw new IOException("I2C bus not found");
+        });
+        orchestrator.addStage(StartupOrchestrator.COLLISION, () -> run.add(StartupOrchestrator.COLLISION),
+                StartupOrchestrator.HARDWARE);
+        orchestrator.addStage(StartupOrchestrator.SENSORS, () -> run.add(StartupOrchestrator.SENSORS));
+
+        assertFalse(orchestrator.run());
+        assertEquals(1, run.size());
+        assertEquals(StartupOrchestrator.SENSORS, run.get(0));
+        assertFalse(orchestrator.isReady(StartupOrchestrator.HARDWARE));
+        assertFalse(orchestrator.isReady(StartupOrchestrator.COLLISION));
+        assertTrue(orchestrator.isReady(StartupOrchestrator.SENSORS));
+    }
+
+    @Test
+    public void testDurationsArePublished() {
+        orchestrator.addStage(StartupOrchestrator.SERVER, () -> Thread.sleep(20));
+        assertTrue(metricsRegistry.toText().contains("startup.server.millis -1"));
+
+        assertTrue(orchestrator.run());
+        String metrics = metricsRegistry.toText();
+        assertFalse(metrics.contains("startup.server.millis -1"));
+        assertTrue(metrics.contains("startup.server.millis"));
+        assertTrue(metrics.contains("startup.total.millis"));
+    }
+
+    @Test
+    public void testCommandsAreGatedUntilStageIsComplete() {
+        // stages that are not part of the startup never gate
+        assertTrue(orchestrator.admit(StartupOrchestrator.HARDWARE));
+
+        orchestrator.addStage(StartupOrchestrator.HARDWARE, () -> {
+        });
+        assertFalse(orchestrator.admit(StartupOrchestrator.HARDWARE));
+        assertFalse(orchestrator.admit(StartupOrchestrator.HARDWARE));
+        assertEquals(2, metricsRegistry.counter("startup.commands.gated").get());
+
+        orchestrator.run();
+        assertTrue(orchestrator.admit(StartupOrchestrator.HARDWARE));
+        assertEquals(2, metricsRegistry.counter("startup.commands.gated").get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependencyIsRejected() {
+        orchestrator.addStage(StartupOrchestrator.COLLISION, () -> {
+        }, StartupOrchestrator.HARDWARE);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStagesCannotBeAddedAfterRun() {
+        orchestrator.run();
+        orchestrator.addStage(StartupOrchestrator.SERVER, () -> {
+        });
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.telemetry;
+
+import de.developgroup.mrf.rover.sensor.SensorOutput;
+import de.developgroup.mrf.rover.sensor.SensorReading;
+import de.developgroup.mrf.rover.sensor.SensorSampler;
+import de.developgroup.mrf.server.events.EventBus;
+import de.developgroup.mrf.server.metrics.MetricsRegistry;
+import org.cfg4j.provider.ConfigurationProvider;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TelemetryStoreTest {
+
+    EventBus eventBus;
+
+    TelemetryStore store;
+
+    @Before
+    public void setUp() {
+        eventBus = new EventBus(new MetricsRegistry(), Runnable::run);
+        store = new TelemetryStore(eventBus);
+    }
+
+    @Test
+    public void testSensorReadingsAreRecorded() {
+        eventBus.publish(SensorSampler.SENSOR_READINGS, new SensorReading("battery", SensorOutput.VOLTAGE, 200,
+                SensorOutput.VOLTAGE.convert(200), 0));
+
+        TelemetryData data = store.query("sensor.battery", 0, Long.MAX_VALUE, "raw");
+        Assert.assertEquals(1, data.values.length);
+        Assert.assertEquals(SensorOutput.VOLTAGE.convert(200), data.values[0], 0);
+    }
+
+    @Test
+    public void testSeriesAreSharedByName() {
+        Assert.assertSame(store.series("motor.left"), store.series("motor.left"));
+        store.record("motor.right", 0.5);
+
+        Assert.assertEquals(Arrays.asList("motor.left", "motor.right"), new ArrayList<>(store.getSeriesNames()));
+    }
+
+    @Test
+    public void testConfigurationResizesEmptySeries() {
+        TimeSeries series = store.series("motor.left");
+        TelemetryConfiguration configuration = mock(TelemetryConfiguration.class);
+        when(configuration.rawSamples()).thenReturn(2);
+        when(configuration.secondBuckets()).thenReturn(10);
+        when(configuration.minuteBuckets()).thenReturn(10);
+        ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        when(provider.bind("telemetry", TelemetryConfiguration.class)).thenReturn(configuration);
+
+        store.initialize(provider);
+        for (int i = 0; i < 5; i++) {
+            series.record(i, i);
+        }
+
+        Assert.assertEquals(2, store.query("motor.left", 0, Long.MAX_VALUE, "RAW").values.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSeries() {
+        store.query("unknown", 0, 1, "raw");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownResolution() {
+        store.record("motor.left", 0);
+        store.query("motor.left", 0, 1, "hour");
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * This file is part of Mobile Robot Framework.
+ * Mobile Robot Framework is free software under the terms of GNU AFFERO GENERAL PUBLIC LICENSE.
+ */
+package de.developgroup.mrf.server.telemetry;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeSeriesTest {
+
+    TimeSeries series;
+
+    @Before
+    public void setUp() {
+        series = new TimeSeries("test", 4, 3, 2);
+    }
+
+    private static void assertValues(double[] expected, double[] actual) {
+        Assert.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], actual[i], 0);
+        }
+    }
+
+    @Test
+    public void testEmptySeries() {
+        TelemetryData raw = series.query(0, Long.MAX_VALUE, TelemetryResolution.RAW);
+        Assert.assertEquals("test", raw.series);
+        Assert.assertEquals(0, raw.times.length);
+        Assert.assertEquals(0, raw.values.length);
+
+        TelemetryData seconds = series.query(0, Long.MAX_VALUE, TelemetryResolution.SECOND);
+        Assert.assertEquals(0, seconds.times.length);
+        Assert.assertEquals(0, seconds.avg.length);
+    }
+
+    @Test
+    public void testRawSamplesOverwriteOldest() {
+        for (int i = 1; i <= 6; i++) {
+            series.record(i * 100, i);
+        }
+
+        TelemetryData data = series.query(0, Long.MAX_VALUE, TelemetryResolution.RAW);
+        Assert.assertArrayEquals(new long[] {300, 400, 500, 600}, data.times);
+        assertValues(new double[] {3, 4, 5, 6}, data.values);
+    }
+
+    @Test
+    public void testRawQueryIsLimitedToRange() {
+        for (int i = 1; i <= 4; i++) {
+            series.record(i * 100, i);
+        }
+
+        TelemetryData data = series.query(200, 300, TelemetryResolution.RAW);
+        Assert.assertArrayEquals(new long[] {200, 300}, data.times);
+        assertValues(new double[] {2, 3}, data.values);
+    }
+
+    @Test
+    public void testSecondRollups() {
+        series.record(1000, 2);
+        series.record(1500, 4);
+        series.record(1999, 9);
+        series.record(2100, -1);
+
+        TelemetryData data = series.query(0, Long.MAX_VALUE, TelemetryResolution.SECOND);
+        Assert.assertArrayEquals(new long[] {1000, 2000}, data.times);
+        assertValues(new double[] {2, -1}, data.min);
+        assertValues(new double[] {9, -1}, data.max);
+        assertValues(new double[] {5, -1}, data.avg);
+        Assert.assertNull(data.values);
+    }
+
+    @Test
+    public void testRollupsOverwriteOldestBucket() {
+        for (int second = 0; second < 5; second++) {
+            series.record(second * 1000, second);
+        }
+
+        TelemetryData data = series.query(0, Long.MAX_VALUE, TelemetryResolution.SECOND);
+        Assert.assertArrayEquals(new long[] {2000, 3000, 4000}, data.times);
+    }
+
+    @Test
+    public void testRollupQueryReturnsOverlappingBuckets() {
+        series.record(60000, 1);
+        series.record(150000, 3);
+        series.record(170000, 5);
+
+        TelemetryData data = series.query(119999, 130000, TelemetryResolution.MINUTE);
+        Assert.assertArrayEquals(new long[] {60000, 120000}, data.times);
+        assertValues(new double[] {1, 4}, data.avg);
+    }
+
+    @Test
+    public void testLateSampleGoesIntoNewestBucket() {
+        series.record(5000, 1);
+        series.record(3000, 3);
+
+        TelemetryData data = series.query(0, Long.MAX_VALUE, TelemetryResolution.SECOND);
+        Assert.assertArrayEquals(new long[] {5000}, data.times);
+        assertValues(new double[] {2}, data.avg);
+    }
+
+    @Test
+    public void testCapacityIsKeptOnceRecorded() {
+        series.record(100, 1);
+        series.setCapacity(1, 1, 1);
+        series.record(200, 2);
+
+        Assert.assertEquals(2, series.query(0, Long.MAX_VALUE, TelemetryResolution.RAW).values.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyBuffersAreRejected() {
+        new TimeSeries("test", 0, 1, 1);
+    }
+}
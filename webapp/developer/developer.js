@@ -96,6 +96,30 @@ angular.module('myApp.developer', [])
         getSystemUpTime();
       };
 
+      $scope.commandTraces = null;
+
+      $scope.refreshCommandTraces = function () {
+        if ($location.host().indexOf('osr-amos.cs.fau.de') > -1) {
+          roverService.showAlertNotification('There is no latency preview available on the osr-amos.cs.fau server.');
+        } else {
+          roverService.getCommandTraces(function (report) {
+            $scope.commandTraces = report;
+          });
+        }
+      };
+
+      /**
+       * Format a duration given in nanoseconds as milliseconds.
+       * @param nanos duration, negative if the stage was not reached
+       * @returns {string}
+       */
+      $scope.formatMillis = function (nanos) {
+        if (nanos < 0) {
+          return '-';
+        }
+        return (nanos / 1000000).toFixed(2) + ' ms';
+      };
+
       $scope.goToLogEntries = function () {
         $location.path('/logs')
       };
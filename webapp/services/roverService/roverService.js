@@ -41,6 +41,11 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
     var snapshotCallback;
     var logEntriesCallback;
     var systemUpTimeCallback;
+    var commandTracesCallback;
+    var telemetryCallback;
+    var driverHeartbeat;
+    // must stay well below the driver timeout of the backend watchdog
+    var driverHeartbeatInterval = 100;
     var connectedUsers = {
       list: []
     };
@@ -64,6 +69,25 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
       sendWithoutResponse("heartbeat",[clientId])
     },15000);
 
+    /**
+     * While this client is the driver, send heartbeats often enough for the backend watchdog.
+     * If they stop, e.g. because the browser freezes, the backend stops the motors.
+     */
+    function startDriverHeartbeat() {
+      if (!driverHeartbeat) {
+        driverHeartbeat = $interval(function () {
+          sendWithoutResponse("heartbeat", [clientId])
+        }, driverHeartbeatInterval);
+      }
+    }
+
+    function stopDriverHeartbeat() {
+      if (driverHeartbeat) {
+        $interval.cancel(driverHeartbeat);
+        driverHeartbeat = undefined;
+      }
+    }
+
     /**
      * Developer mode function was called if webapp runs on the developer port 8000.
      */
@@ -207,6 +231,9 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
         case 'updateCollisionInformation':
           updateCollisionInformation(request.params);
           break;
+        case 'updateCollisionState':
+          updateCollisionState(request.params[0]);
+          break;
           case 'updateConnectedUsers':
               updateConnectedUsers(request.params[0],request.params[1]);
               break;
@@ -231,6 +258,12 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
         case 'incomingSystemUpTime':
           incomingSystemUpTime(request.params[0]);
           break;
+        case 'incomingCommandTraces':
+          incomingCommandTraces(request.params[0]);
+          break;
+        case 'incomingTelemetry':
+          incomingTelemetry(request.params[0]);
+          break;
         default:
           console.log('error on handleMethodCall: call function ' + request.method + ' is not allowed.');
       }
@@ -341,6 +374,20 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
         collisionInformation.collisionBackLeft = collisionState.collisionBackLeft;
       }
 
+      var COLLISION_STATES = ["None", "Far", "Medium", "Close"];
+
+      /**
+       * Update collision detection information sent packed into one number:
+       * 2 bits per sensor (front left, front right, back right, back left) and the tainted flag in bit 8.
+       */
+      function updateCollisionState(packedState) {
+        collisionInformation.taintedReadings = (packedState & 0x100) !== 0;
+        collisionInformation.collisionFrontLeft = COLLISION_STATES[packedState & 3];
+        collisionInformation.collisionFrontRight = COLLISION_STATES[(packedState >> 2) & 3];
+        collisionInformation.collisionBackRight = COLLISION_STATES[(packedState >> 4) & 3];
+        collisionInformation.collisionBackLeft = COLLISION_STATES[(packedState >> 6) & 3];
+      }
+
     /**
      * Update rover state
      *    -> isDriverMode available
@@ -370,9 +417,11 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
       if (currentDriverId == clientId) {
         // im the driver
         roverState.isDriverAvailable = true;
+        startDriverHeartbeat();
         console.log('driver mode is available');
       } else if (currentDriverId == -1) {
         // nobody is driver, when im already on driver page i must reaquire the driver mode
+        stopDriverHeartbeat();
         if ($location.path().indexOf('/drive') > -1 ) {
           roverState.isDriverAvailable = false;
           if(!myIp.isBlocked){
@@ -382,6 +431,7 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
       } else {
         // somebody else is driver at the moment
         roverState.isDriverAvailable = false;
+        stopDriverHeartbeat();
         console.log('driver mode not available, because client with id ' + currentDriverId + ' is in driver mode.');
       }
     }
@@ -445,6 +495,20 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
       systemUpTimeCallback(param);
     }
 
+    /**
+     * Receive the command latency report and invoke callback function
+     */
+    function incomingCommandTraces(report) {
+      commandTracesCallback(report);
+    }
+
+    /**
+     * Receive the history of a telemetry series and invoke callback function
+     */
+    function incomingTelemetry(data) {
+      telemetryCallback(data);
+    }
+
     return {
       /**
        * Get the state of the websocket connection.
@@ -623,6 +687,29 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
           showErrorNotification("Could not fetch systems uptime because connecting to the rover is still in progress.")
         }
       },
+      /**
+       * Requests the latency histograms and sampled traces from joystick command to motor actuation
+       */
+      getCommandTraces: function (callback) {
+        if (clientId) {
+          commandTracesCallback = callback;
+          send("getCommandTraces", [clientId]);
+        } else {
+          showErrorNotification("Could not fetch command latencies because connecting to the rover is still in progress.")
+        }
+      },
+      /**
+       * Requests the history of a telemetry series, e.g. "motor.left" or "collision.frontLeft.reading"
+       * between two timestamps in milliseconds, resolution is "raw", "second" or "minute"
+       */
+      queryTelemetry: function (series, from, to, resolution, callback) {
+        if (clientId) {
+          telemetryCallback = callback;
+          send("queryTelemetry", [clientId, series, from, to, resolution]);
+        } else {
+          showErrorNotification("Could not fetch telemetry because connecting to the rover is still in progress.")
+        }
+      },
       /**
        * Send a alert notification to backend which will
        * it distribute to all users
@@ -648,6 +735,7 @@ angular.module("myApp.roverService", ['ngWebSocket', 'ngMaterial'])
        * Exit driver mode --> backend should notify all clients that driver mode is now available
        */
       exitDriverMode: function () {
+        stopDriverHeartbeat();
         send("exitDriverMode", [clientId]);
       }
     };